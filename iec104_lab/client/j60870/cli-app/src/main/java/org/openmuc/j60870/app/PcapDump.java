@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.openmuc.j60870.app;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.openmuc.j60870.ASdu;
+import org.openmuc.j60870.ASduType;
+import org.openmuc.j60870.PcapAnalysis;
+import org.openmuc.j60870.PcapAnalyzer;
+import org.openmuc.j60870.PcapFlow;
+import org.openmuc.j60870.PcapListener;
+import org.openmuc.j60870.internal.cli.CliParameter;
+import org.openmuc.j60870.internal.cli.CliParameterBuilder;
+import org.openmuc.j60870.internal.cli.CliParseException;
+import org.openmuc.j60870.internal.cli.CliParser;
+import org.openmuc.j60870.internal.cli.FlagCliParameter;
+import org.openmuc.j60870.internal.cli.IntCliParameter;
+import org.openmuc.j60870.internal.cli.StringCliParameter;
+
+public final class PcapDump {
+
+    private static final StringCliParameter fileParam = new CliParameterBuilder("-f")
+            .setDescription("The pcap or pcapng file or a directory of capture files.")
+            .setMandatory()
+            .buildStringParameter("file");
+    private static final IntCliParameter portParam = new CliParameterBuilder("-p")
+            .setDescription("The port of the IEC 60870-5-104 servers.")
+            .buildIntParameter("port", 2404);
+    private static final IntCliParameter iaoLengthParam = new CliParameterBuilder("-iaol")
+            .setDescription("Information Object Address (IOA) field length.")
+            .buildIntParameter("iao_length", 3);
+    private static final IntCliParameter cotLengthParam = new CliParameterBuilder("-cotl")
+            .setDescription("Cause Of Transmission (CoT) field length.")
+            .buildIntParameter("cot_length", 2);
+    private static final IntCliParameter caLengthParam = new CliParameterBuilder("-cal")
+            .setDescription("Common Address (CA) field length.")
+            .buildIntParameter("ca_length", 2);
+    private static final IntCliParameter threadsParam = new CliParameterBuilder("-t")
+            .setDescription("The number of threads decoding the flows.")
+            .buildIntParameter("threads", Runtime.getRuntime().availableProcessors());
+    private static final FlagCliParameter statisticsOnlyParam = new CliParameterBuilder("-s")
+            .setDescription("Only print the statistics of the flows, do not decode the ASDUs.")
+            .buildFlagParameter();
+
+    private static final PrintStream out = new PrintStream(
+            new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+
+    public static void main(String[] args) {
+        List<CliParameter> cliParameters = new ArrayList<>();
+        cliParameters.add(fileParam);
+        cliParameters.add(portParam);
+        cliParameters.add(iaoLengthParam);
+        cliParameters.add(caLengthParam);
+        cliParameters.add(cotLengthParam);
+        cliParameters.add(threadsParam);
+        cliParameters.add(statisticsOnlyParam);
+
+        CliParser cliParser = new CliParser("j60870-pcap-dump",
+                "Decodes the IEC 60870-5-104 traffic of pcap and pcapng capture files.");
+        cliParser.addParameters(cliParameters);
+        try {
+            cliParser.parseArguments(args);
+        } catch (CliParseException e) {
+            System.err.println("Error parsing parameters: " + e.getMessage());
+            System.out.println(cliParser.getUsageString());
+            System.exit(1);
+        }
+
+        PcapAnalyzer analyzer;
+        try {
+            analyzer = new PcapAnalyzer().setPorts(portParam.getValue())
+                    .setIoaFieldLength(iaoLengthParam.getValue())
+                    .setCommonAddressFieldLength(caLengthParam.getValue())
+                    .setCotFieldLength(cotLengthParam.getValue())
+                    .setParallelism(threadsParam.getValue());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        File file = new File(fileParam.getValue());
+        File[] files;
+        if (file.isDirectory()) {
+            files = file.listFiles();
+            if (files == null) {
+                files = new File[0];
+            }
+            Arrays.sort(files);
+        }
+        else {
+            files = new File[] { file };
+        }
+
+        PcapListener listener = statisticsOnlyParam.isSelected() ? null : new PcapListener() {
+            @Override
+            public void newASdu(PcapFlow flow, PcapFlow.Direction direction, long timestampNanos, ASdu aSdu) {
+                String text = format(timestampNanos) + " " + flow + " "
+                        + (direction == PcapFlow.Direction.CLIENT_TO_SERVER ? ">>" : "<<") + "\n" + aSdu + "\n";
+                synchronized (out) {
+                    out.println(text);
+                }
+            }
+        };
+
+        boolean failed = false;
+        for (File capture : files) {
+            if (file.isDirectory() && !isCapture(capture)) {
+                continue;
+            }
+            out.println("### " + capture);
+            try {
+                long start = System.nanoTime();
+                PcapAnalysis analysis = analyzer.analyze(capture, listener);
+                printStatistics(analysis, System.nanoTime() - start);
+            } catch (IOException e) {
+                out.println("Unable to analyze " + capture + ": " + e.getMessage());
+                failed = true;
+            }
+            out.flush();
+        }
+        out.flush();
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean isCapture(File file) {
+        String name = file.getName();
+        return file.isFile() && (name.endsWith(".pcap") || name.endsWith(".pcapng") || name.endsWith(".cap"));
+    }
+
+    private static void printStatistics(PcapAnalysis analysis, long durationNanos) {
+        out.println(String.format("%d packets, %d segments to or from port %d, %d flows, %.1f MB in %.2f s (%.0f MB/s)",
+                analysis.getPacketCount(), analysis.getSegmentCount(), portParam.getValue(),
+                analysis.getFlows().size(), analysis.getByteCount() / 1e6, durationNanos / 1e9,
+                analysis.getByteCount() * 1e3 / Math.max(1, durationNanos)));
+        if (analysis.getTruncatedSegmentCount() > 0) {
+            out.println(analysis.getTruncatedSegmentCount() + " segments truncated by the snapshot length");
+        }
+        if (analysis.getFragmentCount() > 0) {
+            out.println(analysis.getFragmentCount() + " IP fragments ignored");
+        }
+        if (analysis.isFileTruncated()) {
+            out.println("the capture file is truncated");
+        }
+
+        for (PcapFlow flow : analysis.getFlows()) {
+            out.println();
+            out.println(flow + ", " + format(flow.getFirstTimestampNanos()) + " to "
+                    + format(flow.getLastTimestampNanos())
+                    + (flow.isConnectionSetupCaptured() ? "" : ", connection setup not captured"));
+            for (PcapFlow.Direction direction : PcapFlow.Direction.values()) {
+                PcapFlow.Statistics statistics = flow.getStatistics(direction);
+                out.println(String.format(
+                        "  %-16s %d segments, %d bytes, I %d, S %d, U %d, retransmitted %d, lost %d, skipped %d, "
+                                + "sequence errors %d, decode errors %d",
+                        direction, statistics.getSegmentCount(), statistics.getPayloadByteCount(),
+                        statistics.getIFrameCount(), statistics.getSFrameCount(), statistics.getUFrameCount(),
+                        statistics.getRetransmittedByteCount(), statistics.getLostByteCount(),
+                        statistics.getSkippedByteCount(), statistics.getSequenceErrorCount(),
+                        statistics.getDecodeErrorCount()));
+                StringBuilder types = new StringBuilder();
+                for (int typeId = 0; typeId < 256; typeId++) {
+                    long count = statistics.getASduCount(typeId);
+                    if (count > 0) {
+                        ASduType type = ASduType.typeFor(typeId);
+                        types.append(types.length() == 0 ? "    " : ", ")
+                                .append(type != null ? type.name() : "type " + typeId)
+                                .append(' ')
+                                .append(count);
+                    }
+                }
+                if (types.length() > 0) {
+                    out.println(types);
+                }
+            }
+        }
+        out.println();
+    }
+
+    private static String format(long timestampNanos) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestampNanos / 1_000_000))
+                + String.format("%06d", timestampNanos % 1_000_000);
+    }
+
+    private PcapDump() {
+    }
+
+}
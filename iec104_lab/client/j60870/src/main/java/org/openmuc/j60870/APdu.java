@@ -20,17 +20,16 @@
  */
 package org.openmuc.j60870;
 
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.Socket;
 import java.text.MessageFormat;
 
-import org.openmuc.j60870.internal.ExtendedDataInputStream;
-import org.openmuc.j60870.internal.StartBytesSimpleReader;
-
 class APdu {
 
     private static final int CONTROL_FIELDS_LENGTH = 4;
+    /**
+     * Start flag, length octet and control fields. The ASDU of an I format APDU starts at this offset.
+     */
+    static final int HEADER_LENGTH = CONTROL_FIELDS_LENGTH + 2;
     /**
      * Since the length of the control field is control field is 4 octets.
      */
@@ -38,11 +37,11 @@ class APdu {
     /**
      * The maximum length of APDU for both directions is 253. APDU max = 255 minus start and length octet.
      */
-    private static final int MAX_APDU_LENGTH = 253;
+    static final int MAX_APDU_LENGTH = 253;
     /**
      * START flag of an APDU.
      */
-    private static final byte START_FLAG = 0x68;
+    static final byte START_FLAG = 0x68;
 
     public enum ApciType {
         /**
@@ -104,61 +103,70 @@ class APdu {
     private final int receiveSeqNum;
     private final ApciType apciType;
     private final byte[] asduBuffer;
+    private final int asduOffset;
+    private final int asduLength;
+
+    private byte[] frameBuffer;
+    private int frameOffset;
 
     public APdu(int sendSeqNum, int receiveSeqNum, ApciType apciType) {
-        this(sendSeqNum, receiveSeqNum, apciType, null);
+        this(sendSeqNum, receiveSeqNum, apciType, null, 0, 0);
     }
 
     public APdu(int sendSeqNum, int receiveSeqNum, ApciType apciType, byte[] asduBuffer) {
+        this(sendSeqNum, receiveSeqNum, apciType, asduBuffer, 0, asduBuffer.length);
+    }
+
+    public APdu(int sendSeqNum, int receiveSeqNum, ApciType apciType, byte[] asduBuffer, int asduOffset,
+            int asduLength) {
         this.sendSeqNum = sendSeqNum;
         this.receiveSeqNum = receiveSeqNum;
         this.apciType = apciType;
         this.asduBuffer = asduBuffer;
+        this.asduOffset = asduOffset;
+        this.asduLength = asduLength;
     }
 
-    @SuppressWarnings("resource")
-    public static APdu decode(Socket socket, ConnectionSettings settings, ExtendedDataInputStream socketInputStream)
-            throws IOException {
-        socket.setSoTimeout(0);
-
-        StartBytesSimpleReader startBytesSimpleReader = new StartBytesSimpleReader(new byte[] { START_FLAG },
-                socketInputStream);
-        startBytesSimpleReader.readStartBytes();
-
-        socket.setSoTimeout(settings.getMessageFragmentTimeout());
-
-        int length = readApduLength(socketInputStream);
-
-        byte[] aPduControlFields = readControlFields(socketInputStream);
+    /**
+     * Decodes an APDU from the control fields and the ASDU in the given buffer. The ASDU of an I-format APDU is not
+     * copied but referenced as a slice of the buffer.
+     *
+     * @param buffer
+     *            the buffer containing the APDU
+     * @param offset
+     *            the offset of the first control field
+     * @param length
+     *            the APDU length as given by the length octet
+     */
+    static APdu decode(byte[] buffer, int offset, int length) {
+        APdu aPdu = decodeControlFields(buffer, offset, length);
+        aPdu.frameBuffer = buffer;
+        aPdu.frameOffset = offset - 2;
+        return aPdu;
+    }
 
-        ApciType apciType = ApciType.apciTypeFor(aPduControlFields[0]);
+    private static APdu decodeControlFields(byte[] buffer, int offset, int length) {
+        ApciType apciType = ApciType.apciTypeFor(buffer[offset]);
         switch (apciType) {
         case I_FORMAT:
-            int sendSeqNum = seqNumFrom(aPduControlFields[0], aPduControlFields[1]);
-            int receiveSeqNum = seqNumFrom(aPduControlFields[2], aPduControlFields[3]);
-
-            int aSduLength = length - CONTROL_FIELDS_LENGTH;
-
-            byte[] asduBuffer = new byte[aSduLength];
-            socketInputStream.readFully(asduBuffer);
+            int sendSeqNum = seqNumFrom(buffer[offset], buffer[offset + 1]);
+            int receiveSeqNum = seqNumFrom(buffer[offset + 2], buffer[offset + 3]);
 
-            return new APdu(sendSeqNum, receiveSeqNum, apciType, asduBuffer);
+            return new APdu(sendSeqNum, receiveSeqNum, apciType, buffer, offset + CONTROL_FIELDS_LENGTH,
+                    length - CONTROL_FIELDS_LENGTH);
         case S_FORMAT:
-            return new APdu(0, seqNumFrom(aPduControlFields[2], aPduControlFields[3]), apciType);
+            return new APdu(0, seqNumFrom(buffer[offset + 2], buffer[offset + 3]), apciType);
 
         default:
             return new APdu(0, 0, apciType);
         }
-
     }
 
     private static int seqNumFrom(byte b1, byte b2) {
         return ((b1 & 0xfe) >> 1) + ((b2 & 0xff) << 7);
     }
 
-    private static int readApduLength(DataInputStream is) throws IOException {
-        int length = is.readUnsignedByte();
-
+    static int checkApduLength(int length) throws IOException {
         if (length < MIN_APDU_LENGTH || length > MAX_APDU_LENGTH) {
             String msg = MessageFormat
                     .format("APDU has an invalid length must be between 4 and 253.\nReceived length was: {0}.", length);
@@ -167,63 +175,35 @@ class APdu {
         return length;
     }
 
-    private static byte[] readControlFields(DataInputStream is) throws IOException {
-        byte[] aPduControlFields = new byte[CONTROL_FIELDS_LENGTH];
-        is.readFully(aPduControlFields);
-        return aPduControlFields;
-    }
-
-    public int encode(byte[] buffer, ConnectionSettings settings) {
-
+    /**
+     * Writes the header of an I format APDU in front of an ASDU that has already been encoded into the buffer at
+     * {@link #HEADER_LENGTH}.
+     *
+     * @return the length of the APDU including start flag and length octet
+     */
+    static int encodeIFormatHeader(byte[] buffer, int asduLength, int sendSeqNum, int receiveSeqNum) {
         buffer[0] = START_FLAG;
-
-        int length = CONTROL_FIELDS_LENGTH;
-
-        if (apciType == ApciType.I_FORMAT) {
-            buffer[2] = (byte) (sendSeqNum << 1);
-            buffer[3] = (byte) (sendSeqNum >> 7);
-            writeReceiveSeqNumTo(buffer);
-
-            System.arraycopy(asduBuffer, 0, buffer, 6, asduBuffer.length);
-            length += asduBuffer.length;
-        }
-        else if (apciType == ApciType.STARTDT_ACT) {
-            buffer[2] = 0x07;
-            setV3To5zero(buffer);
-        }
-        else if (apciType == ApciType.STARTDT_CON) {
-            buffer[2] = 0x0b;
-            setV3To5zero(buffer);
-        }
-        else if (apciType == ApciType.STOPDT_ACT) {
-            buffer[2] = 0x13;
-            setV3To5zero(buffer);
-        }
-        else if (apciType == ApciType.STOPDT_CON) {
-            buffer[2] = 0x23;
-            setV3To5zero(buffer);
-        }
-        else if (apciType == ApciType.S_FORMAT) {
-            buffer[2] = 0x01;
-            buffer[3] = 0x00;
-            writeReceiveSeqNumTo(buffer);
-        }
-
-        buffer[1] = (byte) length;
-
-        return length + 2;
-
+        buffer[1] = (byte) (CONTROL_FIELDS_LENGTH + asduLength);
+        buffer[2] = (byte) (sendSeqNum << 1);
+        buffer[3] = (byte) (sendSeqNum >> 7);
+        buffer[4] = (byte) (receiveSeqNum << 1);
+        buffer[5] = (byte) (receiveSeqNum >> 7);
+        return HEADER_LENGTH + asduLength;
     }
 
-    private static void setV3To5zero(byte[] buffer) {
+    /**
+     * Writes an S format APDU to the buffer.
+     *
+     * @return the length of the APDU including start flag and length octet
+     */
+    static int encodeSFormat(byte[] buffer, int receiveSeqNum) {
+        buffer[0] = START_FLAG;
+        buffer[1] = CONTROL_FIELDS_LENGTH;
+        buffer[2] = 0x01;
         buffer[3] = 0x00;
-        buffer[4] = 0x00;
-        buffer[5] = 0x00;
-    }
-
-    private void writeReceiveSeqNumTo(byte[] buffer) {
         buffer[4] = (byte) (receiveSeqNum << 1);
         buffer[5] = (byte) (receiveSeqNum >> 7);
+        return HEADER_LENGTH;
     }
 
     public ApciType getApciType() {
@@ -238,8 +218,39 @@ class APdu {
         return receiveSeqNum;
     }
 
+    /**
+     * Returns the buffer holding the ASDU. The ASDU starts at {@link #getASduOffset()}. The buffer of a received APDU
+     * is owned by the connection's decoder and only valid while the APDU is being handled.
+     */
     public byte[] getASduBuffer() {
         return asduBuffer;
     }
 
+    public int getASduOffset() {
+        return asduOffset;
+    }
+
+    public int getASduLength() {
+        return asduLength;
+    }
+
+    /**
+     * Returns the buffer holding the received APDU including start flag and length octet, or null if the APDU has not
+     * been received.
+     */
+    byte[] getFrameBuffer() {
+        return frameBuffer;
+    }
+
+    int getFrameOffset() {
+        return frameOffset;
+    }
+
+    /**
+     * Returns the length of the received APDU including start flag and length octet.
+     */
+    int getFrameLength() {
+        return (frameBuffer[frameOffset + 1] & 0xff) + 2;
+    }
+
 }
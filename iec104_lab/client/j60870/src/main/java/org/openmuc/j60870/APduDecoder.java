@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Incremental APDU decoder of a connection. Received bytes are appended to a reusable buffer and complete APDUs are
+ * decoded in place: the ASDU of a decoded APDU is a slice of the decoder buffer and stays valid until the next read.
+ * Unconsumed bytes are only moved to the front of the buffer when there is no longer room for a maximum sized APDU
+ * behind them.
+ */
+class APduDecoder {
+
+    private static final int MAX_FRAME_LENGTH = APdu.MAX_APDU_LENGTH + 2;
+
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+
+    private int readIndex;
+    private int writeIndex;
+
+    APduDecoder(int capacity) {
+        if (capacity < MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("capacity must be at least " + MAX_FRAME_LENGTH);
+        }
+        this.buffer = new byte[capacity];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Reads the bytes that are available from the input stream, blocking if there are none.
+     *
+     * @return the number of bytes read or -1 if the end of the stream has been reached
+     */
+    int readFrom(InputStream is) throws IOException {
+        makeRoom();
+        int numBytes = is.read(buffer, writeIndex, buffer.length - writeIndex);
+        if (numBytes > 0) {
+            writeIndex += numBytes;
+        }
+        return numBytes;
+    }
+
+    /**
+     * Reads the bytes that are available from the channel.
+     *
+     * @return the number of bytes read or -1 if the end of the stream has been reached
+     */
+    int readFrom(ReadableByteChannel channel) throws IOException {
+        makeRoom();
+        byteBuffer.limit(buffer.length).position(writeIndex);
+        int numBytes = channel.read(byteBuffer);
+        if (numBytes > 0) {
+            writeIndex += numBytes;
+        }
+        return numBytes;
+    }
+
+    /**
+     * Decodes the next complete APDU. Bytes preceding the start flag are discarded.
+     *
+     * @return the decoded APDU or null if no complete APDU has been received yet
+     * @throws IOException
+     *             if the APDU has an invalid length
+     */
+    APdu nextAPdu() throws IOException {
+        while (readIndex < writeIndex && buffer[readIndex] != APdu.START_FLAG) {
+            readIndex++;
+        }
+
+        if (writeIndex - readIndex < 2) {
+            return null;
+        }
+
+        int length = APdu.checkApduLength(buffer[readIndex + 1] & 0xff);
+        if (writeIndex - readIndex < length + 2) {
+            return null;
+        }
+
+        int controlFieldsIndex = readIndex + 2;
+        readIndex = controlFieldsIndex + length;
+
+        return APdu.decode(buffer, controlFieldsIndex, length);
+    }
+
+    /**
+     * Returns true if the start of an APDU has been received but not the complete APDU. Only meaningful after
+     * {@link #nextAPdu()} returned null.
+     */
+    boolean hasPartialAPdu() {
+        return readIndex < writeIndex;
+    }
+
+    private void makeRoom() {
+        if (readIndex == writeIndex) {
+            readIndex = 0;
+            writeIndex = 0;
+        }
+        else if (buffer.length - writeIndex < MAX_FRAME_LENGTH) {
+            System.arraycopy(buffer, readIndex, buffer, 0, writeIndex - readIndex);
+            writeIndex -= readIndex;
+            readIndex = 0;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A record of an {@link APduRecorder} capture file.
+ */
+public class APduRecord {
+
+    /**
+     * The event a record has been written for.
+     */
+    public enum Direction {
+        /**
+         * An APDU has been received.
+         */
+        RECEIVED,
+        /**
+         * An APDU has been sent.
+         */
+        SENT,
+        /**
+         * A connection has been opened. The data of the record is the remote address.
+         */
+        OPENED,
+        /**
+         * A connection has been closed. The record has no data.
+         */
+        CLOSED;
+
+        private static final Direction[] VALUES = values();
+
+        static Direction forId(int id) {
+            return id < VALUES.length ? VALUES[id] : null;
+        }
+    }
+
+    private final long sequenceNumber;
+    private final long timestampNanos;
+    private final Direction direction;
+    private final int connectionId;
+    private final byte[] data;
+
+    APduRecord(long sequenceNumber, long timestampNanos, Direction direction, int connectionId, byte[] data) {
+        this.sequenceNumber = sequenceNumber;
+        this.timestampNanos = timestampNanos;
+        this.direction = direction;
+        this.connectionId = connectionId;
+        this.data = data;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Returns the time the record has been written.
+     *
+     * @return the time in nanoseconds since the epoch
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the ID of the connection. The IDs are assigned in the order the connections of a process are created.
+     *
+     * @return the connection ID
+     */
+    public int getConnectionId() {
+        return connectionId;
+    }
+
+    /**
+     * Returns the APDU including start flag and length octet or the remote address of an opened connection.
+     *
+     * @return the data, not copied
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestampNanos / 1_000_000)));
+        sb.append(String.format("%06d", timestampNanos % 1_000_000));
+        sb.append(" #").append(sequenceNumber).append(" conn ").append(connectionId).append(' ').append(direction);
+        if (direction == Direction.OPENED) {
+            sb.append(' ').append(new String(data, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+        for (byte b : data) {
+            sb.append(' ').append(Character.forDigit((b >> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Records the APDUs received and sent by connections to a memory-mapped ring file. Every record holds the time in
+ * nanoseconds since the epoch, the direction, the ID of the connection and the bytes of the APDU including start flag
+ * and length octet. Opening and closing of a connection is recorded as well, the record of an opened connection holds
+ * the remote address. When the file is full, the oldest records are overwritten.
+ * <p>
+ * The file is allocated when the recorder is created and consists of a header, an index ring that maps sequence
+ * numbers to positions and the ring of records. A record is written by copying the APDU to the mapped file, there is
+ * no I/O on the thread that receives or sends the APDU. A recorder can be shared by any number of connections and is
+ * set with {@link CommonBuilder#setAPduRecorder(APduRecorder)}. The records are read with {@link APduCaptureReader}.
+ * </p>
+ * <p>
+ * If the file exists and has been written by a recorder of the same capacity, recording continues after the last
+ * record.
+ * </p>
+ */
+public class APduRecorder implements Closeable {
+
+    static final long MAGIC = 0x4a36303837304350L; // "J60870CP"
+    static final int VERSION = 1;
+
+    static final int MAGIC_POSITION = 0;
+    static final int VERSION_POSITION = 8;
+    static final int INDEX_SLOTS_POSITION = 12;
+    static final int DATA_CAPACITY_POSITION = 16;
+    static final int NEXT_SEQUENCE_POSITION = 24;
+    static final int DATA_POSITION_POSITION = 32;
+    static final int HEADER_LENGTH = 64;
+
+    static final int INDEX_ENTRY_LENGTH = 16;
+
+    /**
+     * Sequence number, time stamp, connection ID, direction, one reserved octet and the length of the APDU.
+     */
+    static final int RECORD_HEADER_LENGTH = 24;
+
+    private static final int MIN_DATA_CAPACITY = 4096;
+    private static final int MAX_RECORD_LENGTH = RECORD_HEADER_LENGTH + 255;
+    private static final int AVERAGE_RECORD_LENGTH = 32;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int indexSlots;
+    private final int dataCapacity;
+    private final int dataStart;
+
+    private final long epochNanosAtStart;
+    private final long nanoTimeAtStart;
+
+    private long nextSequence;
+    private long dataPosition;
+    private boolean closed;
+
+    /**
+     * Creates a recorder writing to the given file. The file is created or resized to hold the given number of bytes of
+     * records plus the header and the index.
+     *
+     * @param file
+     *            the capture file
+     * @param dataCapacity
+     *            the number of bytes of records the file can hold, at least 4096
+     * @throws IOException
+     *             if the file cannot be created or mapped
+     */
+    public APduRecorder(File file, int dataCapacity) throws IOException {
+        if (dataCapacity < MIN_DATA_CAPACITY) {
+            throw new IllegalArgumentException("invalid capacity: " + dataCapacity);
+        }
+        this.dataCapacity = dataCapacity;
+        this.indexSlots = dataCapacity / AVERAGE_RECORD_LENGTH;
+        this.dataStart = HEADER_LENGTH + indexSlots * INDEX_ENTRY_LENGTH;
+        long fileLength = (long) dataStart + dataCapacity;
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity too large: " + dataCapacity);
+        }
+
+        this.file = new RandomAccessFile(file, "rw");
+        try {
+            boolean resume = file.length() == fileLength;
+            this.file.setLength(fileLength);
+            this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileLength);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (resume && buffer.getLong(MAGIC_POSITION) == MAGIC && buffer.getInt(VERSION_POSITION) == VERSION
+                    && buffer.getInt(INDEX_SLOTS_POSITION) == indexSlots
+                    && buffer.getLong(DATA_CAPACITY_POSITION) == dataCapacity) {
+                nextSequence = buffer.getLong(NEXT_SEQUENCE_POSITION);
+                dataPosition = buffer.getLong(DATA_POSITION_POSITION);
+            }
+            else {
+                buffer.putLong(NEXT_SEQUENCE_POSITION, 0);
+                buffer.putLong(DATA_POSITION_POSITION, 0);
+                buffer.putInt(VERSION_POSITION, VERSION);
+                buffer.putInt(INDEX_SLOTS_POSITION, indexSlots);
+                buffer.putLong(DATA_CAPACITY_POSITION, dataCapacity);
+                buffer.putLong(MAGIC_POSITION, MAGIC);
+            }
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+
+        this.epochNanosAtStart = System.currentTimeMillis() * 1_000_000L;
+        this.nanoTimeAtStart = System.nanoTime();
+    }
+
+    /**
+     * Returns the sequence number the next record will get. Sequence numbers start at 0 when the file is created.
+     *
+     * @return the number of records written to the file
+     */
+    public synchronized long getNextSequenceNumber() {
+        return nextSequence;
+    }
+
+    /**
+     * Writes the header to the file and closes it. Further APDUs are not recorded.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        file.close();
+    }
+
+    void recordOpened(int connectionId, String remoteAddress) {
+        byte[] address = remoteAddress.getBytes(StandardCharsets.UTF_8);
+        record(APduRecord.Direction.OPENED, connectionId, address, 0, Math.min(address.length, 255));
+    }
+
+    void recordClosed(int connectionId) {
+        record(APduRecord.Direction.CLOSED, connectionId, null, 0, 0);
+    }
+
+    void recordReceived(int connectionId, byte[] frame, int offset, int length) {
+        record(APduRecord.Direction.RECEIVED, connectionId, frame, offset, length);
+    }
+
+    /**
+     * Returns a stream that records every write as one sent APDU before passing it on.
+     */
+    OutputStream recordingOutputStream(OutputStream out, final int connectionId) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                record(APduRecord.Direction.SENT, connectionId, b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    private synchronized void record(APduRecord.Direction direction, int connectionId, byte[] data, int offset,
+            int length) {
+        if (closed || length > MAX_RECORD_LENGTH - RECORD_HEADER_LENGTH) {
+            return;
+        }
+        long timestamp = epochNanosAtStart + (System.nanoTime() - nanoTimeAtStart);
+
+        int recordLength = RECORD_HEADER_LENGTH + length;
+        long position = dataPosition;
+        int physical = (int) (position % dataCapacity);
+        if (physical + recordLength > dataCapacity) {
+            // records do not wrap, the rest of the ring is skipped
+            position += dataCapacity - physical;
+            physical = 0;
+        }
+        long sequence = nextSequence;
+
+        // announce the overwritten range before overwriting it
+        dataPosition = position + recordLength;
+        buffer.putLong(DATA_POSITION_POSITION, dataPosition);
+
+        int i = dataStart + physical;
+        buffer.putLong(i, sequence);
+        buffer.putLong(i + 8, timestamp);
+        buffer.putInt(i + 16, connectionId);
+        buffer.put(i + 20, (byte) direction.ordinal());
+        buffer.put(i + 21, (byte) 0);
+        buffer.putShort(i + 22, (short) length);
+        if (length > 0) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(i + RECORD_HEADER_LENGTH);
+            target.put(data, offset, length);
+        }
+
+        int entry = HEADER_LENGTH + (int) (sequence % indexSlots) * INDEX_ENTRY_LENGTH;
+        buffer.putLong(entry, sequence);
+        buffer.putLong(entry + 8, position);
+
+        nextSequence = sequence + 1;
+        buffer.putLong(NEXT_SEQUENCE_POSITION, nextSequence);
+    }
+
+    @Override
+    public String toString() {
+        return "APDU recorder, capacity: " + dataCapacity + " bytes, records: " + getNextSequenceNumber();
+    }
+
+}
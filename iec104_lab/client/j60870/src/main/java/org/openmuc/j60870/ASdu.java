@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.text.MessageFormat;
 
 import org.openmuc.j60870.ie.InformationObject;
+import org.openmuc.j60870.ie.InformationObjectLayout;
 import org.openmuc.j60870.internal.ExtendedDataInputStream;
 import org.openmuc.j60870.internal.HexUtils;
 
@@ -51,6 +52,12 @@ import org.openmuc.j60870.internal.HexUtils;
  */
 public class ASdu {
 
+    /**
+     * The maximum number of information objects or elements of an ASDU. The number is encoded in the seven lower bits
+     * of the variable structure qualifier.
+     */
+    public static final int MAX_SEQUENCE_LENGTH = 127;
+
     private final ASduType aSduType;
     private final boolean isSequenceOfElements;
     private final CauseOfTransmission causeOfTransmission;
@@ -103,6 +110,7 @@ public class ASdu {
         else {
             sequenceLength = informationObjects.length;
         }
+        checkSequenceLength(sequenceLength);
     }
 
     /**
@@ -143,7 +151,16 @@ public class ASdu {
         this.commonAddress = commonAddress;
         informationObjects = null;
         this.privateInformation = privateInformation;
-        this.sequenceLength = sequenceLength;
+        this.sequenceLength = checkSequenceLength(sequenceLength);
+    }
+
+    private static int checkSequenceLength(int sequenceLength) {
+        if (sequenceLength > MAX_SEQUENCE_LENGTH) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Sequence length {0} exceeds the maximum of {1} of the variable structure qualifier.",
+                    sequenceLength, MAX_SEQUENCE_LENGTH));
+        }
+        return sequenceLength;
     }
 
     static ASdu decode(ExtendedDataInputStream is, ConnectionSettings settings, int aSduLength) throws IOException {
@@ -152,7 +169,7 @@ public class ASdu {
 
         ASduType typeId = ASduType.typeFor(typeIdCode);
 
-        if (typeId == null || (settings.getAllowedTypes() != null && !settings.getAllowedTypes().contains(typeId))) {
+        if (typeId == null || !settings.isAllowedType(typeIdCode)) {
             throw new UnknownAsduTypeException(MessageFormat.format("Unknown Type Identification: {0}", typeIdCode));
         }
 
@@ -201,12 +218,34 @@ public class ASdu {
         byte[] privateInformation;
         if (typeIdCode < 128) {
 
-            informationObjects = new InformationObject[numberOfInformationObjects];
-
             int ioaFieldLength = settings.getIoaFieldLength();
+            InformationObjectLayout layout = InformationObjectLayout.forType(typeIdCode);
+            ReservedASduTypeDecoder reservedASduTypeDecoder = null;
+            if (layout != null) {
+                int requiredLength = layout.informationObjectsLength(ioaFieldLength, isSequenceOfElements,
+                        sequenceLength);
+                if (requiredLength > aSduLength - 4) {
+                    throw new IOException(MessageFormat.format(
+                            "ASDU of type {0} with {1} element sets is too short: {2} bytes of information objects.",
+                            typeIdCode, sequenceLength, aSduLength - 4));
+                }
+            }
+            else {
+                reservedASduTypeDecoder = settings.getReservedASduTypeDecoder(typeIdCode);
+                if (reservedASduTypeDecoder == null) {
+                    throw new IOException(
+                            "Unable to parse Information Object because of unknown Type Identification: " + typeId);
+                }
+            }
+
+            informationObjects = new InformationObject[numberOfInformationObjects];
             for (int i = 0; i < numberOfInformationObjects; i++) {
-                informationObjects[i] = InformationObject.decode(is, typeId, numberOfSequenceElements, ioaFieldLength,
-                        settings.getReservedASduTypeDecoder());
+                if (layout != null) {
+                    informationObjects[i] = layout.decode(is, numberOfSequenceElements, ioaFieldLength);
+                }
+                else {
+                    informationObjects[i] = reservedASduTypeDecoder.decode(is, typeId);
+                }
             }
             return new ASdu(typeId, isSequenceOfElements, causeOfTransmission, test, negativeConfirm, originatorAddress,
                     commonAddress, informationObjects);
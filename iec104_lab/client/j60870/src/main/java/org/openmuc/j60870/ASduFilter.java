@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import org.openmuc.j60870.ie.InformationObjectLayout;
+
+/**
+ * Criteria an ASDU is matched against by an {@link ASduFilterChain}. The criteria are checked on the encoded bytes of
+ * a received ASDU, before any information object is decoded. All criteria that have been set must be met for an ASDU
+ * to match. A filter without criteria matches every ASDU.
+ * <p>
+ * A filter must not be changed after the chain it has been added to has been passed to a connection builder.
+ * </p>
+ */
+public class ASduFilter {
+
+    private boolean[] typeIds;
+    private boolean[] causes;
+    private int test = -1;
+    private int minCommonAddress = 0;
+    private int maxCommonAddress = Integer.MAX_VALUE;
+    private boolean checkIoa;
+    private int minIoa;
+    private int maxIoa;
+
+    /**
+     * Matches ASDUs of one of the given types.
+     *
+     * @param types
+     *            the types
+     * @return this filter
+     */
+    public ASduFilter types(ASduType... types) {
+        typeIds = new boolean[256];
+        for (ASduType type : types) {
+            typeIds[type.getId()] = true;
+        }
+        return this;
+    }
+
+    /**
+     * Matches ASDUs with one of the given causes of transmission.
+     *
+     * @param causes
+     *            the causes of transmission
+     * @return this filter
+     */
+    public ASduFilter causes(CauseOfTransmission... causes) {
+        this.causes = new boolean[64];
+        for (CauseOfTransmission cause : causes) {
+            this.causes[cause.getId()] = true;
+        }
+        return this;
+    }
+
+    /**
+     * Matches ASDUs whose test bit is set or not set.
+     *
+     * @param test
+     *            true to match test ASDUs, false to match ASDUs that are not test ASDUs
+     * @return this filter
+     */
+    public ASduFilter test(boolean test) {
+        this.test = test ? 0x80 : 0;
+        return this;
+    }
+
+    /**
+     * Matches ASDUs with a common address in the given range.
+     *
+     * @param from
+     *            the lowest common address, inclusive
+     * @param to
+     *            the highest common address, inclusive
+     * @return this filter
+     */
+    public ASduFilter commonAddresses(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("invalid common address range: " + from + " to " + to);
+        }
+        minCommonAddress = from;
+        maxCommonAddress = to;
+        return this;
+    }
+
+    /**
+     * Matches ASDUs that contain at least one information object address in the given range. Within a sequence of
+     * elements the address is incremented by one for every element. Of information objects of a variable length only
+     * the first address is checked.
+     *
+     * @param from
+     *            the lowest information object address, inclusive
+     * @param to
+     *            the highest information object address, inclusive
+     * @return this filter
+     */
+    public ASduFilter informationObjectAddresses(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("invalid information object address range: " + from + " to " + to);
+        }
+        checkIoa = true;
+        minIoa = from;
+        maxIoa = to;
+        return this;
+    }
+
+    /**
+     * Checks the criteria against an encoded ASDU. An ASDU that is too short to contain the fields that are checked
+     * does not match.
+     */
+    boolean matches(byte[] buffer, int offset, int length, ConnectionSettings settings) {
+        int caPosition = 2 + settings.getCotFieldLength();
+        int headerLength = caPosition + settings.getCommonAddressFieldLength();
+        if (length < headerLength) {
+            return false;
+        }
+
+        int typeId = buffer[offset] & 0xff;
+        if (typeIds != null && !typeIds[typeId]) {
+            return false;
+        }
+        int cot = buffer[offset + 2];
+        if (causes != null && !causes[cot & 0x3f]) {
+            return false;
+        }
+        if (test >= 0 && (cot & 0x80) != test) {
+            return false;
+        }
+
+        int ca = buffer[offset + caPosition] & 0xff;
+        if (headerLength - caPosition == 2) {
+            ca |= (buffer[offset + caPosition + 1] & 0xff) << 8;
+        }
+        if (ca < minCommonAddress || ca > maxCommonAddress) {
+            return false;
+        }
+
+        return !checkIoa || containsIoa(buffer, offset + headerLength, length - headerLength, typeId,
+                buffer[offset + 1], settings.getIoaFieldLength());
+    }
+
+    private boolean containsIoa(byte[] buffer, int position, int length, int typeId, int vsq, int ioaFieldLength) {
+        int sequenceLength = vsq & 0x7f;
+        if (length < ioaFieldLength || sequenceLength == 0) {
+            return false;
+        }
+
+        InformationObjectLayout layout = InformationObjectLayout.forType(typeId);
+        int ioa = readIoa(buffer, position, ioaFieldLength);
+        if ((vsq & 0x80) == 0x80) {
+            if (layout == null || !layout.isSequenceAllowed()) {
+                return ioa >= minIoa && ioa <= maxIoa;
+            }
+            int last = (ioa + sequenceLength - 1) & ASduView.ioaMask(ioaFieldLength);
+            if (last < ioa) {
+                // the addresses of the sequence wrap around at the width of the address field
+                return ioa <= maxIoa || last >= minIoa;
+            }
+            return ioa <= maxIoa && last >= minIoa;
+        }
+        if (ioa >= minIoa && ioa <= maxIoa) {
+            return true;
+        }
+        if (layout == null || !layout.isFixedLength()) {
+            return false;
+        }
+
+        int stride = ioaFieldLength + layout.getElementSetSize();
+        int end = position + Math.min(length, sequenceLength * stride) - ioaFieldLength;
+        for (int i = position + stride; i <= end; i += stride) {
+            ioa = readIoa(buffer, i, ioaFieldLength);
+            if (ioa >= minIoa && ioa <= maxIoa) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int readIoa(byte[] buffer, int position, int ioaFieldLength) {
+        int ioa = buffer[position] & 0xff;
+        if (ioaFieldLength > 1) {
+            ioa |= (buffer[position + 1] & 0xff) << 8;
+            if (ioaFieldLength > 2) {
+                ioa |= (buffer[position + 2] & 0xff) << 16;
+            }
+        }
+        return ioa;
+    }
+
+}
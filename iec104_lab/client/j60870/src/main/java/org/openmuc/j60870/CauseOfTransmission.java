@@ -20,9 +20,6 @@
  */
 package org.openmuc.j60870;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Every ASDU contains a single Cause Of Transmission field so the recipient knows why the message it received was sent.
  * Parts IEC 60870-5-101 and IEC 60870-5-104 define what CauseOfTransmissions are allowed for the different ASDU types.
@@ -110,13 +107,14 @@ public enum CauseOfTransmission {
 
     private final int id;
 
-    private static final Map<Integer, CauseOfTransmission> idMap = new HashMap<>();
+    private static final CauseOfTransmission[] idMap = new CauseOfTransmission[64];
 
     static {
         for (CauseOfTransmission enumInstance : CauseOfTransmission.values()) {
-            if (idMap.put(enumInstance.getId(), enumInstance) != null) {
+            if (idMap[enumInstance.getId()] != null) {
                 throw new IllegalArgumentException("duplicate ID: " + enumInstance.getId());
             }
+            idMap[enumInstance.getId()] = enumInstance;
         }
     }
 
@@ -142,7 +140,10 @@ public enum CauseOfTransmission {
      * @return the CauseOfTransmission that corresponds to the given ID.
      */
     public static CauseOfTransmission causeFor(int id) {
-        return idMap.get(id);
+        if (id < 0 || id >= idMap.length) {
+            return null;
+        }
+        return idMap[id];
     }
 
 }
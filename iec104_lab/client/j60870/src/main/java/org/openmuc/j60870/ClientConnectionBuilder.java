@@ -25,6 +25,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
@@ -74,7 +75,8 @@ public class ClientConnectionBuilder extends CommonBuilder<ClientConnectionBuild
 
     /**
      * Set the socket factory to used to create the socket for the connection. The default is
-     * {@link SocketFactory#getDefault()}. You could pass an {@link SSLSocketFactory} to enable SSL.
+     * {@link SocketFactory#getDefault()}. You could pass an {@link SSLSocketFactory} to enable SSL, but
+     * {@link #useTls(javax.net.ssl.SSLContext)} is preferred as it supports session resumption and renegotiation.
      * 
      * @param socketFactory
      *            the socket factory
@@ -167,15 +169,40 @@ public class ClientConnectionBuilder extends CommonBuilder<ClientConnectionBuild
      */
     @Override
     public Connection build() throws IOException {
-        Socket socket = socketFactory.createSocket();
-        socket.setSoTimeout(settings.getMessageFragmentTimeout());
+        return build(settings.getConnectionTimeout(), settings.getConnectionEventListener());
+    }
+
+    /**
+     * Connects to the server like {@link #build()} but limits connection build up and TLS handshake to the given
+     * timeout instead of t0 and starts the connection with the given listener.
+     */
+    Connection build(int connectionTimeout, ConnectionEventListener listener) throws IOException {
+        ConnectionSettings connectionSettings = new ConnectionSettings(settings);
+        connectionSettings.setConnectionTimeout(connectionTimeout);
+
+        Socket socket;
+        if (connectionSettings.useNioEngine()) {
+            socket = SocketChannel.open().socket();
+        }
+        else {
+            socket = socketFactory.createSocket();
+        }
+        socket.setSoTimeout(connectionSettings.getMessageFragmentTimeout());
 
         if (localAddr != null) {
             socket.bind(new InetSocketAddress(localAddr, localPort));
         }
-        socket.connect(new InetSocketAddress(address, port), settings.getConnectionTimeout());
-        Connection connection = new Connection(socket, null, new ConnectionSettings(settings));
-        connection.start(settings.getConnectionEventListener());
+        try {
+            socket.connect(new InetSocketAddress(address, port), connectionTimeout);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        if (connectionSettings.useTls()) {
+            socket = TlsSupport.layerClientSocket(connectionSettings, socket, address, port);
+        }
+        Connection connection = new Connection(socket, null, connectionSettings);
+        connection.start(listener);
         return connection;
     }
 
@@ -0,0 +1,692 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+import org.openmuc.j60870.internal.SerialExecutor;
+
+/**
+ * A persistent journal of the events of a controlled station that delivers them to the controlling stations (masters)
+ * in order, including the events raised while a master was not connected or had stopped the data transfer.
+ * <p>
+ * Events are appended to a log of memory-mapped segment files in a directory. Appending encodes the ASDU into the
+ * current segment and never waits for a connection. The log is bounded by size and age: the oldest segments are
+ * deleted when the size limit is reached or when their newest event is older than the age limit.
+ * <p>
+ * For each master, identified by its IP address, the journal keeps a cursor file with the sequence number of the first
+ * event that the master has not acknowledged yet. When a master starts the data transfer, the events from its cursor
+ * on are sent with {@link Connection#sendAsync(ASdu)}, at most k of them unacknowledged at a time, followed by new
+ * events as they are appended. The cursor advances as the master acknowledges the I format APDUs, so events that are
+ * lost with a connection are sent again. A master that has never been seen before receives the events appended after
+ * its first start of data transfer. Segments and cursors survive restarts of the process.
+ * <p>
+ * Events are stored with the maximum field lengths and are encoded with the field lengths of each connection when
+ * they are sent.
+ */
+public class EventJournal implements Closeable {
+
+    static final long MAGIC = 0x4a36303837304a4cL;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_LENGTH = 32;
+    static final int RECORD_HEADER_LENGTH = 20;
+
+    private static final int MIN_SEGMENT_SIZE = 1 << 16;
+    private static final int MAX_SEGMENT_SIZE = 1 << 26;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_SUFFIX = ".cursor";
+    private static final int CURSOR_LENGTH = 16;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long maxAgeMillis;
+    private final Clock clock;
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final byte[] encodeBuffer = new byte[APdu.MAX_APDU_LENGTH];
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, Delivery> deliveries = new HashMap<>();
+    private final Map<String, Cursor> cursors = new HashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(new DeliveryThreadFactory());
+    private long nextSequenceNumber;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the given directory. Existing segments and cursors are loaded.
+     *
+     * @param directory
+     *            the directory of the journal, created if it does not exist
+     * @param maxBytes
+     *            the maximum size of the segments, at least 128 KiB
+     * @param maxAgeMillis
+     *            the time after which events may be deleted, or 0 to only bound the journal by size
+     * @throws IOException
+     *             if the directory cannot be created or read
+     */
+    public EventJournal(File directory, long maxBytes, long maxAgeMillis) throws IOException {
+        this(directory, maxBytes, maxAgeMillis, Clock.systemUTC());
+    }
+
+    /**
+     * Opens the journal with the clock the events are timestamped with for the age limit.
+     */
+    EventJournal(File directory, long maxBytes, long maxAgeMillis, Clock clock) throws IOException {
+        if (maxBytes < 2 * MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("maxBytes must be at least " + 2 * MIN_SEGMENT_SIZE);
+        }
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("invalid maximum age: " + maxAgeMillis);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, maxBytes / 8));
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentSize);
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        loadSegments();
+    }
+
+    private void loadSegments() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to read journal directory " + directory);
+        }
+        List<File> segmentFiles = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(SEGMENT_SUFFIX)) {
+                segmentFiles.add(file);
+            }
+        }
+        for (File file : segmentFiles) {
+            Segment segment;
+            try {
+                segment = Segment.open(file);
+            } catch (IOException e) {
+                // a segment that has not been written completely or is not part of a journal
+                file.delete();
+                continue;
+            }
+            segments.put(segment.firstSequenceNumber, segment);
+        }
+
+        // only the youngest run of consecutive segments is kept
+        long expected = -1;
+        for (Iterator<Segment> it = segments.descendingMap().values().iterator(); it.hasNext();) {
+            Segment segment = it.next();
+            if (expected != -1 && segment.nextSequenceNumber != expected) {
+                it.remove();
+                segment.delete();
+                continue;
+            }
+            expected = segment.firstSequenceNumber;
+        }
+        nextSequenceNumber = segments.isEmpty() ? 0 : segments.lastEntry().getValue().nextSequenceNumber;
+    }
+
+    /**
+     * Appends an event and passes it to the masters whose data transfer has been started.
+     *
+     * @param aSdu
+     *            the event
+     * @return the sequence number of the event
+     * @throws IOException
+     *             if the journal has been closed or a segment cannot be created
+     */
+    public long append(ASdu aSdu) throws IOException {
+        List<Delivery> activeDeliveries;
+        long sequenceNumber;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("journal closed");
+            }
+            int length = aSdu.encode(encodeBuffer, 0, settings);
+            long now = clock.millis();
+            deleteExpiredSegments(now);
+
+            Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+            if (segment == null || !segment.fits(length)) {
+                if (segment != null) {
+                    segment.seal();
+                }
+                File file = new File(directory, String.format("%020d", nextSequenceNumber) + SEGMENT_SUFFIX);
+                segment = Segment.create(file, nextSequenceNumber, segmentSize, now);
+                segments.put(segment.firstSequenceNumber, segment);
+                while (segments.size() > maxSegments) {
+                    segments.pollFirstEntry().getValue().delete();
+                }
+            }
+            sequenceNumber = nextSequenceNumber++;
+            segment.append(sequenceNumber, now, encodeBuffer, length);
+            activeDeliveries = new ArrayList<>(deliveries.values());
+        }
+        for (Delivery delivery : activeDeliveries) {
+            delivery.schedule();
+        }
+        return sequenceNumber;
+    }
+
+    private void deleteExpiredSegments(long now) {
+        if (maxAgeMillis == 0) {
+            return;
+        }
+        while (segments.size() > 1 && now - segments.firstEntry().getValue().lastTimestamp > maxAgeMillis) {
+            segments.pollFirstEntry().getValue().delete();
+        }
+    }
+
+    /**
+     * Starts delivering events to the master of the connection. Called when the master has started the data transfer,
+     * usually from {@link ConnectionEventListener#dataTransferStateChanged(Connection, boolean)}. A delivery to
+     * another connection of the same master is stopped.
+     *
+     * @param connection
+     *            the connection to the master
+     * @throws IOException
+     *             if the journal has been closed or the cursor of the master cannot be opened
+     */
+    public void startDelivery(Connection connection) throws IOException {
+        startDelivery(connection, connection.getRemoteInetAddress().getHostAddress());
+    }
+
+    /**
+     * Starts delivering events to the given master over the connection.
+     *
+     * @param connection
+     *            the connection to the master
+     * @param master
+     *            the name of the master, used as name of its cursor file
+     * @throws IOException
+     *             if the journal has been closed or the cursor of the master cannot be opened
+     */
+    public void startDelivery(Connection connection, String master) throws IOException {
+        Delivery delivery;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("journal closed");
+            }
+            Delivery previous = deliveries.remove(master);
+            if (previous != null) {
+                previous.active = false;
+            }
+            Cursor cursor = cursors.get(master);
+            if (cursor == null) {
+                cursor = Cursor.open(new File(directory, fileNameOf(master) + CURSOR_SUFFIX), nextSequenceNumber);
+                cursors.put(master, cursor);
+            }
+            if (cursor.get() > nextSequenceNumber) {
+                // the journal has been deleted or truncated
+                cursor.reset(nextSequenceNumber);
+            }
+            delivery = new Delivery(connection, master, cursor);
+            deliveries.put(master, delivery);
+        }
+        delivery.schedule();
+    }
+
+    /**
+     * Stops delivering events over the connection. Called when the master has stopped the data transfer or the
+     * connection has been closed. Events that have been sent but not acknowledged are sent again on the next start.
+     *
+     * @param connection
+     *            the connection
+     */
+    public synchronized void stopDelivery(Connection connection) {
+        for (Iterator<Delivery> it = deliveries.values().iterator(); it.hasNext();) {
+            Delivery delivery = it.next();
+            if (delivery.connection == connection) {
+                delivery.active = false;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the sequence number of the oldest event in the journal.
+     */
+    public synchronized long getFirstSequenceNumber() {
+        return segments.isEmpty() ? nextSequenceNumber : segments.firstKey();
+    }
+
+    /**
+     * Returns the sequence number of the next event to be appended.
+     */
+    public synchronized long getNextSequenceNumber() {
+        return nextSequenceNumber;
+    }
+
+    /**
+     * Returns the sequence number of the first event that has not been acknowledged by the given master.
+     *
+     * @param master
+     *            the name of the master, the IP address unless given to {@link #startDelivery(Connection, String)}
+     * @return the sequence number or -1 if no delivery to the master has been started yet
+     * @throws IOException
+     *             if the cursor of the master cannot be read
+     */
+    public synchronized long getAcknowledgedSequenceNumber(String master) throws IOException {
+        Cursor openCursor = cursors.get(master);
+        if (openCursor != null) {
+            return openCursor.get();
+        }
+        File file = new File(directory, fileNameOf(master) + CURSOR_SUFFIX);
+        if (!file.exists()) {
+            return -1;
+        }
+        try (Cursor cursor = Cursor.open(file, -1)) {
+            return cursor.get();
+        }
+    }
+
+    /**
+     * Stops all deliveries and closes the files of the journal. The content of the segments and cursors is forced to
+     * the storage device.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Delivery delivery : deliveries.values()) {
+                delivery.active = false;
+            }
+        }
+        executor.shutdown();
+        synchronized (this) {
+            deliveries.clear();
+            for (Cursor cursor : cursors.values()) {
+                cursor.close();
+            }
+            cursors.clear();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the next event that has not expired and advances the position behind it.
+     *
+     * @return the event or null if there is no event at the position yet
+     */
+    private synchronized ASdu read(Position position) {
+        long now = clock.millis();
+        deleteExpiredSegments(now);
+        while (!closed && position.sequenceNumber < nextSequenceNumber) {
+            byte[] aSduBytes = readRecord(position, now);
+            if (aSduBytes == null) {
+                continue;
+            }
+            try {
+                return ASdu.decode(new ExtendedDataInputStream(new ByteArrayInputStream(aSduBytes)), settings,
+                        aSduBytes.length);
+            } catch (IOException e) {
+                // cannot happen for events encoded by the journal
+                throw new IllegalStateException(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the record at the position and advances the position.
+     *
+     * @return the ASDU of the record or null if the record has expired
+     */
+    private byte[] readRecord(Position position, long now) {
+        if (position.sequenceNumber < getFirstSequenceNumber()) {
+            // the events have been deleted before the master acknowledged them
+            position.sequenceNumber = getFirstSequenceNumber();
+            position.segment = null;
+        }
+        if (position.segment == null || position.segment.deleted) {
+            position.segment = segments.floorEntry(position.sequenceNumber).getValue();
+            position.offset = position.segment.offsetOf(position.sequenceNumber);
+        }
+        else if (position.sequenceNumber >= position.segment.nextSequenceNumber) {
+            position.segment = segments.higherEntry(position.segment.firstSequenceNumber).getValue();
+            position.offset = SEGMENT_HEADER_LENGTH;
+        }
+
+        Segment segment = position.segment;
+        int offset = position.offset;
+        int length = segment.buffer.getInt(offset);
+        position.offset += RECORD_HEADER_LENGTH + length;
+        position.sequenceNumber++;
+        if (maxAgeMillis != 0 && now - segment.buffer.getLong(offset + 12) > maxAgeMillis) {
+            return null;
+        }
+        return segment.read(offset, length);
+    }
+
+    private static String fileNameOf(String master) {
+        return master.replaceAll("[^A-Za-z0-9.-]", "_");
+    }
+
+    private static class Position {
+        private long sequenceNumber;
+        private Segment segment;
+        private int offset;
+    }
+
+    /**
+     * The delivery of events to one master. The events are read and sent by a serial task on the executor of the
+     * journal. The task is scheduled when events are appended and when the master acknowledges an event.
+     */
+    private class Delivery {
+
+        private final Connection connection;
+        private final String master;
+        private final Cursor cursor;
+        private final Position position = new Position();
+        private final SerialExecutor serialExecutor = new SerialExecutor(executor);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicInteger unacknowledged = new AtomicInteger();
+        private final int window;
+        private volatile boolean active = true;
+
+        private final Runnable sendTask = new Runnable() {
+            @Override
+            public void run() {
+                sendEvents();
+            }
+        };
+
+        Delivery(Connection connection, String master, Cursor cursor) {
+            this.connection = connection;
+            this.master = master;
+            this.cursor = cursor;
+            this.window = connection.getSettings().getMaxNumOfOutstandingIPdus();
+            this.position.sequenceNumber = cursor.get();
+        }
+
+        void schedule() {
+            if (active && scheduled.compareAndSet(false, true)) {
+                serialExecutor.execute(sendTask);
+            }
+        }
+
+        private void sendEvents() {
+            scheduled.set(false);
+            while (active && !connection.isStopped() && unacknowledged.get() < window) {
+                ASdu aSdu = read(position);
+                if (aSdu == null) {
+                    return;
+                }
+                final long sequenceNumber = position.sequenceNumber - 1;
+                unacknowledged.incrementAndGet();
+                connection.sendAsync(aSdu).whenComplete(new BiConsumer<Void, Throwable>() {
+                    @Override
+                    public void accept(Void result, Throwable cause) {
+                        unacknowledged.decrementAndGet();
+                        if (cause != null) {
+                            active = false;
+                            return;
+                        }
+                        cursor.acknowledge(sequenceNumber + 1);
+                        schedule();
+                    }
+                });
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "delivery to " + master + " at " + position.sequenceNumber;
+        }
+    }
+
+    /**
+     * A segment file. Records consist of the length of the ASDU (4 bytes), the sequence number (8 bytes), the time the
+     * event has been appended in milliseconds since the epoch (8 bytes) and the ASDU. The length is written last, a
+     * length of 0 marks the end of the records.
+     */
+    private static class Segment {
+
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+        private final long firstSequenceNumber;
+        private long nextSequenceNumber;
+        private int writeOffset;
+        private long lastTimestamp;
+        private boolean deleted;
+
+        private Segment(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer,
+                long firstSequenceNumber) {
+            this.file = file;
+            this.randomAccessFile = randomAccessFile;
+            this.buffer = buffer;
+            this.firstSequenceNumber = firstSequenceNumber;
+            this.nextSequenceNumber = firstSequenceNumber;
+            this.writeOffset = SEGMENT_HEADER_LENGTH;
+        }
+
+        static Segment create(File file, long firstSequenceNumber, int size, long now) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(size);
+                MappedByteBuffer buffer = map(randomAccessFile, size);
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putLong(16, firstSequenceNumber);
+                Segment segment = new Segment(file, randomAccessFile, buffer, firstSequenceNumber);
+                segment.lastTimestamp = now;
+                return segment;
+            } catch (IOException e) {
+                randomAccessFile.close();
+                file.delete();
+                throw e;
+            }
+        }
+
+        static Segment open(File file) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                long size = randomAccessFile.length();
+                if (size < SEGMENT_HEADER_LENGTH || size > MAX_SEGMENT_SIZE) {
+                    throw new IOException("Invalid journal segment size: " + size);
+                }
+                MappedByteBuffer buffer = map(randomAccessFile, (int) size);
+                if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+                    throw new IOException("Not a journal segment: " + file);
+                }
+                Segment segment = new Segment(file, randomAccessFile, buffer, buffer.getLong(16));
+                segment.lastTimestamp = file.lastModified();
+                while (segment.writeOffset + RECORD_HEADER_LENGTH <= size) {
+                    int length = buffer.getInt(segment.writeOffset);
+                    if (length <= 0 || length > APdu.MAX_APDU_LENGTH
+                            || segment.writeOffset + RECORD_HEADER_LENGTH + length > size
+                            || buffer.getLong(segment.writeOffset + 4) != segment.nextSequenceNumber) {
+                        break;
+                    }
+                    segment.lastTimestamp = buffer.getLong(segment.writeOffset + 12);
+                    segment.nextSequenceNumber++;
+                    segment.writeOffset += RECORD_HEADER_LENGTH + length;
+                }
+                return segment;
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+        }
+
+        private static MappedByteBuffer map(RandomAccessFile randomAccessFile, int size) throws IOException {
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+
+        boolean fits(int length) {
+            return writeOffset + RECORD_HEADER_LENGTH + length + 4 <= buffer.capacity();
+        }
+
+        void append(long sequenceNumber, long timestamp, byte[] aSdu, int length) {
+            buffer.putLong(writeOffset + 4, sequenceNumber);
+            buffer.putLong(writeOffset + 12, timestamp);
+            ByteBuffer target = buffer.duplicate();
+            target.position(writeOffset + RECORD_HEADER_LENGTH);
+            target.put(aSdu, 0, length);
+            buffer.putInt(writeOffset + RECORD_HEADER_LENGTH + length, 0);
+            buffer.putInt(writeOffset, length);
+            writeOffset += RECORD_HEADER_LENGTH + length;
+            nextSequenceNumber = sequenceNumber + 1;
+            lastTimestamp = timestamp;
+        }
+
+        /**
+         * Returns the offset of the record with the given sequence number, which must be in this segment.
+         */
+        int offsetOf(long sequenceNumber) {
+            int offset = SEGMENT_HEADER_LENGTH;
+            for (long i = firstSequenceNumber; i < sequenceNumber; i++) {
+                offset += RECORD_HEADER_LENGTH + buffer.getInt(offset);
+            }
+            return offset;
+        }
+
+        byte[] read(int offset, int length) {
+            byte[] aSdu = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(offset + RECORD_HEADER_LENGTH);
+            source.get(aSdu);
+            return aSdu;
+        }
+
+        /**
+         * Forces the segment to the storage device once no more events are appended to it.
+         */
+        void seal() {
+            buffer.force();
+        }
+
+        void delete() {
+            deleted = true;
+            close();
+            file.delete();
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                randomAccessFile.close();
+            } catch (IOException e) {
+                // the content has been written to the mapping, which is kept by the operating system
+            }
+        }
+    }
+
+    /**
+     * The file holding the sequence number of the first event that a master has not acknowledged.
+     */
+    private static class Cursor implements Closeable {
+
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+
+        private Cursor(RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+            this.randomAccessFile = randomAccessFile;
+            this.buffer = buffer;
+        }
+
+        static Cursor open(File file, long initialSequenceNumber) throws IOException {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                boolean exists = randomAccessFile.length() == CURSOR_LENGTH;
+                MappedByteBuffer buffer = randomAccessFile.getChannel()
+                        .map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_LENGTH);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                if (!exists || buffer.getLong(0) != MAGIC) {
+                    buffer.putLong(8, initialSequenceNumber);
+                    buffer.putLong(0, MAGIC);
+                }
+                return new Cursor(randomAccessFile, buffer);
+            } catch (IOException e) {
+                randomAccessFile.close();
+                throw e;
+            }
+        }
+
+        long get() {
+            synchronized (buffer) {
+                return buffer.getLong(8);
+            }
+        }
+
+        void reset(long sequenceNumber) {
+            synchronized (buffer) {
+                buffer.putLong(8, sequenceNumber);
+            }
+        }
+
+        void acknowledge(long sequenceNumber) {
+            synchronized (buffer) {
+                if (sequenceNumber > buffer.getLong(8)) {
+                    buffer.putLong(8, sequenceNumber);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer.force();
+            randomAccessFile.close();
+        }
+    }
+
+    private static class DeliveryThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "EventJournal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+/**
+ * Determines when APDUs written by a {@link Connection} are flushed to the socket.
+ *
+ * @see CommonBuilder#setFlushPolicy(FlushPolicy)
+ */
+public enum FlushPolicy {
+    /**
+     * Every APDU is flushed right after it has been written. This is the default.
+     */
+    IMMEDIATE,
+    /**
+     * APDUs are staged and flushed by a background task as soon as the writing threads let it run, so that APDUs
+     * written in a burst (e.g. a general interrogation response together with the S format acknowledgements) leave in
+     * as few socket writes as possible.
+     */
+    END_OF_BURST,
+    /**
+     * Like {@link #END_OF_BURST}, but the background task waits for the configured maximum flush delay before flushing
+     * so that more APDUs can be collected.
+     *
+     * @see CommonBuilder#setMaxFlushDelay(int)
+     */
+    MAX_DELAY
+}
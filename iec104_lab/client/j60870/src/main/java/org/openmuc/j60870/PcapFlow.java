@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+
+/**
+ * A TCP connection found in a capture by the {@link PcapAnalyzer}. The client is the side that connected to the IEC
+ * 60870-5-104 port, usually the controlling station.
+ * <p>
+ * The statistics of a flow are complete once {@link PcapAnalyzer#analyze(java.io.File, PcapListener)} has returned.
+ */
+public class PcapFlow {
+
+    public enum Direction {
+        CLIENT_TO_SERVER,
+        SERVER_TO_CLIENT
+    }
+
+    /**
+     * The statistics of one direction of a flow.
+     */
+    public static class Statistics {
+
+        long segments;
+        long payloadBytes;
+        long retransmittedBytes;
+        long lostBytes;
+        long skippedBytes;
+
+        long iFrames;
+        long sFrames;
+        long uFrames;
+        long sequenceErrors;
+        long decodeErrors;
+        final long[] aSdus = new long[256];
+
+        Statistics() {
+        }
+
+        /**
+         * Returns the number of captured TCP segments including those without payload.
+         */
+        public long getSegmentCount() {
+            return segments;
+        }
+
+        /**
+         * Returns the number of captured TCP payload bytes including retransmissions.
+         */
+        public long getPayloadByteCount() {
+            return payloadBytes;
+        }
+
+        /**
+         * Returns the number of payload bytes that have been captured more than once.
+         */
+        public long getRetransmittedByteCount() {
+            return retransmittedBytes;
+        }
+
+        /**
+         * Returns the number of bytes of the stream that are missing from the capture.
+         */
+        public long getLostByteCount() {
+            return lostBytes;
+        }
+
+        /**
+         * Returns the number of bytes that have been skipped to find the start of an APDU after a capture gap, at the
+         * start of a flow whose connection setup has not been captured or after a malformed APDU.
+         */
+        public long getSkippedByteCount() {
+            return skippedBytes;
+        }
+
+        public long getIFrameCount() {
+            return iFrames;
+        }
+
+        public long getSFrameCount() {
+            return sFrames;
+        }
+
+        public long getUFrameCount() {
+            return uFrames;
+        }
+
+        /**
+         * Returns the number of I format APDUs whose send sequence number did not follow the one of the previous I
+         * format APDU.
+         */
+        public long getSequenceErrorCount() {
+            return sequenceErrors;
+        }
+
+        /**
+         * Returns the number of ASDUs that could not be decoded. ASDUs are only decoded if there is a listener.
+         */
+        public long getDecodeErrorCount() {
+            return decodeErrors;
+        }
+
+        /**
+         * Returns the number of ASDUs with the given type identification.
+         *
+         * @param typeId
+         *            the type identification, 0 to 255
+         * @return the number of ASDUs
+         */
+        public long getASduCount(int typeId) {
+            return aSdus[typeId];
+        }
+
+    }
+
+    private final int index;
+    private final InetSocketAddress clientAddress;
+    private final InetSocketAddress serverAddress;
+    private final Statistics clientToServer = new Statistics();
+    private final Statistics serverToClient = new Statistics();
+
+    long firstTimestampNanos;
+    long lastTimestampNanos;
+    boolean connectionSetupCaptured;
+
+    PcapFlow(int index, InetSocketAddress clientAddress, InetSocketAddress serverAddress, long timestampNanos) {
+        this.index = index;
+        this.clientAddress = clientAddress;
+        this.serverAddress = serverAddress;
+        this.firstTimestampNanos = timestampNanos;
+        this.lastTimestampNanos = timestampNanos;
+    }
+
+    /**
+     * Returns the number of the flow. Flows are numbered from 0 in the order of their first segment in the capture.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public InetSocketAddress getClientAddress() {
+        return clientAddress;
+    }
+
+    public InetSocketAddress getServerAddress() {
+        return serverAddress;
+    }
+
+    /**
+     * Returns the capture time of the first segment of the flow.
+     *
+     * @return the time in nanoseconds since the epoch
+     */
+    public long getFirstTimestampNanos() {
+        return firstTimestampNanos;
+    }
+
+    /**
+     * Returns the capture time of the last segment of the flow.
+     *
+     * @return the time in nanoseconds since the epoch
+     */
+    public long getLastTimestampNanos() {
+        return lastTimestampNanos;
+    }
+
+    /**
+     * Returns true if the TCP handshake of the flow has been captured. Otherwise the capture started while the
+     * connection was already established.
+     */
+    public boolean isConnectionSetupCaptured() {
+        return connectionSetupCaptured;
+    }
+
+    public Statistics getStatistics(Direction direction) {
+        return direction == Direction.CLIENT_TO_SERVER ? clientToServer : serverToClient;
+    }
+
+    @Override
+    public String toString() {
+        return "flow " + index + " " + format(clientAddress) + " -> " + format(serverAddress);
+    }
+
+    private static String format(InetSocketAddress address) {
+        if (address.getAddress() instanceof Inet6Address) {
+            return "[" + address.getAddress().getHostAddress() + "]:" + address.getPort();
+        }
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequential reader of libpcap and pcapng files. The packets are returned one at a time as slices of an internal
+ * buffer that is only valid until the next packet is read. The file is read in large blocks so that it can be scanned
+ * at disk speed.
+ */
+class PcapReader {
+
+    static final int LINKTYPE_NULL = 0;
+    static final int LINKTYPE_ETHERNET = 1;
+    static final int LINKTYPE_RAW = 101;
+    static final int LINKTYPE_LOOP = 108;
+    static final int LINKTYPE_LINUX_SLL = 113;
+    static final int LINKTYPE_IPV4 = 228;
+    static final int LINKTYPE_IPV6 = 229;
+    static final int LINKTYPE_LINUX_SLL2 = 276;
+
+    private static final int PCAP_MAGIC_MICROS = 0xa1b2c3d4;
+    private static final int PCAP_MAGIC_NANOS = 0xa1b23c4d;
+    private static final int PCAP_HEADER_LENGTH = 24;
+    private static final int PCAP_RECORD_HEADER_LENGTH = 16;
+
+    private static final int PCAPNG_SECTION_HEADER_BLOCK = 0x0a0d0d0a;
+    private static final int PCAPNG_INTERFACE_DESCRIPTION_BLOCK = 1;
+    private static final int PCAPNG_PACKET_BLOCK = 2;
+    private static final int PCAPNG_SIMPLE_PACKET_BLOCK = 3;
+    private static final int PCAPNG_ENHANCED_PACKET_BLOCK = 6;
+    private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1a2b3c4d;
+    private static final int PCAPNG_OPTION_IF_TSRESOL = 9;
+    private static final int PCAPNG_OPTION_IF_TSOFFSET = 14;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_BLOCK_LENGTH = 1 << 26;
+
+    private final ReadableByteChannel channel;
+    private final boolean pcapng;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int readIndex;
+    private int writeIndex;
+    private long bytesRead;
+    private boolean endOfStream;
+
+    private boolean bigEndian;
+
+    // pcap
+    private long timestampUnitNanos;
+    private int pcapLinkType;
+
+    // pcapng, per interface of the current section
+    private final List<Interface> interfaces = new ArrayList<>();
+
+    private long timestampNanos;
+    private int linkType;
+    private int packetOffset;
+    private int packetLength;
+    private int originalLength;
+
+    private static class Interface {
+        private final int linkType;
+        private final long unitsPerSecond;
+        private final long offsetSeconds;
+
+        Interface(int linkType, long unitsPerSecond, long offsetSeconds) {
+            this.linkType = linkType;
+            this.unitsPerSecond = unitsPerSecond;
+            this.offsetSeconds = offsetSeconds;
+        }
+
+        long toNanos(long timestamp) {
+            long nanos;
+            if (unitsPerSecond == 1_000_000_000L) {
+                nanos = timestamp;
+            }
+            else if (unitsPerSecond < 1_000_000_000L && 1_000_000_000L % unitsPerSecond == 0) {
+                nanos = timestamp * (1_000_000_000L / unitsPerSecond);
+            }
+            else {
+                long seconds = timestamp / unitsPerSecond;
+                nanos = seconds * 1_000_000_000L
+                        + (long) ((timestamp - seconds * unitsPerSecond) * (1e9 / unitsPerSecond));
+            }
+            return nanos + offsetSeconds * 1_000_000_000L;
+        }
+    }
+
+    /**
+     * Reads the file header from the channel.
+     *
+     * @throws IOException
+     *             if the channel cannot be read or does not contain a pcap or pcapng file
+     */
+    PcapReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        if (!fill(PCAP_HEADER_LENGTH)) {
+            throw new IOException("Not a pcap or pcapng file: too short");
+        }
+        int magic = readInt(readIndex, true);
+        if (magic == PCAPNG_SECTION_HEADER_BLOCK) {
+            pcapng = true;
+        }
+        else {
+            pcapng = false;
+            if (magic == PCAP_MAGIC_MICROS || magic == PCAP_MAGIC_NANOS) {
+                bigEndian = true;
+            }
+            else {
+                magic = Integer.reverseBytes(magic);
+                if (magic != PCAP_MAGIC_MICROS && magic != PCAP_MAGIC_NANOS) {
+                    throw new IOException(String.format("Not a pcap or pcapng file, magic number: 0x%08x",
+                            readInt(readIndex, true)));
+                }
+                bigEndian = false;
+            }
+            timestampUnitNanos = magic == PCAP_MAGIC_NANOS ? 1 : 1_000;
+            pcapLinkType = readInt(readIndex + 20, bigEndian) & 0xffff;
+            readIndex += PCAP_HEADER_LENGTH;
+        }
+    }
+
+    /**
+     * Reads the next packet.
+     *
+     * @return false if the end of the file has been reached
+     * @throws IOException
+     *             if the file cannot be read or is corrupt
+     */
+    boolean next() throws IOException {
+        return pcapng ? nextPcapngPacket() : nextPcapPacket();
+    }
+
+    private boolean nextPcapPacket() throws IOException {
+        if (!fill(PCAP_RECORD_HEADER_LENGTH)) {
+            return false;
+        }
+        long seconds = readInt(readIndex, bigEndian) & 0xffffffffL;
+        long fraction = readInt(readIndex + 4, bigEndian) & 0xffffffffL;
+        int capturedLength = readInt(readIndex + 8, bigEndian);
+        originalLength = readInt(readIndex + 12, bigEndian);
+        if (capturedLength < 0 || capturedLength > MAX_BLOCK_LENGTH) {
+            throw new IOException("Corrupt pcap record at file offset " + position() + ": length " + capturedLength);
+        }
+        if (!fill(PCAP_RECORD_HEADER_LENGTH + capturedLength)) {
+            throw new EOFException("Truncated pcap record at file offset " + position());
+        }
+        timestampNanos = seconds * 1_000_000_000L + fraction * timestampUnitNanos;
+        linkType = pcapLinkType;
+        packetOffset = readIndex + PCAP_RECORD_HEADER_LENGTH;
+        packetLength = capturedLength;
+        readIndex = packetOffset + capturedLength;
+        return true;
+    }
+
+    private boolean nextPcapngPacket() throws IOException {
+        while (fill(8)) {
+            int blockType = readInt(readIndex, bigEndian);
+            if (blockType == PCAPNG_SECTION_HEADER_BLOCK) {
+                readSectionHeader();
+                continue;
+            }
+            int blockLength = readInt(readIndex + 4, bigEndian);
+            if (blockLength < 12 || blockLength > MAX_BLOCK_LENGTH || (blockLength & 3) != 0) {
+                throw new IOException("Corrupt pcapng block at file offset " + position() + ": length " + blockLength);
+            }
+            if (!fill(blockLength)) {
+                throw new EOFException("Truncated pcapng block at file offset " + position());
+            }
+            int block = readIndex;
+            readIndex += blockLength;
+
+            switch (blockType) {
+            case PCAPNG_INTERFACE_DESCRIPTION_BLOCK:
+                readInterfaceDescription(block, blockLength);
+                break;
+            case PCAPNG_ENHANCED_PACKET_BLOCK:
+                if (packet(block, readInt(block + 8, bigEndian), readInt(block + 12, bigEndian),
+                        readInt(block + 16, bigEndian), readInt(block + 20, bigEndian), readInt(block + 24, bigEndian),
+                        28, blockLength)) {
+                    return true;
+                }
+                break;
+            case PCAPNG_PACKET_BLOCK:
+                if (packet(block, readShort(block + 8, bigEndian), readInt(block + 12, bigEndian),
+                        readInt(block + 16, bigEndian), readInt(block + 20, bigEndian), readInt(block + 24, bigEndian),
+                        28, blockLength)) {
+                    return true;
+                }
+                break;
+            case PCAPNG_SIMPLE_PACKET_BLOCK:
+                int length = readInt(block + 8, bigEndian);
+                if (packet(block, 0, 0, 0, Math.min(length, blockLength - 16), length, 12, blockLength)) {
+                    timestampNanos = 0;
+                    return true;
+                }
+                break;
+            default:
+                // name resolution, statistics and custom blocks
+                break;
+            }
+        }
+        return false;
+    }
+
+    private boolean packet(int block, int interfaceId, int timestampHigh, int timestampLow, int capturedLength,
+            int originalLength, int dataOffset, int blockLength) throws IOException {
+        if (interfaceId < 0 || interfaceId >= interfaces.size()) {
+            throw new IOException("Packet of undefined interface " + interfaceId + " at file offset "
+                    + (position() - blockLength));
+        }
+        if (capturedLength < 0 || dataOffset + capturedLength > blockLength - 4) {
+            throw new IOException("Corrupt pcapng packet at file offset " + (position() - blockLength));
+        }
+        Interface packetInterface = interfaces.get(interfaceId);
+        timestampNanos = packetInterface
+                .toNanos(((timestampHigh & 0xffffffffL) << 32) | (timestampLow & 0xffffffffL));
+        linkType = packetInterface.linkType;
+        packetOffset = block + dataOffset;
+        packetLength = capturedLength;
+        this.originalLength = originalLength;
+        return true;
+    }
+
+    private void readSectionHeader() throws IOException {
+        if (!fill(12)) {
+            throw new EOFException("Truncated pcapng section header at file offset " + position());
+        }
+        int byteOrderMagic = readInt(readIndex + 8, true);
+        if (byteOrderMagic == PCAPNG_BYTE_ORDER_MAGIC) {
+            bigEndian = true;
+        }
+        else if (Integer.reverseBytes(byteOrderMagic) == PCAPNG_BYTE_ORDER_MAGIC) {
+            bigEndian = false;
+        }
+        else {
+            throw new IOException("Corrupt pcapng section header at file offset " + position());
+        }
+        int blockLength = readInt(readIndex + 4, bigEndian);
+        if (blockLength < 28 || blockLength > MAX_BLOCK_LENGTH || !fill(blockLength)) {
+            throw new IOException("Corrupt pcapng section header at file offset " + position());
+        }
+        readIndex += blockLength;
+        interfaces.clear();
+    }
+
+    private void readInterfaceDescription(int block, int blockLength) {
+        int type = readShort(block + 8, bigEndian);
+        long unitsPerSecond = 1_000_000;
+        long offsetSeconds = 0;
+
+        int option = block + 16;
+        int end = block + blockLength - 4;
+        while (option + 4 <= end) {
+            int code = readShort(option, bigEndian);
+            int length = readShort(option + 2, bigEndian);
+            if (code == 0 || option + 4 + length > end) {
+                break;
+            }
+            if (code == PCAPNG_OPTION_IF_TSRESOL && length == 1) {
+                int resolution = buffer[option + 4];
+                unitsPerSecond = (resolution & 0x80) == 0 ? pow(10, resolution) : pow(2, resolution & 0x7f);
+            }
+            else if (code == PCAPNG_OPTION_IF_TSOFFSET && length == 8) {
+                offsetSeconds = bigEndian
+                        ? ((long) readInt(option + 4, true) << 32) | (readInt(option + 8, true) & 0xffffffffL)
+                        : ((long) readInt(option + 8, false) << 32) | (readInt(option + 4, false) & 0xffffffffL);
+            }
+            option += 4 + ((length + 3) & ~3);
+        }
+        interfaces.add(new Interface(type, unitsPerSecond, offsetSeconds));
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent && result <= Long.MAX_VALUE / base; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Makes sure that the given number of bytes is available in the buffer starting at the read index.
+     *
+     * @return false if the end of the stream has been reached before any byte was read, true if the bytes are available
+     * @throws EOFException
+     *             if the stream ended within the requested bytes
+     */
+    private boolean fill(int length) throws IOException {
+        if (writeIndex - readIndex >= length) {
+            return true;
+        }
+        if (length > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(length, 2 * buffer.length)];
+            System.arraycopy(buffer, readIndex, newBuffer, 0, writeIndex - readIndex);
+            buffer = newBuffer;
+            byteBuffer = ByteBuffer.wrap(buffer);
+        }
+        else {
+            System.arraycopy(buffer, readIndex, buffer, 0, writeIndex - readIndex);
+        }
+        bytesRead += readIndex;
+        writeIndex -= readIndex;
+        readIndex = 0;
+
+        while (writeIndex < length && !endOfStream) {
+            byteBuffer.limit(buffer.length).position(writeIndex);
+            int numBytes = channel.read(byteBuffer);
+            if (numBytes < 0) {
+                endOfStream = true;
+            }
+            else {
+                writeIndex += numBytes;
+            }
+        }
+        if (writeIndex >= length) {
+            return true;
+        }
+        if (writeIndex == 0) {
+            return false;
+        }
+        throw new EOFException("Unexpected end of file at file offset " + position() + ", " + writeIndex
+                + " trailing bytes");
+    }
+
+    private long position() {
+        return bytesRead + readIndex;
+    }
+
+    private int readInt(int index, boolean bigEndian) {
+        int value = ((buffer[index] & 0xff) << 24) | ((buffer[index + 1] & 0xff) << 16)
+                | ((buffer[index + 2] & 0xff) << 8) | (buffer[index + 3] & 0xff);
+        return bigEndian ? value : Integer.reverseBytes(value);
+    }
+
+    private int readShort(int index, boolean bigEndian) {
+        return bigEndian ? ((buffer[index] & 0xff) << 8) | (buffer[index + 1] & 0xff)
+                : ((buffer[index + 1] & 0xff) << 8) | (buffer[index] & 0xff);
+    }
+
+    /**
+     * Returns the capture time of the current packet.
+     *
+     * @return the time in nanoseconds since the epoch or 0 if the packet has no timestamp
+     */
+    long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    int getLinkType() {
+        return linkType;
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int getPacketOffset() {
+        return packetOffset;
+    }
+
+    int getPacketLength() {
+        return packetLength;
+    }
+
+    /**
+     * Returns the length of the packet on the wire. It is larger than the packet length if the packet has been
+     * truncated by the capture.
+     */
+    int getOriginalLength() {
+        return originalLength;
+    }
+
+    /**
+     * Returns the number of bytes of the file that have been read so far.
+     */
+    long getBytesRead() {
+        return bytesRead + readIndex;
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One direction of a captured TCP connection. Reassembles the TCP payload from the captured segments and splits it
+ * into APDUs. Retransmitted bytes are dropped, segments captured out of order are held back until the missing bytes
+ * have been captured. Bytes that are missing from the capture are skipped once too many bytes have been held back or
+ * the flow ends, after which the stream is searched for the start of the next APDU.
+ */
+abstract class PcapStream {
+
+    private static final int MAX_PENDING_BYTES = 1 << 18;
+    private static final int MAX_FRAME_LENGTH = APdu.MAX_APDU_LENGTH + 2;
+
+    private final PcapFlow.Statistics statistics;
+
+    private boolean sequenceNumberKnown;
+    private int nextSequenceNumber;
+    private long position;
+
+    private final TreeMap<Long, byte[]> pending = new TreeMap<>();
+    private int pendingBytes;
+
+    private boolean synchronizedToFrames;
+    private final byte[] carry = new byte[MAX_FRAME_LENGTH];
+    private int carryLength;
+
+    PcapStream(PcapFlow.Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Called for each complete APDU of the stream.
+     *
+     * @param buffer
+     *            the buffer holding the APDU, only valid during the call
+     * @param offset
+     *            the offset of the start flag
+     * @param length
+     *            the length of the APDU including start flag and length octet
+     * @param timestampNanos
+     *            the capture time of the segment that completed the APDU
+     */
+    abstract void frame(byte[] buffer, int offset, int length, long timestampNanos);
+
+    /**
+     * Processes a captured segment of this direction.
+     */
+    void segment(int sequenceNumber, boolean syn, byte[] buffer, int offset, int length, long timestampNanos) {
+        statistics.segments++;
+        if (syn) {
+            sequenceNumber++;
+            if (!sequenceNumberKnown) {
+                nextSequenceNumber = sequenceNumber;
+                sequenceNumberKnown = true;
+                synchronizedToFrames = true;
+            }
+        }
+        if (length == 0) {
+            return;
+        }
+        statistics.payloadBytes += length;
+        if (!sequenceNumberKnown) {
+            nextSequenceNumber = sequenceNumber;
+            sequenceNumberKnown = true;
+        }
+
+        int delta = sequenceNumber - nextSequenceNumber;
+        if (delta < 0) {
+            if (-delta >= length) {
+                statistics.retransmittedBytes += length;
+                return;
+            }
+            statistics.retransmittedBytes += -delta;
+            offset -= delta;
+            length += delta;
+            delta = 0;
+        }
+
+        if (delta > 0) {
+            hold(position + delta, buffer, offset, length);
+            if (pendingBytes > MAX_PENDING_BYTES) {
+                skipGap(timestampNanos);
+            }
+            return;
+        }
+
+        deliver(buffer, offset, length, timestampNanos);
+        deliverPending(timestampNanos);
+    }
+
+    /**
+     * Delivers the held back segments, skipping the bytes missing in front of them. Called when the flow ends.
+     */
+    void finish(long timestampNanos) {
+        while (!pending.isEmpty()) {
+            skipGap(timestampNanos);
+        }
+        statistics.skippedBytes += carryLength;
+        carryLength = 0;
+    }
+
+    private void hold(long segmentPosition, byte[] buffer, int offset, int length) {
+        byte[] held = pending.get(segmentPosition);
+        if (held != null) {
+            if (held.length >= length) {
+                statistics.retransmittedBytes += length;
+                return;
+            }
+            statistics.retransmittedBytes += held.length;
+            pendingBytes -= held.length;
+        }
+        byte[] copy = new byte[length];
+        System.arraycopy(buffer, offset, copy, 0, length);
+        pending.put(segmentPosition, copy);
+        pendingBytes += length;
+    }
+
+    private void skipGap(long timestampNanos) {
+        long gap = pending.firstKey() - position;
+        statistics.lostBytes += gap;
+        statistics.skippedBytes += carryLength;
+        carryLength = 0;
+        synchronizedToFrames = false;
+        advance(gap);
+        deliverPending(timestampNanos);
+    }
+
+    private void deliverPending(long timestampNanos) {
+        while (!pending.isEmpty() && pending.firstKey() <= position) {
+            Map.Entry<Long, byte[]> entry = pending.pollFirstEntry();
+            byte[] held = entry.getValue();
+            pendingBytes -= held.length;
+            long overlap = position - entry.getKey();
+            if (overlap >= held.length) {
+                statistics.retransmittedBytes += held.length;
+                continue;
+            }
+            statistics.retransmittedBytes += overlap;
+            deliver(held, (int) overlap, held.length - (int) overlap, timestampNanos);
+        }
+    }
+
+    private void advance(long length) {
+        position += length;
+        nextSequenceNumber += (int) length;
+    }
+
+    private void deliver(byte[] buffer, int offset, int length, long timestampNanos) {
+        advance(length);
+        int end = offset + length;
+        while (offset < end) {
+            if (carryLength == 1) {
+                if (!isValidLength(buffer[offset])) {
+                    loseSynchronization(1);
+                    continue;
+                }
+                carry[carryLength++] = buffer[offset++];
+            }
+            if (carryLength > 0) {
+                int frameLength = (carry[1] & 0xff) + 2;
+                int numBytes = Math.min(frameLength - carryLength, end - offset);
+                System.arraycopy(buffer, offset, carry, carryLength, numBytes);
+                carryLength += numBytes;
+                offset += numBytes;
+                if (carryLength == frameLength) {
+                    carryLength = 0;
+                    frame(carry, 0, frameLength, timestampNanos);
+                }
+                continue;
+            }
+
+            if (!synchronizedToFrames) {
+                int start = findStart(buffer, offset, end);
+                statistics.skippedBytes += start - offset;
+                offset = start;
+                if (offset == end) {
+                    break;
+                }
+                synchronizedToFrames = true;
+            }
+
+            if (buffer[offset] != APdu.START_FLAG || (end - offset > 1 && !isValidLength(buffer[offset + 1]))) {
+                offset++;
+                loseSynchronization(1);
+                continue;
+            }
+            if (end - offset < 2) {
+                carry[carryLength++] = buffer[offset++];
+                continue;
+            }
+            int frameLength = (buffer[offset + 1] & 0xff) + 2;
+            if (end - offset >= frameLength) {
+                frame(buffer, offset, frameLength, timestampNanos);
+                offset += frameLength;
+            }
+            else {
+                carryLength = end - offset;
+                System.arraycopy(buffer, offset, carry, 0, carryLength);
+                offset = end;
+            }
+        }
+    }
+
+    private void loseSynchronization(int skippedBytes) {
+        statistics.skippedBytes += skippedBytes;
+        carryLength = 0;
+        synchronizedToFrames = false;
+    }
+
+    private static int findStart(byte[] buffer, int offset, int end) {
+        for (int i = offset; i < end; i++) {
+            if (buffer[i] == APdu.START_FLAG && (i + 1 == end || isValidLength(buffer[i + 1]))) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isValidLength(byte length) {
+        int value = length & 0xff;
+        return value >= 4 && value <= APdu.MAX_APDU_LENGTH;
+    }
+
+}
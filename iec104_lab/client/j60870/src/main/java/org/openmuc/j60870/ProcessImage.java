@@ -0,0 +1,953 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.openmuc.j60870.ie.IeBinaryCounterReading;
+import org.openmuc.j60870.ie.IeDoublePointWithQuality;
+import org.openmuc.j60870.ie.IeDoublePointWithQuality.DoublePointInformation;
+import org.openmuc.j60870.ie.IeNormalizedValue;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+/**
+ * The current values of the points of an outstation, addressed by common address and information object address. The
+ * points are defined once with a {@link Builder}, their values, qualities and timestamps are then kept in primitive
+ * arrays: one octet per single or double point, a 32 bit word per normalized or scaled value and a 64 bit word per
+ * short floating point value or integrated total, plus 8 bytes for the timestamp and 8 bytes for the address of every
+ * point. A million single points take 17 bytes each, about 16 MiB, a million short floating point values about 23 MiB.
+ *
+ * <p>
+ * A process image is thread-safe. The value and quality of a point are always read and written together. Every stripe
+ * of 64 points has a version counter, which is odd while a writer updates the stripe. It serves the writers as a
+ * spinlock: writers of the same stripe take turns, writers of different stripes never wait for each other, and no
+ * writer takes a monitor. Readers never block the writers, they retry reads that overlapped with an update. Therefore
+ * the ASDUs built by {@link #read(int, int, CauseOfTransmission, boolean)} and
+ * {@link #interrogate(int, CauseOfTransmission, ASduPacker)} always contain a value, quality and time that were
+ * written together. A writer that is preempted during its update delays the other writers and the readers of its
+ * stripe, so points that are updated by many threads at once should be spread over different stripes.
+ * </p>
+ *
+ * <p>
+ * Every point starts with the value 0, the quality {@link #INVALID} and the timestamp 0.
+ * </p>
+ */
+public class ProcessImage {
+
+    /**
+     * The overflow flag of measured values.
+     */
+    public static final int OVERFLOW = 0x01;
+    /**
+     * The blocked flag of single points, double points and measured values.
+     */
+    public static final int BLOCKED = 0x10;
+    /**
+     * The substituted flag of single points, double points and measured values.
+     */
+    public static final int SUBSTITUTED = 0x20;
+    /**
+     * The not topical flag of single points, double points and measured values.
+     */
+    public static final int NOT_TOPICAL = 0x40;
+    /**
+     * The carry flag of integrated totals.
+     */
+    public static final int CARRY = 0x20;
+    /**
+     * The counter adjusted flag of integrated totals.
+     */
+    public static final int COUNTER_ADJUSTED = 0x40;
+    /**
+     * The invalid flag of all points.
+     */
+    public static final int INVALID = 0x80;
+
+    private static final int POINT_QUALITIES = BLOCKED | SUBSTITUTED | NOT_TOPICAL | INVALID;
+    private static final int MEASURED_VALUE_QUALITIES = POINT_QUALITIES | OVERFLOW;
+    private static final int COUNTER_QUALITIES = CARRY | COUNTER_ADJUSTED | INVALID;
+
+    // points that share a version counter
+    private static final int STRIPE_SHIFT = 6;
+    // points that are read at once during an interrogation
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final int MAX_COMMON_ADDRESS = 0xffff;
+    private static final int MAX_IOA = 0xffffff;
+
+    private final Table[] tables;
+    private final int size;
+
+    private ProcessImage(Builder builder) {
+        tables = new Table[] { new OctetTable(ASduType.M_SP_NA_1, ASduType.M_SP_TB_1, builder.keys(0)),
+                new OctetTable(ASduType.M_DP_NA_1, ASduType.M_DP_TB_1, builder.keys(1)),
+                new ShortTable(ASduType.M_ME_NA_1, ASduType.M_ME_TD_1, builder.keys(2)),
+                new ShortTable(ASduType.M_ME_NB_1, ASduType.M_ME_TE_1, builder.keys(3)),
+                new LongTable(ASduType.M_ME_NC_1, ASduType.M_ME_TF_1, builder.keys(4)),
+                new LongTable(ASduType.M_IT_NA_1, ASduType.M_IT_TB_1, builder.keys(5)) };
+
+        int size = 0;
+        for (Table table : tables) {
+            size += table.keys.length;
+        }
+        long[] all = new long[size];
+        int from = 0;
+        for (Table table : tables) {
+            System.arraycopy(table.keys, 0, all, from, table.keys.length);
+            from += table.keys.length;
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                throw new IllegalArgumentException(MessageFormat.format("Point {0} is defined more than once.",
+                        pointName(all[i])));
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Creates a builder that defines the points of a process image.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of the given point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the type without time tag the point was defined with, or null if there is no such point
+     */
+    public ASduType getType(int commonAddress, int ioa) {
+        long key = key(commonAddress, ioa);
+        for (Table table : tables) {
+            if (table.indexOf(key) >= 0) {
+                return table.type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Updates a single point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param on
+     *            the state of the point
+     * @param quality
+     *            any of {@link #BLOCKED}, {@link #SUBSTITUTED}, {@link #NOT_TOPICAL} and {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the state or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such single point or the quality is invalid
+     */
+    public boolean setSinglePoint(int commonAddress, int ioa, boolean on, int quality, long timestamp) {
+        checkQuality(quality, POINT_QUALITIES);
+        return update(ASduType.M_SP_NA_1, commonAddress, ioa, (on ? 1 : 0) | quality, timestamp);
+    }
+
+    /**
+     * Updates a double point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param state
+     *            the state of the point
+     * @param quality
+     *            any of {@link #BLOCKED}, {@link #SUBSTITUTED}, {@link #NOT_TOPICAL} and {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the state or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such double point or the quality is invalid
+     */
+    public boolean setDoublePoint(int commonAddress, int ioa, DoublePointInformation state, int quality,
+            long timestamp) {
+        checkQuality(quality, POINT_QUALITIES);
+        return update(ASduType.M_DP_NA_1, commonAddress, ioa, state.ordinal() | quality, timestamp);
+    }
+
+    /**
+     * Updates a normalized measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param value
+     *            the unnormalized value in the range from -32768 to 32767
+     * @param quality
+     *            any of {@link #OVERFLOW}, {@link #BLOCKED}, {@link #SUBSTITUTED}, {@link #NOT_TOPICAL} and
+     *            {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the value or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such normalized value or the value or quality is invalid
+     */
+    public boolean setNormalizedValue(int commonAddress, int ioa, int value, int quality, long timestamp) {
+        return update(ASduType.M_ME_NA_1, commonAddress, ioa, shortWord(value, quality), timestamp);
+    }
+
+    /**
+     * Updates a scaled measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param value
+     *            the value in the range from -32768 to 32767
+     * @param quality
+     *            any of {@link #OVERFLOW}, {@link #BLOCKED}, {@link #SUBSTITUTED}, {@link #NOT_TOPICAL} and
+     *            {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the value or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such scaled value or the value or quality is invalid
+     */
+    public boolean setScaledValue(int commonAddress, int ioa, int value, int quality, long timestamp) {
+        return update(ASduType.M_ME_NB_1, commonAddress, ioa, shortWord(value, quality), timestamp);
+    }
+
+    /**
+     * Updates a short floating point measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param value
+     *            the value
+     * @param quality
+     *            any of {@link #OVERFLOW}, {@link #BLOCKED}, {@link #SUBSTITUTED}, {@link #NOT_TOPICAL} and
+     *            {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the value or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such short floating point value or the quality is invalid
+     */
+    public boolean setShortFloat(int commonAddress, int ioa, float value, int quality, long timestamp) {
+        checkQuality(quality, MEASURED_VALUE_QUALITIES);
+        return update(ASduType.M_ME_NC_1, commonAddress, ioa, longWord(Float.floatToIntBits(value), quality),
+                timestamp);
+    }
+
+    /**
+     * Updates an integrated total.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param counterReading
+     *            the counter reading
+     * @param sequenceNumber
+     *            the sequence number in the range from 0 to 31
+     * @param quality
+     *            any of {@link #CARRY}, {@link #COUNTER_ADJUSTED} and {@link #INVALID}
+     * @param timestamp
+     *            the time of the update in milliseconds since the epoch
+     * @return true if the counter reading, sequence number or quality changed
+     * @throws IllegalArgumentException
+     *             if there is no such integrated total or the sequence number or quality is invalid
+     */
+    public boolean setIntegratedTotal(int commonAddress, int ioa, int counterReading, int sequenceNumber,
+            int quality, long timestamp) {
+        if (sequenceNumber < 0 || sequenceNumber > 31) {
+            throw new IllegalArgumentException("invalid sequence number: " + sequenceNumber);
+        }
+        checkQuality(quality, COUNTER_QUALITIES);
+        return update(ASduType.M_IT_NA_1, commonAddress, ioa, longWord(counterReading, sequenceNumber | quality),
+                timestamp);
+    }
+
+    /**
+     * Returns the state of a single point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the state
+     * @throws IllegalArgumentException
+     *             if there is no such single point
+     */
+    public boolean getSinglePoint(int commonAddress, int ioa) {
+        return (word(ASduType.M_SP_NA_1, commonAddress, ioa) & 0x01) != 0;
+    }
+
+    /**
+     * Returns the state of a double point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the state
+     * @throws IllegalArgumentException
+     *             if there is no such double point
+     */
+    public DoublePointInformation getDoublePoint(int commonAddress, int ioa) {
+        return DoublePointInformation.values()[(int) word(ASduType.M_DP_NA_1, commonAddress, ioa) & 0x03];
+    }
+
+    /**
+     * Returns the unnormalized value of a normalized measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the value in the range from -32768 to 32767
+     * @throws IllegalArgumentException
+     *             if there is no such normalized value
+     */
+    public int getNormalizedValue(int commonAddress, int ioa) {
+        return (short) word(ASduType.M_ME_NA_1, commonAddress, ioa);
+    }
+
+    /**
+     * Returns a scaled measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the value in the range from -32768 to 32767
+     * @throws IllegalArgumentException
+     *             if there is no such scaled value
+     */
+    public int getScaledValue(int commonAddress, int ioa) {
+        return (short) word(ASduType.M_ME_NB_1, commonAddress, ioa);
+    }
+
+    /**
+     * Returns a short floating point measured value.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the value
+     * @throws IllegalArgumentException
+     *             if there is no such short floating point value
+     */
+    public float getShortFloat(int commonAddress, int ioa) {
+        return Float.intBitsToFloat((int) word(ASduType.M_ME_NC_1, commonAddress, ioa));
+    }
+
+    /**
+     * Returns the counter reading of an integrated total.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the counter reading
+     * @throws IllegalArgumentException
+     *             if there is no such integrated total
+     */
+    public int getIntegratedTotal(int commonAddress, int ioa) {
+        return (int) word(ASduType.M_IT_NA_1, commonAddress, ioa);
+    }
+
+    /**
+     * Returns the quality flags of a point, for integrated totals including the sequence number in the lower 5 bits.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the quality flags
+     * @throws IllegalArgumentException
+     *             if there is no such point
+     */
+    public int getQuality(int commonAddress, int ioa) {
+        Table table = table(commonAddress, ioa);
+        return table.quality(table.word(table.indexOf(key(commonAddress, ioa))));
+    }
+
+    /**
+     * Returns the time of the last update of a point.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @return the time in milliseconds since the epoch
+     * @throws IllegalArgumentException
+     *             if there is no such point
+     */
+    public long getTimestamp(int commonAddress, int ioa) {
+        Table table = table(commonAddress, ioa);
+        return table.timestamps.get(table.indexOf(key(commonAddress, ioa)));
+    }
+
+    /**
+     * Builds an ASDU that contains the current value of a point, e.g. in response to a read command (C_RD_NA_1) or as
+     * spontaneous update.
+     *
+     * @param commonAddress
+     *            the common address of the point
+     * @param ioa
+     *            the information object address of the point
+     * @param causeOfTransmission
+     *            the cause of transmission of the ASDU
+     * @param timeTagged
+     *            whether the ASDU has the type with time tag CP56Time2a
+     * @return the ASDU, or null if there is no such point
+     */
+    public ASdu read(int commonAddress, int ioa, CauseOfTransmission causeOfTransmission, boolean timeTagged) {
+        long key = key(commonAddress, ioa);
+        for (Table table : tables) {
+            int index = table.indexOf(key);
+            if (index < 0) {
+                continue;
+            }
+            long[] words = new long[1];
+            long[] timestamps = new long[1];
+            table.read(index, index + 1, words, timestamps);
+            return new ASdu(timeTagged ? table.timeTaggedType : table.type, false, causeOfTransmission, false, false,
+                    0, commonAddress, new InformationObject(ioa,
+                            new InformationElement[][] { table.elements(words[0], timestamps[0], timeTagged) }));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ASDUs that answer a station interrogation (C_IC_NA_1) for the given common address. The ASDUs are
+     * built while they are iterated, so that only a small part of a large process image is copied at a time. They
+     * contain all single points, double points and measured values of the common address without time tag, ordered by
+     * type and address and packed by the given packer. Integrated totals are not part of an interrogation.
+     *
+     * @param commonAddress
+     *            the common address
+     * @param causeOfTransmission
+     *            the cause of transmission of the ASDUs, usually
+     *            {@link CauseOfTransmission#INTERROGATED_BY_STATION}
+     * @param packer
+     *            the packer for the field lengths of the connection, which must not be used concurrently
+     * @return the ASDUs
+     */
+    public Iterator<ASdu> interrogate(int commonAddress, CauseOfTransmission causeOfTransmission,
+            ASduPacker packer) {
+        checkCommonAddress(commonAddress);
+        return new Interrogation(commonAddress, causeOfTransmission, packer);
+    }
+
+    private boolean update(ASduType type, int commonAddress, int ioa, long word, long timestamp) {
+        Table table = table(type, commonAddress, ioa);
+        return table.write(table.indexOf(key(commonAddress, ioa)), word, timestamp);
+    }
+
+    private long word(ASduType type, int commonAddress, int ioa) {
+        Table table = table(type, commonAddress, ioa);
+        return table.word(table.indexOf(key(commonAddress, ioa)));
+    }
+
+    private Table table(ASduType type, int commonAddress, int ioa) {
+        Table table = table(commonAddress, ioa);
+        if (table.type != type) {
+            throw new IllegalArgumentException(MessageFormat.format("Point {0} is of type {1}, not {2}.",
+                    pointName(key(commonAddress, ioa)), table.type, type));
+        }
+        return table;
+    }
+
+    private Table table(int commonAddress, int ioa) {
+        long key = key(commonAddress, ioa);
+        for (Table table : tables) {
+            if (table.indexOf(key) >= 0) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException(MessageFormat.format("Unknown point {0}.", pointName(key)));
+    }
+
+    private static long shortWord(int value, int quality) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("value out of range: " + value);
+        }
+        checkQuality(quality, MEASURED_VALUE_QUALITIES);
+        return (value & 0xffff) | quality << 16;
+    }
+
+    private static long longWord(int value, int quality) {
+        return (value & 0xffffffffL) | (long) quality << 32;
+    }
+
+    private static void checkQuality(int quality, int allowed) {
+        if ((quality & ~allowed) != 0) {
+            throw new IllegalArgumentException("invalid quality: 0x" + Integer.toHexString(quality));
+        }
+    }
+
+    private static void checkCommonAddress(int commonAddress) {
+        if (commonAddress < 0 || commonAddress > MAX_COMMON_ADDRESS) {
+            throw new IllegalArgumentException("invalid common address: " + commonAddress);
+        }
+    }
+
+    private static long key(int commonAddress, int ioa) {
+        checkCommonAddress(commonAddress);
+        if (ioa < 0 || ioa > MAX_IOA) {
+            throw new IllegalArgumentException("invalid information object address: " + ioa);
+        }
+        return (long) commonAddress << 24 | ioa;
+    }
+
+    private static String pointName(long key) {
+        return (key >>> 24) + "/" + (key & MAX_IOA);
+    }
+
+    /**
+     * The points of one type, sorted by key. Every point has a word with its value and quality, and a timestamp.
+     */
+    private abstract static class Table {
+
+        final ASduType type;
+        final ASduType timeTaggedType;
+        final long[] keys;
+        final AtomicLongArray timestamps;
+        // odd while a writer updates the stripe
+        private final AtomicLongArray versions;
+
+        Table(ASduType type, ASduType timeTaggedType, long[] keys) {
+            this.type = type;
+            this.timeTaggedType = timeTaggedType;
+            this.keys = keys;
+            this.timestamps = new AtomicLongArray(keys.length);
+            this.versions = new AtomicLongArray((keys.length >>> STRIPE_SHIFT) + 1);
+        }
+
+        int indexOf(long key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        /**
+         * Returns the index of the first point with a key not less than the given key.
+         */
+        int lowerBound(long key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        boolean write(int index, long word, long timestamp) {
+            int stripe = index >>> STRIPE_SHIFT;
+            long version;
+            while (true) {
+                version = versions.get(stripe);
+                if ((version & 1) == 0 && versions.compareAndSet(stripe, version, version + 1)) {
+                    break;
+                }
+                // the stripe is locked by another writer, which may have been preempted
+                Thread.yield();
+            }
+
+            long previous = word(index);
+            setWord(index, word);
+            timestamps.set(index, timestamp);
+            versions.set(stripe, version + 2);
+            return previous != word;
+        }
+
+        /**
+         * Copies the words and timestamps of the points from the first to the last index (exclusive), every stripe
+         * consistently.
+         */
+        void read(int from, int to, long[] words, long[] timestamps) {
+            int index = from;
+            while (index < to) {
+                int stripe = index >>> STRIPE_SHIFT;
+                int stripeEnd = Math.min(to, (stripe + 1) << STRIPE_SHIFT);
+                long version;
+                do {
+                    version = versions.get(stripe);
+                    for (int i = index; i < stripeEnd; i++) {
+                        words[i - from] = word(i);
+                        timestamps[i - from] = this.timestamps.get(i);
+                    }
+                } while ((version & 1) != 0 || version != versions.get(stripe));
+                index = stripeEnd;
+            }
+        }
+
+        abstract long word(int index);
+
+        abstract void setWord(int index, long word);
+
+        abstract int quality(long word);
+
+        abstract InformationElement[] elements(long word, long timestamp, boolean timeTagged);
+
+    }
+
+    /**
+     * Single and double points, whose state and quality are stored in one octet, eight per array element.
+     */
+    private static final class OctetTable extends Table {
+
+        private final AtomicLongArray octets;
+
+        OctetTable(ASduType type, ASduType timeTaggedType, long[] keys) {
+            super(type, timeTaggedType, keys);
+            octets = new AtomicLongArray((keys.length + 7) >>> 3);
+            for (int i = 0; i < octets.length(); i++) {
+                octets.lazySet(i, 0x8080808080808080L);
+            }
+        }
+
+        @Override
+        long word(int index) {
+            return octets.get(index >>> 3) >>> ((index & 7) << 3) & 0xff;
+        }
+
+        @Override
+        void setWord(int index, long word) {
+            // the octets of an array element belong to the same stripe, whose writer is the only one
+            int shift = (index & 7) << 3;
+            long element = octets.get(index >>> 3);
+            octets.set(index >>> 3, element & ~(0xffL << shift) | word << shift);
+        }
+
+        @Override
+        int quality(long word) {
+            return (int) word & POINT_QUALITIES;
+        }
+
+        @Override
+        InformationElement[] elements(long word, long timestamp, boolean timeTagged) {
+            boolean blocked = (word & BLOCKED) != 0;
+            boolean substituted = (word & SUBSTITUTED) != 0;
+            boolean notTopical = (word & NOT_TOPICAL) != 0;
+            boolean invalid = (word & INVALID) != 0;
+            InformationElement element;
+            if (type == ASduType.M_SP_NA_1) {
+                element = IeSinglePointWithQuality.valueOf((word & 0x01) != 0, blocked, substituted, notTopical,
+                        invalid);
+            }
+            else {
+                element = IeDoublePointWithQuality.valueOf(DoublePointInformation.values()[(int) word & 0x03],
+                        blocked, substituted, notTopical, invalid);
+            }
+            if (timeTagged) {
+                return new InformationElement[] { element, new IeTime56(timestamp) };
+            }
+            return new InformationElement[] { element };
+        }
+    }
+
+    /**
+     * Normalized and scaled values, whose value and quality are stored in one int.
+     */
+    private static final class ShortTable extends Table {
+
+        private final AtomicIntegerArray words;
+
+        ShortTable(ASduType type, ASduType timeTaggedType, long[] keys) {
+            super(type, timeTaggedType, keys);
+            words = new AtomicIntegerArray(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                words.lazySet(i, INVALID << 16);
+            }
+        }
+
+        @Override
+        long word(int index) {
+            return words.get(index);
+        }
+
+        @Override
+        void setWord(int index, long word) {
+            words.set(index, (int) word);
+        }
+
+        @Override
+        int quality(long word) {
+            return (int) (word >>> 16);
+        }
+
+        @Override
+        InformationElement[] elements(long word, long timestamp, boolean timeTagged) {
+            int value = (short) word;
+            InformationElement element = type == ASduType.M_ME_NA_1 ? new IeNormalizedValue(value)
+                    : new IeScaledValue(value);
+            return measuredValue(element, quality(word), timestamp, timeTagged);
+        }
+    }
+
+    /**
+     * Short floating point values and integrated totals, whose value and quality are stored in one long.
+     */
+    private static final class LongTable extends Table {
+
+        private final AtomicLongArray words;
+
+        LongTable(ASduType type, ASduType timeTaggedType, long[] keys) {
+            super(type, timeTaggedType, keys);
+            words = new AtomicLongArray(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                words.lazySet(i, (long) INVALID << 32);
+            }
+        }
+
+        @Override
+        long word(int index) {
+            return words.get(index);
+        }
+
+        @Override
+        void setWord(int index, long word) {
+            words.set(index, word);
+        }
+
+        @Override
+        int quality(long word) {
+            return (int) (word >>> 32);
+        }
+
+        @Override
+        InformationElement[] elements(long word, long timestamp, boolean timeTagged) {
+            int quality = quality(word);
+            if (type == ASduType.M_ME_NC_1) {
+                return measuredValue(new IeShortFloat(Float.intBitsToFloat((int) word)), quality, timestamp,
+                        timeTagged);
+            }
+            // the quality octet of a binary counter reading also holds the sequence number
+            IeBinaryCounterReading reading = new IeBinaryCounterReading((int) word, quality & 0x1f,
+                    counterFlags(quality));
+            if (timeTagged) {
+                return new InformationElement[] { reading, new IeTime56(timestamp) };
+            }
+            return new InformationElement[] { reading };
+        }
+
+        private static Set<IeBinaryCounterReading.Flag> counterFlags(int quality) {
+            Set<IeBinaryCounterReading.Flag> flags = EnumSet.noneOf(IeBinaryCounterReading.Flag.class);
+            if ((quality & CARRY) != 0) {
+                flags.add(IeBinaryCounterReading.Flag.CARRY);
+            }
+            if ((quality & COUNTER_ADJUSTED) != 0) {
+                flags.add(IeBinaryCounterReading.Flag.COUNTER_ADJUSTED);
+            }
+            if ((quality & INVALID) != 0) {
+                flags.add(IeBinaryCounterReading.Flag.INVALID);
+            }
+            return flags;
+        }
+    }
+
+    private static InformationElement[] measuredValue(InformationElement value, int quality, long timestamp,
+            boolean timeTagged) {
+        IeQuality ieQuality = IeQuality.valueOf((quality & OVERFLOW) != 0, (quality & BLOCKED) != 0,
+                (quality & SUBSTITUTED) != 0, (quality & NOT_TOPICAL) != 0, (quality & INVALID) != 0);
+        if (timeTagged) {
+            return new InformationElement[] { value, ieQuality, new IeTime56(timestamp) };
+        }
+        return new InformationElement[] { value, ieQuality };
+    }
+
+    private final class Interrogation implements Iterator<ASdu> {
+
+        private final int commonAddress;
+        private final CauseOfTransmission causeOfTransmission;
+        private final ASduPacker packer;
+        private final ArrayDeque<ASdu> pending = new ArrayDeque<>();
+        private final long[] words = new long[CHUNK_SIZE];
+        private final long[] timestamps = new long[CHUNK_SIZE];
+
+        private int tableIndex = -1;
+        private int next;
+        private int end;
+
+        Interrogation(int commonAddress, CauseOfTransmission causeOfTransmission, ASduPacker packer) {
+            this.commonAddress = commonAddress;
+            this.causeOfTransmission = causeOfTransmission;
+            this.packer = packer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pending.isEmpty() && advance()) {
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public ASdu next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+
+        private boolean advance() {
+            if (next == end) {
+                if (tableIndex + 1 == tables.length) {
+                    return false;
+                }
+                Table table = tables[++tableIndex];
+                // integrated totals are answered by a counter interrogation
+                if (table.type != ASduType.M_IT_NA_1) {
+                    next = table.lowerBound((long) commonAddress << 24);
+                    end = table.lowerBound((long) (commonAddress + 1) << 24);
+                }
+                return true;
+            }
+
+            Table table = tables[tableIndex];
+            int chunkEnd = Math.min(end, next + CHUNK_SIZE);
+            table.read(next, chunkEnd, words, timestamps);
+            List<InformationObject> informationObjects = new ArrayList<>(chunkEnd - next);
+            for (int i = next; i < chunkEnd; i++) {
+                informationObjects.add(new InformationObject((int) (table.keys[i] & MAX_IOA),
+                        new InformationElement[][] { table.elements(words[i - next], 0, false) }));
+            }
+            pending.addAll(packer.pack(table.type, causeOfTransmission, 0, commonAddress, informationObjects));
+            next = chunkEnd;
+            return true;
+        }
+    }
+
+    /**
+     * Defines the points of a process image.
+     */
+    public static class Builder {
+
+        private static final List<ASduType> TYPES = Arrays.asList(ASduType.M_SP_NA_1, ASduType.M_DP_NA_1,
+                ASduType.M_ME_NA_1, ASduType.M_ME_NB_1, ASduType.M_ME_NC_1, ASduType.M_IT_NA_1);
+
+        private final long[][] keys = new long[TYPES.size()][16];
+        private final int[] sizes = new int[TYPES.size()];
+
+        Builder() {
+        }
+
+        /**
+         * Adds a point.
+         *
+         * @param type
+         *            the type without time tag of the point, one of M_SP_NA_1, M_DP_NA_1, M_ME_NA_1, M_ME_NB_1,
+         *            M_ME_NC_1 and M_IT_NA_1
+         * @param commonAddress
+         *            the common address of the point
+         * @param ioa
+         *            the information object address of the point
+         * @return this builder
+         */
+        public Builder addPoint(ASduType type, int commonAddress, int ioa) {
+            return addPoints(type, commonAddress, ioa, 1);
+        }
+
+        /**
+         * Adds points with contiguous information object addresses.
+         *
+         * @param type
+         *            the type without time tag of the points, one of M_SP_NA_1, M_DP_NA_1, M_ME_NA_1, M_ME_NB_1,
+         *            M_ME_NC_1 and M_IT_NA_1
+         * @param commonAddress
+         *            the common address of the points
+         * @param firstIoa
+         *            the information object address of the first point
+         * @param count
+         *            the number of points
+         * @return this builder
+         */
+        public Builder addPoints(ASduType type, int commonAddress, int firstIoa, int count) {
+            int typeIndex = TYPES.indexOf(type);
+            if (typeIndex < 0) {
+                throw new IllegalArgumentException("unsupported type: " + type);
+            }
+            if (count < 0 || firstIoa < 0 || (long) firstIoa + count - 1 > MAX_IOA) {
+                throw new IllegalArgumentException("invalid information object addresses: " + firstIoa + " + " + count);
+            }
+            long firstKey = key(commonAddress, firstIoa);
+
+            int size = sizes[typeIndex];
+            if (keys[typeIndex].length < size + count) {
+                keys[typeIndex] = Arrays.copyOf(keys[typeIndex], Math.max(keys[typeIndex].length * 2, size + count));
+            }
+            for (int i = 0; i < count; i++) {
+                keys[typeIndex][size + i] = firstKey + i;
+            }
+            sizes[typeIndex] = size + count;
+            return this;
+        }
+
+        long[] keys(int typeIndex) {
+            long[] sorted = Arrays.copyOf(keys[typeIndex], sizes[typeIndex]);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * Creates the process image.
+         *
+         * @return the process image
+         * @throws IllegalArgumentException
+         *             if a point is defined more than once
+         */
+        public ProcessImage build() {
+            return new ProcessImage(this);
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+
+/**
+ * A client connection that is built up again whenever it is closed. Every (re)connect sends STARTDT act and, unless
+ * disabled, a general interrogation so that the state of the process image is resynchronized. The waiting time between
+ * failed attempts grows exponentially and is randomized, so that many clients that lost their connections at the same
+ * time do not reconnect all at once.
+ *
+ * <p>
+ * The same {@link ConnectionEventListener} is registered on every new connection. It is informed with
+ * {@link ConnectionEventListener#connectionClosed(Connection, IOException)} whenever a connection is lost, afterwards
+ * the next connection is built up in the background.
+ * </p>
+ */
+public class ReconnectingConnection implements AutoCloseable {
+
+    private static final int DEFAULT_INITIAL_BACKOFF = 1_000;
+    private static final int DEFAULT_MAX_BACKOFF = 60_000;
+
+    private final ClientConnectionBuilder builder;
+    private final ConnectionEventListener listener;
+    private final ConnectionEventListener connectionListener = new ForwardingListener();
+    private final Random random = new Random();
+
+    private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private int maxBackoff = DEFAULT_MAX_BACKOFF;
+    private boolean generalInterrogation = true;
+    private int commonAddress;
+
+    private Connection connection;
+    private Thread reconnectThread;
+    private boolean closed;
+
+    /**
+     * Creates a reconnecting connection. The connection event listener set on the builder is not used.
+     *
+     * @param builder
+     *            the builder used to build up every connection
+     * @param listener
+     *            the listener registered on every connection
+     */
+    public ReconnectingConnection(ClientConnectionBuilder builder, ConnectionEventListener listener) {
+        this.builder = builder;
+        this.listener = listener;
+        // broadcast address
+        this.commonAddress = builder.settings.getCommonAddressFieldLength() == 1 ? 0xff : 0xffff;
+    }
+
+    /**
+     * Sets the waiting time in ms after the first failed connection attempt. Default is 1 s.
+     *
+     * @param initialBackoff
+     *            the initial backoff in ms
+     * @return this connection
+     */
+    public ReconnectingConnection setInitialBackoff(int initialBackoff) {
+        if (initialBackoff < 1) {
+            throw new IllegalArgumentException("invalid initial backoff: " + initialBackoff);
+        }
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * Sets the upper limit of the waiting time in ms between two connection attempts. Default is 60 s.
+     *
+     * @param maxBackoff
+     *            the maximum backoff in ms
+     * @return this connection
+     */
+    public ReconnectingConnection setMaxBackoff(int maxBackoff) {
+        if (maxBackoff < 1) {
+            throw new IllegalArgumentException("invalid maximum backoff: " + maxBackoff);
+        }
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Sets whether a general interrogation is sent after every successful (re)connect. Default is true.
+     *
+     * @param generalInterrogation
+     *            true to send a general interrogation
+     * @return this connection
+     */
+    public ReconnectingConnection setGeneralInterrogation(boolean generalInterrogation) {
+        this.generalInterrogation = generalInterrogation;
+        return this;
+    }
+
+    /**
+     * Sets the common address the general interrogation is sent to. Default is the broadcast address.
+     *
+     * @param commonAddress
+     *            the common address
+     * @return this connection
+     */
+    public ReconnectingConnection setCommonAddress(int commonAddress) {
+        this.commonAddress = commonAddress;
+        return this;
+    }
+
+    /**
+     * Starts building up the connection in the background. The listener is informed with
+     * {@link ConnectionEventListener#dataTransferStateChanged(Connection, boolean)} once the data transfer has been
+     * started.
+     */
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("The connection has been closed.");
+        }
+        if (connection == null && reconnectThread == null) {
+            startReconnectThread(false);
+        }
+    }
+
+    /**
+     * Returns the current connection.
+     *
+     * @return the connection or null while no connection is established
+     */
+    public synchronized Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Closes the current connection and stops reconnecting.
+     */
+    @Override
+    public void close() {
+        Connection current;
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            current = connection;
+            connection = null;
+            thread = reconnectThread;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Returns the waiting time before the next attempt after the given number of failed attempts. The exponential
+     * backoff is jittered between half and the full value.
+     */
+    long backoff(int failedAttempts) {
+        return backoff(failedAttempts, initialBackoff, maxBackoff, random);
+    }
+
+    static long backoff(int failedAttempts, int initialBackoff, int maxBackoff, Random random) {
+        long backoff = Math.min(maxBackoff, (long) initialBackoff << Math.min(failedAttempts - 1, 30));
+        return backoff / 2 + (long) (random.nextDouble() * (backoff - backoff / 2));
+    }
+
+    private void startReconnectThread(boolean connectionLost) {
+        reconnectThread = new Thread(new Reconnector(connectionLost), "ReconnectingConnection");
+        reconnectThread.setDaemon(true);
+        reconnectThread.start();
+    }
+
+    private Connection connect() throws IOException {
+        Connection newConnection = builder.build(builder.settings.getConnectionTimeout(), connectionListener);
+        try {
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Connection closed.");
+                }
+                connection = newConnection;
+            }
+            newConnection.startDataTransfer();
+            if (generalInterrogation) {
+                newConnection.interrogation(commonAddress, CauseOfTransmission.ACTIVATION,
+                        new IeQualifierOfInterrogation(20));
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (connection == newConnection) {
+                    connection = null;
+                }
+            }
+            newConnection.close();
+            throw e;
+        }
+        return newConnection;
+    }
+
+    private class Reconnector implements Runnable {
+        private final boolean connectionLost;
+
+        public Reconnector(boolean connectionLost) {
+            this.connectionLost = connectionLost;
+        }
+
+        @Override
+        public void run() {
+            int failedAttempts = 0;
+            try {
+                if (connectionLost) {
+                    // clients that lost their connections at the same time do not reconnect at the same time
+                    Thread.sleep((long) (random.nextDouble() * initialBackoff));
+                }
+                while (true) {
+                    try {
+                        connect();
+                    } catch (IOException e) {
+                        // the connection lost right after connecting counts as failed attempt as well
+                    }
+                    failedAttempts++;
+                    synchronized (ReconnectingConnection.this) {
+                        if (closed || connection != null) {
+                            reconnectThread = null;
+                            return;
+                        }
+                    }
+                    Thread.sleep(backoff(failedAttempts));
+                }
+            } catch (InterruptedException e) {
+                // closed
+                synchronized (ReconnectingConnection.this) {
+                    reconnectThread = null;
+                }
+            }
+        }
+    }
+
+    private class ForwardingListener implements ConnectionEventListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+            listener.newASdu(connection, aSdu);
+        }
+
+        @Override
+        public void connectionClosed(Connection closedConnection, IOException cause) {
+            synchronized (ReconnectingConnection.this) {
+                if (closedConnection != connection) {
+                    // a failed attempt or a duplicate notification
+                    return;
+                }
+                connection = null;
+                if (!closed && reconnectThread == null) {
+                    startReconnectThread(true);
+                }
+            }
+            listener.connectionClosed(closedConnection, cause);
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+            listener.dataTransferStateChanged(connection, stopped);
+        }
+    }
+
+}
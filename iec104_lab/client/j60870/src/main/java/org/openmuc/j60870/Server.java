@@ -22,6 +22,9 @@ package org.openmuc.j60870;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -75,17 +78,33 @@ public class Server {
      */
     public void start(ServerEventListener listener) throws IOException {
         ConnectionSettings.incremntConnectionsCounter();
-        if (this.settings.useSharedThreadPool()) {
+        if (this.settings.useVirtualThreads()) {
+            this.exec = ConnectionSettings.newVirtualThreadPerTaskExecutor();
+        }
+        else if (this.settings.useSharedThreadPool()) {
             this.exec = ConnectionSettings.getThreadPool();
         }
         else {
             this.exec = Executors.newCachedThreadPool();
         }
-        serverThread = new ServerThread(serverSocketFactory.createServerSocket(port, backlog, bindAddr), settings,
-                maxConnections, listener, exec, allowedClientIps);
+        serverThread = new ServerThread(createServerSocket(), settings, maxConnections, listener, exec,
+                allowedClientIps);
         this.exec.execute(this.serverThread);
     }
 
+    private ServerSocket createServerSocket() throws IOException {
+        if (settings.useTls()) {
+            return TlsSupport.createServerSocket(settings, port, backlog, bindAddr);
+        }
+        if (!settings.useNioEngine()) {
+            return serverSocketFactory.createServerSocket(port, backlog, bindAddr);
+        }
+        // accepted sockets need a channel to be registered with the event loops
+        ServerSocket serverSocket = ServerSocketChannel.open().socket();
+        serverSocket.bind(new InetSocketAddress(bindAddr, port), backlog);
+        return serverSocket;
+    }
+
     /**
      * Stop listening for new connections. Existing connections are not touched.
      */
@@ -96,7 +115,7 @@ public class Server {
 
         serverThread.stopServer();
 
-        if (this.settings.useSharedThreadPool()) {
+        if (this.settings.useSharedThreadPool() && !this.settings.useVirtualThreads()) {
             ConnectionSettings.decrementConnectionsCounter();
         }
         else {
@@ -183,6 +202,18 @@ public class Server {
             return this;
         }
 
+        /**
+         * Requires the clients to authenticate with a certificate during the TLS handshake (mutual authentication).
+         * The certificates are validated against the trust managers of the SSL context.
+         *
+         * @return this builder
+         * @see #useTls(javax.net.ssl.SSLContext)
+         */
+        public Builder requireTlsClientAuth() {
+            this.settings.setTlsNeedClientAuth(true);
+            return this;
+        }
+
         /**
          * Set the maximum number of client connections that are allowed in parallel.
          *
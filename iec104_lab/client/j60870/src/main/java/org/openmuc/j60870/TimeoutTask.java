@@ -20,13 +20,28 @@
  */
 package org.openmuc.j60870;
 
-abstract class TimeoutTask implements Comparable<TimeoutTask> {
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+abstract class TimeoutTask {
     private final long timeout;
 
-    private long dueTime;
+    private volatile long dueTime;
+
+    private volatile boolean canceled;
+    private volatile boolean done;
+
+    /**
+     * Incremented whenever the task is planned again, so that an expiry that has been handed to the executor before is
+     * dropped.
+     */
+    private volatile int generation;
+
+    private Executor executor;
 
-    private boolean canceled;
-    private boolean done;
+    // guarded by the lock of the TimeoutManager
+    boolean queued;
+    long scheduledTime;
 
     public TimeoutTask(long timeout) {
 
@@ -36,16 +51,48 @@ abstract class TimeoutTask implements Comparable<TimeoutTask> {
         this.dueTime = 0;
     }
 
+    /**
+     * Sets the executor the task is executed by when it expires instead of the thread of the {@link TimeoutManager},
+     * e.g. because it writes to a connection or waits for its monitor.
+     */
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     void executeManually() {
 
         if (canceled) {
             return;
         }
 
+        final int generation = this.generation;
+        if (executor == null) {
+            execute(generation);
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(generation);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the connection has been closed
+        }
+    }
+
+    private void execute(int generation) {
+        if (canceled || generation != this.generation) {
+            return;
+        }
         try {
             execute();
         } finally {
-            this.done = true;
+            // unless the task planned itself again
+            if (generation == this.generation) {
+                this.done = true;
+            }
         }
     }
 
@@ -54,6 +101,11 @@ abstract class TimeoutTask implements Comparable<TimeoutTask> {
         this.dueTime = System.currentTimeMillis() + timeout;
         this.canceled = false;
         this.done = false;
+        this.generation++;
+    }
+
+    boolean isCanceled() {
+        return canceled;
     }
 
     protected abstract void execute();
@@ -78,29 +130,4 @@ abstract class TimeoutTask implements Comparable<TimeoutTask> {
         return dueTime - System.currentTimeMillis();
     }
 
-    @Override
-    public int compareTo(TimeoutTask o) {
-
-        return Long.compare(this.dueTime, o.dueTime);
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-
-        if (!(obj instanceof TimeoutTask)) {
-            return false;
-        }
-
-        TimeoutTask o = (TimeoutTask) obj;
-        return this.dueTime == o.dueTime && this.canceled == o.canceled && this.done == o.done
-                && this.timeout == o.timeout;
-    }
-
-    @Override
-    public int hashCode() {
-
-        return Long.hashCode(this.timeout) ^ ((Boolean.valueOf(canceled).hashCode()) << 2)
-                ^ Boolean.valueOf(done).hashCode();
-    }
-
 }
@@ -24,16 +24,56 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents an output circuit information of protection equipment (OCI) information element.
+ * Represents an output circuit information of protection equipment (OCI) information element. Instances are
+ * immutable. The decoder and {@link #valueOf(boolean, boolean, boolean, boolean)} return one shared instance per
+ * encoded value.
  */
 public class IeProtectionOutputCircuitInformation extends InformationElement {
 
-    private int value;
+    private static final IeProtectionOutputCircuitInformation[] INSTANCES =
+            new IeProtectionOutputCircuitInformation[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeProtectionOutputCircuitInformation(i);
+        }
+    }
+
+    private final int value;
 
     public IeProtectionOutputCircuitInformation(boolean generalCommand, boolean commandToL1, boolean commandToL2,
             boolean commandToL3) {
+        this(bits(generalCommand, commandToL1, commandToL2, commandToL3));
+    }
 
-        value = 0;
+    private IeProtectionOutputCircuitInformation(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the shared instance of the output circuit information with the given values.
+     *
+     * @param generalCommand
+     *            the general command to output circuit
+     * @param commandToL1
+     *            the command to output circuit phase L1
+     * @param commandToL2
+     *            the command to output circuit phase L2
+     * @param commandToL3
+     *            the command to output circuit phase L3
+     * @return the output circuit information
+     */
+    public static IeProtectionOutputCircuitInformation valueOf(boolean generalCommand, boolean commandToL1,
+            boolean commandToL2, boolean commandToL3) {
+        return INSTANCES[bits(generalCommand, commandToL1, commandToL2, commandToL3)];
+    }
+
+    static IeProtectionOutputCircuitInformation decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
+    }
+
+    private static int bits(boolean generalCommand, boolean commandToL1, boolean commandToL2, boolean commandToL3) {
+        int value = 0;
 
         if (generalCommand) {
             value |= 0x01;
@@ -48,10 +88,7 @@ public class IeProtectionOutputCircuitInformation extends InformationElement {
             value |= 0x08;
         }
 
-    }
-
-    IeProtectionOutputCircuitInformation(DataInputStream is) throws IOException {
-        value = (is.readByte() & 0xff);
+        return value;
     }
 
     @Override
@@ -24,21 +24,56 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a quality descriptor for events of protection equipment (QDP) information element.
+ * Represents a quality descriptor for events of protection equipment (QDP) information element. Instances are
+ * immutable. The decoder and {@link #valueOf(boolean, boolean, boolean, boolean, boolean)} return one shared instance
+ * per encoded value.
  */
 public class IeProtectionQuality extends IeAbstractQuality {
 
+    private static final IeProtectionQuality[] INSTANCES = new IeProtectionQuality[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeProtectionQuality(i);
+        }
+    }
+
     public IeProtectionQuality(boolean elapsedTimeInvalid, boolean blocked, boolean substituted, boolean notTopical,
             boolean invalid) {
-        super(blocked, substituted, notTopical, invalid);
+        this(bits(elapsedTimeInvalid, blocked, substituted, notTopical, invalid));
+    }
 
-        if (elapsedTimeInvalid) {
-            value |= 0x08;
-        }
+    private IeProtectionQuality(int value) {
+        super(value);
     }
 
-    IeProtectionQuality(DataInputStream is) throws IOException {
-        super(is);
+    /**
+     * Returns the shared instance of the quality descriptor with the given flags.
+     *
+     * @param elapsedTimeInvalid
+     *            the elapsed time invalid flag
+     * @param blocked
+     *            the blocked flag
+     * @param substituted
+     *            the substituted flag
+     * @param notTopical
+     *            the not topical flag
+     * @param invalid
+     *            the invalid flag
+     * @return the quality descriptor
+     */
+    public static IeProtectionQuality valueOf(boolean elapsedTimeInvalid, boolean blocked, boolean substituted,
+            boolean notTopical, boolean invalid) {
+        return INSTANCES[bits(elapsedTimeInvalid, blocked, substituted, notTopical, invalid)];
+    }
+
+    static IeProtectionQuality decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
+    }
+
+    private static int bits(boolean elapsedTimeInvalid, boolean blocked, boolean substituted, boolean notTopical,
+            boolean invalid) {
+        return qualityBits(blocked, substituted, notTopical, invalid) | (elapsedTimeInvalid ? 0x08 : 0);
     }
 
     public boolean isElapsedTimeInvalid() {
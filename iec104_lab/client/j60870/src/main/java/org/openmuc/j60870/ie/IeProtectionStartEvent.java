@@ -24,16 +24,63 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a start events of protection equipment (SPE) information element.
+ * Represents a start events of protection equipment (SPE) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(boolean, boolean, boolean, boolean, boolean, boolean)} return one shared instance per encoded
+ * value.
  */
 public class IeProtectionStartEvent extends InformationElement {
 
-    private int value;
+    private static final IeProtectionStartEvent[] INSTANCES = new IeProtectionStartEvent[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeProtectionStartEvent(i);
+        }
+    }
+
+    private final int value;
 
     public IeProtectionStartEvent(boolean generalStart, boolean startOperationL1, boolean startOperationL2,
             boolean startOperationL3, boolean startOperationIe, boolean startReverseOperation) {
+        this(bits(generalStart, startOperationL1, startOperationL2, startOperationL3, startOperationIe,
+                startReverseOperation));
+    }
+
+    private IeProtectionStartEvent(int value) {
+        this.value = value;
+    }
 
-        value = 0;
+    /**
+     * Returns the shared instance of the start events of protection equipment with the given values.
+     *
+     * @param generalStart
+     *            the general start of operation
+     * @param startOperationL1
+     *            the start of operation phase L1
+     * @param startOperationL2
+     *            the start of operation phase L2
+     * @param startOperationL3
+     *            the start of operation phase L3
+     * @param startOperationIe
+     *            the start of operation IE (earth current)
+     * @param startReverseOperation
+     *            the start of operation in reverse direction
+     * @return the start events of protection equipment
+     */
+    public static IeProtectionStartEvent valueOf(boolean generalStart, boolean startOperationL1,
+            boolean startOperationL2, boolean startOperationL3, boolean startOperationIe,
+            boolean startReverseOperation) {
+        return INSTANCES[bits(generalStart, startOperationL1, startOperationL2, startOperationL3, startOperationIe,
+                startReverseOperation)];
+    }
+
+    static IeProtectionStartEvent decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
+    }
+
+    private static int bits(boolean generalStart, boolean startOperationL1, boolean startOperationL2,
+            boolean startOperationL3, boolean startOperationIe, boolean startReverseOperation) {
+        int value = 0;
 
         if (generalStart) {
             value |= 0x01;
@@ -53,10 +100,7 @@ public class IeProtectionStartEvent extends InformationElement {
         if (startReverseOperation) {
             value |= 0x20;
         }
-    }
-
-    IeProtectionStartEvent(DataInputStream is) throws IOException {
-        value = (is.readByte() & 0xff);
+        return value;
     }
 
     @Override
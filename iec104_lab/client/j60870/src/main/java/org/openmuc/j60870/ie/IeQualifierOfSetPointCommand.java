@@ -24,10 +24,19 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a qualifier of set-point command (QOS) information element.
+ * Represents a qualifier of set-point command (QOS) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(int, boolean)} return one shared instance per encoded value.
  */
 public class IeQualifierOfSetPointCommand extends InformationElement {
 
+    private static final IeQualifierOfSetPointCommand[] INSTANCES = new IeQualifierOfSetPointCommand[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeQualifierOfSetPointCommand(i & 0x7f, (i & 0x80) == 0x80);
+        }
+    }
+
     private final int ql;
     private final boolean select;
 
@@ -36,10 +45,24 @@ public class IeQualifierOfSetPointCommand extends InformationElement {
         this.select = select;
     }
 
-    IeQualifierOfSetPointCommand(DataInputStream is) throws IOException {
-        int b1 = (is.readByte() & 0xff);
-        ql = b1 & 0x7f;
-        select = ((b1 & 0x80) == 0x80);
+    /**
+     * Returns the shared instance of the qualifier with the given values.
+     *
+     * @param ql
+     *            the qualifier, 0 to 127
+     * @param select
+     *            true if select, false if execute
+     * @return the qualifier of set-point command
+     */
+    public static IeQualifierOfSetPointCommand valueOf(int ql, boolean select) {
+        if (ql < 0 || ql > 127) {
+            throw new IllegalArgumentException("QL is out of bound: " + ql);
+        }
+        return INSTANCES[ql | (select ? 0x80 : 0)];
+    }
+
+    static IeQualifierOfSetPointCommand decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
     @Override
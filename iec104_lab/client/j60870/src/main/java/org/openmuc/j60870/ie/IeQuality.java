@@ -24,20 +24,54 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a quality descriptor (QDS) information element.
+ * Represents a quality descriptor (QDS) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(boolean, boolean, boolean, boolean, boolean)} return one shared instance per encoded value.
  */
 public class IeQuality extends IeAbstractQuality {
 
-    public IeQuality(boolean overflow, boolean blocked, boolean substituted, boolean notTopical, boolean invalid) {
-        super(blocked, substituted, notTopical, invalid);
+    private static final IeQuality[] INSTANCES = new IeQuality[256];
 
-        if (overflow) {
-            value |= 0x01;
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeQuality(i);
         }
     }
 
-    IeQuality(DataInputStream is) throws IOException {
-        super(is);
+    public IeQuality(boolean overflow, boolean blocked, boolean substituted, boolean notTopical, boolean invalid) {
+        this(bits(overflow, blocked, substituted, notTopical, invalid));
+    }
+
+    private IeQuality(int value) {
+        super(value);
+    }
+
+    /**
+     * Returns the shared instance of the quality descriptor with the given flags.
+     *
+     * @param overflow
+     *            the overflow flag
+     * @param blocked
+     *            the blocked flag
+     * @param substituted
+     *            the substituted flag
+     * @param notTopical
+     *            the not topical flag
+     * @param invalid
+     *            the invalid flag
+     * @return the quality descriptor
+     */
+    public static IeQuality valueOf(boolean overflow, boolean blocked, boolean substituted, boolean notTopical,
+            boolean invalid) {
+        return INSTANCES[bits(overflow, blocked, substituted, notTopical, invalid)];
+    }
+
+    static IeQuality decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
+    }
+
+    private static int bits(boolean overflow, boolean blocked, boolean substituted, boolean notTopical,
+            boolean invalid) {
+        return qualityBits(blocked, substituted, notTopical, invalid) | (overflow ? 0x01 : 0);
     }
 
     public boolean isOverflow() {
@@ -24,11 +24,21 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a single event of protection equipment (SEP) information element.
+ * Represents a single event of protection equipment (SEP) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(EventState, boolean, boolean, boolean, boolean, boolean)} return one shared instance per encoded
+ * value.
  */
 public class IeSingleProtectionEvent extends InformationElement {
 
-    private int value;
+    private static final IeSingleProtectionEvent[] INSTANCES = new IeSingleProtectionEvent[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeSingleProtectionEvent(i);
+        }
+    }
+
+    private final int value;
 
     public enum EventState {
         INDETERMINATE,
@@ -38,8 +48,42 @@ public class IeSingleProtectionEvent extends InformationElement {
 
     public IeSingleProtectionEvent(EventState eventState, boolean elapsedTimeInvalid, boolean blocked,
             boolean substituted, boolean notTopical, boolean eventInvalid) {
+        this(bits(eventState, elapsedTimeInvalid, blocked, substituted, notTopical, eventInvalid));
+    }
 
-        value = 0;
+    private IeSingleProtectionEvent(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the shared instance of the single event of protection equipment with the given values.
+     *
+     * @param eventState
+     *            the event state
+     * @param elapsedTimeInvalid
+     *            the elapsed time invalid flag
+     * @param blocked
+     *            the blocked flag
+     * @param substituted
+     *            the substituted flag
+     * @param notTopical
+     *            the not topical flag
+     * @param eventInvalid
+     *            the event invalid flag
+     * @return the single event of protection equipment
+     */
+    public static IeSingleProtectionEvent valueOf(EventState eventState, boolean elapsedTimeInvalid, boolean blocked,
+            boolean substituted, boolean notTopical, boolean eventInvalid) {
+        return INSTANCES[bits(eventState, elapsedTimeInvalid, blocked, substituted, notTopical, eventInvalid)];
+    }
+
+    static IeSingleProtectionEvent decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
+    }
+
+    private static int bits(EventState eventState, boolean elapsedTimeInvalid, boolean blocked,
+            boolean substituted, boolean notTopical, boolean eventInvalid) {
+        int value = 0;
 
         switch (eventState) {
         case OFF:
@@ -67,10 +111,7 @@ public class IeSingleProtectionEvent extends InformationElement {
         if (eventInvalid) {
             value |= 0x80;
         }
-    }
-
-    IeSingleProtectionEvent(DataInputStream is) throws IOException {
-        value = (is.readByte() & 0xff);
+        return value;
     }
 
     @Override
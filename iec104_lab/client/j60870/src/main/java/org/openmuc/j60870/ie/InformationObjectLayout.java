@@ -0,0 +1,495 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.ie;
+
+import java.io.IOException;
+
+import org.openmuc.j60870.ASduType;
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+
+/**
+ * Describes the information elements that make up an information element set of an ASDU type, their encoded size and
+ * whether the type may contain a sequence of elements (SQ=1). The layouts of all standard types are kept in a table
+ * indexed by type ID, so decoding, size calculation and validation of a received ASDU need no branching on the type.
+ */
+public final class InformationObjectLayout {
+
+    private static final InformationObjectLayout[] LAYOUTS = new InformationObjectLayout[256];
+
+    private static final Element SIQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeSinglePointWithQuality.decode(is);
+        }
+    };
+    private static final Element DIQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeDoublePointWithQuality.decode(is);
+        }
+    };
+    private static final Element VTI = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeValueWithTransientState(is);
+        }
+    };
+    private static final Element QDS = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeQuality.decode(is);
+        }
+    };
+    private static final Element BSI = new Element(4) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeBinaryStateInformation(is);
+        }
+    };
+    private static final Element NVA = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeNormalizedValue(is);
+        }
+    };
+    private static final Element SVA = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeScaledValue(is);
+        }
+    };
+    private static final Element R32 = new Element(4) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeShortFloat(is);
+        }
+    };
+    private static final Element BCR = new Element(5) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeBinaryCounterReading.decode(is);
+        }
+    };
+    private static final Element SEP = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeSingleProtectionEvent.decode(is);
+        }
+    };
+    private static final Element SPE = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeProtectionStartEvent.decode(is);
+        }
+    };
+    private static final Element OCI = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeProtectionOutputCircuitInformation.decode(is);
+        }
+    };
+    private static final Element QDP = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeProtectionQuality.decode(is);
+        }
+    };
+    private static final Element SCD = new Element(4) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeStatusAndStatusChanges(is);
+        }
+    };
+    private static final Element CP16 = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeTime16(is);
+        }
+    };
+    private static final Element CP24 = new Element(3) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeTime24(is);
+        }
+    };
+    private static final Element CP56 = new Element(IeTime56.LENGTH) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeTime56.decode(is);
+        }
+    };
+    private static final Element SCO = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeSingleCommand.decode(is);
+        }
+    };
+    private static final Element DCO = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeDoubleCommand.decode(is);
+        }
+    };
+    private static final Element RCO = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeRegulatingStepCommand.decode(is);
+        }
+    };
+    private static final Element QOS = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeQualifierOfSetPointCommand.decode(is);
+        }
+    };
+    private static final Element COI = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeCauseOfInitialization(is);
+        }
+    };
+    private static final Element QOI = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeQualifierOfInterrogation(is);
+        }
+    };
+    private static final Element QCC = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeQualifierOfCounterInterrogation(is);
+        }
+    };
+    private static final Element FBP = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeFixedTestBitPattern(is);
+        }
+    };
+    private static final Element QRP = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeQualifierOfResetProcessCommand(is);
+        }
+    };
+    private static final Element TSC = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeTestSequenceCounter.decode(is);
+        }
+    };
+    private static final Element QPM = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeQualifierOfParameterOfMeasuredValues(is);
+        }
+    };
+    private static final Element QPA = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeQualifierOfParameterActivation.decode(is);
+        }
+    };
+    private static final Element NOF = new Element(2) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeNameOfFile.decode(is);
+        }
+    };
+    private static final Element NOS = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeNameOfSection.decode(is);
+        }
+    };
+    private static final Element LOF = new Element(3) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeLengthOfFileOrSection.decode(is);
+        }
+    };
+    private static final Element FRQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeFileReadyQualifier.decode(is);
+        }
+    };
+    private static final Element SRQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeSectionReadyQualifier.decode(is);
+        }
+    };
+    private static final Element SCQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeSelectAndCallQualifier.decode(is);
+        }
+    };
+    private static final Element LSQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeLastSectionOrSegmentQualifier.decode(is);
+        }
+    };
+    private static final Element CHS = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeChecksum.decode(is);
+        }
+    };
+    private static final Element AFQ = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeAckFileOrSectionQualifier.decode(is);
+        }
+    };
+    private static final Element SOF = new Element(1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return IeStatusOfFile.decode(is);
+        }
+    };
+    /**
+     * A file segment is preceded by its length octet.
+     */
+    private static final Element SEGMENT = new Element(-1) {
+        @Override
+        InformationElement decode(ExtendedDataInputStream is) throws IOException {
+            return new IeFileSegment(is);
+        }
+    };
+
+    static {
+        sequence(ASduType.M_SP_NA_1, SIQ);
+        single(ASduType.M_SP_TA_1, SIQ, CP24);
+        sequence(ASduType.M_DP_NA_1, DIQ);
+        single(ASduType.M_DP_TA_1, DIQ, CP24);
+        sequence(ASduType.M_ST_NA_1, VTI, QDS);
+        single(ASduType.M_ST_TA_1, VTI, QDS, CP24);
+        sequence(ASduType.M_BO_NA_1, BSI, QDS);
+        single(ASduType.M_BO_TA_1, BSI, QDS, CP24);
+        sequence(ASduType.M_ME_NA_1, NVA, QDS);
+        single(ASduType.M_ME_TA_1, NVA, QDS, CP24);
+        sequence(ASduType.M_ME_NB_1, SVA, QDS);
+        single(ASduType.M_ME_TB_1, SVA, QDS, CP24);
+        sequence(ASduType.M_ME_NC_1, R32, QDS);
+        single(ASduType.M_ME_TC_1, R32, QDS, CP24);
+        sequence(ASduType.M_IT_NA_1, BCR);
+        single(ASduType.M_IT_TA_1, BCR, CP24);
+        single(ASduType.M_EP_TA_1, SEP, CP16, CP24);
+        single(ASduType.M_EP_TB_1, SPE, QDP, CP16, CP24);
+        single(ASduType.M_EP_TC_1, OCI, QDP, CP16, CP24);
+        sequence(ASduType.M_PS_NA_1, SCD, QDS);
+        sequence(ASduType.M_ME_ND_1, NVA);
+        single(ASduType.M_SP_TB_1, SIQ, CP56);
+        single(ASduType.M_DP_TB_1, DIQ, CP56);
+        single(ASduType.M_ST_TB_1, VTI, QDS, CP56);
+        single(ASduType.M_BO_TB_1, BSI, QDS, CP56);
+        single(ASduType.M_ME_TD_1, NVA, QDS, CP56);
+        single(ASduType.M_ME_TE_1, SVA, QDS, CP56);
+        single(ASduType.M_ME_TF_1, R32, QDS, CP56);
+        single(ASduType.M_IT_TB_1, BCR, CP56);
+        single(ASduType.M_EP_TD_1, SEP, CP16, CP56);
+        single(ASduType.M_EP_TE_1, SPE, QDP, CP16, CP56);
+        single(ASduType.M_EP_TF_1, OCI, QDP, CP16, CP56);
+
+        single(ASduType.C_SC_NA_1, SCO);
+        single(ASduType.C_DC_NA_1, DCO);
+        single(ASduType.C_RC_NA_1, RCO);
+        single(ASduType.C_SE_NA_1, NVA, QOS);
+        single(ASduType.C_SE_NB_1, SVA, QOS);
+        single(ASduType.C_SE_NC_1, R32, QOS);
+        single(ASduType.C_BO_NA_1, BSI);
+        single(ASduType.C_SC_TA_1, SCO, CP56);
+        single(ASduType.C_DC_TA_1, DCO, CP56);
+        single(ASduType.C_RC_TA_1, RCO, CP56);
+        single(ASduType.C_SE_TA_1, NVA, QOS, CP56);
+        single(ASduType.C_SE_TB_1, SVA, QOS, CP56);
+        single(ASduType.C_SE_TC_1, R32, QOS, CP56);
+        single(ASduType.C_BO_TA_1, BSI, CP56);
+
+        single(ASduType.M_EI_NA_1, COI);
+
+        single(ASduType.C_IC_NA_1, QOI);
+        single(ASduType.C_CI_NA_1, QCC);
+        // the read command consists of the information object address only
+        single(ASduType.C_RD_NA_1);
+        single(ASduType.C_CS_NA_1, CP56);
+        single(ASduType.C_TS_NA_1, FBP);
+        single(ASduType.C_RP_NA_1, QRP);
+        single(ASduType.C_CD_NA_1, CP16);
+        single(ASduType.C_TS_TA_1, TSC, CP56);
+
+        single(ASduType.P_ME_NA_1, NVA, QPM);
+        single(ASduType.P_ME_NB_1, SVA, QPM);
+        single(ASduType.P_ME_NC_1, R32, QPM);
+        single(ASduType.P_AC_NA_1, QPA);
+
+        single(ASduType.F_FR_NA_1, NOF, LOF, FRQ);
+        single(ASduType.F_SR_NA_1, NOF, NOS, LOF, SRQ);
+        single(ASduType.F_SC_NA_1, NOF, NOS, SCQ);
+        single(ASduType.F_LS_NA_1, NOF, NOS, LSQ, CHS);
+        single(ASduType.F_AF_NA_1, NOF, NOS, AFQ);
+        single(ASduType.F_SG_NA_1, NOF, NOS, SEGMENT);
+        sequence(ASduType.F_DR_TA_1, NOF, LOF, SOF, CP56);
+        single(ASduType.F_SC_NB_1, NOF, CP56, CP56);
+    }
+
+    private static void single(ASduType type, Element... elements) {
+        LAYOUTS[type.getId()] = new InformationObjectLayout(elements, false);
+    }
+
+    private static void sequence(ASduType type, Element... elements) {
+        LAYOUTS[type.getId()] = new InformationObjectLayout(elements, true);
+    }
+
+    private final Element[] elements;
+    private final boolean sequenceAllowed;
+    private final int elementSetSize;
+
+    private InformationObjectLayout(Element[] elements, boolean sequenceAllowed) {
+        this.elements = elements;
+        this.sequenceAllowed = sequenceAllowed;
+
+        int size = 0;
+        for (Element element : elements) {
+            if (element.size < 0) {
+                size = -1;
+                break;
+            }
+            size += element.size;
+        }
+        this.elementSetSize = size;
+    }
+
+    /**
+     * Returns the layout of the information objects of the given type.
+     *
+     * @param typeId
+     *            the type identification
+     * @return the layout or <code>null</code> for reserved, private and unknown types
+     */
+    public static InformationObjectLayout forType(int typeId) {
+        return LAYOUTS[typeId & 0xff];
+    }
+
+    /**
+     * Returns the number of information elements in an element set.
+     *
+     * @return the number of information elements
+     */
+    public int getNumberOfElements() {
+        return elements.length;
+    }
+
+    /**
+     * Returns the encoded size of an information element set without the information object address.
+     *
+     * @return the size in bytes or -1 if the size depends on the content
+     */
+    public int getElementSetSize() {
+        return elementSetSize;
+    }
+
+    public boolean isFixedLength() {
+        return elementSetSize >= 0;
+    }
+
+    /**
+     * Returns true if information objects of this type may contain a sequence of element sets (SQ=1).
+     *
+     * @return true if a sequence of elements is allowed
+     */
+    public boolean isSequenceAllowed() {
+        return sequenceAllowed;
+    }
+
+    /**
+     * Returns the length of the information objects of an ASDU of this type. Types that do not allow a sequence of
+     * elements contain one element set per information object, even if the SQ bit is set.
+     *
+     * @param ioaFieldLength
+     *            the length of the information object address field
+     * @param sequenceOfElements
+     *            the SQ bit of the ASDU
+     * @param sequenceLength
+     *            the number of information objects or elements of the ASDU
+     * @return the length in bytes or -1 if the length depends on the content
+     */
+    public int informationObjectsLength(int ioaFieldLength, boolean sequenceOfElements, int sequenceLength) {
+        if (elementSetSize < 0) {
+            return -1;
+        }
+        if (sequenceOfElements) {
+            return ioaFieldLength + (sequenceAllowed ? sequenceLength : 1) * elementSetSize;
+        }
+        return sequenceLength * (ioaFieldLength + elementSetSize);
+    }
+
+    /**
+     * Decodes an information object of this layout.
+     *
+     * @param is
+     *            the stream positioned at the information object address
+     * @param numberOfSequenceElements
+     *            the number of element sets if the ASDU contains a sequence of elements, else 1
+     * @param ioaFieldLength
+     *            the length of the information object address field
+     * @return the information object
+     * @throws IOException
+     *             if the stream ends before the information object
+     */
+    public InformationObject decode(ExtendedDataInputStream is, int numberOfSequenceElements, int ioaFieldLength)
+            throws IOException {
+        int informationObjectAddress = 0;
+        for (int i = 0; i < ioaFieldLength; i++) {
+            informationObjectAddress |= (is.readUnsignedByte() << (8 * i));
+        }
+
+        if (elements.length == 0) {
+            return new InformationObject(informationObjectAddress, new InformationElement[0][0]);
+        }
+
+        int numberOfSets = sequenceAllowed ? numberOfSequenceElements : 1;
+        InformationElement[][] informationElements = new InformationElement[numberOfSets][];
+        for (int i = 0; i < numberOfSets; i++) {
+            InformationElement[] informationElementSet = new InformationElement[elements.length];
+            for (int j = 0; j < elements.length; j++) {
+                informationElementSet[j] = elements[j].decode(is);
+            }
+            informationElements[i] = informationElementSet;
+        }
+        return new InformationObject(informationObjectAddress, informationElements);
+    }
+
+    private abstract static class Element {
+
+        private final int size;
+
+        Element(int size) {
+            this.size = size;
+        }
+
+        abstract InformationElement decode(ExtendedDataInputStream is) throws IOException;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Buffered output stream writing to a socket channel in non-blocking mode. Written bytes are staged in a byte buffer,
+ * which may be a direct buffer, and written to the channel on flush or when the buffer is full. Bytes the socket send
+ * buffer does not take are queued and written by {@link #writePending()} once the channel becomes writable again, so
+ * writing never waits for the peer.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    private final SocketChannel channel;
+    private final ByteBuffer buffer;
+    private final int maxPendingBytes;
+    private final Runnable writeRequest;
+
+    private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+    private int pendingBytes;
+
+    /**
+     * @param channel
+     *            the channel to write to
+     * @param buffer
+     *            the buffer to stage written bytes in
+     * @param maxPendingBytes
+     *            the maximum number of bytes that may wait for the channel to become writable
+     * @param writeRequest
+     *            called when bytes start waiting for the channel to become writable
+     */
+    public ChannelOutputStream(SocketChannel channel, ByteBuffer buffer, int maxPendingBytes, Runnable writeRequest) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.maxPendingBytes = maxPendingBytes;
+        this.writeRequest = writeRequest;
+        buffer.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int numBytes = Math.min(len, buffer.remaining());
+            buffer.put(b, off, numBytes);
+            off += numBytes;
+            len -= numBytes;
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        try {
+            // bytes must not overtake the ones already waiting
+            if (pending.isEmpty()) {
+                channel.write(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                enqueue(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void enqueue(ByteBuffer src) throws IOException {
+        int numBytes = src.remaining();
+        if (numBytes > maxPendingBytes - pendingBytes) {
+            throw new IOException("Output queue is full, the remote station does not read.");
+        }
+        ByteBuffer copy = ByteBuffer.allocate(numBytes);
+        copy.put(src);
+        copy.flip();
+
+        boolean wasEmpty = pending.isEmpty();
+        pending.add(copy);
+        pendingBytes += numBytes;
+        if (wasEmpty) {
+            writeRequest.run();
+        }
+    }
+
+    /**
+     * Writes the queued bytes as far as the channel takes them without blocking.
+     * 
+     * @return true if no bytes are left waiting
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public synchronized boolean writePending() throws IOException {
+        ByteBuffer head;
+        while ((head = pending.peek()) != null) {
+            pendingBytes -= channel.write(head);
+            if (head.hasRemaining()) {
+                return false;
+            }
+            pending.poll();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
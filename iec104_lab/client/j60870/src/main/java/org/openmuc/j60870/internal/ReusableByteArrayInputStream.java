@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.internal;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * A {@link ByteArrayInputStream} that can be pointed to a new slice of a byte array, so that one instance can be
+ * reused for many messages.
+ */
+public class ReusableByteArrayInputStream extends ByteArrayInputStream {
+
+    public ReusableByteArrayInputStream() {
+        super(new byte[0]);
+    }
+
+    /**
+     * Lets the stream read the given slice of the buffer. The buffer is not copied.
+     *
+     * @param buf
+     *            the input buffer
+     * @param offset
+     *            the offset in the buffer of the first byte to read
+     * @param length
+     *            the maximum number of bytes to read from the buffer
+     */
+    public void setBuffer(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.count = Math.min(offset + length, buf.length);
+        this.mark = offset;
+    }
+
+}
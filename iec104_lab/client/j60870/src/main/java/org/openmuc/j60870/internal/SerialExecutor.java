@@ -23,6 +23,7 @@ package org.openmuc.j60870.internal;
 import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class SerialExecutor implements Executor {
 
@@ -57,7 +58,13 @@ public class SerialExecutor implements Executor {
     private void scheduleNext() {
         synchronized (lock) {
             if ((active = tasks.poll()) != null) {
-                executor.execute(active);
+                try {
+                    executor.execute(active);
+                } catch (RejectedExecutionException e) {
+                    // the executor has been shut down with the connection, the remaining tasks are dropped
+                    tasks.clear();
+                    active = null;
+                }
             }
         }
     }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ASduFilterChainTest {
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final byte[] buffer = new byte[255];
+    private int length;
+
+    @Test
+    public void testHeaderCriteria() {
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 7, 100, 101));
+
+        assertTrue(matches(new ASduFilter()));
+        assertTrue(matches(new ASduFilter().types(ASduType.M_ME_NA_1, ASduType.M_ME_NB_1)));
+        assertFalse(matches(new ASduFilter().types(ASduType.M_ME_NA_1)));
+        assertTrue(matches(new ASduFilter().causes(CauseOfTransmission.SPONTANEOUS)));
+        assertFalse(matches(new ASduFilter().causes(CauseOfTransmission.PERIODIC)));
+        assertTrue(matches(new ASduFilter().test(false)));
+        assertFalse(matches(new ASduFilter().test(true)));
+        assertTrue(matches(new ASduFilter().commonAddresses(7, 7)));
+        assertFalse(matches(new ASduFilter().commonAddresses(8, 300)));
+        assertFalse(matches(new ASduFilter().types(ASduType.M_ME_NB_1).commonAddresses(0, 6)));
+
+        encode(new ASdu(ASduType.C_IC_NA_1, false, CauseOfTransmission.ACTIVATION, true, false, 0, 300,
+                new InformationObject(0, new IeQualifierOfInterrogation(20))));
+        assertTrue(matches(new ASduFilter().test(true)));
+        assertTrue(matches(new ASduFilter().commonAddresses(300, 300)));
+
+        settings.setCommonAddressFieldLength(1);
+        settings.setCotFieldLength(1);
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 200, 100));
+        assertTrue(matches(new ASduFilter().commonAddresses(200, 200).causes(CauseOfTransmission.SPONTANEOUS)));
+        assertFalse(matches(new ASduFilter().commonAddresses(0, 199)));
+        assertFalse(new ASduFilter().matches(buffer, 0, 3, settings));
+    }
+
+    @Test
+    public void testInformationObjectAddresses() {
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 1, 100, 200, 300));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(100, 100)));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(250, 350)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(101, 199)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(301, 400)));
+
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, true, 1, 100, 101, 102));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(102, 500)));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(0, 100)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(103, 500)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(0, 99)));
+
+        settings.setIoaFieldLength(2);
+        encode(new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.PERIODIC, false, false, 0, 1,
+                floatObject(1000), floatObject(40000)));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(40000, 40000)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(1001, 39999)));
+
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, true, 1, 65534, 65535, 0, 1));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(0, 0)));
+        assertTrue(matches(new ASduFilter().informationObjectAddresses(65535, 65535)));
+        assertFalse(matches(new ASduFilter().informationObjectAddresses(2, 65533)));
+    }
+
+    @Test
+    public void testRuleOrder() {
+        ConnectionEventListener listener = new ConnectionEventListener() {
+
+            @Override
+            public void newASdu(Connection connection, ASdu aSdu) {
+            }
+
+            @Override
+            public void connectionClosed(Connection connection, IOException cause) {
+            }
+
+            @Override
+            public void dataTransferStateChanged(Connection connection, boolean stopped) {
+            }
+        };
+        ASduFilterChain chain = new ASduFilterChain().count(new ASduFilter())
+                .accept(new ASduFilter().commonAddresses(1, 10))
+                .route(new ASduFilter().types(ASduType.M_ME_NB_1).commonAddresses(11, 20), listener)
+                .drop(new ASduFilter().commonAddresses(11, 20));
+        assertEquals(4, chain.size());
+
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 5, 1));
+        assertEquals(1, chain.evaluate(buffer, 0, length, settings));
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 15, 1));
+        assertEquals(2, chain.evaluate(buffer, 0, length, settings));
+        assertEquals(ASduFilterChain.Action.ROUTE, chain.getAction(2));
+        encode(new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.PERIODIC, false, false, 0, 15,
+                floatObject(1)));
+        assertEquals(3, chain.evaluate(buffer, 0, length, settings));
+        encode(scaled(CauseOfTransmission.SPONTANEOUS, false, 25, 1));
+        assertEquals(-1, chain.evaluate(buffer, 0, length, settings));
+
+        assertEquals(4, chain.getMatchCount(0));
+        assertEquals(1, chain.getMatchCount(1));
+        assertEquals(1, chain.getMatchCount(2));
+        assertEquals(1, chain.getMatchCount(3));
+        assertEquals(1, chain.getUnmatchedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testChainCannotBeChangedOnceUsed() {
+        ASduFilterChain chain = new ASduFilterChain().drop(new ASduFilter().commonAddresses(1, 1));
+        Server.builder().setASduFilterChain(chain);
+        chain.drop(new ASduFilter().commonAddresses(2, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new ASduFilter().commonAddresses(10, 9);
+    }
+
+    private boolean matches(ASduFilter filter) {
+        return filter.matches(buffer, 0, length, settings);
+    }
+
+    private void encode(ASdu aSdu) {
+        length = aSdu.encode(buffer, 0, settings);
+    }
+
+    private static ASdu scaled(CauseOfTransmission cot, boolean sequence, int ca, int... ioas) {
+        if (sequence) {
+            InformationElement[][] elements = new InformationElement[ioas.length][];
+            for (int i = 0; i < ioas.length; i++) {
+                elements[i] = scaledElements(i);
+            }
+            return new ASdu(ASduType.M_ME_NB_1, true, cot, false, false, 0, ca,
+                    new InformationObject(ioas[0], elements));
+        }
+        InformationObject[] objects = new InformationObject[ioas.length];
+        for (int i = 0; i < ioas.length; i++) {
+            objects[i] = new InformationObject(ioas[i], scaledElements(i));
+        }
+        return new ASdu(ASduType.M_ME_NB_1, false, cot, false, false, 0, ca, objects);
+    }
+
+    private static InformationElement[] scaledElements(int value) {
+        return new InformationElement[] { new IeScaledValue(value),
+                new IeQuality(false, false, false, false, false) };
+    }
+
+    private static InformationObject floatObject(int ioa) {
+        return new InformationObject(ioa, new IeShortFloat(ioa), new IeQuality(false, false, false, false, false));
+    }
+
+}
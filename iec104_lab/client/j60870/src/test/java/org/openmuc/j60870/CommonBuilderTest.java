@@ -20,6 +20,9 @@
  */
 package org.openmuc.j60870;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -92,4 +95,15 @@ public class CommonBuilderTest {
         setTime(15000, 10000, 20000);
     }
 
+    @Test
+    public void testUseVirtualThreads() {
+        try {
+            builder.useVirtualThreads();
+            assertTrue(ConnectionSettings.virtualThreadsAvailable());
+            assertTrue(builder.settings.useVirtualThreads());
+        } catch (UnsupportedOperationException e) {
+            assertFalse(ConnectionSettings.virtualThreadsAvailable());
+        }
+    }
+
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class EventJournalITest {
+
+    private static final String MASTER = InetAddress.getLoopbackAddress().getHostAddress();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<ASdu> aSdus = new LinkedBlockingQueue<>();
+
+    private EventJournal journal;
+    private Server server;
+    private Connection connection;
+
+    @After
+    public void stop() throws IOException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testReplayAfterReconnect() throws Exception {
+        File directory = folder.newFolder();
+        journal = new EventJournal(directory, 1 << 20, 0);
+        startServer();
+
+        connect();
+        for (int i = 0; i < 5; i++) {
+            journal.append(event(i));
+        }
+        expectEvents(0, 5);
+        awaitAcknowledged(5);
+
+        connection.close();
+        // events raised while the master is not connected
+        for (int i = 5; i < 105; i++) {
+            journal.append(event(i));
+        }
+        connect();
+        for (int i = 105; i < 110; i++) {
+            journal.append(event(i));
+        }
+        expectEvents(5, 110);
+        awaitAcknowledged(110);
+        assertNull(aSdus.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testStopDataTransfer() throws Exception {
+        journal = new EventJournal(folder.newFolder(), 1 << 20, 0);
+        startServer();
+
+        connect();
+        journal.append(event(0));
+        expectEvents(0, 1);
+
+        connection.stopDataTransfer();
+        for (int i = 1; i < 30; i++) {
+            journal.append(event(i));
+        }
+        assertNull(aSdus.poll(200, TimeUnit.MILLISECONDS));
+
+        connection.startDataTransfer();
+        expectEvents(1, 30);
+        awaitAcknowledged(30);
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        File directory = folder.newFolder();
+        journal = new EventJournal(directory, 1 << 20, 0);
+        startServer();
+        connect();
+        journal.append(event(0));
+        expectEvents(0, 1);
+        awaitAcknowledged(1);
+        connection.close();
+        server.stop();
+        for (int i = 1; i < 50; i++) {
+            journal.append(event(i));
+        }
+        journal.close();
+
+        journal = new EventJournal(directory, 1 << 20, 0);
+        assertEquals(50, journal.getNextSequenceNumber());
+        assertEquals(0, journal.getFirstSequenceNumber());
+        assertEquals(1, journal.getAcknowledgedSequenceNumber(MASTER));
+
+        startServer();
+        connect();
+        expectEvents(1, 50);
+        awaitAcknowledged(50);
+    }
+
+    @Test
+    public void testSizeAndAgeBounds() throws Exception {
+        File directory = folder.newFolder();
+        journal = new EventJournal(directory, 1 << 17, 0);
+        for (int i = 0; i < 10_000; i++) {
+            journal.append(event(i));
+        }
+        assertEquals(10_000, journal.getNextSequenceNumber());
+        long first = journal.getFirstSequenceNumber();
+        assertEquals(2, directory.listFiles().length);
+        assertEquals(-1, journal.getAcknowledgedSequenceNumber(MASTER));
+
+        // a new master only receives the events appended after its first start of data transfer
+        startServer();
+        connect();
+        awaitAcknowledged(10_000);
+        connection.close();
+        server.stop();
+        journal.close();
+
+        // the events older than the age limit are not sent
+        ManualClock clock = new ManualClock();
+        journal = new EventJournal(directory, 1 << 17, 100, clock);
+        assertEquals(first, journal.getFirstSequenceNumber());
+        journal.append(event(10_000));
+        clock.advance(200);
+        journal.append(event(10_001));
+        startServer();
+        connect();
+        expectEvents(10_001, 10_002);
+        assertNull(aSdus.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private void startServer() throws IOException {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                        journal.stopDelivery(connection);
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (stopped) {
+                            journal.stopDelivery(connection);
+                            return;
+                        }
+                        try {
+                            journal.startDelivery(connection);
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+    }
+
+    private void connect() throws IOException, InterruptedException {
+        // acknowledges every I format APDU
+        connection = new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .setMaxUnconfirmedIPdusReceived(1)
+                .setConnectionEventListener(new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                        aSdus.add(aSdu);
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                    }
+                })
+                .build();
+        connection.startDataTransfer();
+    }
+
+    private void expectEvents(int from, int to) throws InterruptedException {
+        for (int i = from; i < to; i++) {
+            ASdu aSdu = aSdus.poll(5, TimeUnit.SECONDS);
+            assertNotNull("event " + i, aSdu);
+            assertEquals(i, aSdu.getInformationObjects()[0].getInformationObjectAddress());
+        }
+    }
+
+    private void awaitAcknowledged(final long sequenceNumber) throws Exception {
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws IOException {
+                return journal.getAcknowledgedSequenceNumber(MASTER) >= sequenceNumber;
+            }
+        });
+        assertEquals(sequenceNumber, journal.getAcknowledgedSequenceNumber(MASTER));
+    }
+
+    /**
+     * A clock that only moves forward when told to.
+     */
+    private static class ManualClock extends Clock {
+        private volatile long millis = System.currentTimeMillis();
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static ASdu event(int ioa) {
+        return new ASdu(ASduType.M_SP_TB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(ioa, IeSinglePointWithQuality.valueOf(ioa % 2 == 0, false, false, false, false),
+                        new IeTime56(System.currentTimeMillis())));
+    }
+
+}
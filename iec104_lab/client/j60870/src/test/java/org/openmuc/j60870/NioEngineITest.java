@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.openmuc.j60870.TestUtils.STARTDT_ACT_BYTES;
+import static org.openmuc.j60870.TestUtils.STARTDT_CON_BYTES;
+import static org.openmuc.j60870.TestUtils.TESTFR_ACT_BYTES;
+import static org.openmuc.j60870.TestUtils.TESTFR_CON_BYTES;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class NioEngineITest {
+
+    private static final int NUM_ASDUS = 100;
+
+    private final int port = TestUtils.getAvailablePort();
+    private Server server;
+
+    private final CountDownLatch serverConnectionClosed = new CountDownLatch(1);
+    private volatile IOException serverCloseCause;
+
+    @Before
+    public void startServer() throws IOException {
+        server = Server.builder()
+                .setPort(port)
+                .setMessageFragmentTimeout(500)
+                .setMaxNumOfOutstandingIPdus(5)
+                .useNioEngine()
+                .build();
+        server.start(new ServerListener());
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void testClientServerExchange() throws Exception {
+        final CountDownLatch received = new CountDownLatch(NUM_ASDUS);
+        Connection connection = new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .setMaxUnconfirmedIPdusReceived(3)
+                .useNioEngine()
+                .setConnectionEventListener(new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                        if (aSdu.getTypeIdentification() == ASduType.M_ME_NC_1) {
+                            received.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                    }
+                })
+                .build();
+
+        try {
+            connection.startDataTransfer();
+            connection.interrogation(1, CauseOfTransmission.ACTIVATION, new IeQualifierOfInterrogation(20));
+
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+        } finally {
+            connection.close();
+        }
+
+        assertTrue(serverConnectionClosed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFragmentedFrameIsReassembled() throws Exception {
+        try (TestUtils.RawPeer peer = new TestUtils.RawPeer(port)) {
+            byte[] bytes = new byte[2 + TESTFR_ACT_BYTES.length + 3];
+            bytes[0] = 0x12;
+            bytes[1] = 0x34;
+            System.arraycopy(TESTFR_ACT_BYTES, 0, bytes, 2, TESTFR_ACT_BYTES.length);
+            System.arraycopy(STARTDT_ACT_BYTES, 0, bytes, 2 + TESTFR_ACT_BYTES.length, 3);
+            peer.write(bytes);
+
+            // the test frame is answered after the start of STARTDT act has been read
+            assertArrayEquals(TESTFR_CON_BYTES, peer.readAPdu());
+            peer.write(Arrays.copyOfRange(STARTDT_ACT_BYTES, 3, STARTDT_ACT_BYTES.length));
+            assertArrayEquals(STARTDT_CON_BYTES, peer.readAPdu());
+        }
+    }
+
+    @Test
+    public void testIncompleteFrameTimesOut() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(5_000);
+            socket.getOutputStream().write(STARTDT_ACT_BYTES, 0, 3);
+
+            assertTrue(serverConnectionClosed.await(5, TimeUnit.SECONDS));
+            assertTrue(serverCloseCause instanceof SocketTimeoutException);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private class ServerListener implements ServerEventListener {
+
+        @Override
+        public ConnectionEventListener connectionIndication(final Connection connection) {
+            return new ConnectionEventListener() {
+
+                @Override
+                public void newASdu(Connection connection, ASdu aSdu) {
+                    try {
+                        connection.sendConfirmation(aSdu);
+                        for (int i = 0; i < NUM_ASDUS; i++) {
+                            connection.send(new ASdu(ASduType.M_ME_NC_1, false,
+                                    CauseOfTransmission.INTERROGATED_BY_STATION, false, false, 0, 1,
+                                    new InformationObject(i + 1, new InformationElement[][] {
+                                            { new IeShortFloat(i), new IeQuality(false, false, false, false, false) } })));
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+
+                @Override
+                public void connectionClosed(Connection connection, IOException cause) {
+                    serverCloseCause = cause;
+                    serverConnectionClosed.countDown();
+                }
+
+                @Override
+                public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                }
+            };
+        }
+
+        @Override
+        public void serverStoppedListeningIndication(IOException e) {
+        }
+
+        @Override
+        public void connectionAttemptFailed(IOException e) {
+        }
+    }
+
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmuc.j60870.PcapFlow.Direction;
+import org.openmuc.j60870.PcapFlow.Statistics;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class PcapAnalyzerTest {
+
+    private static final byte[] CLIENT_V4 = { 10, 0, 0, 1 };
+    private static final byte[] SERVER_V4 = { 10, 0, 0, 2 };
+    private static final byte[] STARTDT_ACT = { 0x68, 0x04, 0x07, 0x00, 0x00, 0x00 };
+    private static final byte[] STARTDT_CON = { 0x68, 0x04, 0x0b, 0x00, 0x00, 0x00 };
+
+    private static final int FIN = 0x01;
+    private static final int SYN = 0x02;
+    private static final int ACK = 0x10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+
+    @Test
+    public void testReassembly() throws IOException {
+        CaptureBuilder capture = new CaptureBuilder(false);
+        Connection connection = new Connection(capture, CLIENT_V4, 40000, SERVER_V4, 2404, 1000, 5000);
+        connection.handshake();
+        connection.toServer(STARTDT_ACT);
+        connection.toClient(STARTDT_CON);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            stream.write(iFrame(i, singlePoint(i + 1)));
+        }
+        byte[] bytes = stream.toByteArray();
+        List<byte[]> chunks = split(bytes, 7);
+        int position = connection.serverSequenceNumber;
+        int[] positions = new int[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            positions[i] = position;
+            position += chunks.get(i).length;
+        }
+        // chunk 3 is captured after chunk 4, chunk 6 twice
+        for (int i : new int[] { 0, 1, 2, 4, 3, 5, 6, 6, 7 }) {
+            connection.segment(false, positions[i], ACK, chunks.get(i));
+        }
+        for (int i = 8; i < chunks.size(); i++) {
+            connection.segment(false, positions[i], ACK, chunks.get(i));
+        }
+        connection.serverSequenceNumber = position;
+        connection.toServer(new byte[] { 0x68, 0x04, 0x01, 0x00, 0x14, 0x00 });
+        connection.close();
+
+        final List<Integer> ioas = new ArrayList<>();
+        PcapAnalysis analysis = new PcapAnalyzer().analyze(capture.write(), new PcapListener() {
+            @Override
+            public void newASdu(PcapFlow flow, Direction direction, long timestampNanos, ASdu aSdu) {
+                assertEquals(Direction.SERVER_TO_CLIENT, direction);
+                ioas.add(aSdu.getInformationObjects()[0].getInformationObjectAddress());
+            }
+        });
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ioas);
+        assertEquals(capture.packets, analysis.getPacketCount());
+        assertFalse(analysis.isFileTruncated());
+        assertEquals(1, analysis.getFlows().size());
+
+        PcapFlow flow = analysis.getFlows().get(0);
+        assertTrue(flow.isConnectionSetupCaptured());
+        assertEquals(InetAddress.getByAddress(CLIENT_V4), flow.getClientAddress().getAddress());
+        assertEquals(2404, flow.getServerAddress().getPort());
+        assertEquals(CaptureBuilder.START_NANOS, flow.getFirstTimestampNanos());
+        assertEquals("flow 0 10.0.0.1:40000 -> 10.0.0.2:2404", flow.toString());
+
+        Statistics toClient = flow.getStatistics(Direction.SERVER_TO_CLIENT);
+        assertEquals(10, toClient.getIFrameCount());
+        assertEquals(1, toClient.getUFrameCount());
+        assertEquals(10, toClient.getASduCount(ASduType.M_SP_NA_1.getId()));
+        assertEquals(chunks.get(6).length, toClient.getRetransmittedByteCount());
+        assertEquals(bytes.length + STARTDT_CON.length + chunks.get(6).length, toClient.getPayloadByteCount());
+        assertEquals(0, toClient.getLostByteCount());
+        assertEquals(0, toClient.getSkippedByteCount());
+        assertEquals(0, toClient.getSequenceErrorCount());
+        assertEquals(0, toClient.getDecodeErrorCount());
+
+        Statistics toServer = flow.getStatistics(Direction.CLIENT_TO_SERVER);
+        assertEquals(1, toServer.getUFrameCount());
+        assertEquals(1, toServer.getSFrameCount());
+        assertEquals(0, toServer.getIFrameCount());
+    }
+
+    @Test
+    public void testFinishedFlowIsDropped() throws IOException {
+        CaptureBuilder capture = new CaptureBuilder(false);
+        Connection connection = new Connection(capture, CLIENT_V4, 40000, SERVER_V4, 2404, 1000, 5000);
+        connection.handshake();
+        connection.toServer(STARTDT_ACT);
+        connection.toClient(STARTDT_CON);
+        connection.close();
+        // shortly after the end a segment is a retransmission, minutes later it starts a flow without setup
+        connection.toClient(STARTDT_CON);
+        capture.pause(TimeUnit.MINUTES.toNanos(3));
+        connection.toClient(STARTDT_CON);
+
+        PcapAnalysis analysis = new PcapAnalyzer().analyze(capture.write(), null);
+
+        assertEquals(2, analysis.getFlows().size());
+        PcapFlow finished = analysis.getFlows().get(0);
+        assertTrue(finished.isConnectionSetupCaptured());
+        assertEquals(STARTDT_CON.length,
+                finished.getStatistics(Direction.SERVER_TO_CLIENT).getRetransmittedByteCount());
+        PcapFlow next = analysis.getFlows().get(1);
+        assertFalse(next.isConnectionSetupCaptured());
+        assertEquals(STARTDT_CON.length, next.getStatistics(Direction.SERVER_TO_CLIENT).getPayloadByteCount());
+    }
+
+    @Test
+    public void testPcapngMidStreamStartAndGap() throws IOException {
+        byte[] client = InetAddress.getByName("fd00::1").getAddress();
+        byte[] server = InetAddress.getByName("fd00::2").getAddress();
+        CaptureBuilder capture = new CaptureBuilder(true);
+        Connection connection = new Connection(capture, client, 50000, server, 2404, 77, -10);
+
+        byte[] first = iFrame(0, singlePoint(1));
+        // the capture starts within the first APDU
+        connection.toClient(Arrays.copyOfRange(first, 5, first.length));
+        for (int i = 1; i < 4; i++) {
+            connection.toClient(iFrame(i, singlePoint(i + 1)));
+        }
+        // the APDUs with N(S) 4 and 5 are not captured
+        connection.serverSequenceNumber += 2 * first.length;
+        for (int i = 6; i < 9; i++) {
+            connection.toClient(iFrame(i, singlePoint(i + 1)));
+        }
+
+        final List<Integer> ioas = new ArrayList<>();
+        final List<Long> timestamps = new ArrayList<>();
+        PcapAnalysis analysis = new PcapAnalyzer().analyze(capture.write(), new PcapListener() {
+            @Override
+            public void newASdu(PcapFlow flow, Direction direction, long timestampNanos, ASdu aSdu) {
+                ioas.add(aSdu.getInformationObjects()[0].getInformationObjectAddress());
+                timestamps.add(timestampNanos);
+            }
+        });
+
+        assertEquals(Arrays.asList(2, 3, 4, 7, 8, 9), ioas);
+        assertEquals(CaptureBuilder.START_NANOS + 1000 + 1, (long) timestamps.get(0));
+
+        PcapFlow flow = analysis.getFlows().get(0);
+        assertFalse(flow.isConnectionSetupCaptured());
+        assertEquals(InetAddress.getByAddress(server), flow.getServerAddress().getAddress());
+        assertEquals("flow 0 [fd00:0:0:0:0:0:0:1]:50000 -> [fd00:0:0:0:0:0:0:2]:2404", flow.toString());
+        Statistics statistics = flow.getStatistics(Direction.SERVER_TO_CLIENT);
+        assertEquals(first.length - 5, statistics.getSkippedByteCount());
+        assertEquals(2 * first.length, statistics.getLostByteCount());
+        assertEquals(6, statistics.getIFrameCount());
+        assertEquals(1, statistics.getSequenceErrorCount());
+    }
+
+    @Test
+    public void testParallelFlows() throws IOException {
+        int numFlows = 16;
+        int numFrames = 2000;
+        CaptureBuilder capture = new CaptureBuilder(false);
+        Connection[] connections = new Connection[numFlows];
+        for (int i = 0; i < numFlows; i++) {
+            connections[i] = new Connection(capture, CLIENT_V4, 40000 + i, SERVER_V4, 2404, i * 1000, i * 7000);
+            connections[i].handshake();
+        }
+        for (int frame = 0; frame < numFrames; frame++) {
+            for (Connection connection : connections) {
+                connection.toClient(iFrame(frame, shortFloat(frame, frame)));
+            }
+        }
+        File file = capture.write();
+
+        final ConcurrentMap<PcapFlow, List<Integer>> ioas = new ConcurrentHashMap<>();
+        PcapAnalysis analysis = new PcapAnalyzer().setParallelism(4).analyze(file, new PcapListener() {
+            @Override
+            public void newASdu(PcapFlow flow, Direction direction, long timestampNanos, ASdu aSdu) {
+                List<Integer> list = ioas.get(flow);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    ioas.put(flow, list);
+                }
+                list.add(aSdu.getInformationObjects()[0].getInformationObjectAddress());
+            }
+        });
+
+        assertEquals(numFlows, analysis.getFlows().size());
+        for (PcapFlow flow : analysis.getFlows()) {
+            List<Integer> list = ioas.get(flow);
+            assertEquals(numFrames, list.size());
+            for (int i = 0; i < numFrames; i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+            assertEquals(40000 + flow.getIndex(), flow.getClientAddress().getPort());
+            assertEquals(0, flow.getStatistics(Direction.SERVER_TO_CLIENT).getSequenceErrorCount());
+        }
+
+        PcapAnalysis statisticsOnly = new PcapAnalyzer().analyze(file, null);
+        assertEquals(numFlows, statisticsOnly.getFlows().size());
+        for (PcapFlow flow : statisticsOnly.getFlows()) {
+            assertEquals(numFrames,
+                    flow.getStatistics(Direction.SERVER_TO_CLIENT).getASduCount(ASduType.M_ME_NC_1.getId()));
+        }
+    }
+
+    @Test
+    public void testFilterAndPorts() throws IOException {
+        CaptureBuilder capture = new CaptureBuilder(false);
+        Connection connection = new Connection(capture, CLIENT_V4, 40000, SERVER_V4, 2405, 1, 1);
+        connection.handshake();
+        connection.toClient(iFrame(0, singlePoint(1)));
+        connection.toClient(iFrame(1, shortFloat(2, 1)));
+        connection.toClient(iFrame(2, singlePoint(3)));
+        Connection other = new Connection(capture, CLIENT_V4, 40001, SERVER_V4, 2404, 1, 1);
+        other.handshake();
+        other.toClient(iFrame(0, singlePoint(1)));
+        File file = capture.write();
+
+        final List<Integer> ioas = new ArrayList<>();
+        PcapAnalysis analysis = new PcapAnalyzer().setPorts(2405)
+                .setASduFilter(new ASduFilter().types(ASduType.M_SP_NA_1))
+                .analyze(file, new PcapListener() {
+                    @Override
+                    public void newASdu(PcapFlow flow, Direction direction, long timestampNanos, ASdu aSdu) {
+                        ioas.add(aSdu.getInformationObjects()[0].getInformationObjectAddress());
+                    }
+                });
+
+        assertEquals(Arrays.asList(1, 3), ioas);
+        assertEquals(1, analysis.getFlows().size());
+        assertEquals(3, analysis.getFlows().get(0).getStatistics(Direction.SERVER_TO_CLIENT).getIFrameCount());
+        assertEquals(2, new PcapAnalyzer().setPorts(2404, 2405).analyze(file, null).getFlows().size());
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        CaptureBuilder capture = new CaptureBuilder(false);
+        Connection connection = new Connection(capture, CLIENT_V4, 40000, SERVER_V4, 2404, 1, 1);
+        connection.toClient(iFrame(0, singlePoint(1)));
+        connection.toClient(iFrame(1, singlePoint(2)));
+        File file = capture.write();
+        byte[] bytes = java.nio.file.Files.readAllBytes(file.toPath());
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(bytes, 0, bytes.length - 3);
+        }
+
+        PcapAnalysis analysis = new PcapAnalyzer().analyze(file, null);
+        assertTrue(analysis.isFileTruncated());
+        assertEquals(1, analysis.getPacketCount());
+        assertEquals(1, analysis.getFlows().get(0).getStatistics(Direction.SERVER_TO_CLIENT).getIFrameCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotACapture() throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[100]);
+        }
+        new PcapAnalyzer().analyze(file, null);
+    }
+
+    private static ASdu singlePoint(int ioa) {
+        return new ASdu(ASduType.M_SP_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(ioa, IeSinglePointWithQuality.valueOf(true, false, false, false, false)));
+    }
+
+    private static ASdu shortFloat(int ioa, float value) {
+        return new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(ioa, new IeShortFloat(value), new IeQuality(false, false, false, false, false)));
+    }
+
+    private byte[] iFrame(int sendSequenceNumber, ASdu aSdu) {
+        byte[] buffer = new byte[APdu.MAX_APDU_LENGTH + 2];
+        int length = aSdu.encode(buffer, APdu.HEADER_LENGTH, settings);
+        return Arrays.copyOf(buffer, APdu.encodeIFormatHeader(buffer, length, sendSequenceNumber, 0));
+    }
+
+    private static List<byte[]> split(byte[] bytes, int chunkLength) {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkLength) {
+            chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkLength)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Both directions of a TCP connection of a capture.
+     */
+    private static class Connection {
+
+        private final CaptureBuilder capture;
+        private final byte[] client;
+        private final int clientPort;
+        private final byte[] server;
+        private final int serverPort;
+        int clientSequenceNumber;
+        int serverSequenceNumber;
+
+        Connection(CaptureBuilder capture, byte[] client, int clientPort, byte[] server, int serverPort,
+                int clientSequenceNumber, int serverSequenceNumber) {
+            this.capture = capture;
+            this.client = client;
+            this.clientPort = clientPort;
+            this.server = server;
+            this.serverPort = serverPort;
+            this.clientSequenceNumber = clientSequenceNumber;
+            this.serverSequenceNumber = serverSequenceNumber;
+        }
+
+        void handshake() {
+            segment(true, clientSequenceNumber++, SYN, new byte[0]);
+            segment(false, serverSequenceNumber++, SYN | ACK, new byte[0]);
+            segment(true, clientSequenceNumber, ACK, new byte[0]);
+        }
+
+        void close() {
+            segment(true, clientSequenceNumber++, FIN | ACK, new byte[0]);
+            segment(false, serverSequenceNumber++, FIN | ACK, new byte[0]);
+            segment(true, clientSequenceNumber, ACK, new byte[0]);
+        }
+
+        void toServer(byte[] payload) {
+            segment(true, clientSequenceNumber, ACK, payload);
+            clientSequenceNumber += payload.length;
+        }
+
+        void toClient(byte[] payload) {
+            segment(false, serverSequenceNumber, ACK, payload);
+            serverSequenceNumber += payload.length;
+        }
+
+        void segment(boolean toServer, int sequenceNumber, int flags, byte[] payload) {
+            if (toServer) {
+                capture.tcp(client, clientPort, server, serverPort, sequenceNumber, flags, payload);
+            }
+            else {
+                capture.tcp(server, serverPort, client, clientPort, sequenceNumber, flags, payload);
+            }
+        }
+    }
+
+    /**
+     * Writes Ethernet captures in little endian byte order. Pcap files have microsecond timestamps, pcapng files
+     * nanosecond timestamps and VLAN tags.
+     */
+    private class CaptureBuilder {
+
+        static final long START_NANOS = 1_700_000_000_000_000_000L;
+
+        private final boolean pcapng;
+        private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        private int packets;
+        private long pauseNanos;
+
+        CaptureBuilder(boolean pcapng) {
+            this.pcapng = pcapng;
+            if (pcapng) {
+                ByteBuffer shb = buffer(28);
+                shb.putInt(0x0a0d0d0a).putInt(28).putInt(0x1a2b3c4d).putShort((short) 1).putShort((short) 0);
+                shb.putLong(-1).putInt(28);
+                write(shb);
+                ByteBuffer idb = buffer(32);
+                idb.putInt(1).putInt(32).putShort((short) 1).putShort((short) 0).putInt(0xffff);
+                idb.putShort((short) 9).putShort((short) 1).put((byte) 9).put(new byte[3]);
+                idb.putInt(0).putInt(32);
+                write(idb);
+            }
+            else {
+                ByteBuffer header = buffer(24);
+                header.putInt(0xa1b2c3d4).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0).putInt(0xffff);
+                header.putInt(1);
+                write(header);
+            }
+        }
+
+        void tcp(byte[] source, int sourcePort, byte[] destination, int destinationPort, int sequenceNumber,
+                int flags, byte[] payload) {
+            boolean ipv6 = source.length == 16;
+            int ipHeaderLength = ipv6 ? 40 : 20;
+            int linkHeaderLength = pcapng ? 18 : 14;
+            ByteBuffer packet = ByteBuffer.allocate(linkHeaderLength + ipHeaderLength + 20 + payload.length);
+            packet.put(new byte[12]);
+            if (pcapng) {
+                packet.putShort((short) 0x8100).putShort((short) 7);
+            }
+            if (ipv6) {
+                packet.putShort((short) 0x86dd);
+                packet.putInt(0x60000000).putShort((short) (20 + payload.length)).put((byte) 6).put((byte) 64);
+            }
+            else {
+                packet.putShort((short) 0x0800);
+                packet.put((byte) 0x45).put((byte) 0).putShort((short) (20 + 20 + payload.length)).putInt(0x4000);
+                packet.put((byte) 64).put((byte) 6).putShort((short) 0);
+            }
+            packet.put(source).put(destination);
+            packet.putShort((short) sourcePort).putShort((short) destinationPort).putInt(sequenceNumber).putInt(0);
+            packet.put((byte) 0x50).put((byte) flags).putShort((short) 0xffff).putInt(0);
+            packet.put(payload);
+            byte[] data = packet.array();
+
+            long timestampNanos = START_NANOS + pauseNanos + packets * 1000L + (pcapng ? 1 : 0);
+            if (pcapng) {
+                int padding = (4 - data.length % 4) % 4;
+                int blockLength = 32 + data.length + padding;
+                ByteBuffer epb = buffer(blockLength);
+                epb.putInt(6).putInt(blockLength).putInt(0);
+                epb.putInt((int) (timestampNanos >>> 32)).putInt((int) timestampNanos);
+                epb.putInt(data.length).putInt(data.length).put(data).put(new byte[padding]).putInt(blockLength);
+                write(epb);
+            }
+            else {
+                long micros = timestampNanos / 1000;
+                ByteBuffer header = buffer(16);
+                header.putInt((int) (micros / 1_000_000)).putInt((int) (micros % 1_000_000));
+                header.putInt(data.length).putInt(data.length);
+                write(header);
+                stream.write(data, 0, data.length);
+            }
+            packets++;
+        }
+
+        void pause(long nanos) {
+            pauseNanos += nanos;
+        }
+
+        File write() throws IOException {
+            File file = folder.newFile();
+            try (FileOutputStream os = new FileOutputStream(file)) {
+                stream.writeTo(os);
+            }
+            return file;
+        }
+
+        private ByteBuffer buffer(int length) {
+            return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void write(ByteBuffer buffer) {
+            stream.write(buffer.array(), 0, buffer.position());
+        }
+    }
+
+}
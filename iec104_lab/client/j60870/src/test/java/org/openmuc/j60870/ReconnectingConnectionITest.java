@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ReconnectingConnectionITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<Connection> interrogatedServerConnections = new LinkedBlockingQueue<>();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+    private final AtomicInteger startedConnections = new AtomicInteger();
+
+    private Server server;
+    private ReconnectingConnection connection;
+
+    @After
+    public void stop() {
+        if (connection != null) {
+            connection.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testReconnectAndInterrogate() throws Exception {
+        startServer();
+        connection = newConnection();
+        connection.start();
+
+        Connection serverConnection = interrogatedServerConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(serverConnection);
+        Connection first = connection.getConnection();
+
+        serverConnection.close();
+
+        Connection newServerConnection = interrogatedServerConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(newServerConnection);
+        assertNotSame(serverConnection, newServerConnection);
+        assertNotSame(first, connection.getConnection());
+        assertEquals(1, closedConnections.get());
+        assertEquals(2, startedConnections.get());
+    }
+
+    @Test
+    public void testConnectOnceServerIsUp() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(5_000);
+            connection = newConnection();
+            connection.start();
+
+            // the first attempt fails, the socket is closed before the station is up
+            serverSocket.accept().close();
+        }
+        startServer();
+
+        assertNotNull(interrogatedServerConnections.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, startedConnections.get());
+    }
+
+    @Test
+    public void testBackoffIsJitteredAndLimited() {
+        ReconnectingConnection connection = new ReconnectingConnection(
+                new ClientConnectionBuilder(InetAddress.getLoopbackAddress()), new NoOpListener())
+                        .setInitialBackoff(100)
+                        .setMaxBackoff(1_000);
+
+        for (int i = 0; i < 100; i++) {
+            long first = connection.backoff(1);
+            assertTrue(first >= 50 && first <= 100);
+            long third = connection.backoff(3);
+            assertTrue(third >= 200 && third <= 400);
+            long limited = connection.backoff(40);
+            assertTrue(limited >= 500 && limited <= 1_000);
+        }
+    }
+
+    private ReconnectingConnection newConnection() {
+        return new ReconnectingConnection(new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port),
+                new NoOpListener() {
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                        closedConnections.incrementAndGet();
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (!stopped) {
+                            startedConnections.incrementAndGet();
+                        }
+                    }
+                }).setInitialBackoff(100).setMaxBackoff(200).setCommonAddress(1);
+    }
+
+    private void startServer() throws IOException {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new NoOpListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                        if (aSdu.getTypeIdentification() == ASduType.C_IC_NA_1 && aSdu.getCommonAddress() == 1) {
+                            interrogatedServerConnections.add(connection);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+    }
+
+    private static class NoOpListener implements ConnectionEventListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class RedundancyGroupITest {
+
+    private static final long TIME = 1700000000000L;
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<Connection> startedServerConnections = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Integer> receivedValues = new LinkedBlockingQueue<>();
+    private final CountDownLatch switchedOver = new CountDownLatch(1);
+    private volatile Connection promotedConnection;
+
+    private Server server;
+    private RedundancyGroup group;
+
+    @Before
+    public void startServer() throws IOException {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (!stopped) {
+                            startedServerConnections.add(connection);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        if (group != null) {
+            group.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testSwitchoverDropsRetransmittedASdus() throws Exception {
+        Connection serverConnection = startGroup();
+        serverConnection.send(measuredValue(1, TIME));
+        serverConnection.send(measuredValue(2, TIME + 1));
+        assertEquals(Integer.valueOf(1), receivedValues.poll(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), receivedValues.poll(5, TimeUnit.SECONDS));
+
+        Connection newServerConnection = switchOver(serverConnection);
+
+        // the outstation sends the unacknowledged ASDUs again on the new connection
+        newServerConnection.send(measuredValue(2, TIME + 1));
+        newServerConnection.send(measuredValue(3, TIME + 2));
+        assertEquals(Integer.valueOf(3), receivedValues.poll(5, TimeUnit.SECONDS));
+        assertTrue(receivedValues.isEmpty());
+    }
+
+    @Test
+    public void testSwitchoverKeepsRepeatedValuesWithoutTimeTag() throws Exception {
+        Connection serverConnection = startGroup();
+        serverConnection.send(measuredValue(1));
+        assertEquals(Integer.valueOf(1), receivedValues.poll(5, TimeUnit.SECONDS));
+
+        Connection newServerConnection = switchOver(serverConnection);
+
+        // e.g. a cyclic value that did not change
+        newServerConnection.send(measuredValue(1));
+        newServerConnection.send(measuredValue(1));
+        assertEquals(Integer.valueOf(1), receivedValues.poll(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), receivedValues.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPromotedConnectionClosedAfterStartDtCon() throws Exception {
+        Connection serverConnection = startGroup(3);
+        serverConnection.close();
+
+        // the first standby is closed as soon as it has confirmed STARTDT act
+        Connection promotedServerConnection = startedServerConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(promotedServerConnection);
+        promotedServerConnection.close();
+
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                Connection active = group.getActiveConnection();
+                return active != null && active == promotedConnection;
+            }
+        });
+        assertFalse(group.getActiveConnection().isClosed());
+        assertNotNull(startedServerConnections.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLostLinkIsBuiltUpAgain() throws Exception {
+        Connection serverConnection = startGroup();
+        switchOver(serverConnection);
+
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return group.getStandbyConnections().size() == 1;
+            }
+        });
+    }
+
+    @Test
+    public void testDataTransferResumedAfterAllLinksFailed() throws Exception {
+        Connection serverConnection = startGroup(1);
+        final Connection failed = group.getActiveConnection();
+        serverConnection.close();
+
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                Connection active = group.getActiveConnection();
+                return active != null && active != failed && active == promotedConnection;
+            }
+        });
+        serverConnection = startedServerConnections.poll(5, TimeUnit.SECONDS);
+        serverConnection.send(measuredValue(1));
+        assertEquals(Integer.valueOf(1), receivedValues.poll(5, TimeUnit.SECONDS));
+    }
+
+    private Connection startGroup() throws Exception {
+        return startGroup(2);
+    }
+
+    private Connection startGroup(int numLinks) throws Exception {
+        List<ClientConnectionBuilder> links = new ArrayList<>();
+        for (int i = 0; i < numLinks; i++) {
+            links.add(link());
+        }
+        group = new RedundancyGroup(links, new RedundancyGroup.Listener() {
+
+            @Override
+            public void newASdu(Connection connection, ASdu aSdu) {
+                IeScaledValue value = (IeScaledValue) aSdu.getInformationObjects()[0].getInformationElements()[0][0];
+                receivedValues.add(value.getUnnormalizedValue());
+            }
+
+            @Override
+            public void switchedOver(Connection failed, Connection active) {
+                promotedConnection = active;
+                switchedOver.countDown();
+            }
+
+            @Override
+            public void connectionClosed(Connection connection, IOException cause) {
+            }
+        });
+        group.setInitialBackoff(10);
+        group.start();
+
+        Connection active = group.getActiveConnection();
+        assertNotNull(active);
+        assertEquals(numLinks - 1, group.getStandbyConnections().size());
+
+        return startedServerConnections.poll(5, TimeUnit.SECONDS);
+    }
+
+    private Connection switchOver(Connection serverConnection) throws Exception {
+        Connection active = group.getActiveConnection();
+        long start = System.currentTimeMillis();
+        serverConnection.close();
+        assertTrue(switchedOver.await(5, TimeUnit.SECONDS));
+        long failoverTime = System.currentTimeMillis() - start;
+        assertTrue("failover took " + failoverTime + "ms", failoverTime < 1000);
+        assertNotSame(active, promotedConnection);
+        assertEquals(promotedConnection, group.getActiveConnection());
+        return startedServerConnections.poll(5, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IOException.class)
+    public void testStartFailsWithoutReachableLink() throws Exception {
+        group = new RedundancyGroup(Arrays.asList(new ClientConnectionBuilder(InetAddress.getLoopbackAddress())
+                .setPort(TestUtils.getAvailablePort())), new RedundancyGroup.Listener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                    }
+
+                    @Override
+                    public void switchedOver(Connection failed, Connection active) {
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+                });
+        group.start();
+    }
+
+    private ClientConnectionBuilder link() {
+        return new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port);
+    }
+
+    private static ASdu measuredValue(int value) {
+        return new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new InformationElement[][] {
+                        { new IeScaledValue(value), new IeQuality(false, false, false, false, false) } }));
+    }
+
+    private static ASdu measuredValue(int value, long timestamp) {
+        return new ASdu(ASduType.M_ME_TE_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new InformationElement[][] { { new IeScaledValue(value),
+                        new IeQuality(false, false, false, false, false), new IeTime56(timestamp) } }));
+    }
+
+}
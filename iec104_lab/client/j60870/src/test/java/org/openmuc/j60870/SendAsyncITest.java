@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class SendAsyncITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private volatile Connection serverConnection;
+
+    private Server server;
+    private TestUtils.RawPeer peer;
+
+    private final ASdu aSdu = new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+            new InformationObject(1, new InformationElement[][] {
+                    { new IeScaledValue(1), new IeQuality(false, false, false, false, false) } }));
+
+    @Before
+    public void connect() throws Exception {
+        server = Server.builder()
+                .setPort(port)
+                .setMaxTimeNoAckReceived(2_000)
+                .setMaxNumOfOutstandingIPdus(2)
+                .build();
+        server.start(new ServerListener());
+
+        peer = new TestUtils.RawPeer(port);
+        peer.startDataTransfer();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void close() throws IOException {
+        peer.close();
+        server.stop();
+    }
+
+    @Test
+    public void testFuturesCompleteOnAcknowledgement() throws Exception {
+        CompletableFuture<Void> first = serverConnection.sendAsync(aSdu);
+        CompletableFuture<Void> second = serverConnection.sendAsync(aSdu);
+        CompletableFuture<Void> third = serverConnection.sendAsync(aSdu);
+
+        assertEquals(0, peer.receiveIFrame());
+        assertEquals(1, peer.receiveIFrame());
+        assertFalse(first.isDone());
+
+        // the third ASDU waits for the k-window
+        peer.assertNothingReceived(200);
+
+        peer.acknowledge(1);
+        first.get(5, TimeUnit.SECONDS);
+        assertFalse(second.isDone());
+
+        assertEquals(2, peer.receiveIFrame());
+        peer.acknowledge(3);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFutureFailsOnEncodingError() throws Exception {
+        InformationObject[] objects = new InformationObject[100];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new InformationObject(i, new InformationElement[][] {
+                    { new IeScaledValue(i), new IeQuality(false, false, false, false, false) } });
+        }
+        ASdu tooLong = new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                objects);
+
+        CompletableFuture<Void> failed = serverConnection.sendAsync(tooLong);
+        assertTrue(failed.isCompletedExceptionally());
+
+        // the connection is still usable
+        CompletableFuture<Void> future = serverConnection.sendAsync(aSdu);
+        assertEquals(0, peer.receiveIFrame());
+        peer.acknowledge(1);
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFutureFailsOnT1() throws Exception {
+        CompletableFuture<Void> future = serverConnection.sendAsync(aSdu);
+        peer.receiveIFrame();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(serverConnection.isClosed());
+            return;
+        }
+        throw new AssertionError("future completed normally");
+    }
+
+    private class ServerListener implements ServerEventListener {
+
+        @Override
+        public ConnectionEventListener connectionIndication(Connection connection) {
+            serverConnection = connection;
+            return new ConnectionEventListener() {
+
+                @Override
+                public void newASdu(Connection connection, ASdu aSdu) {
+                }
+
+                @Override
+                public void connectionClosed(Connection connection, IOException cause) {
+                }
+
+                @Override
+                public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                    if (!stopped) {
+                        connected.countDown();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void serverStoppedListeningIndication(IOException e) {
+        }
+
+        @Override
+        public void connectionAttemptFailed(IOException e) {
+        }
+    }
+
+}
@@ -20,10 +20,27 @@
  */
 package org.openmuc.j60870;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
 import java.util.Random;
 
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.openmuc.j60870.internal.ByteStreamHelper;
 import org.openmuc.j60870.internal.HexUtils;
 
 public class TestUtils {
@@ -36,6 +53,46 @@ public class TestUtils {
     public static byte[] STARTDT_CON_BYTES = HexUtils.hexToBytes("68040B000000");
     public static byte[] STOPDT_ACT_BYTES = HexUtils.hexToBytes("680413000000");
     public static byte[] STOPDT_CON_BYTES = HexUtils.hexToBytes("680423000000");
+    public static byte[] TESTFR_ACT_BYTES = HexUtils.hexToBytes("680443000000");
+    public static byte[] TESTFR_CON_BYTES = HexUtils.hexToBytes("680483000000");
+
+    private static final char[] KEY_STORE_PASSWORD = "j60870".toCharArray();
+
+    /**
+     * Creates an SSL context from the self-signed test certificates in src/test/resources/tls. The trust store trusts
+     * the server and the client certificate. The key stores were created with:
+     *
+     * <pre>
+     * keytool -genkeypair -keyalg EC -keysize 256 -sigalg SHA256withECDSA -alias server -dname "CN=j60870-test-server"
+     *         -validity 36500 -storetype PKCS12 -keystore server.p12 -storepass j60870
+     * </pre>
+     *
+     * @param keyStoreName
+     *            "server" or "client" for the own certificate, or null to create a context without a certificate
+     */
+    public static SSLContext createSslContext(String keyStoreName) throws IOException, GeneralSecurityException {
+        KeyManagerFactory keyManagerFactory = null;
+        if (keyStoreName != null) {
+            keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(loadKeyStore(keyStoreName), KEY_STORE_PASSWORD);
+        }
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory
+                .getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(loadKeyStore("trust"));
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory == null ? null : keyManagerFactory.getKeyManagers(),
+                trustManagerFactory.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    private static KeyStore loadKeyStore(String name) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream is = TestUtils.class.getResourceAsStream("/tls/" + name + ".p12")) {
+            keyStore.load(is, KEY_STORE_PASSWORD);
+        }
+        return keyStore;
+    }
 
     public static int getAvailablePort() {
         int port = MIN_PORT_NUMBER;
@@ -58,4 +115,95 @@ public class TestUtils {
 
         return port;
     }
+
+    /**
+     * A remote station on a plain socket that writes and reads raw APDUs, e.g. to control when I frames are
+     * acknowledged.
+     */
+    public static class RawPeer implements Closeable {
+        private static final int READ_TIMEOUT = 5_000;
+
+        private final Socket socket;
+        private final InputStream is;
+        private final OutputStream os;
+
+        public RawPeer(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(READ_TIMEOUT);
+            is = socket.getInputStream();
+            os = socket.getOutputStream();
+        }
+
+        /**
+         * Sends STARTDT act and waits for the confirmation.
+         */
+        public void startDataTransfer() throws IOException {
+            write(STARTDT_ACT_BYTES);
+            assertArrayEquals(STARTDT_CON_BYTES, read(STARTDT_CON_BYTES.length));
+        }
+
+        public void write(byte[] bytes) throws IOException {
+            os.write(bytes);
+        }
+
+        public byte[] read(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            ByteStreamHelper.readFully(is, bytes);
+            return bytes;
+        }
+
+        /**
+         * Reads the next APDU including start byte and length.
+         */
+        public byte[] readAPdu() throws IOException {
+            byte[] header = read(2);
+            byte[] aPdu = Arrays.copyOf(header, 2 + (header[1] & 0xff));
+            ByteStreamHelper.readFully(is, aPdu, 2, aPdu.length - 2);
+            return aPdu;
+        }
+
+        /**
+         * Reads the next APDU, which has to be an I frame, and returns its send sequence number.
+         */
+        public int receiveIFrame() throws IOException {
+            return sendSequenceNumber(readAPdu());
+        }
+
+        public static int sendSequenceNumber(byte[] iFrame) {
+            if ((iFrame[2] & 0x01) != 0) {
+                fail("not an I frame: " + HexUtils.bytesToHex(iFrame));
+            }
+            return ((iFrame[2] & 0xfe) >> 1) + ((iFrame[3] & 0xff) << 7);
+        }
+
+        /**
+         * Sends an S frame acknowledging the I frames before the given receive sequence number.
+         */
+        public void acknowledge(int receiveSequenceNumber) throws IOException {
+            byte[] sFrame = HexUtils.hexToBytes("680401000000");
+            sFrame[4] = (byte) (receiveSequenceNumber << 1);
+            sFrame[5] = (byte) (receiveSequenceNumber >> 7);
+            write(sFrame);
+        }
+
+        /**
+         * Fails if anything is received or the connection is closed within the given time.
+         */
+        public void assertNothingReceived(int timeout) throws IOException {
+            socket.setSoTimeout(timeout);
+            try {
+                int b = is.read();
+                fail(b == -1 ? "connection closed" : "unexpected byte received: " + b);
+            } catch (SocketTimeoutException e) {
+                // expected
+            } finally {
+                socket.setSoTimeout(READ_TIMEOUT);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
 }
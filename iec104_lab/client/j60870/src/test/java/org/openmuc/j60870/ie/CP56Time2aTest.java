@@ -24,6 +24,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.openmuc.j60870.internal.HexUtils.hexToBytes;
 
+import java.util.Calendar;
+import java.util.Random;
+import java.util.SimpleTimeZone;
 import java.util.TimeZone;
 
 import org.junit.After;
@@ -111,6 +114,78 @@ public class CP56Time2aTest {
         assertEquals(1553994030000L, ts.getTimestamp());
     }
 
+    @Test
+    public void testAgainstCalendar() {
+        TimeZone[] timeZones = { cet, TimeZone.getTimeZone("UTC"), TimeZone.getTimeZone("America/New_York"),
+                TimeZone.getTimeZone("Australia/Lord_Howe"), TimeZone.getTimeZone("Asia/Kolkata"),
+                TimeZone.getTimeZone("Europe/London"), new SimpleTimeZone(-3 * 3600000, "Custom", Calendar.APRIL, 1,
+                        0, 7200000, Calendar.OCTOBER, 1, 0, 7200000) };
+        Random random = new Random(42);
+        for (TimeZone timeZone : timeZones) {
+            for (int i = 0; i < 20_000; i++) {
+                // random times between 1970 and 2069, every tenth around the DST transitions in spring and autumn
+                long timestamp = (long) (random.nextDouble() * 3_155_760_000_000L);
+                if (i % 10 == 0) {
+                    Calendar calendar = Calendar.getInstance(timeZone);
+                    calendar.setTimeInMillis(timestamp);
+                    calendar.set(calendar.get(Calendar.YEAR), i % 20 == 0 ? Calendar.MARCH : Calendar.OCTOBER, 24);
+                    timestamp = calendar.getTimeInMillis() + random.nextInt(10 * 86_400_000);
+                }
+                boolean invalid = i % 3 == 0;
+
+                byte[] expected = calendarEncode(timestamp, timeZone, invalid);
+                byte[] buffer = new byte[7];
+                BinaryTime.encodeTime56(timestamp, timeZone, invalid, buffer, 0);
+                assertArrayEquals(timeZone.getID() + " " + timestamp, expected, buffer);
+
+                assertEquals(timeZone.getID() + " " + timestamp, calendarDecode(buffer, timeZone),
+                        BinaryTime.decodeTime56(buffer, 0, 1970, timeZone));
+            }
+        }
+    }
+
+    @Test
+    public void testTime24AndTime16() {
+        long timestamp = 1540688399999L;
+        assertEquals(59 * 60000 + 59999, new IeTime24(timestamp).getTimeInMs());
+        assertEquals(59999, new IeTime16(timestamp).getTimeInMs());
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        assertEquals(29 * 60000 + 59999, new IeTime24(timestamp).getTimeInMs());
+    }
+
+    private static byte[] calendarEncode(long timestamp, TimeZone timeZone, boolean invalid) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(timestamp);
+
+        int ms = calendar.get(Calendar.MILLISECOND) + 1000 * calendar.get(Calendar.SECOND);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        if (timeZone.inDaylightTime(calendar.getTime())) {
+            hour |= 0x80;
+        }
+        int minute = calendar.get(Calendar.MINUTE);
+        if (invalid) {
+            minute |= 0x80;
+        }
+        return new byte[] { (byte) ms, (byte) (ms >> 8), (byte) minute, (byte) hour,
+                (byte) (calendar.get(Calendar.DAY_OF_MONTH)
+                        + ((((calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7) + 1) << 5)),
+                (byte) (calendar.get(Calendar.MONTH) + 1), (byte) (calendar.get(Calendar.YEAR) % 100) };
+    }
+
+    private static long calendarDecode(byte[] buffer, TimeZone timeZone) {
+        int year = buffer[6] & 0x7f;
+        int century = year < 70 ? 2000 : 1900;
+        int milliseconds = (buffer[0] & 0xff) + ((buffer[1] & 0xff) << 8);
+
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.set(Calendar.DST_OFFSET, (buffer[3] & 0x80) == 0x80 ? 3600000 : 0);
+        calendar.set(year + century, (buffer[5] & 0x0f) - 1, buffer[4] & 0x1f, buffer[3] & 0x1f, buffer[2] & 0x3f,
+                milliseconds / 1000);
+        calendar.set(Calendar.MILLISECOND, milliseconds % 1000);
+        return calendar.getTimeInMillis();
+    }
+
     private void testIeTime56(long timestamp, boolean invalid, String timezone, boolean expectedDST,
             byte[] expectedEncodedBytes) {
         TimeZone timeZone = TimeZone.getTimeZone(timezone);
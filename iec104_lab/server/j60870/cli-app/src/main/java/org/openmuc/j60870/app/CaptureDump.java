@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.openmuc.j60870.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openmuc.j60870.APduCaptureReader;
+import org.openmuc.j60870.APduRecord;
+import org.openmuc.j60870.internal.cli.CliParameter;
+import org.openmuc.j60870.internal.cli.CliParameterBuilder;
+import org.openmuc.j60870.internal.cli.CliParseException;
+import org.openmuc.j60870.internal.cli.CliParser;
+import org.openmuc.j60870.internal.cli.FlagCliParameter;
+import org.openmuc.j60870.internal.cli.IntCliParameter;
+import org.openmuc.j60870.internal.cli.StringCliParameter;
+
+public final class CaptureDump {
+
+    private static final StringCliParameter fileParam = new CliParameterBuilder("-f")
+            .setDescription("The capture file written by an APDU recorder.")
+            .setMandatory()
+            .buildStringParameter("file");
+    private static final IntCliParameter lastParam = new CliParameterBuilder("-n")
+            .setDescription("Only print the given number of most recent records.")
+            .buildIntParameter("records", Integer.MAX_VALUE);
+    private static final FlagCliParameter followParam = new CliParameterBuilder("-F")
+            .setDescription("Keep printing records as they are appended to the file.")
+            .buildFlagParameter();
+
+    private static final long POLL_INTERVAL = 100;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<CliParameter> cliParameters = new ArrayList<>();
+        cliParameters.add(fileParam);
+        cliParameters.add(lastParam);
+        cliParameters.add(followParam);
+
+        CliParser cliParser = new CliParser("j60870-capture-dump", "Prints the APDUs of a capture file.");
+        cliParser.addParameters(cliParameters);
+        try {
+            cliParser.parseArguments(args);
+        } catch (CliParseException e) {
+            System.err.println("Error parsing parameters: " + e.getMessage());
+            System.out.println(cliParser.getUsageString());
+            System.exit(1);
+        }
+
+        try (APduCaptureReader reader = new APduCaptureReader(new File(fileParam.getValue()))) {
+            long next = Math.max(reader.getFirstSequenceNumber(),
+                    reader.getNextSequenceNumber() - lastParam.getValue());
+            do {
+                long end = reader.getNextSequenceNumber();
+                if (end - next > 0) {
+                    next = dump(reader, next, end);
+                }
+                else if (followParam.isSelected()) {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+            } while (followParam.isSelected());
+        }
+    }
+
+    private static long dump(APduCaptureReader reader, long from, long to) {
+        long first = reader.getFirstSequenceNumber();
+        if (from < first) {
+            System.out.println("... " + (first - from) + " records overwritten");
+            from = first;
+        }
+        int skipped = 0;
+        for (long sequenceNumber = from; sequenceNumber < to; sequenceNumber++) {
+            APduRecord record = reader.read(sequenceNumber);
+            if (record == null) {
+                skipped++;
+                continue;
+            }
+            if (skipped > 0) {
+                System.out.println("... " + skipped + " records overwritten");
+                skipped = 0;
+            }
+            System.out.println(record);
+        }
+        return to;
+    }
+
+    private CaptureDump() {
+    }
+
+}
@@ -30,6 +30,7 @@ import org.openmuc.j60870.internal.cli.*;
 
 import java.io.BufferedReader;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.InetAddress;
@@ -60,25 +61,56 @@ public class SampleServer {
             .setDescription("Common Address (CA) field length.")
             .buildIntParameter("ca_length", 2);
 
+    private static final StringCliParameter captureFileParam = new CliParameterBuilder("-rec")
+            .setDescription("Records all APDUs to the given capture file, see j60870-capture-dump.")
+            .buildStringParameter("capture_file");
+
+    private static final IntCliParameter captureSizeParam = new CliParameterBuilder("-recs")
+            .setDescription("The size of the capture ring in MiB.")
+            .buildIntParameter("capture_size", 64);
+
+    private static final IntCliParameter commonAddressParam = new CliParameterBuilder("-ca")
+            .setDescription("The common address of the outstation.")
+            .buildIntParameter("common_address", 1);
+
+    private static final StringCliParameter journalDirectoryParam = new CliParameterBuilder("-j")
+            .setDescription("Journals the spontaneous events in the given directory and replays them to masters "
+                    + "that were disconnected or had stopped the data transfer.")
+            .buildStringParameter("journal_directory");
+
+    private static final IntCliParameter journalSizeParam = new CliParameterBuilder("-js")
+            .setDescription("The maximum size of the event journal in MiB.")
+            .buildIntParameter("journal_size", 16);
+
+    private static final IntCliParameter journalAgeParam = new CliParameterBuilder("-ja")
+            .setDescription("The maximum age of journaled events in minutes, 0 for no limit.")
+            .buildIntParameter("journal_age", 24 * 60);
+
     private int connectionIdCounter = 1;
 
-    // IOA -> breaker CLOSED(true) / OPEN(false)
-    private static final Map<Integer, Boolean> breakers = new ConcurrentHashMap<>();
+    private static final int[] BREAKER_IOAS = {1001, 1002, 1003};
+
+    // breaker CLOSED(true) / OPEN(false) as single points of the outstation's common address
+    private static ProcessImage processImage;
 
     // Active connections (for spontaneous updates)
     private static final Set<Connection> activeConnections = ConcurrentHashMap.newKeySet();
 
-    // Last CA seen (used for spontaneous)
-    private static volatile int lastSeenCommonAddress = 1;
-
-    static {
-        breakers.put(1001, true);
-        breakers.put(1002, true);
-        breakers.put(1003, false);
-    }
+    // Buffers spontaneous events for masters that are not connected, null if not enabled
+    private static volatile EventJournal eventJournal;
 
     public static void main(String[] args) throws UnknownHostException {
         cliParser(args);
+
+        int ca = commonAddressParam.getValue();
+        processImage = ProcessImage.builder()
+                .addPoints(ASduType.M_SP_NA_1, ca, BREAKER_IOAS[0], BREAKER_IOAS.length)
+                .build();
+        long now = System.currentTimeMillis();
+        processImage.setSinglePoint(ca, 1001, true, 0, now);
+        processImage.setSinglePoint(ca, 1002, true, 0, now);
+        processImage.setSinglePoint(ca, 1003, false, 0, now);
+
         new SampleServer().start();
     }
 
@@ -89,6 +121,12 @@ public class SampleServer {
         cliParameters.add(iaoLengthParam);
         cliParameters.add(caLengthParam);
         cliParameters.add(cotLengthParam);
+        cliParameters.add(commonAddressParam);
+        cliParameters.add(captureFileParam);
+        cliParameters.add(captureSizeParam);
+        cliParameters.add(journalDirectoryParam);
+        cliParameters.add(journalSizeParam);
+        cliParameters.add(journalAgeParam);
 
         CliParser cliParser = new CliParser(
                 "j60870-sample-server",
@@ -108,7 +146,8 @@ public class SampleServer {
     public void start() throws UnknownHostException {
         log("### Starting IEC-104 Outstation ###\n",
                 "Bind Address: ", bindAddressParam.getValue(), "\n",
-                "Port: ", String.valueOf(portParam.getValue()), "\n");
+                "Port: ", String.valueOf(portParam.getValue()), "\n",
+                "Common Address: ", String.valueOf(commonAddressParam.getValue()), "\n");
 
         Builder builder = Server.builder();
         builder.setBindAddr(InetAddress.getByName(bindAddressParam.getValue()))
@@ -117,9 +156,19 @@ public class SampleServer {
                 .setCommonAddressFieldLength(caLengthParam.getValue())
                 .setCotFieldLength(cotLengthParam.getValue());
 
-        Server server = builder.build();
-
         try {
+            if (captureFileParam.isSelected()) {
+                builder.setAPduRecorder(
+                        new APduRecorder(new File(captureFileParam.getValue()), captureSizeParam.getValue() << 20));
+                log("Recording APDUs to ", captureFileParam.getValue());
+            }
+            if (journalDirectoryParam.isSelected()) {
+                eventJournal = new EventJournal(new File(journalDirectoryParam.getValue()),
+                        (long) journalSizeParam.getValue() << 20, journalAgeParam.getValue() * 60_000L);
+                log("Journaling events in ", journalDirectoryParam.getValue(), ", next event #",
+                        String.valueOf(eventJournal.getNextSequenceNumber()));
+            }
+            Server server = builder.build();
             server.start(new ServerListener());
             startBreakerConsole();
             log("Breaker console ready: show | toggle <ioa> | set <ioa> <0|1>");
@@ -137,54 +186,44 @@ public class SampleServer {
 
     // ---------- ASDU helpers ----------
 
-    private static ASdu buildBreakerGIAsdu(int ca) {
-        List<InformationObject> ios = new ArrayList<>();
-        for (Map.Entry<Integer, Boolean> e : breakers.entrySet()) {
-            ios.add(new InformationObject(
-                    e.getKey(),
-                    new InformationElement[][]{
-                            {new IeSinglePointWithQuality(e.getValue(), false, false, false, false)}
-                    }
-            ));
+    private static void sendInterrogationResponse(Connection connection, int ca) throws IOException {
+        Iterator<ASdu> aSdus = processImage.interrogate(ca, CauseOfTransmission.INTERROGATED_BY_STATION,
+                new ASduPacker(connection));
+        while (aSdus.hasNext()) {
+            connection.send(aSdus.next());
         }
-
-        return new ASdu(
-                ASduType.M_SP_NA_1,
-                false,
-                CauseOfTransmission.INTERROGATED_BY_STATION,
-                false, false, 0, ca,
-                ios.toArray(new InformationObject[0])
-        );
-    }
-
-    private static ASdu buildSpontaneousAsdu(int ca, int ioa, boolean val) {
-        return new ASdu(
-                ASduType.M_SP_NA_1,
-                false,
-                CauseOfTransmission.SPONTANEOUS,
-                false, false, 0, ca,
-                new InformationObject(
-                        ioa,
-                        new InformationElement[][]{
-                                {new IeSinglePointWithQuality(val, false, false, false, false)}
-                        }
-                )
-        );
     }
 
     private static void broadcastBreakerUpdate(int ca, int ioa, boolean val) {
-        ASdu update = buildSpontaneousAsdu(ca, ioa, val);
+        processImage.setSinglePoint(ca, ioa, val, 0, System.currentTimeMillis());
+        // time-tagged, so that the master gets the time of the event when it is replayed from the journal
+        ASdu update = processImage.read(ca, ioa, CauseOfTransmission.SPONTANEOUS, true);
+        EventJournal journal = eventJournal;
+        if (journal != null) {
+            try {
+                journal.append(update);
+            } catch (IOException e) {
+                System.err.println("Unable to journal event: " + e.getMessage());
+            }
+            return;
+        }
         for (Connection c : activeConnections) {
             try {
                 c.send(update);
-            } catch (IOException ignored) {
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Event for IOA " + ioa + " not sent: " + e.getMessage());
             }
         }
     }
 
+    private static boolean isBroadcastAddress(int commonAddress) {
+        return commonAddress == (caLengthParam.getValue() == 1 ? 0xff : 0xffff);
+    }
+
     // ---------- Console ----------
 
     private static void startBreakerConsole() {
+        int ca = commonAddressParam.getValue();
         Thread t = new Thread(() -> {
             try (BufferedReader br = new BufferedReader(new InputStreamReader(System.in))) {
                 while (true) {
@@ -195,19 +234,28 @@ public class SampleServer {
 
                     switch (p[0]) {
                         case "show":
-                            System.out.println("Breakers: " + breakers);
+                            StringBuilder sb = new StringBuilder("Breakers:");
+                            for (int breaker : BREAKER_IOAS) {
+                                sb.append(' ').append(breaker).append('=')
+                                        .append(processImage.getSinglePoint(ca, breaker) ? "CLOSED" : "OPEN");
+                            }
+                            System.out.println(sb);
                             break;
                         case "toggle":
                             int ioa = Integer.parseInt(p[1]);
-                            boolean nv = !breakers.get(ioa);
-                            breakers.put(ioa, nv);
-                            broadcastBreakerUpdate(lastSeenCommonAddress, ioa, nv);
+                            if (processImage.getType(ca, ioa) != ASduType.M_SP_NA_1) {
+                                System.out.println("Unknown breaker " + ioa);
+                                break;
+                            }
+                            broadcastBreakerUpdate(ca, ioa, !processImage.getSinglePoint(ca, ioa));
                             break;
                         case "set":
                             ioa = Integer.parseInt(p[1]);
-                            boolean v = "1".equals(p[2]);
-                            breakers.put(ioa, v);
-                            broadcastBreakerUpdate(lastSeenCommonAddress, ioa, v);
+                            if (processImage.getType(ca, ioa) != ASduType.M_SP_NA_1) {
+                                System.out.println("Unknown breaker " + ioa);
+                                break;
+                            }
+                            broadcastBreakerUpdate(ca, ioa, "1".equals(p[2]));
                             break;
                     }
                 }
@@ -256,17 +304,42 @@ public class SampleServer {
 
             @Override
             public void newASdu(Connection connection, ASdu aSdu) {
-                lastSeenCommonAddress = aSdu.getCommonAddress();
+                int ca = commonAddressParam.getValue();
 
                 try {
+                    if (aSdu.getCommonAddress() != ca && !isBroadcastAddress(aSdu.getCommonAddress())) {
+                        connection.sendConfirmation(
+                                aSdu,
+                                aSdu.getCommonAddress(),
+                                true,
+                                CauseOfTransmission.UNKNOWN_COMMON_ADDRESS_OF_ASDU
+                        );
+                        return;
+                    }
+
                     switch (aSdu.getTypeIdentification()) {
 
                         case C_IC_NA_1:
                             connection.sendConfirmation(aSdu);
-                            connection.send(buildBreakerGIAsdu(aSdu.getCommonAddress()));
+                            sendInterrogationResponse(connection, ca);
                             connection.sendActivationTermination(aSdu);
                             break;
 
+                        case C_RD_NA_1:
+                            int readIoa = aSdu.getInformationObjects()[0].getInformationObjectAddress();
+                            ASdu response = processImage.read(ca, readIoa, CauseOfTransmission.REQUEST, false);
+                            if (response == null) {
+                                connection.sendConfirmation(
+                                        aSdu,
+                                        aSdu.getCommonAddress(),
+                                        true,
+                                        CauseOfTransmission.UNKNOWN_INFORMATION_OBJECT_ADDRESS
+                                );
+                                break;
+                            }
+                            connection.send(response);
+                            break;
+
                         case C_SC_NA_1:
                             InformationObject io = aSdu.getInformationObjects()[0];
                             IeSingleCommand cmd =
@@ -275,7 +348,7 @@ public class SampleServer {
                             int ioa = io.getInformationObjectAddress();
                             boolean desired = cmd.isCommandStateOn();
 
-                            if (!breakers.containsKey(ioa)) {
+                            if (processImage.getType(ca, ioa) != ASduType.M_SP_NA_1) {
                                 connection.sendConfirmation(
                                         aSdu,
                                         aSdu.getCommonAddress(),
@@ -299,8 +372,7 @@ public class SampleServer {
                             }
 
                             selectedIoas.remove(ioa);
-                            breakers.put(ioa, desired);
-                            broadcastBreakerUpdate(lastSeenCommonAddress, ioa, desired);
+                            broadcastBreakerUpdate(ca, ioa, desired);
                             connection.sendConfirmation(aSdu);
                             break;
 
@@ -322,10 +394,26 @@ public class SampleServer {
             public void connectionClosed(Connection connection, IOException e) {
                 activeConnections.remove(connection);
                 selectedIoas.clear();
+                if (eventJournal != null) {
+                    eventJournal.stopDelivery(connection);
+                }
             }
 
             @Override
             public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                EventJournal journal = eventJournal;
+                if (journal == null) {
+                    return;
+                }
+                if (stopped) {
+                    journal.stopDelivery(connection);
+                    return;
+                }
+                try {
+                    journal.startDelivery(connection);
+                } catch (IOException e) {
+                    log("Connection ", String.valueOf(id), ": unable to replay events: ", e.getMessage());
+                }
             }
         }
     }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the records of a capture file written by an {@link APduRecorder}. The file may be read while it is being
+ * written. A record that is overwritten while it is read is reported as not available.
+ */
+public class APduCaptureReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int indexSlots;
+    private final long dataCapacity;
+    private final int dataStart;
+
+    /**
+     * Opens a capture file.
+     *
+     * @param file
+     *            the capture file
+     * @throws IOException
+     *             if the file cannot be read or is not a capture file
+     */
+    public APduCaptureReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            if (this.file.length() < APduRecorder.HEADER_LENGTH) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            buffer = this.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, this.file.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getLong(APduRecorder.MAGIC_POSITION) != APduRecorder.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            if (buffer.getInt(APduRecorder.VERSION_POSITION) != APduRecorder.VERSION) {
+                throw new IOException(
+                        "Unsupported capture file version: " + buffer.getInt(APduRecorder.VERSION_POSITION));
+            }
+            indexSlots = buffer.getInt(APduRecorder.INDEX_SLOTS_POSITION);
+            dataCapacity = buffer.getLong(APduRecorder.DATA_CAPACITY_POSITION);
+            dataStart = APduRecorder.HEADER_LENGTH + indexSlots * APduRecorder.INDEX_ENTRY_LENGTH;
+            if (indexSlots <= 0 || dataStart + dataCapacity > buffer.capacity()) {
+                throw new IOException("Corrupt capture file header: " + file);
+            }
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the sequence number of the next record to be written.
+     *
+     * @return the number of records written to the file
+     */
+    public long getNextSequenceNumber() {
+        return buffer.getLong(APduRecorder.NEXT_SEQUENCE_POSITION);
+    }
+
+    /**
+     * Returns the lowest sequence number that may still be available. Records with a higher sequence number may have
+     * been overwritten already if they were larger than the average.
+     *
+     * @return the sequence number of the oldest record in the index
+     */
+    public long getFirstSequenceNumber() {
+        return Math.max(0, getNextSequenceNumber() - indexSlots);
+    }
+
+    /**
+     * Reads the record with the given sequence number.
+     *
+     * @param sequenceNumber
+     *            the sequence number
+     * @return the record or <code>null</code> if it has not been written yet or has already been overwritten
+     */
+    public APduRecord read(long sequenceNumber) {
+        long nextSequence = getNextSequenceNumber();
+        if (sequenceNumber < 0 || sequenceNumber >= nextSequence || nextSequence - sequenceNumber > indexSlots) {
+            return null;
+        }
+
+        int entry = APduRecorder.HEADER_LENGTH + (int) (sequenceNumber % indexSlots) * APduRecorder.INDEX_ENTRY_LENGTH;
+        if (buffer.getLong(entry) != sequenceNumber) {
+            return null;
+        }
+        long position = buffer.getLong(entry + 8);
+        if (isOverwritten(position)) {
+            return null;
+        }
+
+        int i = dataStart + (int) (position % dataCapacity);
+        long timestamp = buffer.getLong(i + 8);
+        int connectionId = buffer.getInt(i + 16);
+        APduRecord.Direction direction = APduRecord.Direction.forId(buffer.get(i + 20) & 0xff);
+        int length = buffer.getShort(i + 22) & 0xffff;
+        if (buffer.getLong(i) != sequenceNumber || direction == null || length > 255) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(i + APduRecorder.RECORD_HEADER_LENGTH);
+        source.get(data);
+
+        if (isOverwritten(position)) {
+            return null;
+        }
+        return new APduRecord(sequenceNumber, timestamp, direction, connectionId, data);
+    }
+
+    private boolean isOverwritten(long position) {
+        return buffer.getLong(APduRecorder.DATA_POSITION_POSITION) - position > dataCapacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An ordered list of rules that received ASDUs pass before they are decoded. Every rule consists of an
+ * {@link ASduFilter} and an action. The rules are checked in the order they were added, starting with rule 0. The
+ * first rule whose filter matches and whose action is not {@link Action#COUNT} decides how the ASDU is handled. If
+ * no such rule matches, the ASDU is passed to the listener of the connection as if there was no chain.
+ * <p>
+ * Dropped and routed ASDUs are acknowledged like any other ASDU. The chain only looks at the encoded bytes, so a
+ * dropped ASDU costs no decoding and no allocation. The match counters of a chain are shared by all connections the
+ * chain is used by.
+ * </p>
+ * <p>
+ * Rules can only be added until the chain is passed to a builder. From then on the chain cannot be changed, so that
+ * all connections built with it see the same rules.
+ * </p>
+ */
+public class ASduFilterChain {
+
+    /**
+     * The action taken for an ASDU that matches the filter of a rule.
+     */
+    public enum Action {
+        /**
+         * Passes the ASDU to the listener of the connection.
+         */
+        ACCEPT,
+        /**
+         * Discards the ASDU without decoding it.
+         */
+        DROP,
+        /**
+         * Only counts the ASDU and continues with the next rule.
+         */
+        COUNT,
+        /**
+         * Passes the ASDU to the listener of the rule instead of the listener of the connection.
+         */
+        ROUTE
+    }
+
+    private static class Rule {
+        private final ASduFilter filter;
+        private final Action action;
+        private final ConnectionEventListener listener;
+        private final Executor executor;
+        private final LongAdder matches = new LongAdder();
+
+        private Rule(ASduFilter filter, Action action, ConnectionEventListener listener, Executor executor) {
+            if (filter == null) {
+                throw new IllegalArgumentException("filter must not be null");
+            }
+            this.filter = filter;
+            this.action = action;
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    private volatile Rule[] rules = new Rule[0];
+    private volatile boolean frozen;
+    private final LongAdder unmatched = new LongAdder();
+
+    /**
+     * Adds a rule that passes matching ASDUs to the listener of the connection. Can be used to exempt ASDUs from the
+     * rules that follow.
+     *
+     * @param filter
+     *            the filter of the rule
+     * @return this chain
+     * @throws IllegalStateException
+     *             if the chain has already been passed to a builder
+     */
+    public ASduFilterChain accept(ASduFilter filter) {
+        return add(new Rule(filter, Action.ACCEPT, null, null));
+    }
+
+    /**
+     * Adds a rule that discards matching ASDUs.
+     *
+     * @param filter
+     *            the filter of the rule
+     * @return this chain
+     * @throws IllegalStateException
+     *             if the chain has already been passed to a builder
+     */
+    public ASduFilterChain drop(ASduFilter filter) {
+        return add(new Rule(filter, Action.DROP, null, null));
+    }
+
+    /**
+     * Adds a rule that only counts matching ASDUs.
+     *
+     * @param filter
+     *            the filter of the rule
+     * @return this chain
+     * @throws IllegalStateException
+     *             if the chain has already been passed to a builder
+     */
+    public ASduFilterChain count(ASduFilter filter) {
+        return add(new Rule(filter, Action.COUNT, null, null));
+    }
+
+    /**
+     * Adds a rule that passes matching ASDUs to the given listener. The listener is notified by the same thread as
+     * the listener of the connection, so routed and not routed ASDUs are delivered in the order they were received.
+     *
+     * @param filter
+     *            the filter of the rule
+     * @param listener
+     *            the listener to pass the ASDUs to
+     * @return this chain
+     * @throws IllegalStateException
+     *             if the chain has already been passed to a builder
+     * @see #route(ASduFilter, ConnectionEventListener, Executor)
+     */
+    public ASduFilterChain route(ASduFilter filter, ConnectionEventListener listener) {
+        return route(filter, listener, null);
+    }
+
+    /**
+     * Adds a rule that passes matching ASDUs to the given listener using the given executor. The ASDUs of a rule are
+     * still delivered one after the other and in the order they were received by a connection, but independent of the
+     * listener of the connection and of other rules. The ASDUs are decoded by the executor. If the listener implements
+     * {@link ASduViewListener}, it receives views instead of decoded ASDUs. Only
+     * {@link ConnectionEventListener#newASdu(Connection, ASdu)} or
+     * {@link ASduViewListener#newASduView(Connection, ASduView)} is called on the listener of a rule.
+     *
+     * @param filter
+     *            the filter of the rule
+     * @param listener
+     *            the listener to pass the ASDUs to
+     * @param executor
+     *            the executor to notify the listener with or <code>null</code> to use the thread that notifies the
+     *            listener of the connection
+     * @return this chain
+     * @throws IllegalStateException
+     *             if the chain has already been passed to a builder
+     */
+    public ASduFilterChain route(ASduFilter filter, ConnectionEventListener listener, Executor executor) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        return add(new Rule(filter, Action.ROUTE, listener, executor));
+    }
+
+    private synchronized ASduFilterChain add(Rule rule) {
+        if (frozen) {
+            throw new IllegalStateException("The chain is used by a builder and cannot be changed.");
+        }
+        Rule[] rules = Arrays.copyOf(this.rules, this.rules.length + 1);
+        rules[rules.length - 1] = rule;
+        this.rules = rules;
+        return this;
+    }
+
+    /**
+     * Prevents further rules from being added, because connections size their route executors by the rules.
+     */
+    synchronized void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Returns the number of rules.
+     *
+     * @return the number of rules
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * Returns the number of received ASDUs that matched a rule.
+     *
+     * @param rule
+     *            the index of the rule in the order the rules were added
+     * @return the number of matching ASDUs
+     */
+    public long getMatchCount(int rule) {
+        return rules[rule].matches.sum();
+    }
+
+    /**
+     * Returns the number of received ASDUs that were not handled by any rule.
+     *
+     * @return the number of ASDUs passed to the listener of the connection because no rule decided otherwise
+     */
+    public long getUnmatchedCount() {
+        return unmatched.sum();
+    }
+
+    /**
+     * Checks an encoded ASDU against the rules and counts the matches.
+     *
+     * @return the index of the rule that decides how the ASDU is handled or -1 if there is none
+     */
+    int evaluate(byte[] buffer, int offset, int length, ConnectionSettings settings) {
+        Rule[] rules = this.rules;
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = rules[i];
+            if (rule.filter.matches(buffer, offset, length, settings)) {
+                rule.matches.increment();
+                if (rule.action != Action.COUNT) {
+                    return i;
+                }
+            }
+        }
+        unmatched.increment();
+        return -1;
+    }
+
+    Action getAction(int rule) {
+        return rules[rule].action;
+    }
+
+    ConnectionEventListener getListener(int rule) {
+        return rules[rule].listener;
+    }
+
+    Executor getExecutor(int rule) {
+        return rules[rule].executor;
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+/**
+ * Packs information objects into as few ASDUs as possible without exceeding the maximum APDU length of 253 bytes or
+ * the maximum of 127 information objects or elements per ASDU. The sizes are calculated from the field lengths of the
+ * Cause Of Transmission, Common Address and Information Object Address of the connection.
+ *
+ * <p>
+ * Runs of information objects with contiguous addresses are packed as a sequence of elements (SQ=1) if the ASDU type
+ * allows it, so that the address is only transmitted once for the whole run. The order of the information objects is
+ * preserved. A packer is not thread-safe.
+ * </p>
+ */
+public class ASduPacker {
+
+    /**
+     * The types that may be transmitted as a sequence of elements.
+     */
+    private static final Set<ASduType> SEQUENCE_TYPES = EnumSet.of(ASduType.M_SP_NA_1, ASduType.M_DP_NA_1,
+            ASduType.M_ST_NA_1, ASduType.M_BO_NA_1, ASduType.M_ME_NA_1, ASduType.M_ME_NB_1, ASduType.M_ME_NC_1,
+            ASduType.M_IT_NA_1, ASduType.M_PS_NA_1, ASduType.M_ME_ND_1);
+
+    // control fields of the APCI
+    private static final int CONTROL_FIELDS_LENGTH = 4;
+
+    private final int ioaFieldLength;
+    private final int maxInformationObjectsLength;
+    private final byte[] scratch = new byte[APdu.MAX_APDU_LENGTH];
+
+    /**
+     * Creates a packer for ASDUs sent over the given connection.
+     *
+     * @param connection
+     *            the connection whose field lengths are used
+     */
+    public ASduPacker(Connection connection) {
+        this(connection.getSettings());
+    }
+
+    /**
+     * Creates a packer for the given field lengths.
+     *
+     * @param cotFieldLength
+     *            the length of the Cause Of Transmission field (1 or 2)
+     * @param commonAddressFieldLength
+     *            the length of the Common Address field (1 or 2)
+     * @param ioaFieldLength
+     *            the length of the Information Object Address field (1, 2 or 3)
+     */
+    public ASduPacker(int cotFieldLength, int commonAddressFieldLength, int ioaFieldLength) {
+        if (cotFieldLength != 1 && cotFieldLength != 2) {
+            throw new IllegalArgumentException("invalid cot field length: " + cotFieldLength);
+        }
+        if (commonAddressFieldLength != 1 && commonAddressFieldLength != 2) {
+            throw new IllegalArgumentException("invalid common address field length: " + commonAddressFieldLength);
+        }
+        if (ioaFieldLength < 1 || ioaFieldLength > 3) {
+            throw new IllegalArgumentException("invalid ioa field length: " + ioaFieldLength);
+        }
+        this.ioaFieldLength = ioaFieldLength;
+        // type identification and variable structure qualifier precede the cause of transmission
+        this.maxInformationObjectsLength = APdu.MAX_APDU_LENGTH - CONTROL_FIELDS_LENGTH - 2 - cotFieldLength
+                - commonAddressFieldLength;
+    }
+
+    ASduPacker(ConnectionSettings settings) {
+        this(settings.getCotFieldLength(), settings.getCommonAddressFieldLength(), settings.getIoaFieldLength());
+    }
+
+    /**
+     * Packs the given information objects into ASDUs. Every information object has to contain a single set of
+     * information elements of the given type.
+     *
+     * @param typeId
+     *            the type identification of the ASDUs
+     * @param causeOfTransmission
+     *            the cause of transmission of the ASDUs
+     * @param originatorAddress
+     *            the originator address of the ASDUs
+     * @param commonAddress
+     *            the common address of the ASDUs
+     * @param informationObjects
+     *            the information objects to pack
+     * @return the ASDUs in the order of the information objects
+     * @throws IllegalArgumentException
+     *             if an information object contains more than one set of information elements or does not fit into an
+     *             ASDU
+     */
+    public List<ASdu> pack(ASduType typeId, CauseOfTransmission causeOfTransmission, int originatorAddress,
+            int commonAddress, Iterable<InformationObject> informationObjects) {
+        List<InformationObject> objects = new ArrayList<>();
+        for (InformationObject informationObject : informationObjects) {
+            if (informationObject.getInformationElements().length != 1) {
+                throw new IllegalArgumentException(MessageFormat.format(
+                        "Information object {0} contains more than one set of information elements.",
+                        informationObject.getInformationObjectAddress()));
+            }
+            objects.add(informationObject);
+        }
+
+        int size = objects.size();
+        int[] elementsLengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            elementsLengths[i] = elementsLength(objects.get(i));
+        }
+
+        boolean sequenceAllowed = SEQUENCE_TYPES.contains(typeId);
+        List<ASdu> aSdus = new ArrayList<>();
+        int start = 0;
+        while (start < size) {
+            int objectsEnd = objectsEnd(elementsLengths, start);
+            int sequenceEnd = sequenceAllowed ? sequenceEnd(objects, elementsLengths, start) : start;
+
+            // a sequence needs fewer bytes for the same number of objects
+            if (sequenceEnd - start > 1 && sequenceEnd >= objectsEnd) {
+                InformationElement[][] elements = new InformationElement[sequenceEnd - start][];
+                for (int i = start; i < sequenceEnd; i++) {
+                    elements[i - start] = objects.get(i).getInformationElements()[0];
+                }
+                InformationObject sequence = new InformationObject(objects.get(start).getInformationObjectAddress(),
+                        elements);
+                aSdus.add(new ASdu(typeId, true, causeOfTransmission, false, false, originatorAddress, commonAddress,
+                        sequence));
+                start = sequenceEnd;
+            }
+            else {
+                InformationObject[] aSduObjects = objects.subList(start, objectsEnd).toArray(new InformationObject[0]);
+                aSdus.add(new ASdu(typeId, false, causeOfTransmission, false, false, originatorAddress,
+                        commonAddress, aSduObjects));
+                start = objectsEnd;
+            }
+        }
+        return aSdus;
+    }
+
+    private int elementsLength(InformationObject informationObject) {
+        int length = informationObject.encode(scratch, 0, ioaFieldLength) - ioaFieldLength;
+        if (ioaFieldLength + length > maxInformationObjectsLength) {
+            throw new IllegalArgumentException(MessageFormat.format("Information object {0} does not fit into an ASDU.",
+                    informationObject.getInformationObjectAddress()));
+        }
+        return length;
+    }
+
+    /**
+     * Returns the end index of the information objects that fit into an ASDU with SQ=0.
+     */
+    private int objectsEnd(int[] elementsLengths, int start) {
+        int length = 0;
+        int end = start;
+        while (end < elementsLengths.length && end - start < ASdu.MAX_SEQUENCE_LENGTH
+                && length + ioaFieldLength + elementsLengths[end] <= maxInformationObjectsLength) {
+            length += ioaFieldLength + elementsLengths[end];
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the end index of the information objects with contiguous addresses that fit into an ASDU with SQ=1.
+     */
+    private int sequenceEnd(List<InformationObject> objects, int[] elementsLengths, int start) {
+        int length = ioaFieldLength;
+        int end = start;
+        while (end < elementsLengths.length && end - start < ASdu.MAX_SEQUENCE_LENGTH
+                && length + elementsLengths[end] <= maxInformationObjectsLength
+                && (end == start || objects.get(end).getInformationObjectAddress() == objects.get(end - 1)
+                        .getInformationObjectAddress() + 1)) {
+            length += elementsLengths[end];
+            end++;
+        }
+        return end;
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+import org.openmuc.j60870.ie.BinaryTime;
+
+/**
+ * An ASDU that is encoded once and whose values, qualities and time tags are overwritten in place before it is sent
+ * again, e.g. for periodic or background transmission of the same points. Sending a template with
+ * {@link Connection#send(ASduTemplate)} only copies its bytes, no information objects are created or encoded.
+ *
+ * <p>
+ * Element sets are addressed by index as in {@link ASduView}, which also gives read access to the current content
+ * through {@link #getView()}. The setters overwrite only the bits of the addressed field. A template is not thread
+ * safe, it must not be modified while it is being sent.
+ * </p>
+ */
+public class ASduTemplate {
+
+    private final byte[] buffer;
+    private final ASduView view;
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    /**
+     * Encodes the given ASDU as template for connections with the given field lengths.
+     *
+     * @param aSdu
+     *            the ASDU whose layout and initial content is used
+     * @param cotFieldLength
+     *            the length of the cause of transmission field, 1 or 2
+     * @param commonAddressFieldLength
+     *            the length of the common address field, 1 or 2
+     * @param ioaFieldLength
+     *            the length of the information object address field, 1 to 3
+     */
+    public ASduTemplate(ASdu aSdu, int cotFieldLength, int commonAddressFieldLength, int ioaFieldLength) {
+        this(aSdu, new ASduView(cotFieldLength, commonAddressFieldLength, ioaFieldLength));
+    }
+
+    ASduTemplate(ASdu aSdu, ConnectionSettings settings) {
+        this(aSdu, new ASduView(settings));
+    }
+
+    private ASduTemplate(ASdu aSdu, ASduView view) {
+        byte[] encoded = new byte[APdu.MAX_APDU_LENGTH];
+        int length = aSdu.encode(encoded, 0, view.getSettings());
+        this.buffer = new byte[length];
+        System.arraycopy(encoded, 0, buffer, 0, length);
+        try {
+            this.view = view.wrap(buffer, 0, length);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ASDU does not match its type: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a view of the current content of the template.
+     *
+     * @return the view
+     */
+    public ASduView getView() {
+        return view;
+    }
+
+    public int getSequenceLength() {
+        return view.getSequenceLength();
+    }
+
+    public void setCauseOfTransmission(CauseOfTransmission causeOfTransmission) {
+        buffer[2] = (byte) ((buffer[2] & 0xc0) | causeOfTransmission.getId());
+    }
+
+    /**
+     * Sets the value of a single point or single command.
+     *
+     * @param i
+     *            the index of the element set
+     * @param value
+     *            the value
+     */
+    public void setValue(int i, boolean value) {
+        if (view.valueKind() != ASduView.SINGLE) {
+            throw view.unsupported("boolean value");
+        }
+        int position = view.elementSetPosition(i);
+        buffer[position] = (byte) (value ? buffer[position] | 0x01 : buffer[position] & ~0x01);
+    }
+
+    /**
+     * Sets the value of an element set. The value is interpreted as by {@link ASduView#intValue(int)}: the state of
+     * double points and commands, the signed value of step positions, the unscaled value of normalized values, the
+     * scaled value, the bits of bitstrings or the counter reading. The value of short floating point numbers is set to
+     * the given value.
+     *
+     * @param i
+     *            the index of the element set
+     * @param value
+     *            the value
+     */
+    public void setValue(int i, int value) {
+        int position = view.elementSetPosition(i);
+        switch (view.valueKind()) {
+        case ASduView.SINGLE:
+            buffer[position] = (byte) ((buffer[position] & ~0x01) | (value & 0x01));
+            break;
+        case ASduView.DOUBLE:
+            buffer[position] = (byte) ((buffer[position] & ~0x03) | (value & 0x03));
+            break;
+        case ASduView.STEP:
+            // keeps the transient bit
+            buffer[position] = (byte) ((buffer[position] & 0x80) | (value & 0x7f));
+            break;
+        case ASduView.NORMALIZED:
+        case ASduView.SCALED:
+            buffer[position] = (byte) value;
+            buffer[position + 1] = (byte) (value >> 8);
+            break;
+        case ASduView.BITSTRING:
+        case ASduView.COUNTER:
+            writeInt(position, value);
+            break;
+        case ASduView.SHORT_FLOAT:
+            writeInt(position, Float.floatToIntBits(value));
+            break;
+        default:
+            throw view.unsupported("int value");
+        }
+    }
+
+    /**
+     * Sets the value of a short floating point number or a normalized value in the range [-1, 1). Normalized values
+     * out of range are limited to it. Other values are set to the rounded value as by {@link #setValue(int, int)}.
+     *
+     * @param i
+     *            the index of the element set
+     * @param value
+     *            the value
+     */
+    public void setValue(int i, float value) {
+        switch (view.valueKind()) {
+        case ASduView.SHORT_FLOAT:
+            writeInt(view.elementSetPosition(i), Float.floatToIntBits(value));
+            break;
+        case ASduView.NORMALIZED:
+            setValue(i, Math.max(-32768, Math.min(32767, Math.round(value * 32768f))));
+            break;
+        default:
+            setValue(i, Math.round(value));
+        }
+    }
+
+    /**
+     * Sets the quality bits of an element set, see {@link ASduView#quality(int)}. Bits that are not quality bits of the
+     * type are ignored.
+     *
+     * @param i
+     *            the index of the element set
+     * @param quality
+     *            the quality bits
+     */
+    public void setQuality(int i, int quality) {
+        int position = view.qualityPosition(i);
+        int mask = view.qualityMask();
+        buffer[position] = (byte) ((buffer[position] & ~mask) | (quality & mask));
+    }
+
+    /**
+     * Sets the CP56Time2a time tag of an element set to a valid time in the default time zone.
+     *
+     * @param i
+     *            the index of the element set
+     * @param timestamp
+     *            the timestamp in ms
+     */
+    public void setTimestamp(int i, long timestamp) {
+        BinaryTime.encodeTime56(timestamp, timeZone, false, buffer, view.time56Position(i));
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    ConnectionSettings getSettings() {
+        return view.getSettings();
+    }
+
+    private void writeInt(int position, int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        buffer[position + 3] = (byte) (value >> 24);
+    }
+
+}
@@ -20,9 +20,6 @@
  */
 package org.openmuc.j60870;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Every ASDU contains a type identification field that defines the purpose and contents of the ASDU. Every Type
  * Identifier is of the form A_BB_CC_1 with the following meanings:
@@ -501,13 +498,14 @@ public enum ASduType {
     private final int id;
     private final String description;
 
-    private static final Map<Integer, ASduType> idMap = new HashMap<>();
+    private static final ASduType[] idMap = new ASduType[256];
 
     static {
         for (ASduType enumInstance : ASduType.values()) {
-            if (idMap.put(enumInstance.getId(), enumInstance) != null) {
+            if (idMap[enumInstance.getId()] != null) {
                 throw new IllegalArgumentException("duplicate ID: " + enumInstance.getId());
             }
+            idMap[enumInstance.getId()] = enumInstance;
         }
     }
 
@@ -547,6 +545,9 @@ public enum ASduType {
      * @return the ASduType that corresponds to the given ID
      */
     public static ASduType typeFor(int id) {
-        return idMap.get(id);
+        if (id < 0 || id >= idMap.length) {
+            return null;
+        }
+        return idMap[id];
     }
 }
@@ -0,0 +1,763 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.TimeZone;
+
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationObjectLayout;
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+
+/**
+ * A read-only view of an encoded ASDU. In contrast to {@link ASdu} no information objects and information elements are
+ * created, the header fields and the values of the information element sets are read from the bytes when they are
+ * accessed.
+ *
+ * <p>
+ * The element sets are addressed by an index from 0 to {@link #getSequenceLength()} - 1. It is the index of the
+ * information object if the ASDU contains a sequence of information objects and the index of the element in the
+ * sequence otherwise. The value accessors are supported for the types that transport process information in monitor
+ * direction (TypeIDs 1 to 16, 20, 21 and 30 to 37) and the commands with values (TypeIDs 45 to 51 and 58 to 64). The
+ * complete {@link ASdu} of any type can be created by {@link #materialize()}.
+ * </p>
+ *
+ * <p>
+ * A view can be reused for different ASDUs with {@link #wrap(byte[], int, int)}. The views passed to
+ * {@link ASduViewListener#newASduView(Connection, ASduView)} own a copy of the received bytes.
+ * </p>
+ */
+public class ASduView {
+
+    static final int SINGLE = 1;
+    static final int DOUBLE = 2;
+    static final int STEP = 3;
+    static final int BITSTRING = 4;
+    static final int NORMALIZED = 5;
+    static final int SCALED = 6;
+    static final int SHORT_FLOAT = 7;
+    static final int COUNTER = 8;
+
+    private static final int TIME56_LENGTH = 7;
+
+    private static final int[] VALUE_KIND = new int[256];
+    private static final int[] QUALITY_OFFSET = new int[256];
+    private static final int[] QUALITY_MASK = new int[256];
+    private static final boolean[] TIME56 = new boolean[256];
+    private static final boolean[] MONITOR = new boolean[256];
+
+    static {
+        monitor(ASduType.M_SP_NA_1, SINGLE, -1, 0);
+        monitor(ASduType.M_SP_TA_1, SINGLE, -1, 3);
+        monitor(ASduType.M_DP_NA_1, DOUBLE, -1, 0);
+        monitor(ASduType.M_DP_TA_1, DOUBLE, -1, 3);
+        monitor(ASduType.M_ST_NA_1, STEP, 1, 0);
+        monitor(ASduType.M_ST_TA_1, STEP, 1, 3);
+        monitor(ASduType.M_BO_NA_1, BITSTRING, 4, 0);
+        monitor(ASduType.M_BO_TA_1, BITSTRING, 4, 3);
+        monitor(ASduType.M_ME_NA_1, NORMALIZED, 2, 0);
+        monitor(ASduType.M_ME_TA_1, NORMALIZED, 2, 3);
+        monitor(ASduType.M_ME_NB_1, SCALED, 2, 0);
+        monitor(ASduType.M_ME_TB_1, SCALED, 2, 3);
+        monitor(ASduType.M_ME_NC_1, SHORT_FLOAT, 4, 0);
+        monitor(ASduType.M_ME_TC_1, SHORT_FLOAT, 4, 3);
+        monitor(ASduType.M_IT_NA_1, COUNTER, 4, 0);
+        monitor(ASduType.M_IT_TA_1, COUNTER, 4, 3);
+        monitor(ASduType.M_PS_NA_1, BITSTRING, 4, 0);
+        monitor(ASduType.M_ME_ND_1, NORMALIZED, -2, 0);
+        monitor(ASduType.M_SP_TB_1, SINGLE, -1, TIME56_LENGTH);
+        monitor(ASduType.M_DP_TB_1, DOUBLE, -1, TIME56_LENGTH);
+        monitor(ASduType.M_ST_TB_1, STEP, 1, TIME56_LENGTH);
+        monitor(ASduType.M_BO_TB_1, BITSTRING, 4, TIME56_LENGTH);
+        monitor(ASduType.M_ME_TD_1, NORMALIZED, 2, TIME56_LENGTH);
+        monitor(ASduType.M_ME_TE_1, SCALED, 2, TIME56_LENGTH);
+        monitor(ASduType.M_ME_TF_1, SHORT_FLOAT, 4, TIME56_LENGTH);
+        monitor(ASduType.M_IT_TB_1, COUNTER, 4, TIME56_LENGTH);
+
+        command(ASduType.C_SC_NA_1, SINGLE, 0);
+        command(ASduType.C_DC_NA_1, DOUBLE, 0);
+        command(ASduType.C_RC_NA_1, DOUBLE, 0);
+        command(ASduType.C_SE_NA_1, NORMALIZED, 0);
+        command(ASduType.C_SE_NB_1, SCALED, 0);
+        command(ASduType.C_SE_NC_1, SHORT_FLOAT, 0);
+        command(ASduType.C_BO_NA_1, BITSTRING, 0);
+        command(ASduType.C_SC_TA_1, SINGLE, TIME56_LENGTH);
+        command(ASduType.C_DC_TA_1, DOUBLE, TIME56_LENGTH);
+        command(ASduType.C_RC_TA_1, DOUBLE, TIME56_LENGTH);
+        command(ASduType.C_SE_TA_1, NORMALIZED, TIME56_LENGTH);
+        command(ASduType.C_SE_TB_1, SCALED, TIME56_LENGTH);
+        command(ASduType.C_SE_TC_1, SHORT_FLOAT, TIME56_LENGTH);
+        command(ASduType.C_BO_TA_1, BITSTRING, TIME56_LENGTH);
+    }
+
+    /**
+     * Registers a monitor type whose quality is found at the given offset of the element set, unless the quality is
+     * part of the value (-1) or there is none (-2), and a time tag of the given length.
+     */
+    private static void monitor(ASduType type, int valueKind, int qualityOffset, int timeLength) {
+        int id = type.getId();
+        MONITOR[id] = true;
+        VALUE_KIND[id] = valueKind;
+        TIME56[id] = timeLength == TIME56_LENGTH;
+        if (qualityOffset == -1) {
+            // SIQ and DIQ
+            QUALITY_OFFSET[id] = 0;
+            QUALITY_MASK[id] = 0xf0;
+        }
+        else if (valueKind == COUNTER) {
+            // the flags of the sequence notation
+            QUALITY_OFFSET[id] = qualityOffset;
+            QUALITY_MASK[id] = 0xe0;
+        }
+        else if (qualityOffset >= 0) {
+            QUALITY_OFFSET[id] = qualityOffset;
+            QUALITY_MASK[id] = 0xf1;
+        }
+    }
+
+    private static void command(ASduType type, int valueKind, int timeLength) {
+        int id = type.getId();
+        VALUE_KIND[id] = valueKind;
+        TIME56[id] = timeLength == TIME56_LENGTH;
+    }
+
+    private final ConnectionSettings settings;
+    private TimeZone timeZone;
+
+    private byte[] buffer;
+    private int offset;
+    private int length;
+
+    private int typeId;
+    private int sequenceLength;
+    private boolean sequenceOfElements;
+    private int headerLength;
+    private int setSize;
+
+    /**
+     * Creates a view for ASDUs with the given field lengths. The view has to be pointed to an ASDU using
+     * {@link #wrap(byte[], int, int)}.
+     *
+     * @param cotFieldLength
+     *            the length of the cause of transmission field, 1 or 2
+     * @param commonAddressFieldLength
+     *            the length of the common address field, 1 or 2
+     * @param ioaFieldLength
+     *            the length of the information object address field, 1 to 3
+     */
+    public ASduView(int cotFieldLength, int commonAddressFieldLength, int ioaFieldLength) {
+        if (cotFieldLength < 1 || cotFieldLength > 2) {
+            throw new IllegalArgumentException("invalid COT length: " + cotFieldLength);
+        }
+        if (commonAddressFieldLength < 1 || commonAddressFieldLength > 2) {
+            throw new IllegalArgumentException("invalid CA length: " + commonAddressFieldLength);
+        }
+        if (ioaFieldLength < 1 || ioaFieldLength > 3) {
+            throw new IllegalArgumentException("invalid IOA length: " + ioaFieldLength);
+        }
+        this.settings = new ConnectionSettings();
+        settings.setCotFieldLength(cotFieldLength);
+        settings.setCommonAddressFieldLength(commonAddressFieldLength);
+        settings.setIoaFieldLength(ioaFieldLength);
+    }
+
+    ASduView(ConnectionSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Points this view to the ASDU in the given buffer. The buffer is not copied.
+     *
+     * @param buffer
+     *            the buffer containing the ASDU
+     * @param offset
+     *            the offset of the type identification
+     * @param length
+     *            the length of the ASDU
+     * @return this view
+     * @throws IOException
+     *             if the ASDU is shorter than its header and information objects require
+     */
+    public ASduView wrap(byte[] buffer, int offset, int length) throws IOException {
+        int headerLength = 2 + settings.getCotFieldLength() + settings.getCommonAddressFieldLength();
+        if (length < headerLength) {
+            throw new IOException(MessageFormat.format("ASDU of length {0} is shorter than its header.", length));
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.headerLength = headerLength;
+        this.typeId = buffer[offset] & 0xff;
+        this.sequenceOfElements = (buffer[offset + 1] & 0x80) == 0x80;
+        this.sequenceLength = buffer[offset + 1] & 0x7f;
+
+        InformationObjectLayout layout = InformationObjectLayout.forType(typeId);
+        this.setSize = layout == null ? 0 : Math.max(layout.getElementSetSize(), 0);
+        if (setSize != 0) {
+            int requiredLength = layout.informationObjectsLength(settings.getIoaFieldLength(), sequenceOfElements,
+                    sequenceLength);
+            if (length < headerLength + requiredLength) {
+                throw new IOException(MessageFormat.format("ASDU of type {0} with {1} element sets is too short: {2}.",
+                        typeId, sequenceLength, length));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Creates a view of a copy of the given ASDU bytes.
+     */
+    static ASduView copyOf(byte[] buffer, int offset, int length, ConnectionSettings settings) throws IOException {
+        byte[] copy = new byte[length];
+        System.arraycopy(buffer, offset, copy, 0, length);
+        return new ASduView(settings).wrap(copy, 0, length);
+    }
+
+    /**
+     * Returns true if the type of the ASDU is known and allowed by the settings.
+     */
+    boolean hasAllowedType() {
+        return ASduType.typeFor(typeId) != null && settings.isAllowedType(typeId);
+    }
+
+    /**
+     * Decodes the complete ASDU.
+     *
+     * @return the ASDU
+     * @throws IOException
+     *             if the ASDU cannot be decoded
+     */
+    public ASdu materialize() throws IOException {
+        ExtendedDataInputStream is = new ExtendedDataInputStream(new ByteArrayInputStream(buffer, offset, length));
+        return ASdu.decode(is, settings, length);
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    public ASduType getTypeIdentification() {
+        return ASduType.typeFor(typeId);
+    }
+
+    public boolean isSequenceOfElements() {
+        return sequenceOfElements;
+    }
+
+    /**
+     * Returns the number of information objects or, if the ASDU contains a sequence of elements, the number of
+     * elements.
+     *
+     * @return the number of element sets that can be accessed by index
+     */
+    public int getSequenceLength() {
+        return sequenceLength;
+    }
+
+    public CauseOfTransmission getCauseOfTransmission() {
+        return CauseOfTransmission.causeFor(buffer[offset + 2] & 0x3f);
+    }
+
+    public boolean isTestFrame() {
+        return (buffer[offset + 2] & 0x80) == 0x80;
+    }
+
+    public boolean isNegativeConfirm() {
+        return (buffer[offset + 2] & 0x40) == 0x40;
+    }
+
+    /**
+     * Returns the originator address.
+     *
+     * @return the originator address or -1 if the cause of transmission field is one octet long
+     */
+    public int getOriginatorAddress() {
+        return settings.getCotFieldLength() == 2 ? buffer[offset + 3] & 0xff : -1;
+    }
+
+    public int getCommonAddress() {
+        int i = offset + 2 + settings.getCotFieldLength();
+        if (settings.getCommonAddressFieldLength() == 1) {
+            return buffer[i] & 0xff;
+        }
+        return (buffer[i] & 0xff) | ((buffer[i + 1] & 0xff) << 8);
+    }
+
+    /**
+     * Returns the information object address of an element set. Within a sequence of elements the address is
+     * incremented by one for every element and wraps at the maximum address of the IOA field length.
+     *
+     * @param i
+     *            the index of the element set
+     * @return the information object address
+     */
+    public int ioa(int i) {
+        checkIndex(i);
+        int ioaFieldLength = settings.getIoaFieldLength();
+        if (sequenceOfElements) {
+            return (readIoa(offset + headerLength, ioaFieldLength) + i) & ioaMask(ioaFieldLength);
+        }
+        if (i == 0) {
+            return readIoa(offset + headerLength, ioaFieldLength);
+        }
+        return readIoa(elementSetPosition(i) - ioaFieldLength, ioaFieldLength);
+    }
+
+    static int ioaMask(int ioaFieldLength) {
+        return 0xffffff >>> ((3 - ioaFieldLength) << 3);
+    }
+
+    private int readIoa(int position, int ioaFieldLength) {
+        int ioa = buffer[position] & 0xff;
+        if (ioaFieldLength > 1) {
+            ioa |= (buffer[position + 1] & 0xff) << 8;
+            if (ioaFieldLength > 2) {
+                ioa |= (buffer[position + 2] & 0xff) << 16;
+            }
+        }
+        return ioa;
+    }
+
+    /**
+     * Returns the state of a single-point information or a single command.
+     *
+     * @param i
+     *            the index of the element set
+     * @return true if the state is on
+     */
+    public boolean booleanValue(int i) {
+        if (VALUE_KIND[typeId] != SINGLE) {
+            throw unsupported("boolean value");
+        }
+        return (buffer[elementSetPosition(i)] & 0x01) == 0x01;
+    }
+
+    /**
+     * Returns the value of an element set as int. These are 0 and 1 for single points and single commands, 0 to 3 for
+     * double points, double and regulating step commands, the signed value of step positions, the bits of bitstrings,
+     * the unscaled value of normalized values, the scaled value and the counter reading of integrated totals.
+     *
+     * @param i
+     *            the index of the element set
+     * @return the value
+     */
+    public int intValue(int i) {
+        return intValueAt(elementSetPosition(i));
+    }
+
+    private int intValueAt(int position) {
+        switch (VALUE_KIND[typeId]) {
+        case SINGLE:
+            return buffer[position] & 0x01;
+        case DOUBLE:
+            return buffer[position] & 0x03;
+        case STEP:
+            // seven bit two's complement
+            return (buffer[position] << 25) >> 25;
+        case NORMALIZED:
+        case SCALED:
+            return readShort(position);
+        case BITSTRING:
+        case COUNTER:
+            return readInt(position);
+        default:
+            throw unsupported("int value");
+        }
+    }
+
+    /**
+     * Returns the value of an element set as float. This is the value of short floating point numbers, the value in
+     * the range [-1, 1) of normalized values and the value returned by {@link #intValue(int)} for the other types.
+     *
+     * @param i
+     *            the index of the element set
+     * @return the value
+     */
+    public float floatValue(int i) {
+        switch (VALUE_KIND[typeId]) {
+        case SHORT_FLOAT:
+            return Float.intBitsToFloat(readInt(elementSetPosition(i)));
+        case NORMALIZED:
+            return intValue(i) / 32768f;
+        default:
+            return intValue(i);
+        }
+    }
+
+    /**
+     * Returns the quality bits of an element set: overflow (0x01), blocked (0x10), substituted (0x20), not topical
+     * (0x40) and invalid (0x80). Integrated totals return the carry (0x20), counter adjusted (0x40) and invalid (0x80)
+     * flags instead. Types without quality descriptor return 0.
+     *
+     * @param i
+     *            the index of the element set
+     * @return the quality bits
+     */
+    public int quality(int i) {
+        int position = elementSetPosition(i);
+        return buffer[position + QUALITY_OFFSET[typeId]] & QUALITY_MASK[typeId];
+    }
+
+    /**
+     * Copies the information object addresses of all element sets to the given array.
+     *
+     * @param ioas
+     *            the array to copy the addresses to
+     * @param arrayOffset
+     *            the index in the array of the address of the first element set
+     * @return the number of element sets
+     * @see #ioa(int)
+     */
+    public int ioas(int[] ioas, int arrayOffset) {
+        int n = checkCapacity(ioas.length, arrayOffset);
+        if (n == 0) {
+            return 0;
+        }
+        int ioaFieldLength = settings.getIoaFieldLength();
+        int position = offset + headerLength;
+        if (sequenceOfElements) {
+            int first = readIoa(position, ioaFieldLength);
+            int mask = ioaMask(ioaFieldLength);
+            for (int i = 0; i < n; i++) {
+                ioas[arrayOffset + i] = (first + i) & mask;
+            }
+            return n;
+        }
+        int stride = stride();
+        for (int i = 0; i < n; i++, position += stride) {
+            ioas[arrayOffset + i] = readIoa(position, ioaFieldLength);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the values of all element sets to the given array as returned by {@link #floatValue(int)}. The array can
+     * be reused for the following ASDUs, so that reading a sequence of measured values allocates nothing.
+     *
+     * @param values
+     *            the array to copy the values to
+     * @param arrayOffset
+     *            the index in the array of the value of the first element set
+     * @return the number of element sets
+     */
+    public int floatValues(float[] values, int arrayOffset) {
+        int kind = VALUE_KIND[typeId];
+        if (kind == 0) {
+            throw unsupported("float value");
+        }
+        int n = checkCapacity(values.length, arrayOffset);
+        int stride = stride();
+        int position = firstElementSetPosition();
+        switch (kind) {
+        case SHORT_FLOAT:
+            for (int i = 0; i < n; i++, position += stride) {
+                values[arrayOffset + i] = Float.intBitsToFloat(readInt(position));
+            }
+            break;
+        case NORMALIZED:
+            for (int i = 0; i < n; i++, position += stride) {
+                values[arrayOffset + i] = readShort(position) / 32768f;
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++, position += stride) {
+                values[arrayOffset + i] = intValueAt(position);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Copies the unscaled values of normalized values or the scaled values of all element sets to the given array.
+     *
+     * @param values
+     *            the array to copy the values to
+     * @param arrayOffset
+     *            the index in the array of the value of the first element set
+     * @return the number of element sets
+     */
+    public int shortValues(short[] values, int arrayOffset) {
+        int kind = VALUE_KIND[typeId];
+        if (kind != NORMALIZED && kind != SCALED) {
+            throw unsupported("short value");
+        }
+        int n = checkCapacity(values.length, arrayOffset);
+        int stride = stride();
+        int position = firstElementSetPosition();
+        for (int i = 0; i < n; i++, position += stride) {
+            values[arrayOffset + i] = (short) readShort(position);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the values of all element sets to the given array as returned by {@link #intValue(int)}.
+     *
+     * @param values
+     *            the array to copy the values to
+     * @param arrayOffset
+     *            the index in the array of the value of the first element set
+     * @return the number of element sets
+     */
+    public int intValues(int[] values, int arrayOffset) {
+        if (VALUE_KIND[typeId] == 0) {
+            throw unsupported("int value");
+        }
+        int n = checkCapacity(values.length, arrayOffset);
+        int stride = stride();
+        int position = firstElementSetPosition();
+        for (int i = 0; i < n; i++, position += stride) {
+            values[arrayOffset + i] = intValueAt(position);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the states of single and double points and commands or the values of step positions of all element sets
+     * to the given array as returned by {@link #intValue(int)}.
+     *
+     * @param values
+     *            the array to copy the values to
+     * @param arrayOffset
+     *            the index in the array of the value of the first element set
+     * @return the number of element sets
+     */
+    public int byteValues(byte[] values, int arrayOffset) {
+        int kind = VALUE_KIND[typeId];
+        if (kind != SINGLE && kind != DOUBLE && kind != STEP) {
+            throw unsupported("byte value");
+        }
+        int n = checkCapacity(values.length, arrayOffset);
+        int stride = stride();
+        int position = firstElementSetPosition();
+        for (int i = 0; i < n; i++, position += stride) {
+            values[arrayOffset + i] = (byte) intValueAt(position);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the quality bits of all element sets to the given array as returned by {@link #quality(int)}.
+     *
+     * @param qualities
+     *            the array to copy the quality bits to
+     * @param arrayOffset
+     *            the index in the array of the quality bits of the first element set
+     * @return the number of element sets
+     */
+    public int qualities(byte[] qualities, int arrayOffset) {
+        int n = checkCapacity(qualities.length, arrayOffset);
+        int stride = stride();
+        int position = firstElementSetPosition() + QUALITY_OFFSET[typeId];
+        int mask = QUALITY_MASK[typeId];
+        for (int i = 0; i < n; i++, position += stride) {
+            qualities[arrayOffset + i] = (byte) (buffer[position] & mask);
+        }
+        return n;
+    }
+
+    /**
+     * Returns true if the element sets of the ASDU end with a CP56Time2a time tag.
+     *
+     * @return true if {@link #timestampMillis(int)} is supported
+     */
+    public boolean hasTime56() {
+        return TIME56[typeId];
+    }
+
+    /**
+     * Returns the CP56Time2a time tag of an element set in ms, assuming that it lies between 1970 and 2069 of the
+     * default time zone.
+     *
+     * @param i
+     *            the index of the element set
+     * @return the timestamp in ms
+     */
+    public long timestampMillis(int i) {
+        // resolved on first use: TimeZone.getDefault() returns a clone of the default zone
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        return IeTime56.timestamp(buffer, time56Position(i), 1970, timeZone);
+    }
+
+    /**
+     * Passes the values of all element sets to the visitor.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void accept(ASduVisitor visitor) {
+        if (!MONITOR[typeId]) {
+            visitor.onOther(this);
+            return;
+        }
+
+        int commonAddress = getCommonAddress();
+        for (int i = 0; i < sequenceLength; i++) {
+            int ioa = ioa(i);
+            int position = elementSetPosition(i);
+            int quality = buffer[position + QUALITY_OFFSET[typeId]] & QUALITY_MASK[typeId];
+            long timestamp = TIME56[typeId] ? timestampMillis(i) : ASduVisitor.NO_TIMESTAMP;
+
+            switch (VALUE_KIND[typeId]) {
+            case SINGLE:
+                visitor.onSinglePoint(commonAddress, ioa, (buffer[position] & 0x01) == 0x01, quality, timestamp);
+                break;
+            case DOUBLE:
+                visitor.onDoublePoint(commonAddress, ioa, buffer[position] & 0x03, quality, timestamp);
+                break;
+            case STEP:
+                visitor.onStepPosition(commonAddress, ioa, intValue(i), (buffer[position] & 0x80) == 0x80, quality,
+                        timestamp);
+                break;
+            case BITSTRING:
+                visitor.onBitstring(commonAddress, ioa, readInt(position), quality, timestamp);
+                break;
+            case NORMALIZED:
+                visitor.onNormalized(commonAddress, ioa, floatValue(i), quality, timestamp);
+                break;
+            case SCALED:
+                visitor.onScaled(commonAddress, ioa, intValue(i), quality, timestamp);
+                break;
+            case SHORT_FLOAT:
+                visitor.onMeasuredFloat(commonAddress, ioa, Float.intBitsToFloat(readInt(position)), quality,
+                        timestamp);
+                break;
+            case COUNTER:
+                visitor.onCounter(commonAddress, ioa, readInt(position), buffer[position + 4] & 0x1f, quality,
+                        timestamp);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the buffer holding the ASDU. The ASDU starts at {@link #getOffset()}.
+     *
+     * @return the buffer
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the kind of value of the ASDU type, 0 if there is none.
+     */
+    int valueKind() {
+        return VALUE_KIND[typeId];
+    }
+
+    /**
+     * Returns the position of the octet that holds the quality bits of an element set.
+     */
+    int qualityPosition(int i) {
+        if (QUALITY_MASK[typeId] == 0) {
+            throw unsupported("quality");
+        }
+        return elementSetPosition(i) + QUALITY_OFFSET[typeId];
+    }
+
+    int qualityMask() {
+        return QUALITY_MASK[typeId];
+    }
+
+    /**
+     * Returns the position of the CP56Time2a time tag of an element set.
+     */
+    int time56Position(int i) {
+        if (!TIME56[typeId]) {
+            throw unsupported("CP56Time2a time tag");
+        }
+        return elementSetPosition(i) + setSize - TIME56_LENGTH;
+    }
+
+    int elementSetPosition(int i) {
+        checkIndex(i);
+        if (setSize == 0) {
+            throw unsupported("element access");
+        }
+        int ioaFieldLength = settings.getIoaFieldLength();
+        if (sequenceOfElements) {
+            return offset + headerLength + ioaFieldLength + i * setSize;
+        }
+        return offset + headerLength + i * (ioaFieldLength + setSize) + ioaFieldLength;
+    }
+
+    /**
+     * Returns the distance between two element sets.
+     */
+    private int stride() {
+        if (setSize == 0) {
+            throw unsupported("element access");
+        }
+        return sequenceOfElements ? setSize : settings.getIoaFieldLength() + setSize;
+    }
+
+    private int firstElementSetPosition() {
+        return offset + headerLength + settings.getIoaFieldLength();
+    }
+
+    private int checkCapacity(int arrayLength, int arrayOffset) {
+        if (arrayOffset < 0 || arrayLength - arrayOffset < sequenceLength) {
+            throw new IndexOutOfBoundsException(
+                    "array of length " + arrayLength + " cannot hold " + sequenceLength + " values at " + arrayOffset);
+        }
+        return sequenceLength;
+    }
+
+    private int readShort(int position) {
+        return (short) ((buffer[position] & 0xff) | (buffer[position + 1] << 8));
+    }
+
+    private int readInt(int position) {
+        return (buffer[position] & 0xff) | ((buffer[position + 1] & 0xff) << 8) | ((buffer[position + 2] & 0xff) << 16)
+                | (buffer[position + 3] << 24);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= sequenceLength) {
+            throw new IndexOutOfBoundsException("element set " + i + " of " + sequenceLength);
+        }
+    }
+
+    UnsupportedOperationException unsupported(String what) {
+        return new UnsupportedOperationException("ASDU type " + typeId + " does not support " + what + ".");
+    }
+
+}
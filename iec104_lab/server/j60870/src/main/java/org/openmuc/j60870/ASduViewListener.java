@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+/**
+ * A connection event listener that receives ASDUs as {@link ASduView}s. If the listener of a connection implements
+ * this interface, received ASDUs are not decoded into {@link ASdu} objects and
+ * {@link #newASdu(Connection, ASdu)} is not called. ASDUs of unknown or not allowed types are handled the same way as
+ * with decoding.
+ */
+public interface ASduViewListener extends ConnectionEventListener {
+
+    /**
+     * Invoked when a new ASDU arrives. The view owns a copy of the received bytes and remains valid after this method
+     * returned.
+     *
+     * @param connection
+     *            the connection the ASDU arrived on
+     * @param aSduView
+     *            the view of the ASDU
+     */
+    void newASduView(Connection connection, ASduView aSduView);
+
+}
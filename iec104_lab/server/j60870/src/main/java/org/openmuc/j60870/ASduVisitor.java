@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+/**
+ * Receives the values of an ASDU as primitives. The visitor is applied to an ASDU with
+ * {@link ASduView#accept(ASduVisitor)}, which reads the values directly from the encoded bytes. For every element set
+ * of a type carrying process information in monitor direction the matching callback is invoked, all other ASDUs are
+ * passed to {@link #onOther(ASduView)}. To visit all ASDUs received by a connection, register an
+ * {@link ASduViewListener} that calls {@link ASduView#accept(ASduVisitor)}.
+ *
+ * <p>
+ * Quality bits are those of {@link ASduView#quality(int)}. Timestamps are given in ms for element sets with a
+ * CP56Time2a time tag, else {@link #NO_TIMESTAMP} is passed.
+ * </p>
+ */
+public interface ASduVisitor {
+
+    /**
+     * Passed as timestamp if the element set has no CP56Time2a time tag.
+     */
+    long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * Single-point information (TypeIDs 1, 2 and 30).
+     */
+    void onSinglePoint(int commonAddress, int ioa, boolean value, int quality, long timestamp);
+
+    /**
+     * Double-point information (TypeIDs 3, 4 and 31). The state is 0 (indeterminate or intermediate), 1 (off), 2 (on)
+     * or 3 (indeterminate).
+     */
+    void onDoublePoint(int commonAddress, int ioa, int state, int quality, long timestamp);
+
+    /**
+     * Step position information (TypeIDs 5, 6 and 32).
+     */
+    void onStepPosition(int commonAddress, int ioa, int value, boolean transientState, int quality, long timestamp);
+
+    /**
+     * Bitstring of 32 bit and packed single-point information with status change detection (TypeIDs 7, 8, 20 and
+     * 33).
+     */
+    void onBitstring(int commonAddress, int ioa, int value, int quality, long timestamp);
+
+    /**
+     * Normalized measured value in the range [-1, 1) (TypeIDs 9, 10, 21 and 34).
+     */
+    void onNormalized(int commonAddress, int ioa, float value, int quality, long timestamp);
+
+    /**
+     * Scaled measured value (TypeIDs 11, 12 and 35).
+     */
+    void onScaled(int commonAddress, int ioa, int value, int quality, long timestamp);
+
+    /**
+     * Short floating point measured value (TypeIDs 13, 14 and 36).
+     */
+    void onMeasuredFloat(int commonAddress, int ioa, float value, int quality, long timestamp);
+
+    /**
+     * Integrated totals (TypeIDs 15, 16 and 37). The flags are carry (0x20), counter adjusted (0x40) and invalid
+     * (0x80).
+     */
+    void onCounter(int commonAddress, int ioa, int value, int sequenceNumber, int flags, long timestamp);
+
+    /**
+     * Invoked once for an ASDU of any other type.
+     */
+    void onOther(ASduView aSdu);
+
+}
@@ -23,6 +23,8 @@ package org.openmuc.j60870;
 import java.io.IOException;
 import java.util.List;
 
+import javax.net.ssl.SSLContext;
+
 abstract class CommonBuilder<T extends CommonBuilder<T, C>, C> {
 
     final ConnectionSettings settings = new ConnectionSettings();
@@ -216,11 +218,231 @@ abstract class CommonBuilder<T extends CommonBuilder<T, C>, C> {
         return self();
     }
 
+    /**
+     * Drives the connections from a few shared selector event loops instead of starting a reader thread and a timer
+     * thread per connection. This reduces the number of threads considerably if many connections are open. The
+     * protocol behavior is the same for both engines. Note that the socket factory is not used by this engine. TLS
+     * connections always use the blocking engine.
+     *
+     * @return this builder
+     */
+    public T useNioEngine() {
+        settings.setUseNioEngine(true);
+        return self();
+    }
+
+    /**
+     * Stages the outgoing APDUs of connections driven by the NIO engine in a direct byte buffer. This saves the copy
+     * into a temporary direct buffer that the JDK makes when a heap buffer is written to a channel. Has no effect on
+     * the blocking engine.
+     *
+     * @return this builder
+     * @see #useNioEngine()
+     */
+    public T useDirectBuffers() {
+        settings.setUseDirectBuffers(true);
+        return self();
+    }
+
+    /**
+     * Decodes received ASDUs on the thread that notifies the listener instead of the thread that reads the connection.
+     * The reader then only checks the type identification of an I format APDU, updates the sequence numbers and
+     * copies the ASDU, so that the time it takes to process an APDU does not depend on the number and type of the
+     * information objects. ASDUs are still passed to the listener in the order they were received. Note that an I
+     * format APDU may be acknowledged before its ASDU has been decoded. If the decoding fails, the connection is closed
+     * with the decoding error and no further ASDUs are passed to the listener.
+     *
+     * @return this builder
+     */
+    public T useLazyDecoding() {
+        settings.setUseLazyDecoding(true);
+        return self();
+    }
+
+    /**
+     * Runs the connection readers, the server connection handlers and the listener callbacks on virtual threads
+     * instead of platform threads from a thread pool. Mostly idle connections then no longer occupy an OS thread each.
+     * Takes precedence over {@link #useSharedThreadPool()}. Has no effect on connections driven by the NIO engine.
+     *
+     * @return this builder
+     * @throws UnsupportedOperationException
+     *             if the running JVM does not support virtual threads (Java 21 or later is required)
+     */
+    public T useVirtualThreads() {
+        if (!ConnectionSettings.virtualThreadsAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+        settings.setUseVirtualThreads(true);
+        return self();
+    }
+
+    /**
+     * Sets when written APDUs are flushed to the socket. With a policy other than {@link FlushPolicy#IMMEDIATE} the
+     * send methods return after the APDU has been staged, and APDUs that are still staged when the connection is
+     * closed are discarded.<br>
+     * Default is {@link FlushPolicy#IMMEDIATE}.
+     *
+     * @param flushPolicy
+     *            the flush policy
+     * @return this builder
+     */
+    public T setFlushPolicy(FlushPolicy flushPolicy) {
+        if (flushPolicy == null) {
+            throw new IllegalArgumentException("flushPolicy may not be null");
+        }
+        settings.setFlushPolicy(flushPolicy);
+        return self();
+    }
+
+    /**
+     * Sets the time in microseconds that staged APDUs are held back before they are flushed if the flush policy is
+     * {@link FlushPolicy#MAX_DELAY}.<br>
+     * Default is 1000 us, minimum is 1 us, maximum is 1000000 us.
+     *
+     * @param delayMicros
+     *            the maximum flush delay in microseconds
+     * @return this builder
+     */
+    public T setMaxFlushDelay(int delayMicros) {
+        if (delayMicros < 1 || delayMicros > 1_000_000) {
+            throw new IllegalArgumentException(
+                    "invalid delay: " + delayMicros + ", delay must be between 1 and 1000000 microseconds");
+        }
+        settings.setMaxFlushDelay(delayMicros);
+        return self();
+    }
+
+    /**
+     * Secures the connections with TLS as required by IEC 62351-3. The given SSL context provides the own certificate
+     * and the trusted certificates of the remote stations. Sessions are cached by the SSL context, so that connections
+     * that are built up again to the same station resume the session with an abbreviated handshake. TLS connections
+     * are always driven by the blocking engine, {@link #useNioEngine()} is ignored for them.
+     *
+     * @param sslContext
+     *            the initialized SSL context
+     * @return this builder
+     */
+    public T useTls(SSLContext sslContext) {
+        if (sslContext == null) {
+            throw new IllegalArgumentException("sslContext must not be null");
+        }
+        settings.setSslContext(sslContext);
+        return self();
+    }
+
+    /**
+     * Sets the TLS protocol versions that may be negotiated, e.g. "TLSv1.2" and "TLSv1.3". By default the protocols
+     * enabled by the SSL context are used.
+     *
+     * @param protocols
+     *            the enabled protocol versions
+     * @return this builder
+     */
+    public T setTlsProtocols(String... protocols) {
+        settings.setTlsProtocols(protocols.clone());
+        return self();
+    }
+
+    /**
+     * Sets the TLS cipher suites that may be negotiated. By default the cipher suites enabled by the SSL context are
+     * used.
+     *
+     * @param cipherSuites
+     *            the enabled cipher suites
+     * @return this builder
+     */
+    public T setTlsCipherSuites(String... cipherSuites) {
+        settings.setTlsCipherSuites(cipherSuites.clone());
+        return self();
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions that are cached for resumption. The setting is applied to the session
+     * context of the SSL context and therefore affects all connections sharing it.<br>
+     * Default is the setting of the SSL context. Zero means no limit.
+     *
+     * @param size
+     *            the session cache size
+     * @return this builder
+     */
+    public T setTlsSessionCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("invalid session cache size: " + size);
+        }
+        settings.setTlsSessionCacheSize(size);
+        return self();
+    }
+
+    /**
+     * Sets the time in seconds that a cached TLS session may be resumed. The setting is applied to the session context
+     * of the SSL context and therefore affects all connections sharing it.<br>
+     * Default is the setting of the SSL context. Zero means no limit.
+     *
+     * @param seconds
+     *            the session timeout in seconds
+     * @return this builder
+     */
+    public T setTlsSessionTimeout(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("invalid session timeout: " + seconds);
+        }
+        settings.setTlsSessionTimeout(seconds);
+        return self();
+    }
+
+    /**
+     * Sets the period in ms after which a new TLS handshake is started on an established connection. With TLS 1.2 the
+     * session is renegotiated, with TLS 1.3 the traffic keys are updated. The handshake is started by the connection
+     * reader, on an idle connection it is therefore delayed until the message fragment timeout expires.<br>
+     * Default is 0, which disables the periodic renegotiation.
+     *
+     * @param period
+     *            the renegotiation period in ms
+     * @return this builder
+     */
+    public T setTlsRenegotiationPeriod(int period) {
+        if (period < 0) {
+            throw new IllegalArgumentException("invalid renegotiation period: " + period);
+        }
+        settings.setTlsRenegotiationPeriod(period);
+        return self();
+    }
+
     public T setAllowedASduTypes(List<ASduType> allowedTypes) {
         settings.setAllowedTypes(allowedTypes);
         return self();
     }
 
+    /**
+     * Sets the chain of rules that received ASDUs pass before they are decoded. The rules can drop, count or route
+     * ASDUs to other listeners based on the type identification, cause of transmission, common address and
+     * information object addresses. No rules can be added to the chain afterwards.
+     *
+     * @param aSduFilterChain
+     *            the chain or <code>null</code> to pass all ASDUs to the listener of the connection
+     * @return this builder
+     */
+    public T setASduFilterChain(ASduFilterChain aSduFilterChain) {
+        if (aSduFilterChain != null) {
+            aSduFilterChain.freeze();
+        }
+        settings.setASduFilterChain(aSduFilterChain);
+        return self();
+    }
+
+    /**
+     * Records all APDUs received and sent by the connections to the given recorder. The recorder is not closed by the
+     * connections.
+     *
+     * @param aPduRecorder
+     *            the recorder or <code>null</code> to record nothing
+     * @return this builder
+     */
+    public T setAPduRecorder(APduRecorder aPduRecorder) {
+        settings.setAPduRecorder(aPduRecorder);
+        return self();
+    }
+
     public abstract C build() throws IOException;
 
 }
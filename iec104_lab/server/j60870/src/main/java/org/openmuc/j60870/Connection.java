@@ -20,22 +20,38 @@
  */
 package org.openmuc.j60870;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
 
 import org.openmuc.j60870.APdu.ApciType;
 import org.openmuc.j60870.ie.IeAckFileOrSectionQualifier;
@@ -68,6 +84,7 @@ import org.openmuc.j60870.ie.IeTime56;
 import org.openmuc.j60870.ie.InformationElement;
 import org.openmuc.j60870.ie.InformationObject;
 import org.openmuc.j60870.internal.ExtendedDataInputStream;
+import org.openmuc.j60870.internal.ReusableByteArrayInputStream;
 import org.openmuc.j60870.internal.SerialExecutor;
 
 /**
@@ -96,15 +113,24 @@ public class Connection implements AutoCloseable {
 
     private final Socket socket;
     int STREAM_BUFFER_SIZE = 16 * 1024;
-    private final ExtendedDataInputStream is;
+    private final InputStream is;
     private final ServerThread serverThread;
     private final DataOutputStream os;
 
+    private static final AtomicInteger ID_COUNTER = new AtomicInteger();
+
+    /**
+     * The ID that identifies the connection in the records of the APDU recorder.
+     */
+    private final int id = ID_COUNTER.incrementAndGet();
+    private final APduRecorder recorder;
+
     private volatile boolean closed;
     private volatile boolean stopped = true;
     private boolean pendingStopDtCon = false;
 
     private boolean connectionReaderStarted = false;
+    private volatile Thread readerThread;
 
     private final ConnectionSettings settings;
     private ConnectionEventListener aSduListener;
@@ -117,8 +143,21 @@ public class Connection implements AutoCloseable {
 
     private int originatorAddress;
 
+    private static final int MAX_POOLED_FRAME_BUFFERS = 32;
+
+    /**
+     * Frame buffer for blocking sends. The ASDU is encoded at {@link APdu#HEADER_LENGTH} and the header is written in
+     * front of it right before the frame is sent.
+     */
     private final byte[] buffer = new byte[255];
-    private final byte[] asduBuffer = new byte[255];
+    private final byte[] sFormatBuffer = new byte[APdu.HEADER_LENGTH];
+    /**
+     * Frame buffers of ASDUs queued by sendAsync.
+     */
+    private final Queue<byte[]> frameBufferPool = new ArrayDeque<>();
+
+    private final ReusableByteArrayInputStream asduInputStream = new ReusableByteArrayInputStream();
+    private final ExtendedDataInputStream asduDataInputStream = new ExtendedDataInputStream(asduInputStream);
 
     private final TimeoutManager timeoutManager;
 
@@ -126,8 +165,16 @@ public class Connection implements AutoCloseable {
     private final TimeoutTask maxTimeNoAckReceived;
     private final TimeoutTask maxIdleTimeTimer;
     private final TimeoutTask maxTimeNoAckSentTimer;
+    private final TimeoutTask tlsRenegotiationTimer;
+    private volatile boolean tlsRenegotiationDue;
+    // only written by the reader
+    private volatile int tlsRenegotiations;
 
     private IOException closedIOException;
+    /**
+     * The error of a lazily decoded ASDU that closed the connection.
+     */
+    private volatile IOException decodingError;
 
     private CountDownLatch startDtActSignal;
     private CountDownLatch startDtConSignal;
@@ -135,6 +182,38 @@ public class Connection implements AutoCloseable {
 
     private final ExecutorService executor;
     private final SerialExecutor serialExecutor;
+    /**
+     * The executors notifying the listeners of the rules of the ASDU filter chain, indexed by rule.
+     */
+    private final Executor[] routeExecutors;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final FlushTask flushTask = new FlushTask();
+
+    private final NioEngine.ConnectionChannel nioChannel;
+    private boolean readerTerminated = false;
+
+    /**
+     * ASDUs passed to sendAsync that wait for the k-window to open.
+     */
+    private final Queue<PendingSend> pendingSends = new ArrayDeque<>();
+    /**
+     * Futures of sent I-frames in the order of their send sequence numbers.
+     */
+    private final Queue<PendingSend> unacknowledgedSends = new ArrayDeque<>();
+
+    private static class PendingSend {
+        private byte[] frame;
+        private final int asduLength;
+        private final CompletableFuture<Void> future;
+        private int sendSequenceNumber;
+
+        PendingSend(byte[] frame, int asduLength, CompletableFuture<Void> future) {
+            this.frame = frame;
+            this.asduLength = asduLength;
+            this.future = future;
+        }
+    }
 
     /**
      * Time-out of send or test APDUs (t1: default 15 s)
@@ -152,12 +231,12 @@ public class Connection implements AutoCloseable {
                 if (Thread.interrupted()) {
                     return;
                 }
-                close();
+                IOException cause = new IOException(
+                        "The maximum time that no confirmation was received (t1) has been exceeded. t1 = "
+                                + settings.getMaxTimeNoAckReceived() + "ms");
+                close(cause);
                 if (aSduListener != null) {
-                    aSduListener.connectionClosed(Connection.this,
-                            new IOException(
-                                    "The maximum time that no confirmation was received (t1) has been exceeded. t1 = "
-                                            + settings.getMaxTimeNoAckReceived() + "ms"));
+                    aSduListener.connectionClosed(Connection.this, cause);
                 }
             }
         }
@@ -204,7 +283,7 @@ public class Connection implements AutoCloseable {
                 }
                 try {
                     os.write(TESTFR_ACT_BUFFER, 0, TESTFR_ACT_BUFFER.length);
-                    os.flush();
+                    flushOutput();
                 } catch (IOException ignore) {
                 }
                 timeoutManager.addTimerTask(maxTimeNoTestConReceived);
@@ -213,100 +292,228 @@ public class Connection implements AutoCloseable {
 
     }
 
-    private class ConnectionReader extends Thread {
+    private class TlsRenegotiationTimer extends TimeoutTask {
+
+        public TlsRenegotiationTimer() {
+            super(Connection.this.settings.getTlsRenegotiationPeriod());
+        }
+
+        @Override
+        public void execute() {
+            if (closed) {
+                return;
+            }
+            // the handshake is started by the reader, the JSSE does not reliably support a renegotiation started by
+            // another thread while the reader is blocked
+            tlsRenegotiationDue = true;
+            timeoutManager.addTimerTask(this);
+        }
+
+    }
+
+    private class ConnectionReader implements Runnable {
 
         @Override
         public void run() {
             Thread.currentThread().setName("ConnectionReader");
+            readerThread = Thread.currentThread();
 
+            IOException cause = null;
             try {
+                // the fragment timeout only applies while an APDU is incomplete, an idle connection keeps waiting
+                socket.setSoTimeout(settings.getMessageFragmentTimeout());
+                APduDecoder decoder = new APduDecoder(STREAM_BUFFER_SIZE);
                 while (true) {
-                    APdu aPdu = APdu.decode(socket, settings, is);
-
-                    synchronized (Connection.this) {
-
-                        switch (aPdu.getApciType()) {
-                        case I_FORMAT:
-                            closeIfStopped(aPdu.getApciType());
-
-                            ExtendedDataInputStream is = new ExtendedDataInputStream(
-                                    new ByteArrayInputStream(aPdu.getASduBuffer()));
-                            ASdu asdu;
-                            try {
-                                asdu = ASdu.decode(is, settings, aPdu.getASduBuffer().length);
-                            } catch (UnknownAsduTypeException e) {
-                                mirrorUnknownAsduType(aPdu);
-                                continue;
-                            }
-                            handleIFrame(aPdu, asdu);
-                            break;
-                        case S_FORMAT:
-                            closeIfStopped(aPdu.getApciType());
-                            handleReceiveSequenceNumber(aPdu.getReceiveSeqNumber());
-                            if (pendingStopDtCon && !maxTimeNoAckReceived.isPlanned()) {
-                                pendingStopDtCon = false;
-                                sendStopDtCon();
-                            }
-                            break;
-                        case STARTDT_CON:
-                            if (startDtConSignal != null) {
-                                startDtConSignal.countDown();
-                            }
-                            break;
-                        case STARTDT_ACT:
-                            handleStartDtAct();
-                            if (startDtActSignal != null) {
-                                startDtActSignal.countDown();
-                            }
-                            break;
-                        case TESTFR_ACT:
-                            sendTestFrameCon();
-                            break;
-                        case TESTFR_CON:
-                            maxTimeNoTestConReceived.cancel();
-                            break;
-                        case STOPDT_CON:
-                            if (stopDtConSignal != null) {
-                                stopDtConSignal.countDown();
-                            }
-                            break;
-                        case STOPDT_ACT:
-                            handleStopDtAct();
-                            break;
-                        default:
-                            // should not occur.
-                            throw new IOException("Got unexpected message with APCI Type: " + aPdu.getApciType());
+                    if (tlsRenegotiationDue) {
+                        tlsRenegotiationDue = false;
+                        // returns after sending the first handshake message, the rest is processed by the next reads
+                        ((SSLSocket) socket).startHandshake();
+                        tlsRenegotiations++;
+                    }
+
+                    int numBytes;
+                    try {
+                        numBytes = decoder.readFrom(is);
+                    } catch (SocketTimeoutException e) {
+                        if (decoder.hasPartialAPdu() || closed) {
+                            throw e;
+                        }
+                        continue;
+                    }
+                    if (numBytes == -1) {
+                        if (closed) {
+                            // the peer answered the close_notify of a closed TLS connection
+                            throw new SocketException("Socket closed");
                         }
-                        resetMaxIdleTimeTimer();
+                        throw new EOFException();
+                    }
+
+                    APdu aPdu;
+                    while ((aPdu = decoder.nextAPdu()) != null) {
+                        handleAPdu(aPdu);
                     }
                 }
-            } catch (EOFException e) {
-                closedIOException = new EOFException("Connection was closed by remote.");
-            } catch (IOException e) {
-                closedIOException = e;
             } catch (Exception e) {
-                closedIOException = new IOException("Unexpected Exception.", e);
+                cause = closedIOExceptionFor(e);
             } finally {
-                synchronized (Connection.this) {
-                    if (!closed) {
-                        close();
+                readerTerminated(cause);
+            }
+        }
+
+    }
+
+    /**
+     * Runs the I-, S- and U-format state machine for a single received APDU. Called by the {@link ConnectionReader}
+     * thread of the blocking engine and by the event loop of the {@link NioEngine}.
+     */
+    void handleAPdu(APdu aPdu) throws IOException {
+        synchronized (this) {
+            if (recorder != null) {
+                recorder.recordReceived(id, aPdu.getFrameBuffer(), aPdu.getFrameOffset(), aPdu.getFrameLength());
+            }
+
+            switch (aPdu.getApciType()) {
+            case I_FORMAT:
+                closeIfStopped(aPdu.getApciType());
+
+                if (routeExecutors != null && filterIFrame(aPdu)) {
+                    break;
+                }
+
+                if (aSduListener instanceof ASduViewListener) {
+                    final ASduView aSduView = ASduView.copyOf(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                            aPdu.getASduLength(), settings);
+                    if (!aSduView.hasAllowedType()) {
+                        mirrorUnknownAsduType(aPdu);
+                        return;
                     }
-                    if (aSduListener != null) {
-                        aSduListener.connectionClosed(Connection.this, closedIOException);
+                    handleIFrame(aPdu, new Runnable() {
+                        @Override
+                        public void run() {
+                            Thread.currentThread().setName("aSduListener");
+                            ((ASduViewListener) aSduListener).newASduView(Connection.this, aSduView);
+                        }
+                    });
+                    break;
+                }
+
+                if (settings.useLazyDecoding()) {
+                    handleIFrameLazily(aPdu);
+                    break;
+                }
+
+                asduInputStream.setBuffer(aPdu.getASduBuffer(), aPdu.getASduOffset(), aPdu.getASduLength());
+                final ASdu asdu;
+                try {
+                    asdu = ASdu.decode(asduDataInputStream, settings, aPdu.getASduLength());
+                } catch (UnknownAsduTypeException e) {
+                    mirrorUnknownAsduType(aPdu);
+                    return;
+                }
+                handleIFrame(aPdu, new Runnable() {
+                    @Override
+                    public void run() {
+                        Thread.currentThread().setName("aSduListener");
+                        aSduListener.newASdu(Connection.this, asdu);
                     }
-                    if (stopped && aSduListenerBack != null) {
-                        aSduListenerBack.connectionClosed(Connection.this, closedIOException);
+                });
+                break;
+            case S_FORMAT:
+                closeIfStopped(aPdu.getApciType());
+                handleReceiveSequenceNumber(aPdu.getReceiveSeqNumber());
+                if (pendingStopDtCon && !maxTimeNoAckReceived.isPlanned()) {
+                    pendingStopDtCon = false;
+                    sendStopDtCon();
+                }
+                break;
+            case STARTDT_CON:
+                if (startDtConSignal != null) {
+                    // the I-frames that follow the confirmation have to reach the listener
+                    if (aSduListener == null) {
+                        aSduListener = aSduListenerBack;
                     }
-                    closeThreadPool();
+                    setStopped(false);
+                    startDtConSignal.countDown();
+                }
+                break;
+            case STARTDT_ACT:
+                handleStartDtAct();
+                if (startDtActSignal != null) {
+                    startDtActSignal.countDown();
                 }
+                break;
+            case TESTFR_ACT:
+                sendTestFrameCon();
+                break;
+            case TESTFR_CON:
+                maxTimeNoTestConReceived.cancel();
+                break;
+            case STOPDT_CON:
+                if (stopDtConSignal != null) {
+                    stopDtConSignal.countDown();
+                }
+                break;
+            case STOPDT_ACT:
+                handleStopDtAct();
+                break;
+            default:
+                // should not occur.
+                throw new IOException("Got unexpected message with APCI Type: " + aPdu.getApciType());
             }
+            resetMaxIdleTimeTimer();
         }
+    }
 
+    static IOException closedIOExceptionFor(Exception e) {
+        if (e instanceof EOFException) {
+            return new EOFException("Connection was closed by remote.");
+        }
+        else if (e instanceof IOException) {
+            return (IOException) e;
+        }
+        else {
+            return new IOException("Unexpected Exception.", e);
+        }
+    }
+
+    /**
+     * Closes the connection after reading stopped and informs the listeners. Only the first call has an effect.
+     */
+    void readerTerminated(IOException cause) {
+        synchronized (this) {
+            if (readerTerminated) {
+                return;
+            }
+            readerTerminated = true;
+            closedIOException = decodingError != null ? decodingError : cause;
+
+            if (!closed) {
+                close();
+            }
+            else {
+                closeSocket();
+            }
+            if (aSduListener != null) {
+                aSduListener.connectionClosed(Connection.this, closedIOException);
+            }
+            if (stopped && aSduListenerBack != null) {
+                aSduListenerBack.connectionClosed(Connection.this, closedIOException);
+            }
+            closeThreadPool();
+        }
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore this here
+        }
     }
 
     private void sendTestFrameCon() throws IOException {
         os.write(TESTFR_CON_BUFFER);
-        os.flush();
+        flushOutput();
     }
 
     private void closeIfStopped(ApciType apciType) throws IOException {
@@ -316,7 +523,13 @@ public class Connection implements AutoCloseable {
     }
 
     private void closeThreadPool() {
-        if (settings.useSharedThreadPool()) {
+        if (nioChannel != null) {
+            maxTimeNoTestConReceived.cancel();
+            maxTimeNoAckReceived.cancel();
+            maxIdleTimeTimer.cancel();
+            maxTimeNoAckSentTimer.cancel();
+        }
+        else if (settings.useSharedThreadPool() && !settings.useVirtualThreads()) {
             ConnectionSettings.decrementConnectionsCounter();
         }
         else {
@@ -350,7 +563,7 @@ public class Connection implements AutoCloseable {
 
     private void sendStopDtCon() throws IOException {
         os.write(STOPDT_CON_BUFFER);
-        os.flush();
+        flushOutput();
     }
 
     private void handleStartDtAct() throws IOException {
@@ -363,25 +576,31 @@ public class Connection implements AutoCloseable {
             }
             setStopped(false);
         }
-        os.flush();
+        flushOutput();
 
         resetMaxIdleTimeTimer();
     }
 
-    private void handleIFrame(final APdu aPdu, ASdu aSdu) throws IOException {
+    /**
+     * Updates the sequence numbers for a received I format APDU and passes the notification of the listener to the
+     * serial executor.
+     */
+    private void handleIFrame(APdu aPdu, Runnable listenerNotification) throws IOException {
+        handleIFrame(aPdu, aSduListener != null ? listenerNotification : null, serialExecutor);
+    }
+
+    /**
+     * Updates the sequence numbers for a received I format APDU and passes the notification, if any, to the given
+     * executor.
+     */
+    private void handleIFrame(APdu aPdu, Runnable notification, Executor notificationExecutor) throws IOException {
 
         updateReceiveSeqNum(aPdu.getSendSeqNumber());
 
         handleReceiveSequenceNumber(aPdu.getReceiveSeqNumber());
 
-        if (aSduListener != null) {
-            serialExecutor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    Thread.currentThread().setName("aSduListener");
-                    aSduListener.newASdu(Connection.this, aSdu);
-                }
-            });
+        if (notification != null) {
+            notificationExecutor.execute(notification);
         }
 
         int numUnconfirmedIPdusReceived = sequenceNumberDiff(receiveSequenceNumber, acknowledgedReceiveSequenceNumber);
@@ -399,12 +618,115 @@ public class Connection implements AutoCloseable {
 
     }
 
+    /**
+     * Passes a copy of the ASDU to the serial executor, which decodes it before notifying the listener. Only the type
+     * identification is checked by the reader.
+     */
+    private void handleIFrameLazily(APdu aPdu) throws IOException {
+        final int aSduLength = aPdu.getASduLength();
+        if (aSduLength == 0) {
+            throw new IOException("I format APDU without ASDU.");
+        }
+        int typeId = aPdu.getASduBuffer()[aPdu.getASduOffset()] & 0xff;
+        if (ASduType.typeFor(typeId) == null || !settings.isAllowedType(typeId)) {
+            mirrorUnknownAsduType(aPdu);
+            return;
+        }
+
+        final byte[] aSduBuffer = Arrays.copyOfRange(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                aPdu.getASduOffset() + aSduLength);
+        handleIFrame(aPdu, new Runnable() {
+            @Override
+            public void run() {
+                Thread.currentThread().setName("aSduListener");
+                decodeAndNotify(aSduBuffer, aSduListener);
+            }
+        });
+    }
+
+    /**
+     * Decodes an ASDU and passes it to the listener. If the decoding fails, the connection is closed.
+     */
+    private void decodeAndNotify(byte[] aSduBuffer, ConnectionEventListener listener) {
+        if (decodingError != null) {
+            return;
+        }
+        ASdu asdu;
+        try {
+            asdu = ASdu.decode(new ExtendedDataInputStream(new ByteArrayInputStream(aSduBuffer)), settings,
+                    aSduBuffer.length);
+        } catch (IOException | RuntimeException e) {
+            decodingError = closedIOExceptionFor(e);
+            close(decodingError);
+            return;
+        }
+        listener.newASdu(Connection.this, asdu);
+    }
+
+    /**
+     * Passes a received ASDU through the filter chain.
+     *
+     * @return true if the ASDU has been dropped or routed, false if it is to be passed to the listener of the
+     *         connection
+     */
+    private boolean filterIFrame(APdu aPdu) throws IOException {
+        ASduFilterChain filterChain = settings.getASduFilterChain();
+        int rule = filterChain.evaluate(aPdu.getASduBuffer(), aPdu.getASduOffset(), aPdu.getASduLength(), settings);
+        if (rule < 0) {
+            return false;
+        }
+
+        switch (filterChain.getAction(rule)) {
+        case DROP:
+            handleIFrame(aPdu, null, serialExecutor);
+            return true;
+        case ROUTE:
+            routeIFrame(aPdu, filterChain.getListener(rule), routeExecutors[rule]);
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void routeIFrame(APdu aPdu, final ConnectionEventListener listener, Executor routeExecutor)
+            throws IOException {
+        int typeId = aPdu.getASduBuffer()[aPdu.getASduOffset()] & 0xff;
+        if (ASduType.typeFor(typeId) == null || !settings.isAllowedType(typeId)) {
+            mirrorUnknownAsduType(aPdu);
+            return;
+        }
+
+        if (listener instanceof ASduViewListener) {
+            final ASduView aSduView = ASduView.copyOf(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                    aPdu.getASduLength(), settings);
+            handleIFrame(aPdu, new Runnable() {
+                @Override
+                public void run() {
+                    Thread.currentThread().setName("aSduListener");
+                    ((ASduViewListener) listener).newASduView(Connection.this, aSduView);
+                }
+            }, routeExecutor);
+            return;
+        }
+
+        final byte[] aSduBuffer = Arrays.copyOfRange(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                aPdu.getASduOffset() + aPdu.getASduLength());
+        handleIFrame(aPdu, new Runnable() {
+            @Override
+            public void run() {
+                Thread.currentThread().setName("aSduListener");
+                decodeAndNotify(aSduBuffer, listener);
+            }
+        }, routeExecutor);
+    }
+
     private void mirrorUnknownAsduType(APdu aPdu) throws IOException {
         int sendSeqNumber = aPdu.getSendSeqNumber();
         verifySeqNumber(sendSeqNumber);
         receiveSequenceNumber = (sendSeqNumber + 1) % (1 << 15); // 32768
         handleReceiveSequenceNumber(aPdu.getReceiveSeqNumber());
-        byte[] asduBytes = aPdu.getASduBuffer();
+        byte[] asduBytes = Arrays.copyOfRange(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                aPdu.getASduOffset() + aPdu.getASduLength());
         int test = asduBytes[2] & 0x80;
         int negativConfirm = 0x40;
         asduBytes[2] = (byte) (test | negativConfirm | CauseOfTransmission.UNKNOWN_TYPE_ID.getId());
@@ -448,6 +770,7 @@ public class Connection implements AutoCloseable {
         }
 
         acknowledgedSendSequenceNumber = receiveSeqNumber;
+        completeAcknowledgedSends();
 
         if (sendSequenceNumber != acknowledgedSendSequenceNumber) {
             if (getNumUnconfirmedAPdusSent() > settings.getMaxNumOfOutstandingIPdus()) {
@@ -457,43 +780,114 @@ public class Connection implements AutoCloseable {
                 timeoutManager.addTimerTask(maxTimeNoAckReceived);
             }
         }
+        sendPendingASdus();
         Connection.this.notifyAll();
     }
 
     Connection(Socket socket, ServerThread serverThread, ConnectionSettings settings) throws IOException {
         try {
-            os = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (socket instanceof SSLSocket) {
+                TlsSupport.handshake((SSLSocket) socket, settings.getConnectionTimeout());
+            }
+            if (settings.useNioEngine()) {
+                if (socket.getChannel() == null) {
+                    throw new IOException("The NIO engine requires a socket that has been created by a SocketChannel.");
+                }
+                nioChannel = NioEngine.getDefault().newConnectionChannel(this, socket.getChannel(), settings);
+                ByteBuffer outputBuffer = settings.useDirectBuffers() ? ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE)
+                        : ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+                os = new DataOutputStream(recording(nioChannel.newOutputStream(outputBuffer), settings));
+            }
+            else {
+                nioChannel = null;
+                os = new DataOutputStream(recording(new BufferedOutputStream(socket.getOutputStream()), settings));
+            }
         } catch (IOException e) {
             socket.close();
             throw e;
         }
 
         this.socket = socket;
-        is = new ExtendedDataInputStream(new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+        if (nioChannel == null) {
+            is = socket.getInputStream();
+        }
+        else {
+            is = null;
+        }
         this.settings = settings;
         this.serverThread = serverThread;
         if (this.serverThread != null) {
             startDtActSignal = new CountDownLatch(1);
         }
 
+        this.recorder = settings.getAPduRecorder();
+        if (recorder != null) {
+            recorder.recordOpened(id, String.valueOf(socket.getRemoteSocketAddress()));
+        }
+
         this.maxTimeNoTestConReceived = new MaxTimeNoAckReceivedTimer();
         this.maxTimeNoAckReceived = new MaxTimeNoAckReceivedTimer();
         this.maxIdleTimeTimer = new MaxIdleTimeTimer();
         this.maxTimeNoAckSentTimer = new MaxTimeNoAckSentTimer();
+        if (socket instanceof SSLSocket && settings.getTlsRenegotiationPeriod() > 0) {
+            this.tlsRenegotiationTimer = new TlsRenegotiationTimer();
+        }
+        else {
+            this.tlsRenegotiationTimer = null;
+        }
+
+        if (nioChannel != null) {
+            // event loop, timers and listener threads are shared with the other connections of the engine
+            this.executor = nioChannel.getExecutor();
+            serialExecutor = new SerialExecutor(executor);
+            routeExecutors = createRouteExecutors();
+            this.timeoutManager = nioChannel.getTimeoutManager();
+            Executor protocolExecutor = nioChannel.getProtocolExecutor();
+            maxTimeNoTestConReceived.setExecutor(protocolExecutor);
+            maxTimeNoAckReceived.setExecutor(protocolExecutor);
+            maxIdleTimeTimer.setExecutor(protocolExecutor);
+            maxTimeNoAckSentTimer.setExecutor(protocolExecutor);
+            if (tlsRenegotiationTimer != null) {
+                tlsRenegotiationTimer.setExecutor(protocolExecutor);
+            }
+            return;
+        }
 
-        if (settings.useSharedThreadPool()) {
+        if (settings.useVirtualThreads()) {
+            this.executor = ConnectionSettings.newVirtualThreadPerTaskExecutor();
+        }
+        else if (settings.useSharedThreadPool()) {
             this.executor = ConnectionSettings.getThreadPool();
         }
         else {
             this.executor = Executors.newCachedThreadPool();
         }
         serialExecutor = new SerialExecutor(executor);
+        routeExecutors = createRouteExecutors();
         ConnectionSettings.incremntConnectionsCounter();
 
         this.timeoutManager = new TimeoutManager();
         this.executor.execute(this.timeoutManager);
     }
 
+    private OutputStream recording(OutputStream out, ConnectionSettings settings) {
+        APduRecorder recorder = settings.getAPduRecorder();
+        return recorder == null ? out : recorder.recordingOutputStream(out, id);
+    }
+
+    private Executor[] createRouteExecutors() {
+        ASduFilterChain filterChain = settings.getASduFilterChain();
+        if (filterChain == null) {
+            return null;
+        }
+        Executor[] executors = new Executor[filterChain.size()];
+        for (int i = 0; i < executors.length; i++) {
+            Executor routeExecutor = filterChain.getExecutor(i);
+            executors[i] = routeExecutor == null ? serialExecutor : new SerialExecutor(routeExecutor);
+        }
+        return executors;
+    }
+
     protected void start(ConnectionEventListener connectionEventListener) {
         synchronized (this) {
             if (connectionReaderStarted) {
@@ -502,10 +896,21 @@ public class Connection implements AutoCloseable {
             connectionReaderStarted = true;
 
             this.aSduListener = connectionEventListener;
-            new ConnectionReader().start();
+            if (nioChannel != null) {
+                nioChannel.start();
+            }
+            else if (settings.useVirtualThreads()) {
+                executor.execute(new ConnectionReader());
+            }
+            else {
+                new Thread(new ConnectionReader()).start();
+            }
 
             // set maxIdleTimeTimer after connection is started
             this.timeoutManager.addTimerTask(maxIdleTimeTimer);
+            if (tlsRenegotiationTimer != null) {
+                this.timeoutManager.addTimerTask(tlsRenegotiationTimer);
+            }
         }
     }
 
@@ -532,7 +937,7 @@ public class Connection implements AutoCloseable {
             stopDtConSignal = new CountDownLatch(1);
             os.write(STOPDT_ACT_BUFFER);
         }
-        os.flush();
+        flushOutput();
 
         boolean success;
         try {
@@ -562,6 +967,9 @@ public class Connection implements AutoCloseable {
 
     private void setStopped(boolean stopped) {
         this.stopped = stopped;
+        if (stopped) {
+            failPendingSends(new IllegalArgumentException("May not send ASdu, data transfer is stopped."));
+        }
         if (aSduListener != null) {
             this.aSduListener.dataTransferStateChanged(Connection.this, stopped);
         }
@@ -575,16 +983,23 @@ public class Connection implements AutoCloseable {
      *             if any kind of IOException occurs.
      */
     public void startDataTransfer() throws IOException {
+        startDataTransfer(settings.getMaxTimeNoAckReceived());
+    }
+
+    /**
+     * Sends a STARTDT act and waits at most the given time for the STARTDT con.
+     */
+    void startDataTransfer(long timeout) throws IOException {
 
         synchronized (this) {
             startDtConSignal = new CountDownLatch(1);
             os.write(STARTDT_ACT_BUFFER);
         }
-        os.flush();
+        flushOutput();
 
         boolean success;
         try {
-            success = startDtConSignal.await(settings.getMaxTimeNoAckReceived(), TimeUnit.MILLISECONDS);
+            success = startDtConSignal.await(timeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             success = true;
             Thread.currentThread().interrupt();
@@ -595,16 +1010,18 @@ public class Connection implements AutoCloseable {
         }
 
         synchronized (this) {
-            setStopped(false);
+            if (closed) {
+                throw new IOException("Connection closed while waiting for STARTDT con.");
+            }
         }
     }
 
     private void sendSFormatPdu() throws IOException {
 
-        int length = new APdu(0, receiveSequenceNumber, ApciType.S_FORMAT).encode(buffer, settings);
+        int length = APdu.encodeSFormat(sFormatBuffer, receiveSequenceNumber);
 
-        os.write(buffer, 0, length);
-        os.flush();
+        os.write(sFormatBuffer, 0, length);
+        flushOutput();
 
         acknowledgedReceiveSequenceNumber = receiveSequenceNumber;
 
@@ -646,7 +1063,14 @@ public class Connection implements AutoCloseable {
      * Will close the TCP connection if it's still open and free any resources of this connection.
      */
     @Override
-    public synchronized void close() {
+    public void close() {
+        close(new IOException("connection closed"));
+    }
+
+    /**
+     * Closes the connection and completes the futures of unacknowledged ASDUs exceptionally with the given cause.
+     */
+    private synchronized void close(IOException cause) {
         if (closed) {
             return;
         }
@@ -655,19 +1079,52 @@ public class Connection implements AutoCloseable {
         notifyAll();
 
         try {
-            // close the socket, which also closes the streams
-            socket.close();
+            if (socket instanceof SSLSocket && connectionReaderStarted && !readerTerminated
+                    && Thread.currentThread() != readerThread) {
+                // Closing a TLS socket while the reader is blocked in a read makes some JDKs invalidate the session,
+                // which would prevent its resumption. Only close_notify is sent, the reader closes the socket when
+                // the peer answers or the message fragment timeout expires.
+                closeTlsOutput();
+            }
+            else {
+                // close the socket, which also closes the streams
+                socket.close();
+            }
         } catch (Exception e) {
             // ignore this here
         } finally {
             closed = true;
         }
 
+        if (recorder != null) {
+            recorder.recordClosed(id);
+        }
+
+        failAsyncSends(cause);
+
+        if (startDtConSignal != null) {
+            // startDataTransfer() fails right away instead of waiting for t1
+            startDtConSignal.countDown();
+        }
+
+        if (nioChannel != null) {
+            nioChannel.terminate(new SocketException("Socket closed"));
+        }
+
         if (serverThread != null) {
             serverThread.connectionClosedSignal();
         }
     }
 
+    private void closeTlsOutput() throws IOException {
+        try {
+            socket.shutdownOutput();
+        } catch (UnsupportedOperationException e) {
+            // TLS implementations of older JDKs do not support half-closing
+            socket.close();
+        }
+    }
+
     /**
      * Returns true if connection is closed else false.
      *
@@ -686,9 +1143,38 @@ public class Connection implements AutoCloseable {
         return stopped;
     }
 
+    /**
+     * Returns the TLS session of the connection.
+     *
+     * @return the TLS session or null if the connection is not secured with TLS
+     */
+    public SSLSession getTlsSession() {
+        if (socket instanceof SSLSocket) {
+            return ((SSLSocket) socket).getSession();
+        }
+        return null;
+    }
+
+    ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the number of TLS renegotiations, or key updates with TLS 1.3, that have been started.
+     */
+    int getTlsRenegotiations() {
+        return tlsRenegotiations;
+    }
+
     synchronized void sendBuffer(byte[] aSdu) throws IOException, IllegalArgumentException {
+        awaitSendWindow();
+        System.arraycopy(aSdu, 0, buffer, APdu.HEADER_LENGTH, aSdu.length);
+        writeIFrame(buffer, aSdu.length);
+    }
 
-        while (getNumUnconfirmedAPdusSent() >= settings.getMaxNumOfOutstandingIPdus()) {
+    private void awaitSendWindow() throws IOException {
+        // ASDUs queued by sendAsync are sent first
+        while (getNumUnconfirmedAPdusSent() >= settings.getMaxNumOfOutstandingIPdus() || !pendingSends.isEmpty()) {
             try {
                 this.wait();
             } catch (InterruptedException e) {
@@ -702,9 +1188,23 @@ public class Connection implements AutoCloseable {
         if (stopped) {
             throw new IllegalArgumentException("May not send ASdu, data transfer is stopped.");
         }
+    }
+
+    private int writeIFrame(byte[] frame, int asduLength) throws IOException {
+        int sendSequenceNumber = writeIFrameUnflushed(frame, asduLength);
+        flushOutput();
+        resetMaxIdleTimeTimer();
+        return sendSequenceNumber;
+    }
 
+    /**
+     * Writes an I format APDU whose ASDU has been encoded into the frame buffer. The header is written with the current
+     * sequence numbers. Returns the send sequence number of the frame. The caller has to flush the output and reset the
+     * idle timer (t3) afterwards.
+     */
+    private int writeIFrameUnflushed(byte[] frame, int asduLength) throws IOException {
         acknowledgedReceiveSequenceNumber = receiveSequenceNumber;
-        APdu requestAPdu = new APdu(sendSequenceNumber, receiveSequenceNumber, ApciType.I_FORMAT, aSdu);
+        int length = APdu.encodeIFormatHeader(frame, asduLength, sendSequenceNumber, receiveSequenceNumber);
 
         int oldSendSequenceNumber = sendSequenceNumber;
         sendSequenceNumber = (sendSequenceNumber + 1) % (1 << 15); // 32768 = 2^15
@@ -722,16 +1222,210 @@ public class Connection implements AutoCloseable {
             this.timeoutManager.addTimerTask(this.maxTimeNoAckReceived);
         }
 
-        int length = requestAPdu.encode(buffer, settings);
-        os.write(buffer, 0, length);
-        os.flush();
-        resetMaxIdleTimeTimer();
+        os.write(frame, 0, length);
+        return oldSendSequenceNumber;
     }
 
     public synchronized void send(ASdu aSdu) throws IOException, IllegalArgumentException {
-        int asduLength = aSdu.encode(asduBuffer, 0, settings);
-        byte[] asduBufferCut = Arrays.copyOf(asduBuffer, asduLength);
-        sendBuffer(asduBufferCut);
+        awaitSendWindow();
+        int asduLength = aSdu.encode(buffer, APdu.HEADER_LENGTH, settings);
+        writeIFrame(buffer, asduLength);
+    }
+
+    /**
+     * Encodes the given ASDU as template for this connection's field lengths.
+     *
+     * @param aSdu
+     *            the ASDU whose layout and initial content is used
+     * @return the template
+     * @see #send(ASduTemplate)
+     */
+    public ASduTemplate createTemplate(ASdu aSdu) {
+        return new ASduTemplate(aSdu, settings);
+    }
+
+    /**
+     * Sends the current content of the template. The template may be modified and sent again as soon as this method
+     * returns.
+     *
+     * @param template
+     *            the template
+     * @throws IOException
+     *             if the connection is closed or a write fails
+     * @throws IllegalArgumentException
+     *             if the data transfer is stopped or the field lengths of the template differ from the ones of this
+     *             connection
+     */
+    public synchronized void send(ASduTemplate template) throws IOException, IllegalArgumentException {
+        ConnectionSettings templateSettings = template.getSettings();
+        if (templateSettings.getCotFieldLength() != settings.getCotFieldLength()
+                || templateSettings.getCommonAddressFieldLength() != settings.getCommonAddressFieldLength()
+                || templateSettings.getIoaFieldLength() != settings.getIoaFieldLength()) {
+            throw new IllegalArgumentException("The field lengths of the template differ from the connection's.");
+        }
+        sendBuffer(template.getBuffer());
+    }
+
+    /**
+     * Sends the given ASDUs in order. As many ASDUs as the maximum number of outstanding I format APDUs (k) allows are
+     * written at once and flushed together. The method only blocks when k has been reached and continues as soon as
+     * the remote station acknowledges earlier APDUs. This is considerably faster than calling {@link #send(ASdu)} for
+     * each ASDU, e.g. when answering a general interrogation.
+     *
+     * <p>
+     * If an exception is thrown, the ASDUs before the failing one may already have been sent.
+     * </p>
+     *
+     * @param aSdus
+     *            the ASDUs to send
+     * @throws IOException
+     *             if the connection is closed or a write fails
+     * @throws IllegalArgumentException
+     *             if the data transfer is stopped
+     */
+    public synchronized void send(List<ASdu> aSdus) throws IOException, IllegalArgumentException {
+        int maxNumOfOutstandingIPdus = settings.getMaxNumOfOutstandingIPdus();
+        int size = aSdus.size();
+        int i = 0;
+        while (i < size) {
+            awaitSendWindow();
+            try {
+                do {
+                    int asduLength = aSdus.get(i++).encode(buffer, APdu.HEADER_LENGTH, settings);
+                    writeIFrameUnflushed(buffer, asduLength);
+                } while (i < size && getNumUnconfirmedAPdusSent() < maxNumOfOutstandingIPdus);
+            } finally {
+                flushOutput();
+                resetMaxIdleTimeTimer();
+            }
+        }
+    }
+
+    /**
+     * Sends the given ASDUs in order. See {@link #send(List)}.
+     *
+     * @param aSdus
+     *            the ASDUs to send
+     * @throws IOException
+     *             if the connection is closed or a write fails
+     * @throws IllegalArgumentException
+     *             if the data transfer is stopped
+     */
+    public void send(ASdu... aSdus) throws IOException, IllegalArgumentException {
+        send(Arrays.asList(aSdus));
+    }
+
+    /**
+     * Sends the given ASDU without blocking. If the maximum number of outstanding I format APDUs (k) has been reached,
+     * the ASDU is queued and sent as soon as the remote station acknowledges earlier APDUs. ASDUs are always sent in
+     * the order in which the send methods were called.
+     *
+     * <p>
+     * The returned future completes when the remote station has acknowledged the I format APDU carrying the ASDU. It
+     * completes exceptionally with an IOException if the connection is closed or t1 expires before, and with an
+     * IllegalArgumentException if the data transfer is stopped before the ASDU was sent. Dependent actions that are not
+     * executed asynchronously run on the thread that reads from the connection and must not block.
+     * </p>
+     *
+     * @param aSdu
+     *            the ASDU to send
+     * @return a future that completes when the ASDU has been acknowledged
+     */
+    public synchronized CompletableFuture<Void> sendAsync(ASdu aSdu) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IOException("connection closed"));
+            return future;
+        }
+        if (stopped) {
+            future.completeExceptionally(new IllegalArgumentException("May not send ASdu, data transfer is stopped."));
+            return future;
+        }
+
+        byte[] frame = frameBufferPool.poll();
+        if (frame == null) {
+            frame = new byte[255];
+        }
+        int asduLength;
+        try {
+            asduLength = aSdu.encode(frame, APdu.HEADER_LENGTH, settings);
+        } catch (RuntimeException e) {
+            // e.g. an ASDU that does not fit into an APDU
+            releaseFrameBuffer(frame);
+            future.completeExceptionally(e);
+            return future;
+        }
+        pendingSends.add(new PendingSend(frame, asduLength, future));
+        try {
+            sendPendingASdus();
+        } catch (IOException e) {
+            // the future of the ASDU that could not be written has been completed
+        }
+        return future;
+    }
+
+    private void sendPendingASdus() throws IOException {
+        if (pendingSends.isEmpty() || getNumUnconfirmedAPdusSent() >= settings.getMaxNumOfOutstandingIPdus()) {
+            return;
+        }
+        try {
+            do {
+                PendingSend pendingSend = pendingSends.poll();
+                try {
+                    pendingSend.sendSequenceNumber = writeIFrameUnflushed(pendingSend.frame, pendingSend.asduLength);
+                } catch (IOException e) {
+                    pendingSend.future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    releaseFrameBuffer(pendingSend);
+                }
+                unacknowledgedSends.add(pendingSend);
+            } while (!pendingSends.isEmpty()
+                    && getNumUnconfirmedAPdusSent() < settings.getMaxNumOfOutstandingIPdus());
+        } finally {
+            flushOutput();
+            resetMaxIdleTimeTimer();
+        }
+    }
+
+    private void completeAcknowledgedSends() {
+        int numUnacknowledged = getNumUnconfirmedAPdusSent();
+        PendingSend pendingSend;
+        // a frame is acknowledged if it is further behind the next send sequence number than the acknowledged one
+        while ((pendingSend = unacknowledgedSends.peek()) != null
+                && sequenceNumberDiff(sendSequenceNumber, pendingSend.sendSequenceNumber) > numUnacknowledged) {
+            unacknowledgedSends.poll();
+            pendingSend.future.complete(null);
+        }
+    }
+
+    private void releaseFrameBuffer(PendingSend pendingSend) {
+        releaseFrameBuffer(pendingSend.frame);
+        pendingSend.frame = null;
+    }
+
+    private void releaseFrameBuffer(byte[] frame) {
+        if (frameBufferPool.size() < MAX_POOLED_FRAME_BUFFERS) {
+            frameBufferPool.add(frame);
+        }
+    }
+
+    private void failPendingSends(Exception cause) {
+        PendingSend pendingSend;
+        while ((pendingSend = pendingSends.poll()) != null) {
+            releaseFrameBuffer(pendingSend);
+            pendingSend.future.completeExceptionally(cause);
+        }
+        // wake up send calls waiting behind the queued ASDUs
+        notifyAll();
+    }
+
+    private void failAsyncSends(IOException cause) {
+        PendingSend pendingSend;
+        while ((pendingSend = unacknowledgedSends.poll()) != null) {
+            pendingSend.future.completeExceptionally(cause);
+        }
+        failPendingSends(cause);
     }
 
     private static int sequenceNumberDiff(int number, int ackNumber) {
@@ -739,6 +1433,40 @@ public class Connection implements AutoCloseable {
         return ackNumber > number ? ((1 << 15) - ackNumber) + number : number - ackNumber;
     }
 
+    /**
+     * Flushes the written APDUs according to the configured {@link FlushPolicy}.
+     */
+    private void flushOutput() throws IOException {
+        if (settings.getFlushPolicy() == FlushPolicy.IMMEDIATE) {
+            os.flush();
+        }
+        else if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(flushTask);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+                throw new IOException("connection closed", e);
+            }
+        }
+    }
+
+    private class FlushTask implements Runnable {
+
+        @Override
+        public void run() {
+            if (settings.getFlushPolicy() == FlushPolicy.MAX_DELAY) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(settings.getMaxFlushDelay()));
+            }
+            // reset before flushing so that APDUs written during the flush schedule a new one
+            flushScheduled.set(false);
+            try {
+                os.flush();
+            } catch (IOException ignore) {
+                // a broken connection is detected by the reader or t1
+            }
+        }
+    }
+
     private void resetMaxIdleTimeTimer() {
         this.maxIdleTimeTimer.cancel();
         this.timeoutManager.addTimerTask(maxIdleTimeTimer);
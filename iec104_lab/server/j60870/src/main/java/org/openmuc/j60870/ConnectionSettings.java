@@ -20,19 +20,31 @@
  */
 package org.openmuc.j60870;
 
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import javax.net.ssl.SSLContext;
+
 class ConnectionSettings {
     private static final ExecutorService threadPool;
     private static volatile int numOpenConnections;
+    private static final Method newVirtualThreadPerTaskExecutor;
 
     static {
         threadPool = Executors.newCachedThreadPool();
         numOpenConnections = 0;
+
+        Method method;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            method = null;
+        }
+        newVirtualThreadPerTaskExecutor = method;
     }
 
     private int messageFragmentTimeout;
@@ -50,7 +62,24 @@ class ConnectionSettings {
     private int maxNumOfOutstandingIPdus;
 
     private boolean useSharedThreadPool;
+    private boolean useNioEngine;
+    private boolean useVirtualThreads;
+    private boolean useDirectBuffers;
+    private boolean useLazyDecoding;
+    private FlushPolicy flushPolicy;
+    private int maxFlushDelay;
     private Set<ASduType> allowedTypes;
+    private boolean[] allowedTypeIds;
+    private ASduFilterChain aSduFilterChain;
+    private APduRecorder aPduRecorder;
+
+    private SSLContext sslContext;
+    private String[] tlsProtocols;
+    private String[] tlsCipherSuites;
+    private boolean tlsNeedClientAuth;
+    private int tlsSessionCacheSize;
+    private int tlsSessionTimeout;
+    private int tlsRenegotiationPeriod;
 
     public ReservedASduTypeDecoder getReservedASduTypeDecoder() {
         return reservedASduTypeDecoder;
@@ -58,9 +87,26 @@ class ConnectionSettings {
 
     public void setReservedASduTypeDecoder(ReservedASduTypeDecoder reservedASduTypeDecoder) {
         this.reservedASduTypeDecoder = reservedASduTypeDecoder;
+        if (reservedASduTypeDecoder == null) {
+            this.reservedTypeIds = null;
+            return;
+        }
+        this.reservedTypeIds = new boolean[256];
+        for (ASduType type : reservedASduTypeDecoder.getSupportedTypes()) {
+            reservedTypeIds[type.getId()] = true;
+        }
+    }
+
+    /**
+     * Returns the decoder for the given type ID if it has been declared a supported type by the reserved ASDU type
+     * decoder.
+     */
+    public ReservedASduTypeDecoder getReservedASduTypeDecoder(int typeId) {
+        return reservedTypeIds != null && reservedTypeIds[typeId] ? reservedASduTypeDecoder : null;
     }
 
     private ReservedASduTypeDecoder reservedASduTypeDecoder;
+    private boolean[] reservedTypeIds;
 
     private ConnectionEventListener connectionEventListener;
 
@@ -79,8 +125,25 @@ class ConnectionSettings {
         this.maxNumOfOutstandingIPdus = 12;
 
         this.useSharedThreadPool = false;
+        this.useNioEngine = false;
+        this.useVirtualThreads = false;
+        this.useDirectBuffers = false;
+        this.useLazyDecoding = false;
+        this.flushPolicy = FlushPolicy.IMMEDIATE;
+        this.maxFlushDelay = 1_000;
         this.connectionEventListener = null;
         this.allowedTypes = null;
+        this.allowedTypeIds = null;
+        this.aSduFilterChain = null;
+        this.aPduRecorder = null;
+
+        this.sslContext = null;
+        this.tlsProtocols = null;
+        this.tlsCipherSuites = null;
+        this.tlsNeedClientAuth = false;
+        this.tlsSessionCacheSize = -1;
+        this.tlsSessionTimeout = -1;
+        this.tlsRenegotiationPeriod = 0;
     }
 
     public ConnectionSettings(ConnectionSettings connectionSettings) {
@@ -99,16 +162,59 @@ class ConnectionSettings {
         maxUnconfirmedIPdusReceived = connectionSettings.maxUnconfirmedIPdusReceived;
         maxNumOfOutstandingIPdus = connectionSettings.maxNumOfOutstandingIPdus;
         reservedASduTypeDecoder = connectionSettings.reservedASduTypeDecoder;
+        reservedTypeIds = connectionSettings.reservedTypeIds;
 
         this.useSharedThreadPool = connectionSettings.useSharedThreadPool;
+        this.useNioEngine = connectionSettings.useNioEngine;
+        this.useVirtualThreads = connectionSettings.useVirtualThreads;
+        this.useDirectBuffers = connectionSettings.useDirectBuffers;
+        this.useLazyDecoding = connectionSettings.useLazyDecoding;
+        this.flushPolicy = connectionSettings.flushPolicy;
+        this.maxFlushDelay = connectionSettings.maxFlushDelay;
         this.connectionEventListener = connectionSettings.connectionEventListener;
         this.allowedTypes = connectionSettings.allowedTypes;
+        this.allowedTypeIds = connectionSettings.allowedTypeIds;
+        this.aSduFilterChain = connectionSettings.aSduFilterChain;
+        this.aPduRecorder = connectionSettings.aPduRecorder;
+
+        this.sslContext = connectionSettings.sslContext;
+        this.tlsProtocols = connectionSettings.tlsProtocols;
+        this.tlsCipherSuites = connectionSettings.tlsCipherSuites;
+        this.tlsNeedClientAuth = connectionSettings.tlsNeedClientAuth;
+        this.tlsSessionCacheSize = connectionSettings.tlsSessionCacheSize;
+        this.tlsSessionTimeout = connectionSettings.tlsSessionTimeout;
+        this.tlsRenegotiationPeriod = connectionSettings.tlsRenegotiationPeriod;
     }
 
     public boolean useSharedThreadPool() {
         return useSharedThreadPool;
     }
 
+    public boolean useNioEngine() {
+        // TLS connections are driven by the blocking engine
+        return useNioEngine && sslContext == null;
+    }
+
+    public boolean useVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public boolean useDirectBuffers() {
+        return useDirectBuffers;
+    }
+
+    public boolean useLazyDecoding() {
+        return useLazyDecoding;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public int getMaxFlushDelay() {
+        return maxFlushDelay;
+    }
+
     public int getMessageFragmentTimeout() {
         return messageFragmentTimeout;
     }
@@ -153,14 +259,85 @@ class ConnectionSettings {
         return this.connectionEventListener;
     }
 
+    public boolean useTls() {
+        return sslContext != null;
+    }
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    public String[] getTlsProtocols() {
+        return tlsProtocols;
+    }
+
+    public String[] getTlsCipherSuites() {
+        return tlsCipherSuites;
+    }
+
+    public boolean getTlsNeedClientAuth() {
+        return tlsNeedClientAuth;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public int getTlsRenegotiationPeriod() {
+        return tlsRenegotiationPeriod;
+    }
+
     public Set<ASduType> getAllowedTypes() {
         return this.allowedTypes;
     }
 
+    /**
+     * Returns true if no allowed types have been set or the given type ID is one of them.
+     */
+    public boolean isAllowedType(int typeId) {
+        return allowedTypeIds == null || allowedTypeIds[typeId];
+    }
+
+    public ASduFilterChain getASduFilterChain() {
+        return aSduFilterChain;
+    }
+
+    public APduRecorder getAPduRecorder() {
+        return aPduRecorder;
+    }
+
     public void setUseSharedThreadPool(boolean useSharedThreadPool) {
         this.useSharedThreadPool = useSharedThreadPool;
     }
 
+    public void setUseNioEngine(boolean useNioEngine) {
+        this.useNioEngine = useNioEngine;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    public void setUseDirectBuffers(boolean useDirectBuffers) {
+        this.useDirectBuffers = useDirectBuffers;
+    }
+
+    public void setUseLazyDecoding(boolean useLazyDecoding) {
+        this.useLazyDecoding = useLazyDecoding;
+    }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    public void setMaxFlushDelay(int maxFlushDelay) {
+        this.maxFlushDelay = maxFlushDelay;
+    }
+
     public void setMessageFragmentTimeout(int messageFragmentTimeout) {
         this.messageFragmentTimeout = messageFragmentTimeout;
     }
@@ -208,12 +385,71 @@ class ConnectionSettings {
 
     public void setAllowedTypes(List<ASduType> allowedTypes) {
         this.allowedTypes = new HashSet<>(allowedTypes);
+        this.allowedTypeIds = new boolean[256];
+        for (ASduType type : allowedTypes) {
+            allowedTypeIds[type.getId()] = true;
+        }
+    }
+
+    public void setASduFilterChain(ASduFilterChain aSduFilterChain) {
+        this.aSduFilterChain = aSduFilterChain;
+    }
+
+    public void setAPduRecorder(APduRecorder aPduRecorder) {
+        this.aPduRecorder = aPduRecorder;
+    }
+
+    public void setSslContext(SSLContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    public void setTlsProtocols(String[] tlsProtocols) {
+        this.tlsProtocols = tlsProtocols;
+    }
+
+    public void setTlsCipherSuites(String[] tlsCipherSuites) {
+        this.tlsCipherSuites = tlsCipherSuites;
+    }
+
+    public void setTlsNeedClientAuth(boolean tlsNeedClientAuth) {
+        this.tlsNeedClientAuth = tlsNeedClientAuth;
+    }
+
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public void setTlsRenegotiationPeriod(int tlsRenegotiationPeriod) {
+        this.tlsRenegotiationPeriod = tlsRenegotiationPeriod;
     }
 
     public static ExecutorService getThreadPool() {
         return threadPool;
     }
 
+    public static boolean virtualThreadsAvailable() {
+        return newVirtualThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task. The factory method is looked up reflectively
+     * because the library is compiled for Java 8.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (newVirtualThreadPerTaskExecutor == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+        try {
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor.", e);
+        }
+    }
+
     public static synchronized void incremntConnectionsCounter() {
         numOpenConnections++;
     }
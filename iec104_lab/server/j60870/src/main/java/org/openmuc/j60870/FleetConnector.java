@@ -0,0 +1,279 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects to many servers in parallel. Every endpoint is described by a {@link ClientConnectionBuilder} holding its
+ * address and settings. At most {@link #setMaxConcurrentConnects(int)} connections are built up at the same time, each
+ * of them has to be connected and in data transfer state within the deadline set by {@link #setDeadline(int)}.
+ *
+ * <pre>
+ * Map&lt;String, ClientConnectionBuilder&gt; endpoints = ...;
+ * Map&lt;String, Connection&gt; connections = new FleetConnector&lt;String&gt;().setMaxConcurrentConnects(64)
+ *         .setDeadline(10_000)
+ *         .connect(endpoints);
+ * </pre>
+ *
+ * @param <K>
+ *            the type of the keys identifying the endpoints
+ */
+public class FleetConnector<K> {
+
+    private static final int DEFAULT_MAX_CONCURRENT_CONNECTS = 32;
+    private static final int DEFAULT_DEADLINE = 45_000;
+
+    private int maxConcurrentConnects = DEFAULT_MAX_CONCURRENT_CONNECTS;
+    private int deadline = DEFAULT_DEADLINE;
+    private boolean startDataTransfer = true;
+    private ProgressListener<K> progressListener;
+
+    /**
+     * The listener interface for receiving the outcome of every single connection attempt of
+     * {@link FleetConnector#connect(Map)}. The methods are never called simultaneously.
+     *
+     * @param <K>
+     *            the type of the keys identifying the endpoints
+     */
+    public interface ProgressListener<K> {
+
+        /**
+         * Invoked when the connection to an endpoint has been established.
+         *
+         * @param endpoint
+         *            the key of the endpoint
+         * @param connection
+         *            the new connection
+         * @param completed
+         *            the number of endpoints whose connection attempt has completed, including this one
+         * @param total
+         *            the total number of endpoints
+         */
+        void connected(K endpoint, Connection connection, int completed, int total);
+
+        /**
+         * Invoked when the connection to an endpoint could not be established within the deadline. An unexpected
+         * exception of the connection attempt is reported as the cause of an IOException.
+         *
+         * @param endpoint
+         *            the key of the endpoint
+         * @param cause
+         *            the reason of the failure
+         * @param completed
+         *            the number of endpoints whose connection attempt has completed, including this one
+         * @param total
+         *            the total number of endpoints
+         */
+        void failed(K endpoint, IOException cause, int completed, int total);
+    }
+
+    /**
+     * Sets the maximum number of connections that are built up at the same time. Default is 32.
+     *
+     * @param maxConcurrentConnects
+     *            the maximum number of concurrent connection attempts
+     * @return this connector
+     */
+    public FleetConnector<K> setMaxConcurrentConnects(int maxConcurrentConnects) {
+        if (maxConcurrentConnects < 1) {
+            throw new IllegalArgumentException("invalid number of concurrent connects: " + maxConcurrentConnects);
+        }
+        this.maxConcurrentConnects = maxConcurrentConnects;
+        return this;
+    }
+
+    /**
+     * Sets the time in ms an endpoint has to get from the start of its connection attempt to a started data transfer.
+     * The deadline covers the TCP connection build up, the TLS handshake and the STARTDT act/con exchange. Time spent
+     * waiting for a free connect slot is not counted. Default is 45 s, the default t0 plus the default t1. The
+     * timeouts t0 and t1 of the endpoints still apply if they are shorter.
+     *
+     * @param deadline
+     *            the deadline in ms
+     * @return this connector
+     */
+    public FleetConnector<K> setDeadline(int deadline) {
+        if (deadline < 1) {
+            throw new IllegalArgumentException("invalid deadline: " + deadline);
+        }
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Sets whether the data transfer is started on every new connection. Default is true.
+     *
+     * @param startDataTransfer
+     *            true to send STARTDT act after connecting
+     * @return this connector
+     */
+    public FleetConnector<K> setStartDataTransfer(boolean startDataTransfer) {
+        this.startDataTransfer = startDataTransfer;
+        return this;
+    }
+
+    /**
+     * Sets the listener that is informed about the outcome of every connection attempt.
+     *
+     * @param progressListener
+     *            the listener
+     * @return this connector
+     */
+    public FleetConnector<K> setProgressListener(ProgressListener<K> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Connects to all given endpoints and waits until every connection attempt has succeeded or failed. Endpoints that
+     * could not be connected are reported to the {@link ProgressListener} only.
+     *
+     * @param endpoints
+     *            the builders of the endpoints to connect to, by endpoint key
+     * @return the established connections, by endpoint key and in the iteration order of the given endpoints
+     * @throws InterruptedException
+     *             if the calling thread is interrupted. All connections established so far are closed.
+     */
+    public Map<K, Connection> connect(Map<K, ClientConnectionBuilder> endpoints) throws InterruptedException {
+        if (endpoints.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        final Map<K, Connection> connections = new ConcurrentHashMap<>();
+
+        final Progress progress = new Progress(endpoints.size());
+        List<Callable<Void>> attempts = new ArrayList<>(endpoints.size());
+        for (final Entry<K, ClientConnectionBuilder> endpoint : endpoints.entrySet()) {
+            attempts.add(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    Connection connection;
+                    try {
+                        connection = connect(endpoint.getValue());
+                    } catch (IOException e) {
+                        progress.failed(endpoint.getKey(), e);
+                        return null;
+                    } catch (Exception e) {
+                        // would otherwise be swallowed by invokeAll and the endpoint never reported
+                        progress.failed(endpoint.getKey(), new IOException("Connection attempt failed.", e));
+                        return null;
+                    }
+                    connections.put(endpoint.getKey(), connection);
+                    progress.connected(endpoint.getKey(), connection);
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentConnects, endpoints.size()),
+                new ConnectThreadFactory());
+        try {
+            executor.invokeAll(attempts);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            executor.awaitTermination(deadline, TimeUnit.MILLISECONDS);
+            for (Connection connection : connections.values()) {
+                connection.close();
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<K, Connection> result = new LinkedHashMap<>();
+        for (K endpoint : endpoints.keySet()) {
+            Connection connection = connections.get(endpoint);
+            if (connection != null) {
+                result.put(endpoint, connection);
+            }
+        }
+        return result;
+    }
+
+    private Connection connect(ClientConnectionBuilder builder) throws IOException {
+        long deadlineTime = System.currentTimeMillis() + deadline;
+
+        Connection connection = builder.build(Math.min(builder.settings.getConnectionTimeout(), deadline),
+                builder.settings.getConnectionEventListener());
+        if (!startDataTransfer) {
+            return connection;
+        }
+        try {
+            long remaining = deadlineTime - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new InterruptedIOException("Deadline of " + deadline + "ms exceeded.");
+            }
+            connection.startDataTransfer(Math.min(builder.settings.getMaxTimeNoAckReceived(), remaining));
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private class Progress {
+        private final int total;
+        private int completed;
+
+        public Progress(int total) {
+            this.total = total;
+        }
+
+        public synchronized void connected(K endpoint, Connection connection) {
+            completed++;
+            if (progressListener != null) {
+                progressListener.connected(endpoint, connection, completed, total);
+            }
+        }
+
+        public synchronized void failed(K endpoint, IOException cause) {
+            completed++;
+            if (progressListener != null) {
+                progressListener.failed(endpoint, cause, completed, total);
+            }
+        }
+    }
+
+    private static class ConnectThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "FleetConnector");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openmuc.j60870.internal.ChannelOutputStream;
+import org.openmuc.j60870.internal.SerialExecutor;
+
+/**
+ * Drives connections from a small number of shared selector event loops instead of one reader thread per connection.
+ * The event loops only move bytes and never wait for a connection: received bytes are split into APDUs and passed to
+ * the same state machine the blocking {@code ConnectionReader} uses by the protocol executor of the connection, and
+ * sent bytes the socket does not take at once are queued and written when the channel becomes writable. Every event
+ * loop owns a {@link TimeoutManager} that serves the t1, t2 and t3 timers of all its connections, whose expiry is run
+ * by the protocol executor of the connection as well. Listener callbacks are dispatched to a shared executor.
+ */
+class NioEngine {
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_PENDING_OUTPUT = 1024 * 1024;
+
+    private static NioEngine defaultEngine;
+
+    private final EventLoop[] eventLoops;
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+    private final ExecutorService executor;
+
+    static synchronized NioEngine getDefault() throws IOException {
+        if (defaultEngine == null) {
+            defaultEngine = new NioEngine(Runtime.getRuntime().availableProcessors());
+        }
+        return defaultEngine;
+    }
+
+    NioEngine(int numEventLoops) throws IOException {
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("NioEngineWorker"));
+        this.eventLoops = new EventLoop[numEventLoops];
+        for (int i = 0; i < numEventLoops; i++) {
+            eventLoops[i] = new EventLoop("NioEventLoop-" + i);
+        }
+    }
+
+    /**
+     * Assigns a connection to one of the event loops. The channel is not read from before
+     * {@link ConnectionChannel#start()} is called.
+     */
+    ConnectionChannel newConnectionChannel(Connection connection, SocketChannel channel, ConnectionSettings settings) {
+        int index = (nextEventLoop.getAndIncrement() & Integer.MAX_VALUE) % eventLoops.length;
+        return new ConnectionChannel(eventLoops[index], connection, channel, settings);
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final TimeoutManager timeoutManager;
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.timeoutManager = new TimeoutManager(name + "-TimeoutManager");
+
+            Thread thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+            Thread timerThread = new Thread(timeoutManager, name + "-TimeoutManager");
+            timerThread.setDaemon(true);
+            timerThread.start();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    continue;
+                } catch (ClosedSelectorException e) {
+                    return;
+                }
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    ConnectionChannel connectionChannel = (ConnectionChannel) key.attachment();
+                    try {
+                        if (key.isWritable()) {
+                            connectionChannel.write(key);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connectionChannel.read(key);
+                        }
+                    } catch (CancelledKeyException e) {
+                        // the channel has been closed in the meantime
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The part of a connection that lives on an event loop.
+     */
+    class ConnectionChannel {
+
+        private final EventLoop eventLoop;
+        private final Connection connection;
+        private final SocketChannel channel;
+        private final APduDecoder decoder = new APduDecoder(READ_BUFFER_SIZE);
+        private final AtomicBoolean terminated = new AtomicBoolean();
+        private final TimeoutTask fragmentTimer;
+        private final SerialExecutor protocolExecutor;
+        private ChannelOutputStream outputStream;
+
+        // only accessed by the event loop
+        private SelectionKey key;
+
+        private ConnectionChannel(EventLoop eventLoop, Connection connection, SocketChannel channel,
+                ConnectionSettings settings) {
+            this.eventLoop = eventLoop;
+            this.connection = connection;
+            this.channel = channel;
+            this.protocolExecutor = new SerialExecutor(executor);
+            this.fragmentTimer = new TimeoutTask(settings.getMessageFragmentTimeout()) {
+                @Override
+                protected void execute() {
+                    terminate(new SocketTimeoutException("Read timed out"));
+                }
+            };
+        }
+
+        TimeoutManager getTimeoutManager() {
+            return eventLoop.timeoutManager;
+        }
+
+        ExecutorService getExecutor() {
+            return executor;
+        }
+
+        /**
+         * Returns the executor that runs the protocol actions of the connection, such as expired timers, one at a time
+         * on the shared worker threads, so that neither the event loop nor the timer thread waits for the connection.
+         */
+        SerialExecutor getProtocolExecutor() {
+            return protocolExecutor;
+        }
+
+        /**
+         * Creates the stream the connection writes to. Has to be called before {@link #start()}.
+         */
+        ChannelOutputStream newOutputStream(ByteBuffer buffer) {
+            outputStream = new ChannelOutputStream(channel, buffer, MAX_PENDING_OUTPUT, new Runnable() {
+                @Override
+                public void run() {
+                    eventLoop.execute(enableWrite);
+                }
+            });
+            return outputStream;
+        }
+
+        /**
+         * Switches the channel to non-blocking mode and starts reading on the event loop.
+         */
+        void start() {
+            try {
+                channel.configureBlocking(false);
+            } catch (IOException e) {
+                terminate(e);
+                return;
+            }
+
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // writable at first, in case bytes have been queued before registering
+                        key = channel.register(eventLoop.selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE,
+                                ConnectionChannel.this);
+                    } catch (IOException e) {
+                        terminate(e);
+                    }
+                }
+            });
+        }
+
+        private void read(SelectionKey key) {
+            try {
+                if (decoder.readFrom(channel) == -1) {
+                    throw new EOFException();
+                }
+            } catch (Exception e) {
+                key.cancel();
+                terminate(Connection.closedIOExceptionFor(e));
+                return;
+            }
+
+            // the decoder is handed over to the protocol executor until the received APDUs have been handled
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            protocolExecutor.execute(handleReceived);
+        }
+
+        private void write(SelectionKey key) {
+            try {
+                if (outputStream.writePending()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                key.cancel();
+                terminate(e);
+            }
+        }
+
+        private final Runnable handleReceived = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    APdu aPdu;
+                    while ((aPdu = decoder.nextAPdu()) != null) {
+                        connection.handleAPdu(aPdu);
+                    }
+
+                    if (decoder.hasPartialAPdu()) {
+                        eventLoop.timeoutManager.addTimerTask(fragmentTimer);
+                    }
+                    else if (fragmentTimer.isPlanned()) {
+                        fragmentTimer.cancel();
+                    }
+                } catch (Exception e) {
+                    terminate(Connection.closedIOExceptionFor(e));
+                    return;
+                }
+                eventLoop.execute(enableRead);
+            }
+        };
+
+        private final Runnable enableRead = new Runnable() {
+            @Override
+            public void run() {
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            }
+        };
+
+        private final Runnable enableWrite = new Runnable() {
+            @Override
+            public void run() {
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        };
+
+        /**
+         * Stops reading and closes the connection on a worker thread. Only the first call has an effect.
+         */
+        void terminate(final IOException cause) {
+            if (!terminated.compareAndSet(false, true)) {
+                return;
+            }
+            fragmentTimer.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing to be done if closing causes error
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    connection.readerTerminated(cause);
+                }
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a {@link PcapAnalyzer} run.
+ */
+public class PcapAnalysis {
+
+    private final List<PcapFlow> flows;
+    private final long packets;
+    private final long segments;
+    private final long truncatedSegments;
+    private final long fragments;
+    private final long bytes;
+    private final boolean fileTruncated;
+
+    PcapAnalysis(List<PcapFlow> flows, long packets, long segments, long truncatedSegments, long fragments, long bytes,
+            boolean fileTruncated) {
+        this.flows = Collections.unmodifiableList(flows);
+        this.packets = packets;
+        this.segments = segments;
+        this.truncatedSegments = truncatedSegments;
+        this.fragments = fragments;
+        this.bytes = bytes;
+        this.fileTruncated = fileTruncated;
+    }
+
+    /**
+     * Returns the TCP connections to the analyzed ports in the order of their first segment.
+     */
+    public List<PcapFlow> getFlows() {
+        return flows;
+    }
+
+    /**
+     * Returns the number of packets in the capture.
+     */
+    public long getPacketCount() {
+        return packets;
+    }
+
+    /**
+     * Returns the number of TCP segments to or from the analyzed ports.
+     */
+    public long getSegmentCount() {
+        return segments;
+    }
+
+    /**
+     * Returns the number of TCP segments whose payload has not been captured completely because of the snapshot length
+     * of the capture. The missing bytes are counted as lost by the statistics of the flows.
+     */
+    public long getTruncatedSegmentCount() {
+        return truncatedSegments;
+    }
+
+    /**
+     * Returns the number of IP fragments. Fragmented packets are not reassembled.
+     */
+    public long getFragmentCount() {
+        return fragments;
+    }
+
+    /**
+     * Returns the number of bytes of the capture that have been read.
+     */
+    public long getByteCount() {
+        return bytes;
+    }
+
+    /**
+     * Returns true if the capture ended within a packet, usually because the capture had not been stopped when it was
+     * copied.
+     */
+    public boolean isFileTruncated() {
+        return fileTruncated;
+    }
+
+}
@@ -0,0 +1,758 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+import org.openmuc.j60870.internal.ReusableByteArrayInputStream;
+import org.openmuc.j60870.internal.SerialExecutor;
+
+/**
+ * Decodes the IEC 60870-5-104 traffic of libpcap and pcapng capture files.
+ * <p>
+ * The capture is read sequentially on the calling thread: the packets are parsed down to the TCP segments to or from
+ * the analyzed ports, the TCP streams are reassembled and split into APDUs. The APDUs of each flow are collected in
+ * batches that are decoded on a fork-join pool, so that different flows are decoded in parallel while the ASDUs of
+ * each flow are passed to the listener in capture order. The number of batches waiting to be decoded is bounded and
+ * the reassembly state of a flow is dropped two minutes of capture time after the flow has ended, so the memory used
+ * is proportional to the number of concurrent flows plus the statistics kept for every flow of the capture.
+ * <p>
+ * Ethernet, VLAN, Linux cooked, loopback and raw IP captures of IPv4 and IPv6 are supported. IP fragments are not
+ * reassembled.
+ */
+public class PcapAnalyzer {
+
+    private static final PcapFlow.Direction[] DIRECTIONS = PcapFlow.Direction.values();
+
+    private static final int BATCH_SIZE = 1 << 14;
+    private static final int BATCH_ENTRY_HEADER_LENGTH = 9;
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * Twice the maximum segment lifetime: late acknowledgements and retransmissions of an ended flow are attributed to
+     * it for this long before its reassembly state is dropped.
+     */
+    private static final long FINISHED_FLOW_RETENTION_NANOS = 120_000_000_000L;
+
+    private static final int ETHERTYPE_IPV4 = 0x0800;
+    private static final int ETHERTYPE_IPV6 = 0x86dd;
+    private static final int ETHERTYPE_VLAN = 0x8100;
+    private static final int ETHERTYPE_QINQ = 0x88a8;
+    private static final int ETHERTYPE_QINQ_OLD = 0x9100;
+
+    private static final int PROTOCOL_TCP = 6;
+    private static final int IPV6_HOP_BY_HOP = 0;
+    private static final int IPV6_ROUTING = 43;
+    private static final int IPV6_FRAGMENT = 44;
+    private static final int IPV6_DESTINATION_OPTIONS = 60;
+
+    private static final int TCP_FIN = 0x01;
+    private static final int TCP_SYN = 0x02;
+    private static final int TCP_RST = 0x04;
+    private static final int TCP_ACK = 0x10;
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final boolean[] ports = new boolean[1 << 16];
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ASduFilter aSduFilter;
+
+    public PcapAnalyzer() {
+        ports[2404] = true;
+    }
+
+    /**
+     * Sets the TCP ports of the IEC 60870-5-104 servers. Default is 2404.
+     *
+     * @param ports
+     *            the server ports
+     * @return this analyzer
+     */
+    public PcapAnalyzer setPorts(int... ports) {
+        if (ports.length == 0) {
+            throw new IllegalArgumentException("no port given");
+        }
+        for (int port : ports) {
+            if (port < 1 || port > 0xffff) {
+                throw new IllegalArgumentException("invalid port: " + port);
+            }
+        }
+        Arrays.fill(this.ports, false);
+        for (int port : ports) {
+            this.ports[port] = true;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the length of the Cause Of Transmission (COT) field of the ASDU.<br>
+     * Allowed values are 1 or 2.<br>
+     * Default is 2.
+     *
+     * @param length
+     *            the length of the Cause Of Transmission field
+     * @return this analyzer
+     */
+    public PcapAnalyzer setCotFieldLength(int length) {
+        if (length != 1 && length != 2) {
+            throw new IllegalArgumentException("invalid length");
+        }
+        settings.setCotFieldLength(length);
+        return this;
+    }
+
+    /**
+     * Sets the length of the Common Address (CA) field of the ASDU.<br>
+     * Allowed values are 1 or 2.<br>
+     * Default is 2.
+     *
+     * @param length
+     *            the length of the Common Address (CA) field
+     * @return this analyzer
+     */
+    public PcapAnalyzer setCommonAddressFieldLength(int length) {
+        if (length != 1 && length != 2) {
+            throw new IllegalArgumentException("invalid length");
+        }
+        settings.setCommonAddressFieldLength(length);
+        return this;
+    }
+
+    /**
+     * Sets the length of the Information Object Address (IOA) field of the ASDU.<br>
+     * Allowed values are 1, 2 or 3.<br>
+     * Default is 3.
+     *
+     * @param length
+     *            the length of the Information Object Address field
+     * @return this analyzer
+     */
+    public PcapAnalyzer setIoaFieldLength(int length) {
+        if (length < 1 || length > 3) {
+            throw new IllegalArgumentException("invalid length: " + length);
+        }
+        settings.setIoaFieldLength(length);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads decoding the flows. Default is the number of available processors.
+     *
+     * @param parallelism
+     *            the number of threads
+     * @return this analyzer
+     */
+    public PcapAnalyzer setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Restricts the ASDUs that are decoded and passed to the listener. ASDUs that do not match the filter are only
+     * counted by the statistics. Default is <code>null</code>: all ASDUs are decoded.
+     *
+     * @param aSduFilter
+     *            the filter or <code>null</code>
+     * @return this analyzer
+     */
+    public PcapAnalyzer setASduFilter(ASduFilter aSduFilter) {
+        this.aSduFilter = aSduFilter;
+        return this;
+    }
+
+    /**
+     * Analyzes a capture file.
+     *
+     * @param file
+     *            a libpcap or pcapng file
+     * @param listener
+     *            the listener for the decoded ASDUs or <code>null</code> to only collect the statistics of the flows,
+     *            which does not decode the ASDUs
+     * @return the flows and statistics of the capture
+     * @throws IOException
+     *             if the file cannot be read or is not a valid capture file
+     */
+    public PcapAnalysis analyze(File file, PcapListener listener) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            return analyze(randomAccessFile.getChannel(), listener);
+        }
+    }
+
+    /**
+     * Analyzes a capture read from a channel.
+     *
+     * @param channel
+     *            the channel to read the libpcap or pcapng capture from, it is not closed
+     * @param listener
+     *            the listener for the decoded ASDUs or <code>null</code> to only collect the statistics of the flows
+     * @return the flows and statistics of the capture
+     * @throws IOException
+     *             if the channel cannot be read or does not contain a valid capture
+     */
+    public PcapAnalysis analyze(ReadableByteChannel channel, PcapListener listener) throws IOException {
+        return new Run(new ConnectionSettings(settings), listener).analyze(new PcapReader(channel));
+    }
+
+    /**
+     * The state of a single analysis. Everything but the decoding of the batches runs on the reading thread.
+     */
+    private class Run {
+
+        private final ConnectionSettings settings;
+        private final PcapListener listener;
+        private final ASduFilter aSduFilter = PcapAnalyzer.this.aSduFilter;
+        private final boolean[] ports = PcapAnalyzer.this.ports.clone();
+        private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        private final int maxBatches = parallelism * BATCHES_PER_THREAD;
+        private final Semaphore batchPermits = new Semaphore(maxBatches);
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        private final Map<FlowKey, FlowState> openFlows = new HashMap<>();
+        private final ArrayDeque<FlowState> finishedFlows = new ArrayDeque<>();
+        private final List<PcapFlow> flows = new ArrayList<>();
+        private final FlowKey probe = new FlowKey(new byte[FlowKey.LENGTH]);
+
+        private long packets;
+        private long segments;
+        private long truncatedSegments;
+        private long fragments;
+
+        Run(ConnectionSettings settings, PcapListener listener) {
+            this.settings = settings;
+            this.listener = listener;
+        }
+
+        PcapAnalysis analyze(PcapReader reader) throws IOException {
+            boolean fileTruncated = false;
+            try {
+                try {
+                    while (failure.get() == null && reader.next()) {
+                        packets++;
+                        packet(reader);
+                    }
+                } catch (EOFException e) {
+                    fileTruncated = true;
+                }
+                for (FlowState flowState : openFlows.values()) {
+                    flowState.finish(flowState.flow.lastTimestampNanos);
+                }
+                batchPermits.acquireUninterruptibly(maxBatches);
+            } finally {
+                pool.shutdownNow();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return new PcapAnalysis(flows, packets, segments, truncatedSegments, fragments, reader.getBytesRead(),
+                    fileTruncated);
+        }
+
+        private void packet(PcapReader reader) {
+            byte[] buffer = reader.getBuffer();
+            int offset = reader.getPacketOffset();
+            int end = offset + reader.getPacketLength();
+
+            int etherType;
+            switch (reader.getLinkType()) {
+            case PcapReader.LINKTYPE_ETHERNET:
+                if (end - offset < 14) {
+                    return;
+                }
+                etherType = readShort(buffer, offset + 12);
+                offset += 14;
+                while (etherType == ETHERTYPE_VLAN || etherType == ETHERTYPE_QINQ || etherType == ETHERTYPE_QINQ_OLD) {
+                    if (end - offset < 4) {
+                        return;
+                    }
+                    etherType = readShort(buffer, offset + 2);
+                    offset += 4;
+                }
+                break;
+            case PcapReader.LINKTYPE_LINUX_SLL:
+                if (end - offset < 16) {
+                    return;
+                }
+                etherType = readShort(buffer, offset + 14);
+                offset += 16;
+                break;
+            case PcapReader.LINKTYPE_LINUX_SLL2:
+                if (end - offset < 20) {
+                    return;
+                }
+                etherType = readShort(buffer, offset);
+                offset += 20;
+                break;
+            case PcapReader.LINKTYPE_NULL:
+            case PcapReader.LINKTYPE_LOOP:
+                offset += 4;
+                etherType = ipEtherType(buffer, offset, end);
+                break;
+            case PcapReader.LINKTYPE_RAW:
+            case PcapReader.LINKTYPE_IPV4:
+            case PcapReader.LINKTYPE_IPV6:
+                etherType = ipEtherType(buffer, offset, end);
+                break;
+            default:
+                return;
+            }
+
+            if (etherType == ETHERTYPE_IPV4) {
+                ipv4(reader, offset, end);
+            }
+            else if (etherType == ETHERTYPE_IPV6) {
+                ipv6(reader, offset, end);
+            }
+        }
+
+        private int ipEtherType(byte[] buffer, int offset, int end) {
+            if (end - offset < 1) {
+                return 0;
+            }
+            switch ((buffer[offset] >> 4) & 0x0f) {
+            case 4:
+                return ETHERTYPE_IPV4;
+            case 6:
+                return ETHERTYPE_IPV6;
+            default:
+                return 0;
+            }
+        }
+
+        private void ipv4(PcapReader reader, int offset, int end) {
+            byte[] buffer = reader.getBuffer();
+            if (end - offset < 20 || (buffer[offset + 9] & 0xff) != PROTOCOL_TCP) {
+                return;
+            }
+            if ((readShort(buffer, offset + 6) & 0x3fff) != 0) {
+                fragments++;
+                return;
+            }
+            int headerLength = (buffer[offset] & 0x0f) * 4;
+            int totalLength = readShort(buffer, offset + 2);
+            // a total length of 0 is captured for segments offloaded to the network card
+            int ipEnd = totalLength == 0 ? end : offset + totalLength;
+            if (headerLength < 20 || ipEnd < offset + headerLength) {
+                return;
+            }
+            tcp(reader, offset + 12, offset + 16, 4, offset + headerLength, ipEnd, end);
+        }
+
+        private void ipv6(PcapReader reader, int offset, int end) {
+            byte[] buffer = reader.getBuffer();
+            if (end - offset < 40) {
+                return;
+            }
+            int payloadLength = readShort(buffer, offset + 4);
+            int nextHeader = buffer[offset + 6] & 0xff;
+            int header = offset + 40;
+            int ipEnd = payloadLength == 0 ? end : header + payloadLength;
+            while (nextHeader == IPV6_HOP_BY_HOP || nextHeader == IPV6_ROUTING
+                    || nextHeader == IPV6_DESTINATION_OPTIONS) {
+                if (end - header < 2) {
+                    return;
+                }
+                nextHeader = buffer[header] & 0xff;
+                header += ((buffer[header + 1] & 0xff) + 1) * 8;
+            }
+            if (nextHeader == IPV6_FRAGMENT) {
+                fragments++;
+                return;
+            }
+            if (nextHeader != PROTOCOL_TCP || ipEnd < header) {
+                return;
+            }
+            tcp(reader, offset + 8, offset + 24, 16, header, ipEnd, end);
+        }
+
+        private void tcp(PcapReader reader, int source, int destination, int addressLength, int offset, int ipEnd,
+                int end) {
+            byte[] buffer = reader.getBuffer();
+            if (end - offset < 20) {
+                return;
+            }
+            int sourcePort = readShort(buffer, offset);
+            int destinationPort = readShort(buffer, offset + 2);
+            if (!ports[sourcePort] && !ports[destinationPort]) {
+                return;
+            }
+            segments++;
+
+            boolean toServer;
+            if (ports[sourcePort] && ports[destinationPort]) {
+                toServer = destinationPort < sourcePort
+                        || (destinationPort == sourcePort && compare(buffer, destination, source, addressLength) < 0);
+            }
+            else {
+                toServer = ports[destinationPort];
+            }
+
+            int sequenceNumber = readInt(buffer, offset + 4);
+            int flags = buffer[offset + 13] & 0xff;
+            int payload = offset + ((buffer[offset + 12] >> 4) & 0x0f) * 4;
+            int payloadEnd = ipEnd;
+            if (payloadEnd > end) {
+                truncatedSegments++;
+                payloadEnd = payload;
+            }
+            if (payload > payloadEnd) {
+                return;
+            }
+
+            long timestamp = reader.getTimestampNanos();
+            if (toServer) {
+                probe.set(buffer, addressLength, source, sourcePort, destination, destinationPort);
+            }
+            else {
+                probe.set(buffer, addressLength, destination, destinationPort, source, sourcePort);
+            }
+            dropFinishedFlows(timestamp);
+            FlowState flowState = openFlows.get(probe);
+            boolean connectionSetup = (flags & (TCP_SYN | TCP_ACK)) == TCP_SYN;
+            if (flowState == null || (connectionSetup && flowState.isUsed())) {
+                if (flowState != null) {
+                    flowState.finish(timestamp);
+                }
+                FlowKey key = probe.copy();
+                flowState = new FlowState(key, newFlow(addressLength, timestamp), listener != null);
+                openFlows.put(key, flowState);
+            }
+            PcapFlow flow = flowState.flow;
+            flow.lastTimestampNanos = timestamp;
+            if (connectionSetup) {
+                flow.connectionSetupCaptured = true;
+            }
+
+            int direction = toServer ? 0 : 1;
+            flowState.segment(direction, sequenceNumber, flags, buffer, payload, payloadEnd - payload, timestamp);
+        }
+
+        /**
+         * Removes the flows that have ended more than the retention time before the given timestamp. A flow that has
+         * been replaced by a new connection with the same addresses and ports is only removed from the queue.
+         */
+        private void dropFinishedFlows(long timestamp) {
+            FlowState flowState;
+            while ((flowState = finishedFlows.peek()) != null
+                    && timestamp - flowState.finishedTimestampNanos > FINISHED_FLOW_RETENTION_NANOS) {
+                finishedFlows.poll();
+                if (openFlows.get(flowState.key) == flowState) {
+                    openFlows.remove(flowState.key);
+                }
+            }
+        }
+
+        private PcapFlow newFlow(int addressLength, long timestamp) {
+            byte[] key = probe.bytes;
+            PcapFlow flow = new PcapFlow(flows.size(),
+                    new InetSocketAddress(address(key, FlowKey.CLIENT_ADDRESS, addressLength),
+                            readShort(key, FlowKey.CLIENT_PORT)),
+                    new InetSocketAddress(address(key, FlowKey.SERVER_ADDRESS, addressLength),
+                            readShort(key, FlowKey.SERVER_PORT)),
+                    timestamp);
+            flows.add(flow);
+            return flow;
+        }
+
+        private InetAddress address(byte[] buffer, int offset, int length) {
+            try {
+                return InetAddress.getByAddress(Arrays.copyOfRange(buffer, offset, offset + length));
+            } catch (UnknownHostException e) {
+                // cannot happen for addresses of 4 or 16 bytes
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * The reassembly state of a flow. The batch of APDUs that is being filled and the stream state belong to the
+         * reading thread, the sequence numbers and the ASDU input stream to the decoding task that is active for the
+         * flow.
+         */
+        private class FlowState {
+
+            private final FlowKey key;
+            private final PcapFlow flow;
+            private final PcapStream[] streams = new PcapStream[2];
+            private final SerialExecutor executor = new SerialExecutor(pool);
+            private final boolean[] finSeen = new boolean[2];
+            private boolean finished;
+            private long finishedTimestampNanos;
+            private byte[] batch;
+            private int batchLength;
+
+            private final int[] nextSendSequenceNumbers = { -1, -1 };
+            private final ReusableByteArrayInputStream aSduInputStream;
+            private final ExtendedDataInputStream aSduDataInputStream;
+
+            FlowState(FlowKey key, PcapFlow flow, boolean decodeASdus) {
+                this.key = key;
+                this.flow = flow;
+                for (int i = 0; i < 2; i++) {
+                    final int direction = i;
+                    streams[i] = new PcapStream(flow.getStatistics(DIRECTIONS[i])) {
+                        @Override
+                        void frame(byte[] buffer, int offset, int length, long timestampNanos) {
+                            addFrame(direction, buffer, offset, length, timestampNanos);
+                        }
+                    };
+                }
+                if (decodeASdus) {
+                    aSduInputStream = new ReusableByteArrayInputStream();
+                    aSduDataInputStream = new ExtendedDataInputStream(aSduInputStream);
+                }
+                else {
+                    aSduInputStream = null;
+                    aSduDataInputStream = null;
+                }
+            }
+
+            /**
+             * Returns true if the flow has carried data or has ended. A connection request on a used flow starts a new
+             * connection with the same addresses and ports, while a connection request on an unused flow is a
+             * retransmission.
+             */
+            boolean isUsed() {
+                return finished || flow.getStatistics(PcapFlow.Direction.CLIENT_TO_SERVER).payloadBytes > 0
+                        || flow.getStatistics(PcapFlow.Direction.SERVER_TO_CLIENT).payloadBytes > 0;
+            }
+
+            void segment(int direction, int sequenceNumber, int flags, byte[] buffer, int offset, int length,
+                    long timestampNanos) {
+                if (finished) {
+                    PcapFlow.Statistics statistics = flow.getStatistics(DIRECTIONS[direction]);
+                    statistics.segments++;
+                    statistics.payloadBytes += length;
+                    statistics.retransmittedBytes += length;
+                    return;
+                }
+                streams[direction].segment(sequenceNumber, (flags & TCP_SYN) != 0, buffer, offset, length,
+                        timestampNanos);
+                if ((flags & TCP_FIN) != 0) {
+                    finSeen[direction] = true;
+                }
+                if ((flags & TCP_RST) != 0 || (finSeen[0] && finSeen[1])) {
+                    finish(timestampNanos);
+                }
+            }
+
+            void finish(long timestampNanos) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                finishedTimestampNanos = timestampNanos;
+                finishedFlows.add(this);
+                streams[0].finish(timestampNanos);
+                streams[1].finish(timestampNanos);
+                submitBatch();
+            }
+
+            private void addFrame(int direction, byte[] buffer, int offset, int length, long timestampNanos) {
+                if (batch != null && batchLength + BATCH_ENTRY_HEADER_LENGTH + length > batch.length) {
+                    submitBatch();
+                }
+                if (batch == null) {
+                    batch = new byte[BATCH_SIZE];
+                }
+                batch[batchLength] = (byte) direction;
+                for (int i = 0; i < 8; i++) {
+                    batch[batchLength + 1 + i] = (byte) (timestampNanos >>> (56 - 8 * i));
+                }
+                System.arraycopy(buffer, offset, batch, batchLength + BATCH_ENTRY_HEADER_LENGTH, length);
+                batchLength += BATCH_ENTRY_HEADER_LENGTH + length;
+            }
+
+            private void submitBatch() {
+                if (batch == null) {
+                    return;
+                }
+                final byte[] frames = batch;
+                final int length = batchLength;
+                batch = null;
+                batchLength = 0;
+
+                batchPermits.acquireUninterruptibly();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure.get() == null) {
+                                decode(frames, length);
+                            }
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            batchPermits.release();
+                        }
+                    }
+                });
+            }
+
+            private void decode(byte[] frames, int length) {
+                int i = 0;
+                while (i < length) {
+                    int direction = frames[i];
+                    long timestampNanos = 0;
+                    for (int j = 1; j <= 8; j++) {
+                        timestampNanos = (timestampNanos << 8) | (frames[i + j] & 0xff);
+                    }
+                    int frame = i + BATCH_ENTRY_HEADER_LENGTH;
+                    int frameLength = (frames[frame + 1] & 0xff) + 2;
+                    decodeFrame(direction, frames, frame, frameLength, timestampNanos);
+                    i = frame + frameLength;
+                }
+            }
+
+            private void decodeFrame(int direction, byte[] frames, int frame, int frameLength, long timestampNanos) {
+                PcapFlow.Direction flowDirection = DIRECTIONS[direction];
+                PcapFlow.Statistics statistics = flow.getStatistics(flowDirection);
+                APdu aPdu = APdu.decode(frames, frame + 2, frameLength - 2);
+                switch (aPdu.getApciType()) {
+                case I_FORMAT:
+                    statistics.iFrames++;
+                    int sendSequenceNumber = aPdu.getSendSeqNumber();
+                    if (nextSendSequenceNumbers[direction] >= 0
+                            && sendSequenceNumber != nextSendSequenceNumbers[direction]) {
+                        statistics.sequenceErrors++;
+                    }
+                    nextSendSequenceNumbers[direction] = (sendSequenceNumber + 1) % (1 << 15);
+                    if (aPdu.getASduLength() == 0) {
+                        statistics.decodeErrors++;
+                        return;
+                    }
+                    statistics.aSdus[frames[aPdu.getASduOffset()] & 0xff]++;
+                    if (listener != null) {
+                        decodeASdu(flowDirection, statistics, aPdu, timestampNanos);
+                    }
+                    break;
+                case S_FORMAT:
+                    statistics.sFrames++;
+                    break;
+                default:
+                    statistics.uFrames++;
+                    break;
+                }
+            }
+
+            private void decodeASdu(PcapFlow.Direction direction, PcapFlow.Statistics statistics, APdu aPdu,
+                    long timestampNanos) {
+                if (aSduFilter != null && !aSduFilter.matches(aPdu.getASduBuffer(), aPdu.getASduOffset(),
+                        aPdu.getASduLength(), settings)) {
+                    return;
+                }
+                aSduInputStream.setBuffer(aPdu.getASduBuffer(), aPdu.getASduOffset(), aPdu.getASduLength());
+                ASdu aSdu;
+                try {
+                    aSdu = ASdu.decode(aSduDataInputStream, settings, aPdu.getASduLength());
+                } catch (IOException | RuntimeException e) {
+                    statistics.decodeErrors++;
+                    return;
+                }
+                listener.newASdu(flow, direction, timestampNanos, aSdu);
+            }
+        }
+    }
+
+    /**
+     * The addresses and ports of a flow, client first.
+     */
+    private static class FlowKey {
+
+        static final int CLIENT_ADDRESS = 1;
+        static final int SERVER_ADDRESS = 17;
+        static final int CLIENT_PORT = 33;
+        static final int SERVER_PORT = 35;
+        static final int LENGTH = 37;
+
+        private final byte[] bytes;
+        private int hashCode;
+
+        FlowKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        void set(byte[] buffer, int addressLength, int clientAddress, int clientPort, int serverAddress,
+                int serverPort) {
+            Arrays.fill(bytes, (byte) 0);
+            bytes[0] = (byte) addressLength;
+            System.arraycopy(buffer, clientAddress, bytes, CLIENT_ADDRESS, addressLength);
+            System.arraycopy(buffer, serverAddress, bytes, SERVER_ADDRESS, addressLength);
+            bytes[CLIENT_PORT] = (byte) (clientPort >> 8);
+            bytes[CLIENT_PORT + 1] = (byte) clientPort;
+            bytes[SERVER_PORT] = (byte) (serverPort >> 8);
+            bytes[SERVER_PORT + 1] = (byte) serverPort;
+            hashCode = Arrays.hashCode(bytes);
+        }
+
+        FlowKey copy() {
+            return new FlowKey(bytes.clone());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof FlowKey && Arrays.equals(bytes, ((FlowKey) obj).bytes);
+        }
+    }
+
+    private static int compare(byte[] buffer, int offset1, int offset2, int length) {
+        for (int i = 0; i < length; i++) {
+            int difference = (buffer[offset1 + i] & 0xff) - (buffer[offset2 + i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] buffer, int index) {
+        return ((buffer[index] & 0xff) << 8) | (buffer[index + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] buffer, int index) {
+        return ((buffer[index] & 0xff) << 24) | ((buffer[index + 1] & 0xff) << 16) | ((buffer[index + 2] & 0xff) << 8)
+                | (buffer[index + 3] & 0xff);
+    }
+
+}
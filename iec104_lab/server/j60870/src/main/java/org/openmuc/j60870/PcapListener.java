@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+/**
+ * Receives the ASDUs decoded from a capture by the {@link PcapAnalyzer}.
+ * <p>
+ * The ASDUs of a flow are passed one at a time in capture order. The ASDUs of different flows are passed concurrently
+ * from the threads of the analyzer.
+ */
+public interface PcapListener {
+
+    /**
+     * Called for each decoded ASDU.
+     *
+     * @param flow
+     *            the flow that carried the ASDU, its statistics are incomplete until the analysis has finished
+     * @param direction
+     *            the direction of the ASDU
+     * @param timestampNanos
+     *            the capture time of the segment that completed the APDU in nanoseconds since the epoch
+     * @param aSdu
+     *            the ASDU
+     */
+    void newASdu(PcapFlow flow, PcapFlow.Direction direction, long timestampNanos, ASdu aSdu);
+
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openmuc.j60870.ie.IeTime24;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+/**
+ * A group of redundant connections to the same outstation of which only one is in data transfer state at a time, as
+ * described by the redundancy concept of IEC 60870-5-104. The connections are built from one
+ * {@link ClientConnectionBuilder} per link. The first connection that can be started becomes the active one, the
+ * others are standbys in stopped state that are kept alive by the test frames sent after t3.
+ *
+ * <p>
+ * When the active connection fails, the next standby is promoted by sending STARTDT act, which takes at most t1.
+ * Outstations send the I-format APDUs that were not acknowledged on the failed connection again on the newly started
+ * one. The time-tagged ASDUs among the first k ASDUs of the new connection that equal one of the last k time-tagged
+ * ASDUs delivered by the failed connection are therefore dropped. ASDUs without time tag are always delivered, since
+ * an outstation may legitimately send the same values again, e.g. cyclically or in a repeated interrogation.
+ * </p>
+ *
+ * <p>
+ * Links that are lost, or could not be connected on start, are built up again in the background from their builder.
+ * The waiting time between failed attempts grows exponentially and is randomized as for a
+ * {@link ReconnectingConnection}. A link that has been built up again joins the group as standby, or is promoted if no
+ * connection is active.
+ * </p>
+ */
+public class RedundancyGroup implements AutoCloseable {
+
+    private static final int DEFAULT_INITIAL_BACKOFF = 1_000;
+    private static final int DEFAULT_MAX_BACKOFF = 60_000;
+
+    private final List<ClientConnectionBuilder> builders;
+    private final Listener listener;
+    private final MemberListener memberListener = new MemberListener();
+    // the builders of the connections of the group
+    private final Map<Connection, ClientConnectionBuilder> links = new HashMap<>();
+    private final List<Connection> standbys = new ArrayList<>();
+    // promotions are only run by this executor, so that they never overlap
+    private final ExecutorService switchoverExecutor;
+    private final ScheduledExecutorService reconnectExecutor;
+    private final Random random = new Random();
+
+    private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private int maxBackoff = DEFAULT_MAX_BACKOFF;
+
+    private Connection active;
+    // the active connection that failed and has not been reported by switchedOver yet
+    private Connection failedActive;
+    private boolean promoting;
+    private boolean closed;
+
+    // serializes the calls of the listener, which are made without holding the monitor of the group
+    private final Object notificationLock = new Object();
+
+    // the last k time-tagged ASDUs delivered, only encoded when a switchover has to be deduplicated
+    private final Deque<ASdu> deliveredASdus = new ArrayDeque<>();
+    private final byte[] encodingBuffer = new byte[APdu.MAX_APDU_LENGTH];
+    // the encoded ASDUs that may be sent again on the promoted connection, null if not deduplicating
+    private List<byte[]> retransmissionCandidates;
+    private int remainingRetransmissions;
+
+    /**
+     * The listener interface for receiving the ASDUs of the active connection of a {@link RedundancyGroup} and changes
+     * of the active connection. The methods are never called simultaneously.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when a new ASDU arrives on the active connection.
+         *
+         * @param connection
+         *            the active connection
+         * @param aSdu
+         *            the ASDU that arrived
+         */
+        void newASdu(Connection connection, ASdu aSdu);
+
+        /**
+         * Invoked when a standby has been promoted after the active connection failed, or when the data transfer has
+         * been resumed on a link that was built up again after all connections had failed.
+         *
+         * @param failed
+         *            the connection that failed or null if the data transfer is resumed
+         * @param active
+         *            the new active connection or null if no standby could be started
+         */
+        void switchedOver(Connection failed, Connection active);
+
+        /**
+         * Invoked when a connection of the group has been closed, no matter whether it was active or standby.
+         *
+         * @param connection
+         *            the closed connection
+         * @param cause
+         *            the exception that occurred
+         */
+        void connectionClosed(Connection connection, IOException cause);
+    }
+
+    /**
+     * Creates a redundancy group. The connection event listeners set on the builders are not used.
+     *
+     * @param builders
+     *            one builder per redundant link to the outstation
+     * @param listener
+     *            the listener receiving the ASDUs of the active connection
+     */
+    public RedundancyGroup(List<ClientConnectionBuilder> builders, Listener listener) {
+        if (builders.isEmpty()) {
+            throw new IllegalArgumentException("a redundancy group needs at least one connection");
+        }
+        this.builders = new ArrayList<>(builders);
+        this.listener = listener;
+        this.switchoverExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("RedundancyGroup-switchover"));
+        this.reconnectExecutor = Executors
+                .newSingleThreadScheduledExecutor(daemonThreadFactory("RedundancyGroup-reconnect"));
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Sets the waiting time in ms before building up a lost link again. Default is 1 s.
+     *
+     * @param initialBackoff
+     *            the initial backoff in ms
+     * @return this group
+     */
+    public RedundancyGroup setInitialBackoff(int initialBackoff) {
+        if (initialBackoff < 1) {
+            throw new IllegalArgumentException("invalid initial backoff: " + initialBackoff);
+        }
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * Sets the upper limit of the waiting time in ms between two attempts to build up a lost link. Default is 60 s.
+     *
+     * @param maxBackoff
+     *            the maximum backoff in ms
+     * @return this group
+     */
+    public RedundancyGroup setMaxBackoff(int maxBackoff) {
+        if (maxBackoff < 1) {
+            throw new IllegalArgumentException("invalid maximum backoff: " + maxBackoff);
+        }
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Connects all links of the group and starts the data transfer on the first link that accepts it. Links that
+     * cannot be connected are built up again in the background.
+     *
+     * @throws IOException
+     *             if no link could be connected and started
+     */
+    public void start() throws IOException {
+        IOException lastException = null;
+        List<ClientConnectionBuilder> unreachable = new ArrayList<>();
+        for (ClientConnectionBuilder builder : builders) {
+            try {
+                addStandby(builder.build(builder.settings.getConnectionTimeout(), memberListener), builder);
+            } catch (IOException e) {
+                lastException = e;
+                unreachable.add(builder);
+            }
+        }
+
+        Connection promoted;
+        try {
+            promoted = switchoverExecutor.submit(new Callable<Connection>() {
+
+                @Override
+                public Connection call() {
+                    return promoteStandby();
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while starting the data transfer.");
+        } catch (ExecutionException e) {
+            close();
+            throw new IOException("Starting the data transfer failed.", e.getCause());
+        }
+
+        if (promoted == null) {
+            close();
+            throw lastException != null ? lastException : new IOException("No connection could be started.");
+        }
+        for (ClientConnectionBuilder builder : unreachable) {
+            scheduleReconnect(builder, 1);
+        }
+    }
+
+    /**
+     * Returns the connection that is currently in data transfer state.
+     *
+     * @return the active connection or null during a switchover or if all connections have failed
+     */
+    public synchronized Connection getActiveConnection() {
+        return active;
+    }
+
+    /**
+     * Returns the standby connections.
+     *
+     * @return the connections of the group that are connected but not active
+     */
+    public synchronized List<Connection> getStandbyConnections() {
+        return Collections.unmodifiableList(new ArrayList<>(standbys));
+    }
+
+    /**
+     * Closes all connections of the group.
+     */
+    @Override
+    public void close() {
+        List<Connection> connections;
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayList<>(standbys);
+            if (active != null) {
+                connections.add(active);
+            }
+            standbys.clear();
+            links.clear();
+            active = null;
+        }
+        switchoverExecutor.shutdown();
+        reconnectExecutor.shutdownNow();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Sends STARTDT act on the standbys in order until one confirms it.
+     */
+    private Connection promoteStandby() {
+        while (true) {
+            Connection candidate;
+            synchronized (this) {
+                if (closed || standbys.isEmpty()) {
+                    promoting = false;
+                    return null;
+                }
+                promoting = true;
+                // set before STARTDT act so that no ASDU sent right after STARTDT con is dropped
+                candidate = standbys.remove(0);
+                active = candidate;
+                startDeduplication(candidate);
+            }
+            try {
+                candidate.startDataTransfer();
+            } catch (IOException e) {
+                connectionClosed(candidate, e);
+                candidate.close();
+                continue;
+            }
+
+            synchronized (this) {
+                // the candidate may have been closed right after confirming, then the next standby is tried
+                if (active == candidate) {
+                    promoting = false;
+                    return candidate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the ASDUs delivered before the switchover with the field lengths of the promoted connection.
+     */
+    private void startDeduplication(Connection candidate) {
+        if (deliveredASdus.isEmpty() && retransmissionCandidates == null) {
+            return;
+        }
+        List<byte[]> candidates = new ArrayList<>();
+        if (retransmissionCandidates != null) {
+            // the previous switchover was not completed
+            candidates.addAll(retransmissionCandidates);
+        }
+        for (ASdu aSdu : deliveredASdus) {
+            candidates.add(encode(aSdu, candidate.getSettings()));
+        }
+        deliveredASdus.clear();
+        retransmissionCandidates = candidates;
+        remainingRetransmissions = candidate.getSettings().getMaxNumOfOutstandingIPdus();
+    }
+
+    private void deliver(Connection connection, ASdu aSdu) {
+        synchronized (this) {
+            if (connection != active) {
+                return;
+            }
+
+            boolean timeTagged = isTimeTagged(aSdu);
+            if (retransmissionCandidates != null) {
+                if (timeTagged && removeRetransmission(encode(aSdu, connection.getSettings()))) {
+                    if (--remainingRetransmissions == 0 || retransmissionCandidates.isEmpty()) {
+                        retransmissionCandidates = null;
+                    }
+                    return;
+                }
+                // retransmissions precede new ASDUs, so a new time-tagged ASDU ends the deduplication
+                if (timeTagged || --remainingRetransmissions == 0) {
+                    retransmissionCandidates = null;
+                }
+            }
+
+            if (timeTagged) {
+                deliveredASdus.addLast(aSdu);
+                while (deliveredASdus.size() > connection.getSettings().getMaxNumOfOutstandingIPdus()) {
+                    deliveredASdus.removeFirst();
+                }
+            }
+        }
+
+        // only the reader of the active connection delivers, so the order of the ASDUs is kept
+        synchronized (notificationLock) {
+            listener.newASdu(connection, aSdu);
+        }
+    }
+
+    private byte[] encode(ASdu aSdu, ConnectionSettings settings) {
+        int length = aSdu.encode(encodingBuffer, 0, settings);
+        return Arrays.copyOf(encodingBuffer, length);
+    }
+
+    private boolean removeRetransmission(byte[] encodedASdu) {
+        Iterator<byte[]> iterator = retransmissionCandidates.iterator();
+        while (iterator.hasNext()) {
+            if (Arrays.equals(iterator.next(), encodedASdu)) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTimeTagged(ASdu aSdu) {
+        InformationObject[] informationObjects = aSdu.getInformationObjects();
+        if (informationObjects == null || informationObjects.length == 0) {
+            return false;
+        }
+        for (InformationElement element : informationObjects[0].getInformationElements()[0]) {
+            if (element instanceof IeTime56 || element instanceof IeTime24) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void connectionClosed(Connection connection, IOException cause) {
+        ClientConnectionBuilder builder;
+        boolean switchOver = false;
+        synchronized (this) {
+            builder = links.remove(connection);
+            if (builder == null) {
+                // already handled or closed by the group
+                return;
+            }
+            if (connection == active) {
+                active = null;
+                // a failing candidate is replaced by the running promotion
+                if (!promoting) {
+                    failedActive = connection;
+                    switchOver = true;
+                }
+            }
+            else {
+                standbys.remove(connection);
+            }
+        }
+        synchronized (notificationLock) {
+            listener.connectionClosed(connection, cause);
+        }
+
+        scheduleReconnect(builder, 0);
+        if (switchOver) {
+            switchOver();
+        }
+    }
+
+    private void switchOver() {
+        try {
+            switchoverExecutor.execute(switchoverTask);
+        } catch (RejectedExecutionException e) {
+            // the group has been closed
+        }
+    }
+
+    private final Runnable switchoverTask = new Runnable() {
+
+        @Override
+        public void run() {
+            synchronized (RedundancyGroup.this) {
+                if (active != null) {
+                    // resumed on a link that has been built up again in the meantime
+                    return;
+                }
+            }
+            Connection promoted = promoteStandby();
+            Connection failed;
+            synchronized (RedundancyGroup.this) {
+                if (closed) {
+                    return;
+                }
+                failed = failedActive;
+                failedActive = null;
+            }
+            if (failed == null && promoted == null) {
+                return;
+            }
+            synchronized (notificationLock) {
+                listener.switchedOver(failed, promoted);
+            }
+        }
+    };
+
+    /**
+     * Adds a new connection to the standbys.
+     *
+     * @return true if the connection has been added
+     */
+    private boolean addStandby(Connection connection, ClientConnectionBuilder builder) {
+        boolean added;
+        synchronized (this) {
+            added = !closed;
+            if (added) {
+                links.put(connection, builder);
+                standbys.add(connection);
+            }
+        }
+        if (!added) {
+            connection.close();
+            return false;
+        }
+        if (connection.isClosed()) {
+            // the notification came before the connection had been added and has been ignored
+            connectionClosed(connection, new IOException("Connection closed."));
+            return false;
+        }
+        return true;
+    }
+
+    private void scheduleReconnect(final ClientConnectionBuilder builder, final int failedAttempts) {
+        try {
+            reconnectExecutor.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    reconnect(builder, failedAttempts);
+                }
+            }, ReconnectingConnection.backoff(failedAttempts + 1, initialBackoff, maxBackoff, random),
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the group has been closed
+        }
+    }
+
+    private void reconnect(ClientConnectionBuilder builder, int failedAttempts) {
+        Connection connection;
+        try {
+            connection = builder.build(builder.settings.getConnectionTimeout(), memberListener);
+        } catch (IOException e) {
+            scheduleReconnect(builder, failedAttempts + 1);
+            return;
+        }
+        if (addStandby(connection, builder)) {
+            // resumes the data transfer if all other links have failed
+            switchOver();
+        }
+    }
+
+    private class MemberListener implements ConnectionEventListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+            deliver(connection, aSdu);
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+            RedundancyGroup.this.connectionClosed(connection, cause);
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+            // the group starts and stops the data transfer itself
+        }
+    }
+
+}
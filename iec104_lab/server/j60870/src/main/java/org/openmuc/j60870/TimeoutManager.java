@@ -20,70 +20,138 @@
  */
 package org.openmuc.j60870;
 
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Expires {@link TimeoutTask}s. A task is queued at most once: restarting or canceling a queued task only updates the
+ * task, which is checked and, if it has been restarted, queued again with its new due time when its entry comes up.
+ */
 class TimeoutManager implements Runnable {
 
-    private final PriorityBlockingQueue<TimeoutTask> queue;
+    private static final Comparator<TimeoutTask> SCHEDULED_TIME_ORDER = new Comparator<TimeoutTask>() {
+        @Override
+        public int compare(TimeoutTask t1, TimeoutTask t2) {
+            return Long.compare(t1.scheduledTime, t2.scheduledTime);
+        }
+    };
+
+    // guarded by guardedLock
+    private final PriorityQueue<TimeoutTask> queue;
 
-    private final Object guardedLock;
+    // a lock instead of a monitor, so that waiting does not pin the carrier when running on a virtual thread
+    private final Lock guardedLock;
+    private final Condition taskAdded;
 
     private static final int INITIAL_QUE_CAPACITY = 4;
 
-    boolean canceled;
+    private final String threadName;
 
-    public TimeoutManager() {
-        this.queue = new PriorityBlockingQueue<>(INITIAL_QUE_CAPACITY);
-        this.guardedLock = new Object();
-    }
+    volatile boolean canceled;
 
-    public void addTimerTask(TimeoutTask task) {
-        task.updateDueTime();
-        removeDuplicates(task);
-        this.queue.add(task);
-        notifyLock();
+    public TimeoutManager() {
+        this("TimeoutManager");
     }
 
-    private void notifyLock() {
-        synchronized (this.guardedLock) {
-            this.guardedLock.notifyAll();
-        }
+    /**
+     * @param threadName
+     *            the name given to the thread running the manager
+     */
+    TimeoutManager(String threadName) {
+        this.threadName = threadName;
+        this.queue = new PriorityQueue<>(INITIAL_QUE_CAPACITY, SCHEDULED_TIME_ORDER);
+        this.guardedLock = new ReentrantLock();
+        this.taskAdded = guardedLock.newCondition();
     }
 
-    private void removeDuplicates(TimeoutTask task) {
-        while (queue.remove(task)) {
-            // continue removing until there are no duplicates
+    public void addTimerTask(TimeoutTask task) {
+        this.guardedLock.lock();
+        try {
+            task.updateDueTime();
+            if (task.queued) {
+                // the entry is moved to the new due time when it comes up
+                return;
+            }
+            task.scheduledTime = System.currentTimeMillis() + task.sleepTimeFromDueTime();
+            task.queued = true;
+            this.queue.add(task);
+            if (this.queue.peek() == task) {
+                this.taskAdded.signalAll();
+            }
+        } finally {
+            this.guardedLock.unlock();
         }
     }
 
     public void cancel() {
         this.canceled = true;
+        this.guardedLock.lock();
+        try {
+            this.taskAdded.signalAll();
+        } finally {
+            this.guardedLock.unlock();
+        }
     }
 
     @Override
     public void run() {
-        Thread.currentThread().setName("TimeoutManager");
-        TimeoutTask currentTask;
+        Thread.currentThread().setName(threadName);
         while (!canceled) {
+            TimeoutTask currentTask;
+            this.guardedLock.lock();
             try {
-                long sleepMillis;
-                currentTask = queue.take();
-
-                while ((sleepMillis = currentTask.sleepTimeFromDueTime()) > 0) {
-                    queue.put(currentTask);
-
-                    synchronized (this.guardedLock) {
-                        this.guardedLock.wait(sleepMillis);
-                    }
-                    currentTask = queue.take();
-                }
-
-                currentTask.executeManually();
+                currentTask = nextExpiredTask();
             } catch (InterruptedException e) {
                 // Restore interrupted state...
                 Thread.currentThread().interrupt();
                 return;
+            } finally {
+                this.guardedLock.unlock();
+            }
+
+            if (currentTask != null) {
+                currentTask.executeManually();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next task to expire. Has to be called holding the lock.
+     * 
+     * @return the expired task or <code>null</code> if the manager has been canceled
+     */
+    private TimeoutTask nextExpiredTask() throws InterruptedException {
+        while (!canceled) {
+            TimeoutTask task = this.queue.peek();
+            if (task == null) {
+                this.taskAdded.await();
+                continue;
+            }
+
+            long sleepMillis = task.scheduledTime - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                this.taskAdded.await(sleepMillis, TimeUnit.MILLISECONDS);
+                continue;
+            }
+
+            this.queue.poll();
+            if (task.isCanceled()) {
+                task.queued = false;
+            }
+            else if ((sleepMillis = task.sleepTimeFromDueTime()) > 0) {
+                // restarted since it has been queued
+                task.scheduledTime = System.currentTimeMillis() + sleepMillis;
+                this.queue.add(task);
+            }
+            else {
+                task.queued = false;
+                return task;
             }
         }
+        return null;
     }
 }
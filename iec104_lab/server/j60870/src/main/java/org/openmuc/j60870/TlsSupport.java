@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Creates and configures the TLS sockets of connections that have been built with
+ * {@link CommonBuilder#useTls(SSLContext)}.
+ */
+class TlsSupport {
+
+    private TlsSupport() {
+    }
+
+    static ServerSocket createServerSocket(ConnectionSettings settings, int port, int backlog, InetAddress bindAddr)
+            throws IOException {
+        SSLContext sslContext = settings.getSslContext();
+        configureSessionContext(sslContext.getServerSessionContext(), settings);
+
+        SSLServerSocket serverSocket = (SSLServerSocket) sslContext.getServerSocketFactory()
+                .createServerSocket(port, backlog, bindAddr);
+        if (settings.getTlsProtocols() != null) {
+            serverSocket.setEnabledProtocols(settings.getTlsProtocols());
+        }
+        if (settings.getTlsCipherSuites() != null) {
+            serverSocket.setEnabledCipherSuites(settings.getTlsCipherSuites());
+        }
+        serverSocket.setNeedClientAuth(settings.getTlsNeedClientAuth());
+        return serverSocket;
+    }
+
+    /**
+     * Layers a TLS socket over the connected socket. The address and port of the server identify the cached session
+     * that is resumed.
+     */
+    static SSLSocket layerClientSocket(ConnectionSettings settings, Socket socket, InetAddress address, int port)
+            throws IOException {
+        SSLContext sslContext = settings.getSslContext();
+        configureSessionContext(sslContext.getClientSessionContext(), settings);
+
+        SSLSocket sslSocket;
+        try {
+            sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                    .createSocket(socket, address.getHostAddress(), port, true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        if (settings.getTlsProtocols() != null) {
+            sslSocket.setEnabledProtocols(settings.getTlsProtocols());
+        }
+        if (settings.getTlsCipherSuites() != null) {
+            sslSocket.setEnabledCipherSuites(settings.getTlsCipherSuites());
+        }
+        sslSocket.setUseClientMode(true);
+        return sslSocket;
+    }
+
+    /**
+     * Performs the initial handshake, so that a failing handshake is reported while the connection is built up.
+     */
+    static void handshake(SSLSocket socket, int timeout) throws IOException {
+        int soTimeout = socket.getSoTimeout();
+        socket.setSoTimeout(timeout);
+        socket.startHandshake();
+        socket.setSoTimeout(soTimeout);
+    }
+
+    private static void configureSessionContext(SSLSessionContext sessionContext, ConnectionSettings settings) {
+        if (settings.getTlsSessionCacheSize() >= 0) {
+            sessionContext.setSessionCacheSize(settings.getTlsSessionCacheSize());
+        }
+        if (settings.getTlsSessionTimeout() >= 0) {
+            sessionContext.setSessionTimeout(settings.getTlsSessionTimeout());
+        }
+    }
+
+}
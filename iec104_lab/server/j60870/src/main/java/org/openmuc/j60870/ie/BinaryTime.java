@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.ie;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+/**
+ * Encodes and decodes the binary time formats CP56Time2a, CP24Time2a and CP16Time2a arithmetically, without
+ * <code>java.util.Calendar</code>. The offsets of a time zone are cached for the period between two of its transitions,
+ * so that converting timestamps of the same period requires no lookup of the zone rules.
+ */
+public final class BinaryTime {
+
+    private static final long MS_PER_MINUTE = 60_000L;
+    private static final long MS_PER_HOUR = 3_600_000L;
+    private static final long MS_PER_DAY = 86_400_000L;
+
+    /**
+     * The DST offset used for the summer time flag of CP56Time2a.
+     */
+    private static final int SUMMER_TIME_OFFSET = 3_600_000;
+
+    private static volatile ZonePeriod cachedPeriod = new ZonePeriod("UTC", Long.MIN_VALUE, Long.MAX_VALUE, 0, 0);
+
+    private BinaryTime() {
+    }
+
+    /**
+     * Writes the CP56Time2a encoding of a timestamp to the buffer.
+     *
+     * @param timestamp
+     *            the timestamp in ms
+     * @param timeZone
+     *            the time zone of the encoded time
+     * @param invalid
+     *            true if the time shall be marked as invalid
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset of the first octet
+     * @return the number of bytes written, that is 7
+     */
+    public static int encodeTime56(long timestamp, TimeZone timeZone, boolean invalid, byte[] buffer, int offset) {
+        ZonePeriod period = periodFor(timeZone, timestamp);
+
+        long local = timestamp + period.totalOffset;
+        long days = Math.floorDiv(local, MS_PER_DAY);
+        int msOfDay = (int) (local - days * MS_PER_DAY);
+
+        int ms = msOfDay % 60_000;
+        int minute = msOfDay / 60_000 % 60;
+        int hour = msOfDay / 3_600_000;
+        // 1970-01-01 was a Thursday, CP56Time2a counts from Monday = 1
+        int dayOfWeek = (int) Math.floorMod(days + 3, 7L) + 1;
+
+        // civil date of the day, see Howard Hinnant's days_from_civil algorithms
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dayOfEra = (int) (z - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        buffer[offset] = (byte) ms;
+        buffer[offset + 1] = (byte) (ms >> 8);
+        buffer[offset + 2] = (byte) (invalid ? minute | 0x80 : minute);
+        buffer[offset + 3] = (byte) (period.summerTime ? hour | 0x80 : hour);
+        buffer[offset + 4] = (byte) (dayOfMonth + (dayOfWeek << 5));
+        buffer[offset + 5] = (byte) month;
+        buffer[offset + 6] = (byte) (year % 100);
+        return IeTime56.LENGTH;
+    }
+
+    /**
+     * Returns the timestamp of a CP56Time2a encoded time. Fields out of range are carried over into the next larger
+     * field. The offset of the time zone is its standard offset plus one hour if the summer time flag is set.
+     *
+     * @param buffer
+     *            the buffer containing the encoded time
+     * @param offset
+     *            the offset of the first octet
+     * @param startOfCentury
+     *            the earliest possible year of the time, see {@link IeTime56#getTimestamp(int, TimeZone)}
+     * @param timeZone
+     *            the time zone of the encoded time
+     * @return the timestamp in ms
+     */
+    public static long decodeTime56(byte[] buffer, int offset, int startOfCentury, TimeZone timeZone) {
+        int year = buffer[offset + 6] & 0x7f;
+        int century = startOfCentury / 100 * 100;
+        if (year < (startOfCentury % 100)) {
+            century += 100;
+        }
+        year += century;
+
+        int month = (buffer[offset + 5] & 0x0f) - 1;
+        year += Math.floorDiv(month, 12);
+        month = Math.floorMod(month, 12) + 1;
+
+        long days = daysFromCivil(year, month) + (buffer[offset + 4] & 0x1f) - 1;
+        long local = days * MS_PER_DAY + (buffer[offset + 3] & 0x1f) * MS_PER_HOUR
+                + (buffer[offset + 2] & 0x3f) * MS_PER_MINUTE + decodeTime16(buffer, offset);
+
+        int summerTimeOffset = (buffer[offset + 3] & 0x80) == 0x80 ? SUMMER_TIME_OFFSET : 0;
+
+        // the standard offset of the zone at the local time, as used by a calendar with only the DST offset set
+        int standardOffset = timeZone.getRawOffset();
+        ZonePeriod period = periodFor(timeZone, local - standardOffset);
+        if (period.standardOffset != standardOffset) {
+            period = periodFor(timeZone, local - period.standardOffset);
+        }
+        return local - period.standardOffset - summerTimeOffset;
+    }
+
+    /**
+     * Writes the CP24Time2a encoding of a timestamp, the millisecond of the minute and the minute of the hour, to the
+     * buffer.
+     *
+     * @return the number of bytes written, that is 3
+     */
+    public static int encodeTime24(long timestamp, TimeZone timeZone, byte[] buffer, int offset) {
+        long msOfHour = Math.floorMod(timestamp + periodFor(timeZone, timestamp).totalOffset, MS_PER_HOUR);
+        int ms = (int) (msOfHour % MS_PER_MINUTE);
+        buffer[offset] = (byte) ms;
+        buffer[offset + 1] = (byte) (ms >> 8);
+        buffer[offset + 2] = (byte) (msOfHour / MS_PER_MINUTE);
+        return 3;
+    }
+
+    /**
+     * Returns the ms after the full hour of a CP24Time2a encoded time.
+     */
+    public static int decodeTime24(byte[] buffer, int offset) {
+        return decodeTime16(buffer, offset) + buffer[offset + 2] * 60_000;
+    }
+
+    /**
+     * Writes the CP16Time2a encoding of a timestamp, the millisecond of the minute, to the buffer.
+     *
+     * @return the number of bytes written, that is 2
+     */
+    public static int encodeTime16(long timestamp, TimeZone timeZone, byte[] buffer, int offset) {
+        int ms = (int) Math.floorMod(timestamp + periodFor(timeZone, timestamp).totalOffset, MS_PER_MINUTE);
+        buffer[offset] = (byte) ms;
+        buffer[offset + 1] = (byte) (ms >> 8);
+        return 2;
+    }
+
+    /**
+     * Returns the ms of a CP16Time2a encoded time.
+     */
+    public static int decodeTime16(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) + ((buffer[offset + 1] & 0xff) << 8);
+    }
+
+    /**
+     * Returns the days since 1970-01-01 of the first day of the given month.
+     */
+    private static long daysFromCivil(long year, int month) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        int yearOfEra = (int) (year - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static ZonePeriod periodFor(TimeZone timeZone, long timestamp) {
+        if (timeZone instanceof SimpleTimeZone) {
+            // custom rules, which may differ from the zone rules of the same ID
+            return ZonePeriod.ofCustom(timeZone, timestamp);
+        }
+        ZonePeriod period = cachedPeriod;
+        if (period.covers(timeZone, timestamp)) {
+            return period;
+        }
+        period = ZonePeriod.of(timeZone, timestamp);
+        cachedPeriod = period;
+        return period;
+    }
+
+    /**
+     * The offsets of a time zone between two transitions.
+     */
+    private static class ZonePeriod {
+
+        private final String zoneId;
+        private final long start;
+        private final long end;
+        private final int totalOffset;
+        private final int standardOffset;
+        private final boolean summerTime;
+
+        ZonePeriod(String zoneId, long start, long end, int totalOffset, int standardOffset) {
+            this.zoneId = zoneId;
+            this.start = start;
+            this.end = end;
+            this.totalOffset = totalOffset;
+            this.standardOffset = standardOffset;
+            this.summerTime = totalOffset != standardOffset;
+        }
+
+        boolean covers(TimeZone timeZone, long timestamp) {
+            return timestamp >= start && timestamp < end && zoneId != null && zoneId.equals(timeZone.getID());
+        }
+
+        /**
+         * Returns the offsets of a time zone without zone rules. They are valid for the given timestamp only.
+         */
+        static ZonePeriod ofCustom(TimeZone timeZone, long timestamp) {
+            int totalOffset = timeZone.getOffset(timestamp);
+            int standardOffset = timeZone.inDaylightTime(new Date(timestamp)) ? totalOffset - timeZone.getDSTSavings()
+                    : totalOffset;
+            return new ZonePeriod(null, timestamp, timestamp + 1, totalOffset, standardOffset);
+        }
+
+        static ZonePeriod of(TimeZone timeZone, long timestamp) {
+            ZoneRules rules;
+            try {
+                rules = timeZone.toZoneId().getRules();
+            } catch (DateTimeException e) {
+                return ofCustom(timeZone, timestamp);
+            }
+
+            Instant instant = Instant.ofEpochMilli(timestamp);
+            int totalOffset = rules.getOffset(instant).getTotalSeconds() * 1000;
+            int standardOffset = rules.getStandardOffset(instant).getTotalSeconds() * 1000;
+
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            long end = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+            ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+            long start = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+
+            if (start > timestamp || end <= timestamp || end != Long.MAX_VALUE
+                    && rules.getStandardOffset(Instant.ofEpochMilli(end - 1)).getTotalSeconds() * 1000 != standardOffset
+                    || start != Long.MIN_VALUE && rules.getStandardOffset(Instant.ofEpochMilli(start))
+                            .getTotalSeconds() * 1000 != standardOffset) {
+                // the standard offset changes without a transition of the total offset, or the transitions do not
+                // enclose the timestamp
+                start = timestamp;
+                end = timestamp + 1;
+            }
+            return new ZonePeriod(timeZone.getID(), start, end, totalOffset, standardOffset);
+        }
+    }
+
+}
@@ -20,29 +20,23 @@
  */
 package org.openmuc.j60870.ie;
 
-import java.io.DataInputStream;
-import java.io.IOException;
-
 abstract class IeAbstractQualifierOfCommand extends InformationElement {
 
-    protected int value;
+    protected final int value;
 
-    IeAbstractQualifierOfCommand(int qualifier, boolean select) {
+    IeAbstractQualifierOfCommand(int value) {
+        this.value = value;
+    }
 
+    static int qualifierBits(int qualifier, boolean select) {
         if (qualifier < 0 || qualifier > 31) {
             throw new IllegalArgumentException("Qualifier is out of bound: " + qualifier);
         }
-
-        value = qualifier << 2;
-
+        int value = qualifier << 2;
         if (select) {
             value |= 0x80;
         }
-
-    }
-
-    IeAbstractQualifierOfCommand(DataInputStream is) throws IOException {
-        value = (is.readByte() & 0xff);
+        return value;
     }
 
     @Override
@@ -68,5 +62,4 @@ abstract class IeAbstractQualifierOfCommand extends InformationElement {
     public String toString() {
         return "selected: " + isSelect() + ", qualifier: " + getQualifier();
     }
-
 }
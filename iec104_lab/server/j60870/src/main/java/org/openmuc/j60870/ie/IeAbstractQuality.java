@@ -20,17 +20,18 @@
  */
 package org.openmuc.j60870.ie;
 
-import java.io.DataInputStream;
-import java.io.IOException;
 import java.text.MessageFormat;
 
 abstract class IeAbstractQuality extends InformationElement {
 
-    protected int value;
+    protected final int value;
 
-    public IeAbstractQuality(boolean blocked, boolean substituted, boolean notTopical, boolean invalid) {
+    IeAbstractQuality(int value) {
+        this.value = value;
+    }
 
-        value = 0;
+    static int qualityBits(boolean blocked, boolean substituted, boolean notTopical, boolean invalid) {
+        int value = 0;
 
         if (blocked) {
             value |= 0x10;
@@ -45,10 +46,7 @@ abstract class IeAbstractQuality extends InformationElement {
             value |= 0x80;
         }
 
-    }
-
-    IeAbstractQuality(DataInputStream is) throws IOException {
-        value = is.readUnsignedByte();
+        return value;
     }
 
     @Override
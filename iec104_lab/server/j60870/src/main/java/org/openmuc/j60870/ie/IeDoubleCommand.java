@@ -26,10 +26,19 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Represents a double command (DCO) information element.
+ * Represents a double command (DCO) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(DoubleCommandState, int, boolean)} return one shared instance per encoded value.
  */
 public class IeDoubleCommand extends IeAbstractQualifierOfCommand {
 
+    private static final IeDoubleCommand[] INSTANCES = new IeDoubleCommand[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeDoubleCommand(i);
+        }
+    }
+
     public enum DoubleCommandState {
         NOT_PERMITTED_A(0),
         OFF(1),
@@ -86,13 +95,30 @@ public class IeDoubleCommand extends IeAbstractQualifierOfCommand {
      *            true if select, false if execute
      */
     public IeDoubleCommand(DoubleCommandState commandState, int qualifier, boolean select) {
-        super(qualifier, select);
+        this(qualifierBits(qualifier, select) | commandState.getId());
+    }
+
+    private IeDoubleCommand(int value) {
+        super(value);
+    }
 
-        value |= commandState.getId();
+    /**
+     * Returns the shared instance of the double command with the given state and qualifier.
+     * 
+     * @param commandState
+     *            the command state
+     * @param qualifier
+     *            the qualifier
+     * @param select
+     *            true if select, false if execute
+     * @return the double command
+     */
+    public static IeDoubleCommand valueOf(DoubleCommandState commandState, int qualifier, boolean select) {
+        return INSTANCES[qualifierBits(qualifier, select) | commandState.getId()];
     }
 
-    IeDoubleCommand(DataInputStream is) throws IOException {
-        super(is);
+    static IeDoubleCommand decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
     public DoubleCommandState getCommandState() {
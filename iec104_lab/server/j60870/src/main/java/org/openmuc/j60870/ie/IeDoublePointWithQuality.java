@@ -24,10 +24,20 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a double-point information with quality descriptor (DIQ) information element.
+ * Represents a double-point information with quality descriptor (DIQ) information element. Instances are immutable.
+ * The decoder and {@link #valueOf(DoublePointInformation, boolean, boolean, boolean, boolean)} return one shared
+ * instance per encoded value.
  */
 public class IeDoublePointWithQuality extends IeAbstractQuality {
 
+    private static final IeDoublePointWithQuality[] INSTANCES = new IeDoublePointWithQuality[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeDoublePointWithQuality(i);
+        }
+    }
+
     public enum DoublePointInformation {
         INDETERMINATE_OR_INTERMEDIATE,
         OFF,
@@ -37,25 +47,41 @@ public class IeDoublePointWithQuality extends IeAbstractQuality {
 
     public IeDoublePointWithQuality(DoublePointInformation dpi, boolean blocked, boolean substituted,
             boolean notTopical, boolean invalid) {
-        super(blocked, substituted, notTopical, invalid);
+        this(bits(dpi, blocked, substituted, notTopical, invalid));
+    }
 
-        switch (dpi) {
-        case INDETERMINATE_OR_INTERMEDIATE:
-            break;
-        case OFF:
-            value |= 0x01;
-            break;
-        case ON:
-            value |= 0x02;
-            break;
-        case INDETERMINATE:
-            value |= 0x03;
-            break;
-        }
+    private IeDoublePointWithQuality(int value) {
+        super(value);
+    }
+
+    /**
+     * Returns the shared instance of the double-point information with the given state and quality.
+     *
+     * @param dpi
+     *            the state
+     * @param blocked
+     *            the blocked flag
+     * @param substituted
+     *            the substituted flag
+     * @param notTopical
+     *            the not topical flag
+     * @param invalid
+     *            the invalid flag
+     * @return the double-point information
+     */
+    public static IeDoublePointWithQuality valueOf(DoublePointInformation dpi, boolean blocked, boolean substituted,
+            boolean notTopical, boolean invalid) {
+        return INSTANCES[bits(dpi, blocked, substituted, notTopical, invalid)];
+    }
+
+    static IeDoublePointWithQuality decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
-    IeDoublePointWithQuality(DataInputStream is) throws IOException {
-        super(is);
+    private static int bits(DoublePointInformation dpi, boolean blocked, boolean substituted, boolean notTopical,
+            boolean invalid) {
+        // the ordinals are the encoded states
+        return qualityBits(blocked, substituted, notTopical, invalid) | dpi.ordinal();
     }
 
     public DoublePointInformation getDoublePointInformation() {
@@ -26,10 +26,19 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Represents a regulating step command (RCO) information element.
+ * Represents a regulating step command (RCO) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(StepCommandState, int, boolean)} return one shared instance per encoded value.
  */
 public class IeRegulatingStepCommand extends IeAbstractQualifierOfCommand {
 
+    private static final IeRegulatingStepCommand[] INSTANCES = new IeRegulatingStepCommand[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeRegulatingStepCommand(i);
+        }
+    }
+
     public enum StepCommandState {
         NOT_PERMITTED_A(0),
         NEXT_STEP_LOWER(1),
@@ -86,13 +95,30 @@ public class IeRegulatingStepCommand extends IeAbstractQualifierOfCommand {
      *            true if select, false if execute
      */
     public IeRegulatingStepCommand(StepCommandState commandState, int qualifier, boolean select) {
-        super(qualifier, select);
+        this(qualifierBits(qualifier, select) | commandState.getId());
+    }
+
+    private IeRegulatingStepCommand(int value) {
+        super(value);
+    }
 
-        value |= commandState.getId();
+    /**
+     * Returns the shared instance of the regulating step command with the given state and qualifier.
+     * 
+     * @param commandState
+     *            the command state
+     * @param qualifier
+     *            the qualifier
+     * @param select
+     *            true if select, false if execute
+     * @return the regulating step command
+     */
+    public static IeRegulatingStepCommand valueOf(StepCommandState commandState, int qualifier, boolean select) {
+        return INSTANCES[qualifierBits(qualifier, select) | commandState.getId()];
     }
 
-    IeRegulatingStepCommand(DataInputStream is) throws IOException {
-        super(is);
+    static IeRegulatingStepCommand decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
     public StepCommandState getCommandState() {
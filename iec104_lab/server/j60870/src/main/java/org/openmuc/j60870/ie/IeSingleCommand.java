@@ -24,20 +24,44 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a single command (SCO) information element.
+ * Represents a single command (SCO) information element. Instances are immutable. The decoder and
+ * {@link #valueOf(boolean, int, boolean)} return one shared instance per encoded value.
  */
 public class IeSingleCommand extends IeAbstractQualifierOfCommand {
 
-    public IeSingleCommand(boolean commandStateOn, int qualifier, boolean select) {
-        super(qualifier, select);
+    private static final IeSingleCommand[] INSTANCES = new IeSingleCommand[256];
 
-        if (commandStateOn) {
-            value |= 0x01;
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeSingleCommand(i);
         }
     }
 
-    IeSingleCommand(DataInputStream is) throws IOException {
-        super(is);
+    public IeSingleCommand(boolean commandStateOn, int qualifier, boolean select) {
+        this(qualifierBits(qualifier, select) | (commandStateOn ? 0x01 : 0));
+    }
+
+    private IeSingleCommand(int value) {
+        super(value);
+    }
+
+    /**
+     * Returns the shared instance of the single command with the given state and qualifier.
+     *
+     * @param commandStateOn
+     *            the command state
+     * @param qualifier
+     *            the qualifier
+     * @param select
+     *            true if select, false if execute
+     * @return the single command
+     */
+    public static IeSingleCommand valueOf(boolean commandStateOn, int qualifier, boolean select) {
+        return INSTANCES[qualifierBits(qualifier, select) | (commandStateOn ? 0x01 : 0)];
+    }
+
+    static IeSingleCommand decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
     public boolean isCommandStateOn() {
@@ -48,5 +72,4 @@ public class IeSingleCommand extends IeAbstractQualifierOfCommand {
     public String toString() {
         return "Single Command state on: " + isCommandStateOn() + ", " + super.toString();
     }
-
 }
@@ -24,21 +24,55 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 /**
- * Represents a single-point information with quality descriptor (SIQ) information element.
+ * Represents a single-point information with quality descriptor (SIQ) information element. Instances are immutable.
+ * The decoder and {@link #valueOf(boolean, boolean, boolean, boolean, boolean)} return one shared instance per
+ * encoded value.
  */
 public class IeSinglePointWithQuality extends IeAbstractQuality {
 
+    private static final IeSinglePointWithQuality[] INSTANCES = new IeSinglePointWithQuality[256];
+
+    static {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCES[i] = new IeSinglePointWithQuality(i);
+        }
+    }
+
     public IeSinglePointWithQuality(boolean on, boolean blocked, boolean substituted, boolean notTopical,
             boolean invalid) {
-        super(blocked, substituted, notTopical, invalid);
+        this(bits(on, blocked, substituted, notTopical, invalid));
+    }
 
-        if (on) {
-            value |= 0x01;
-        }
+    private IeSinglePointWithQuality(int value) {
+        super(value);
+    }
+
+    /**
+     * Returns the shared instance of the single-point information with the given state and quality.
+     *
+     * @param on
+     *            the state
+     * @param blocked
+     *            the blocked flag
+     * @param substituted
+     *            the substituted flag
+     * @param notTopical
+     *            the not topical flag
+     * @param invalid
+     *            the invalid flag
+     * @return the single-point information
+     */
+    public static IeSinglePointWithQuality valueOf(boolean on, boolean blocked, boolean substituted,
+            boolean notTopical, boolean invalid) {
+        return INSTANCES[bits(on, blocked, substituted, notTopical, invalid)];
+    }
+
+    static IeSinglePointWithQuality decode(DataInputStream is) throws IOException {
+        return INSTANCES[is.readUnsignedByte()];
     }
 
-    IeSinglePointWithQuality(DataInputStream is) throws IOException {
-        super(is);
+    private static int bits(boolean on, boolean blocked, boolean substituted, boolean notTopical, boolean invalid) {
+        return qualityBits(blocked, substituted, notTopical, invalid) | (on ? 0x01 : 0);
     }
 
     public boolean isOn() {
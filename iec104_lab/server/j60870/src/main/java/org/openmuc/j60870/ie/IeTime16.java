@@ -22,7 +22,7 @@ package org.openmuc.j60870.ie;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.Calendar;
+import java.util.TimeZone;
 
 /**
  * Represents a two octet binary time (CP16Time2a) information element.
@@ -32,13 +32,7 @@ public class IeTime16 extends InformationElement {
     private final byte[] value = new byte[2];
 
     public IeTime16(long timestamp) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(timestamp);
-
-        int ms = calendar.get(Calendar.MILLISECOND) + 1000 * calendar.get(Calendar.SECOND);
-
-        value[0] = (byte) ms;
-        value[1] = (byte) (ms >> 8);
+        BinaryTime.encodeTime16(timestamp, TimeZone.getDefault(), value, 0);
     }
 
     public IeTime16(int timeInMs) {
@@ -59,7 +53,7 @@ public class IeTime16 extends InformationElement {
     }
 
     public int getTimeInMs() {
-        return (value[0] & 0xff) + ((value[1] & 0xff) << 8);
+        return BinaryTime.decodeTime16(value, 0);
     }
 
     @Override
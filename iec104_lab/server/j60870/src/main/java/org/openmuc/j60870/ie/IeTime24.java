@@ -22,7 +22,7 @@ package org.openmuc.j60870.ie;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.Calendar;
+import java.util.TimeZone;
 
 /**
  * Represents a three octet binary time (CP24Time2a) information element.
@@ -32,14 +32,7 @@ public class IeTime24 extends InformationElement {
     private final byte[] value = new byte[3];
 
     public IeTime24(long timestamp) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(timestamp);
-
-        int ms = calendar.get(Calendar.MILLISECOND) + 1000 * calendar.get(Calendar.SECOND);
-
-        value[0] = (byte) ms;
-        value[1] = (byte) (ms >> 8);
-        value[2] = (byte) calendar.get(Calendar.MINUTE);
+        BinaryTime.encodeTime24(timestamp, TimeZone.getDefault(), value, 0);
     }
 
     public IeTime24(int timeInMs) {
@@ -61,7 +54,7 @@ public class IeTime24 extends InformationElement {
     }
 
     public int getTimeInMs() {
-        return (value[0] & 0xff) + ((value[1] & 0xff) << 8) + value[2] * 60000;
+        return BinaryTime.decodeTime24(value, 0);
     }
 
     @Override
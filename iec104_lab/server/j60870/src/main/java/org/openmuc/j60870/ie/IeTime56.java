@@ -22,10 +22,7 @@ package org.openmuc.j60870.ie;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.TimeZone;
 
 /**
@@ -34,7 +31,7 @@ import java.util.TimeZone;
  */
 public class IeTime56 extends InformationElement {
 
-    private static final int LENGTH = 7;
+    static final int LENGTH = 7;
     private final byte[] value;
     private final TimeZone timeZone;
 
@@ -49,40 +46,9 @@ public class IeTime56 extends InformationElement {
      *            true if the time shall be marked as invalid
      */
     public IeTime56(long timestamp, TimeZone timeZone, boolean invalid) {
-        Calendar calendar = Calendar.getInstance(timeZone);
         this.timeZone = timeZone;
-        calendar.setTimeInMillis(timestamp);
-
-        short ms = (short) (calendar.get(Calendar.MILLISECOND) + 1000 * calendar.get(Calendar.SECOND));
-
-        byte day = (byte) (calendar.get(Calendar.DAY_OF_MONTH)
-                + ((((calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7) + 1) << 5));
-
-        this.value = ByteBuffer.allocate(7)
-                .order(ByteOrder.LITTLE_ENDIAN)
-                .putShort(ms)
-                .put(minuteFor(invalid, calendar))
-                .put(hourOfTheDay(calendar))
-                .put(day)
-                .put((byte) (calendar.get(Calendar.MONTH) + 1))
-                .put((byte) (calendar.get(Calendar.YEAR) % 100))
-                .array();
-    }
-
-    private static byte hourOfTheDay(Calendar calendar) {
-        int hod = calendar.get(Calendar.HOUR_OF_DAY);
-        if (calendar.getTimeZone().inDaylightTime(calendar.getTime())) {
-            hod |= 0x80;
-        }
-        return (byte) hod;
-    }
-
-    private static byte minuteFor(boolean invalid, Calendar calendar) {
-        int min = calendar.get(Calendar.MINUTE);
-        if (invalid) {
-            min |= 0x80;
-        }
-        return (byte) min;
+        this.value = new byte[LENGTH];
+        BinaryTime.encodeTime56(timestamp, timeZone, invalid, value, 0);
     }
 
     /**
@@ -133,18 +99,24 @@ public class IeTime56 extends InformationElement {
      * @return the timestamp in ms equivalent to this Time56 instance
      */
     public long getTimestamp(int startOfCentury, TimeZone timeZone) {
+        return timestamp(value, 0, startOfCentury, timeZone);
+    }
 
-        int century = startOfCentury / 100 * 100;
-        if (value[6] < (startOfCentury % 100)) {
-            century += 100;
-        }
-
-        Calendar calendar = Calendar.getInstance(timeZone);
-        calendar.set(Calendar.DST_OFFSET, isSummerTime() ? 3600000 : 0);
-        calendar.set(getYear() + century, getMonth() - 1, getDayOfMonth(), getHour(), getMinute(), getSecond());
-        calendar.set(Calendar.MILLISECOND, getMillisecond());
-
-        return calendar.getTimeInMillis();
+    /**
+     * Returns the timestamp in ms of a CP56Time2a encoded time at the given position of a buffer.
+     *
+     * @param buffer
+     *            the buffer containing the encoded time
+     * @param offset
+     *            the offset of the first octet of the encoded time
+     * @param startOfCentury
+     *            the earliest possible year of the time, see {@link #getTimestamp(int, TimeZone)}
+     * @param timeZone
+     *            the timezone that shall be used to calculate the timestamp.
+     * @return the timestamp in ms
+     */
+    public static long timestamp(byte[] buffer, int offset, int startOfCentury, TimeZone timeZone) {
+        return BinaryTime.decodeTime56(buffer, offset, startOfCentury, timeZone);
     }
 
     /**
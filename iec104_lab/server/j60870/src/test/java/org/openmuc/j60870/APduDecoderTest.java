@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.openmuc.j60870.APdu.ApciType;
+import org.openmuc.j60870.internal.HexUtils;
+
+public class APduDecoderTest {
+
+    private static final byte[] I_FRAME = HexUtils.hexToBytes("680E0200020064010600010000001400");
+    private static final byte[] S_FRAME = HexUtils.hexToBytes("680401000600");
+
+    private final APduDecoder decoder = new APduDecoder(512);
+
+    @Test
+    public void testFramesInOneRead() throws IOException {
+        decoder.readFrom(new ByteArrayInputStream(concat(I_FRAME, S_FRAME)));
+
+        APdu iFrame = decoder.nextAPdu();
+        assertEquals(ApciType.I_FORMAT, iFrame.getApciType());
+        assertEquals(1, iFrame.getSendSeqNumber());
+        assertEquals(1, iFrame.getReceiveSeqNumber());
+        assertArrayEquals(Arrays.copyOfRange(I_FRAME, 6, I_FRAME.length), Arrays.copyOfRange(iFrame.getASduBuffer(),
+                iFrame.getASduOffset(), iFrame.getASduOffset() + iFrame.getASduLength()));
+
+        APdu sFrame = decoder.nextAPdu();
+        assertEquals(ApciType.S_FORMAT, sFrame.getApciType());
+        assertEquals(3, sFrame.getReceiveSeqNumber());
+
+        assertNull(decoder.nextAPdu());
+        assertFalse(decoder.hasPartialAPdu());
+    }
+
+    @Test
+    public void testFragmentedFrame() throws IOException {
+        decoder.readFrom(new ByteArrayInputStream(Arrays.copyOf(I_FRAME, 7)));
+        assertNull(decoder.nextAPdu());
+        assertTrue(decoder.hasPartialAPdu());
+
+        decoder.readFrom(new ByteArrayInputStream(Arrays.copyOfRange(I_FRAME, 7, I_FRAME.length)));
+        assertEquals(ApciType.I_FORMAT, decoder.nextAPdu().getApciType());
+        assertFalse(decoder.hasPartialAPdu());
+    }
+
+    @Test
+    public void testResyncOnStartFlag() throws IOException {
+        decoder.readFrom(new ByteArrayInputStream(concat(new byte[] { 0x01, 0x02, 0x03 }, S_FRAME)));
+
+        assertEquals(ApciType.S_FORMAT, decoder.nextAPdu().getApciType());
+        assertFalse(decoder.hasPartialAPdu());
+    }
+
+    @Test
+    public void testBufferIsReused() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            decoder.readFrom(new ByteArrayInputStream(concat(S_FRAME, Arrays.copyOf(I_FRAME, 3))));
+            assertEquals(ApciType.S_FORMAT, decoder.nextAPdu().getApciType());
+            assertNull(decoder.nextAPdu());
+
+            decoder.readFrom(new ByteArrayInputStream(Arrays.copyOfRange(I_FRAME, 3, I_FRAME.length)));
+            assertEquals(ApciType.I_FORMAT, decoder.nextAPdu().getApciType());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidLength() throws IOException {
+        decoder.readFrom(new ByteArrayInputStream(HexUtils.hexToBytes("6802010006")));
+        decoder.nextAPdu();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+}
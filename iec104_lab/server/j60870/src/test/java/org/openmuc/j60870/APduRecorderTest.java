@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class APduRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndRead() throws IOException {
+        File file = folder.newFile("capture.bin");
+        long before = System.currentTimeMillis() * 1_000_000L;
+        try (APduRecorder recorder = new APduRecorder(file, 4096)) {
+            recorder.recordOpened(7, "/127.0.0.1:2404");
+            recorder.recordReceived(7, new byte[] { 0, 0x68, 0x04, 0x07, 0x00, 0x00, 0x00 }, 1, 6);
+            byte[] sent = frame(20, 1);
+            recorder.recordingOutputStream(new ByteArrayOutputStream(), 7).write(sent, 0, sent.length);
+            recorder.recordClosed(7);
+            assertEquals(4, recorder.getNextSequenceNumber());
+        }
+
+        try (APduCaptureReader reader = new APduCaptureReader(file)) {
+            assertEquals(0, reader.getFirstSequenceNumber());
+            assertEquals(4, reader.getNextSequenceNumber());
+
+            APduRecord opened = reader.read(0);
+            assertEquals(APduRecord.Direction.OPENED, opened.getDirection());
+            assertEquals(7, opened.getConnectionId());
+            assertEquals("/127.0.0.1:2404", new String(opened.getData(), StandardCharsets.UTF_8));
+            assertTrue(opened.getTimestampNanos() >= before);
+
+            APduRecord received = reader.read(1);
+            assertEquals(APduRecord.Direction.RECEIVED, received.getDirection());
+            assertArrayEquals(new byte[] { 0x68, 0x04, 0x07, 0x00, 0x00, 0x00 }, received.getData());
+            assertTrue(received.getTimestampNanos() >= opened.getTimestampNanos());
+            assertTrue(received.toString(), received.toString().endsWith("RECEIVED 68 04 07 00 00 00"));
+
+            APduRecord sent = reader.read(2);
+            assertEquals(APduRecord.Direction.SENT, sent.getDirection());
+            assertArrayEquals(frame(20, 1), sent.getData());
+
+            assertEquals(APduRecord.Direction.CLOSED, reader.read(3).getDirection());
+            assertEquals(0, reader.read(3).getData().length);
+            assertNull(reader.read(4));
+        }
+    }
+
+    @Test
+    public void testOverwriteOldestRecords() throws IOException {
+        File file = folder.newFile("capture.bin");
+        int n = 1000;
+        try (APduRecorder recorder = new APduRecorder(file, 4096)) {
+            for (int i = 0; i < n; i++) {
+                byte[] frame = frame(1 + i % 200, i);
+                recorder.recordReceived(1, frame, 0, frame.length);
+            }
+        }
+
+        try (APduCaptureReader reader = new APduCaptureReader(file)) {
+            assertEquals(n, reader.getNextSequenceNumber());
+            assertNull(reader.read(0));
+            int available = 0;
+            for (long i = reader.getFirstSequenceNumber(); i < n; i++) {
+                APduRecord record = reader.read(i);
+                if (record == null) {
+                    assertEquals("records are overwritten from the oldest on", 0, available);
+                    continue;
+                }
+                available++;
+                assertArrayEquals(frame(1 + (int) i % 200, (int) i), record.getData());
+            }
+            assertNotNull(reader.read(n - 1));
+            assertTrue(available > 1);
+        }
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        File file = folder.newFile("capture.bin");
+        byte[] frame = frame(10, 3);
+        try (APduRecorder recorder = new APduRecorder(file, 8192)) {
+            recorder.recordReceived(1, frame, 0, frame.length);
+        }
+        try (APduRecorder recorder = new APduRecorder(file, 8192)) {
+            assertEquals(1, recorder.getNextSequenceNumber());
+            recorder.recordReceived(2, frame, 0, frame.length);
+        }
+        try (APduCaptureReader reader = new APduCaptureReader(file)) {
+            assertEquals(2, reader.getNextSequenceNumber());
+            assertEquals(1, reader.read(0).getConnectionId());
+            assertEquals(2, reader.read(1).getConnectionId());
+        }
+
+        // a different capacity starts a new capture
+        try (APduRecorder recorder = new APduRecorder(file, 4096)) {
+            assertEquals(0, recorder.getNextSequenceNumber());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotACaptureFile() throws IOException {
+        new APduCaptureReader(folder.newFile("empty.bin")).close();
+    }
+
+    /**
+     * Returns an I format APDU with an ASDU of the given length whose octets are derived from the seed.
+     */
+    private static byte[] frame(int aSduLength, int seed) {
+        byte[] frame = new byte[APdu.HEADER_LENGTH + aSduLength];
+        for (int i = APdu.HEADER_LENGTH; i < frame.length; i++) {
+            frame[i] = (byte) (seed + i);
+        }
+        APdu.encodeIFormatHeader(frame, aSduLength, seed, 0);
+        return frame;
+    }
+
+}
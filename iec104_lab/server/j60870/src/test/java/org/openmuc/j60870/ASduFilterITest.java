@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ASduFilterITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<Connection> serverConnections = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ASdu> aSdus = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ASdu> routedASdus = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ASduView> routedViews = new LinkedBlockingQueue<>();
+    private final ExecutorService routeExecutor = Executors.newSingleThreadExecutor();
+
+    private Server server;
+    private Connection connection;
+
+    @After
+    public void stop() {
+        if (connection != null) {
+            connection.close();
+        }
+        server.stop();
+        routeExecutor.shutdown();
+    }
+
+    @Test
+    public void testDropAndRoute() throws Exception {
+        ASduFilterChain chain = new ASduFilterChain().drop(new ASduFilter().commonAddresses(99, 99))
+                .route(new ASduFilter().causes(CauseOfTransmission.PERIODIC), new Listener(routedASdus),
+                        routeExecutor)
+                .route(new ASduFilter().informationObjectAddresses(5000, 5999), new ViewListener());
+        Connection serverConnection = connect(new ClientConnectionBuilder(InetAddress.getLoopbackAddress()), chain);
+
+        // more than fit into the send window, so the dropped ASDUs have to be acknowledged
+        for (int i = 0; i < 50; i++) {
+            serverConnection.send(scaledValue(CauseOfTransmission.SPONTANEOUS, 99, i));
+        }
+        for (int i = 0; i < 20; i++) {
+            serverConnection.send(scaledValue(CauseOfTransmission.PERIODIC, 1, i));
+        }
+        serverConnection.send(scaledValue(CauseOfTransmission.SPONTANEOUS, 1, 5001));
+        serverConnection.send(scaledValue(CauseOfTransmission.SPONTANEOUS, 1, 7));
+
+        ASdu aSdu = aSdus.poll(5, TimeUnit.SECONDS);
+        assertNotNull(aSdu);
+        assertEquals(7, aSdu.getInformationObjects()[0].getInformationObjectAddress());
+        for (int i = 0; i < 20; i++) {
+            aSdu = routedASdus.poll(5, TimeUnit.SECONDS);
+            assertNotNull(aSdu);
+            assertEquals(i, aSdu.getInformationObjects()[0].getInformationObjectAddress());
+        }
+        ASduView view = routedViews.poll(5, TimeUnit.SECONDS);
+        assertNotNull(view);
+        assertEquals(5001, view.ioa(0));
+
+        assertNull(aSdus.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(50, chain.getMatchCount(0));
+        assertEquals(20, chain.getMatchCount(1));
+        assertEquals(1, chain.getMatchCount(2));
+        assertEquals(1, chain.getUnmatchedCount());
+    }
+
+    private Connection connect(ClientConnectionBuilder builder, ASduFilterChain chain) throws Exception {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new Listener(null) {
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (!stopped) {
+                            serverConnections.add(connection);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+
+        connection = builder.setPort(port).setASduFilterChain(chain).setConnectionEventListener(new Listener(aSdus))
+                .build();
+        connection.startDataTransfer();
+
+        Connection serverConnection = serverConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(serverConnection);
+        return serverConnection;
+    }
+
+    private static ASdu scaledValue(CauseOfTransmission cot, int ca, int ioa) {
+        return new ASdu(ASduType.M_ME_NB_1, false, cot, false, false, 0, ca,
+                new InformationObject(ioa, new IeScaledValue(ioa), new IeQuality(false, false, false, false, false)));
+    }
+
+    private static class Listener implements ConnectionEventListener {
+
+        private final BlockingQueue<ASdu> aSdus;
+
+        Listener(BlockingQueue<ASdu> aSdus) {
+            this.aSdus = aSdus;
+        }
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+            if (aSdus != null) {
+                aSdus.add(aSdu);
+            }
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+        }
+    }
+
+    private class ViewListener extends Listener implements ASduViewListener {
+
+        ViewListener() {
+            super(null);
+        }
+
+        @Override
+        public void newASduView(Connection connection, ASduView aSduView) {
+            routedViews.add(aSduView);
+        }
+    }
+
+}
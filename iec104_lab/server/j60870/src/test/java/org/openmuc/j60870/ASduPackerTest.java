@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+
+public class ASduPackerTest {
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final ASduPacker packer = new ASduPacker(settings);
+
+    @Test
+    public void testContiguousAddressesArePackedAsSequence() throws Exception {
+        List<ASdu> aSdus = pack(ASduType.M_SP_NA_1, singlePoints(1000, 1, 300));
+
+        assertEquals(3, aSdus.size());
+        assertEquals(127, aSdus.get(0).getSequenceLength());
+        assertEquals(127, aSdus.get(1).getSequenceLength());
+        assertEquals(46, aSdus.get(2).getSequenceLength());
+        for (ASdu aSdu : aSdus) {
+            assertTrue(aSdu.isSequenceOfElements());
+        }
+        assertEquals(1127, aSdus.get(1).getInformationObjects()[0].getInformationObjectAddress());
+        assertAddresses(aSdus, 1000, 1, 300);
+    }
+
+    @Test
+    public void testScatteredAddressesFillMaximumLength() throws Exception {
+        List<ASdu> aSdus = pack(ASduType.M_SP_NA_1, singlePoints(1000, 2, 300));
+
+        // 243 bytes for information objects of 4 bytes each
+        assertEquals(5, aSdus.size());
+        assertEquals(60, aSdus.get(0).getSequenceLength());
+        assertFalse(aSdus.get(0).isSequenceOfElements());
+        assertAddresses(aSdus, 1000, 2, 300);
+    }
+
+    @Test
+    public void testMixedAddresses() throws Exception {
+        List<InformationObject> objects = singlePoints(1, 1, 3);
+        objects.addAll(singlePoints(100, 1, 200));
+
+        List<ASdu> aSdus = pack(ASduType.M_SP_NA_1, objects);
+
+        assertEquals(3, aSdus.size());
+        assertFalse(aSdus.get(0).isSequenceOfElements());
+        assertEquals(60, aSdus.get(0).getSequenceLength());
+        assertTrue(aSdus.get(1).isSequenceOfElements());
+        assertEquals(127, aSdus.get(1).getSequenceLength());
+        assertEquals(16, aSdus.get(2).getSequenceLength());
+    }
+
+    @Test
+    public void testTypeWithoutSequenceSupport() throws Exception {
+        List<InformationObject> objects = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            objects.add(new InformationObject(i, new IeSinglePointWithQuality(true, false, false, false, false),
+                    new IeTime56(0)));
+        }
+
+        List<ASdu> aSdus = pack(ASduType.M_SP_TB_1, objects);
+
+        // 243 bytes for information objects of 11 bytes each
+        assertEquals(2, aSdus.size());
+        assertFalse(aSdus.get(0).isSequenceOfElements());
+        assertEquals(22, aSdus.get(0).getSequenceLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSequenceInputIsRejected() {
+        InformationElement[][] elements = { { new IeSinglePointWithQuality(true, false, false, false, false) },
+                { new IeSinglePointWithQuality(true, false, false, false, false) } };
+        List<InformationObject> objects = new ArrayList<>();
+        objects.add(new InformationObject(1, elements));
+        packer.pack(ASduType.M_SP_NA_1, CauseOfTransmission.INTERROGATED_BY_STATION, 0, 1, objects);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSequenceLengthLimit() {
+        new ASdu(ASduType.M_SP_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                singlePoints(1, 2, 128).toArray(new InformationObject[0]));
+    }
+
+    private List<ASdu> pack(ASduType typeId, List<InformationObject> objects) throws IOException {
+        List<ASdu> aSdus = packer.pack(typeId, CauseOfTransmission.INTERROGATED_BY_STATION, 0, 1, objects);
+        byte[] buffer = new byte[1024];
+        for (ASdu aSdu : aSdus) {
+            int length = aSdu.encode(buffer, 0, settings);
+            assertTrue(length <= APdu.MAX_APDU_LENGTH - 4);
+
+            ASdu decoded = ASdu.decode(new ExtendedDataInputStream(new ByteArrayInputStream(buffer, 0, length)),
+                    settings, length);
+            assertEquals(aSdu.isSequenceOfElements(), decoded.isSequenceOfElements());
+            assertEquals(aSdu.getSequenceLength(), decoded.getSequenceLength());
+        }
+        return aSdus;
+    }
+
+    private static void assertAddresses(List<ASdu> aSdus, int firstAddress, int step, int count) {
+        int address = firstAddress;
+        int numObjects = 0;
+        for (ASdu aSdu : aSdus) {
+            for (InformationObject informationObject : aSdu.getInformationObjects()) {
+                int numElements = informationObject.getInformationElements().length;
+                for (int i = 0; i < numElements; i++) {
+                    if (!aSdu.isSequenceOfElements() || i == 0) {
+                        assertEquals(address, informationObject.getInformationObjectAddress() + i);
+                    }
+                    address += step;
+                    numObjects++;
+                }
+            }
+        }
+        assertEquals(count, numObjects);
+    }
+
+    private static List<InformationObject> singlePoints(int firstAddress, int step, int count) {
+        List<InformationObject> objects = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            objects.add(new InformationObject(firstAddress + i * step,
+                    new IeSinglePointWithQuality(i % 2 == 0, false, false, false, false)));
+        }
+        return objects;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeNormalizedValue;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.IeValueWithTransientState;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ASduTemplateTest {
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+
+    @Test
+    public void testPatchedShortFloatsEqualEncodedASdu() throws Exception {
+        long timestamp = 1_700_000_000_000L;
+        ASduTemplate template = new ASduTemplate(new ASdu(ASduType.M_ME_TF_1, false, CauseOfTransmission.PERIODIC,
+                false, false, 0, 7, new InformationObject(100, new IeShortFloat(0), quality(false), new IeTime56(0)),
+                new InformationObject(200, new IeShortFloat(0), quality(false), new IeTime56(0))), settings);
+
+        template.setValue(0, 1.5f);
+        template.setValue(1, -3.25f);
+        template.setQuality(1, 0x80);
+        template.setTimestamp(0, timestamp);
+        template.setTimestamp(1, timestamp + 100);
+        template.setCauseOfTransmission(CauseOfTransmission.BACKGROUND_SCAN);
+
+        ASdu expected = new ASdu(ASduType.M_ME_TF_1, false, CauseOfTransmission.BACKGROUND_SCAN, false, false, 0, 7,
+                new InformationObject(100, new IeShortFloat(1.5f), quality(false), new IeTime56(timestamp)),
+                new InformationObject(200, new IeShortFloat(-3.25f), quality(true), new IeTime56(timestamp + 100)));
+        assertEquals(expected.toString(), template.getView().materialize().toString());
+        assertEquals(timestamp + 100, template.getView().timestampMillis(1));
+    }
+
+    @Test
+    public void testPatchKeepsOtherBits() throws Exception {
+        InformationElement[][] elements = new InformationElement[3][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] { new IeSinglePointWithQuality(false, false, false, false, true) };
+        }
+        ASduTemplate template = new ASduTemplate(new ASdu(ASduType.M_SP_NA_1, true, CauseOfTransmission.PERIODIC,
+                false, false, 0, 1, new InformationObject(10, elements)), settings);
+        template.setValue(1, true);
+        assertTrue(template.getView().booleanValue(1));
+        assertEquals(0x80, template.getView().quality(1));
+        template.setQuality(1, 0);
+        assertTrue(template.getView().booleanValue(1));
+        assertEquals(0, template.getView().quality(1));
+
+        template = new ASduTemplate(new ASdu(ASduType.M_ST_NA_1, false, CauseOfTransmission.PERIODIC, false, false, 0,
+                1, new InformationObject(1, new IeValueWithTransientState(0, true), quality(false))), settings);
+        template.setValue(0, -5);
+        assertEquals(-5, template.getView().intValue(0));
+        assertEquals(new IeValueWithTransientState(-5, true).toString(),
+                template.getView().materialize().getInformationObjects()[0].getInformationElements()[0][0].toString());
+    }
+
+    @Test
+    public void testNormalizedValueIsLimited() throws Exception {
+        ASduTemplate template = new ASduTemplate(new ASdu(ASduType.M_ME_NA_1, false, CauseOfTransmission.PERIODIC,
+                false, false, 0, 1, new InformationObject(1, new IeNormalizedValue(0), quality(false))), 2, 2, 3);
+        template.setValue(0, -0.5f);
+        assertEquals(-16384, template.getView().intValue(0));
+        template.setValue(0, 1f);
+        assertEquals(32767, template.getView().intValue(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTimestampOfTypeWithoutTime56() {
+        ASduTemplate template = new ASduTemplate(new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.PERIODIC,
+                false, false, 0, 1, new InformationObject(1, new IeShortFloat(0), quality(false))), settings);
+        template.setTimestamp(0, 0);
+    }
+
+    private static IeQuality quality(boolean invalid) {
+        return new IeQuality(false, false, false, false, invalid);
+    }
+
+}
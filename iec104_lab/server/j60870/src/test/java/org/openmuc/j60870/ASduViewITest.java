@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ASduViewITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<Connection> serverConnections = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ASduView> views = new LinkedBlockingQueue<>();
+
+    private Server server;
+    private Connection connection;
+
+    @After
+    public void stop() {
+        if (connection != null) {
+            connection.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testListenerReceivesViews() throws Exception {
+        Connection serverConnection = connect();
+        for (int i = 0; i < 3; i++) {
+            serverConnection.send(new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.SPONTANEOUS, false, false,
+                    0, 5, new InformationObject(1000 + i, new IeShortFloat(i * 1.5f),
+                            new IeQuality(false, false, false, false, false))));
+        }
+
+        // every view keeps its own bytes after the decoder buffer has been reused
+        ASduView[] received = new ASduView[3];
+        for (int i = 0; i < 3; i++) {
+            received[i] = views.poll(5, TimeUnit.SECONDS);
+            assertNotNull(received[i]);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(5, received[i].getCommonAddress());
+            assertEquals(1000 + i, received[i].ioa(0));
+            assertEquals(i * 1.5f, received[i].floatValue(0), 0);
+        }
+    }
+
+    @Test
+    public void testSendTemplate() throws Exception {
+        Connection serverConnection = connect();
+        ASduTemplate template = serverConnection.createTemplate(new ASdu(ASduType.M_ME_NC_1, false,
+                CauseOfTransmission.PERIODIC, false, false, 0, 5,
+                new InformationObject(1, new IeShortFloat(0), new IeQuality(false, false, false, false, false))));
+        for (int i = 0; i < 3; i++) {
+            template.setValue(0, i * 2f);
+            serverConnection.send(template);
+        }
+        for (int i = 0; i < 3; i++) {
+            ASduView view = views.poll(5, TimeUnit.SECONDS);
+            assertNotNull(view);
+            assertEquals(CauseOfTransmission.PERIODIC, view.getCauseOfTransmission());
+            assertEquals(i * 2f, view.floatValue(0), 0);
+        }
+    }
+
+    private Connection connect() throws Exception {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new ViewListener() {
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (!stopped) {
+                            serverConnections.add(connection);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+
+        connection = new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .setConnectionEventListener(new ViewListener() {
+
+                    @Override
+                    public void newASduView(Connection connection, ASduView aSduView) {
+                        views.add(aSduView);
+                    }
+                })
+                .build();
+        connection.startDataTransfer();
+
+        Connection serverConnection = serverConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(serverConnection);
+        return serverConnection;
+    }
+
+    private static class ViewListener implements ASduViewListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+            throw new AssertionError("ASDU views expected");
+        }
+
+        @Override
+        public void newASduView(Connection connection, ASduView aSduView) {
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+        }
+    }
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeBinaryCounterReading;
+import org.openmuc.j60870.ie.IeBinaryCounterReading.Flag;
+import org.openmuc.j60870.ie.IeNormalizedValue;
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.IeValueWithTransientState;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ASduViewTest {
+
+    private final ConnectionSettings settings = new ConnectionSettings();
+    private final ASduView view = new ASduView(settings);
+
+    @Test
+    public void testHeaderFields() throws Exception {
+        ASdu aSdu = new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, true, true, 7, 0x1234,
+                new InformationObject(1, new IeScaledValue(1), quality()));
+        wrap(aSdu);
+
+        assertEquals(ASduType.M_ME_NB_1, view.getTypeIdentification());
+        assertEquals(11, view.getTypeId());
+        assertEquals(CauseOfTransmission.SPONTANEOUS, view.getCauseOfTransmission());
+        assertTrue(view.isTestFrame());
+        assertTrue(view.isNegativeConfirm());
+        assertEquals(7, view.getOriginatorAddress());
+        assertEquals(0x1234, view.getCommonAddress());
+        assertFalse(view.isSequenceOfElements());
+        assertEquals(1, view.getSequenceLength());
+    }
+
+    @Test
+    public void testShortFloatWithTime56() throws Exception {
+        long timestamp = 1_700_000_123_456L;
+        ASdu aSdu = new ASdu(ASduType.M_ME_TF_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(70000, new IeShortFloat(-12.5f), new IeQuality(true, false, false, false, true),
+                        new IeTime56(timestamp)),
+                new InformationObject(70005, new IeShortFloat(3.25f), quality(), new IeTime56(timestamp + 1)));
+        wrap(aSdu);
+
+        assertEquals(2, view.getSequenceLength());
+        assertEquals(70000, view.ioa(0));
+        assertEquals(70005, view.ioa(1));
+        assertEquals(-12.5f, view.floatValue(0), 0);
+        assertEquals(3.25f, view.floatValue(1), 0);
+        assertEquals(0x81, view.quality(0));
+        assertEquals(0, view.quality(1));
+        assertTrue(view.hasTime56());
+        assertEquals(timestamp, view.timestampMillis(0));
+        assertEquals(timestamp + 1, view.timestampMillis(1));
+    }
+
+    @Test
+    public void testSequenceOfSinglePoints() throws Exception {
+        InformationElement[][] elements = new InformationElement[5][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] {
+                    new IeSinglePointWithQuality(i % 2 == 0, false, false, false, i == 3) };
+        }
+        wrap(new ASdu(ASduType.M_SP_NA_1, true, CauseOfTransmission.INTERROGATED_BY_STATION, false, false, 0, 1,
+                new InformationObject(100, elements)));
+
+        assertTrue(view.isSequenceOfElements());
+        assertEquals(5, view.getSequenceLength());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(100 + i, view.ioa(i));
+            assertEquals(i % 2 == 0, view.booleanValue(i));
+            assertEquals(i % 2 == 0 ? 1 : 0, view.intValue(i));
+            assertEquals(i == 3 ? 0x80 : 0, view.quality(i));
+        }
+        assertFalse(view.hasTime56());
+    }
+
+    @Test
+    public void testSequenceWrapsAtMaximumAddress() throws Exception {
+        InformationElement[][] elements = new InformationElement[4][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] { new IeSinglePointWithQuality(true, false, false, false, false) };
+        }
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.setIoaFieldLength(1);
+        byte[] buffer = new byte[APdu.MAX_APDU_LENGTH];
+        int length = new ASdu(ASduType.M_SP_NA_1, true, CauseOfTransmission.INTERROGATED_BY_STATION, false, false,
+                0, 1, new InformationObject(254, elements)).encode(buffer, 0, settings);
+        ASduView view = new ASduView(2, 2, 1);
+        view.wrap(buffer, 0, length);
+
+        int[] ioas = new int[4];
+        view.ioas(ioas, 0);
+        assertArrayEquals(new int[] { 254, 255, 0, 1 }, ioas);
+        assertEquals(0, view.ioa(2));
+        assertEquals(1, view.ioa(3));
+    }
+
+    @Test
+    public void testIntegerValues() throws Exception {
+        wrap(new ASdu(ASduType.M_ST_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new IeValueWithTransientState(-17, true), quality())));
+        assertEquals(-17, view.intValue(0));
+
+        wrap(new ASdu(ASduType.M_ME_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new IeNormalizedValue(-16384), quality())));
+        assertEquals(-16384, view.intValue(0));
+        assertEquals(-0.5f, view.floatValue(0), 0);
+
+        wrap(new ASdu(ASduType.M_IT_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new IeBinaryCounterReading(-123456, 3, Flag.CARRY, Flag.INVALID))));
+        assertEquals(-123456, view.intValue(0));
+        assertEquals(0xa0, view.quality(0));
+    }
+
+    @Test
+    public void testBulkAccess() throws Exception {
+        InformationElement[][] elements = new InformationElement[40][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] { new IeShortFloat(i * 1.5f),
+                    new IeQuality(false, false, false, false, i % 7 == 0) };
+        }
+        wrap(new ASdu(ASduType.M_ME_NC_1, true, CauseOfTransmission.PERIODIC, false, false, 0, 1,
+                new InformationObject(1000, elements)));
+        float[] floats = new float[42];
+        byte[] qualities = new byte[42];
+        int[] ioas = new int[42];
+        assertEquals(40, view.floatValues(floats, 2));
+        assertEquals(40, view.qualities(qualities, 2));
+        assertEquals(40, view.ioas(ioas, 2));
+        for (int i = 0; i < 40; i++) {
+            assertEquals(view.floatValue(i), floats[i + 2], 0);
+            assertEquals(view.quality(i), qualities[i + 2] & 0xff);
+            assertEquals(1000 + i, ioas[i + 2]);
+        }
+
+        elements = new InformationElement[60][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] { new IeScaledValue(i * 1000 - 30000), quality() };
+        }
+        wrap(new ASdu(ASduType.M_ME_NB_1, true, CauseOfTransmission.PERIODIC, false, false, 0, 1,
+                new InformationObject(1, elements)));
+        short[] shorts = new short[60];
+        int[] ints = new int[60];
+        assertEquals(60, view.shortValues(shorts, 0));
+        assertEquals(60, view.intValues(ints, 0));
+        for (int i = 0; i < 60; i++) {
+            assertEquals(i * 1000 - 30000, shorts[i]);
+            assertEquals(i * 1000 - 30000, ints[i]);
+        }
+
+        wrap(new ASdu(ASduType.M_ME_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(7, new IeNormalizedValue(-16384), quality()),
+                new InformationObject(3, new IeNormalizedValue(8192),
+                        new IeQuality(false, false, false, true, false))));
+        assertEquals(2, view.floatValues(floats, 0));
+        assertEquals(-0.5f, floats[0], 0);
+        assertEquals(0.25f, floats[1], 0);
+        assertEquals(2, view.ioas(ioas, 0));
+        assertEquals(7, ioas[0]);
+        assertEquals(3, ioas[1]);
+        assertEquals(2, view.qualities(qualities, 0));
+        assertEquals(0, qualities[0]);
+        assertEquals(0x40, qualities[1]);
+
+        elements = new InformationElement[5][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new InformationElement[] { new IeSinglePointWithQuality(i % 2 == 0, false, false, false,
+                    i == 3) };
+        }
+        wrap(new ASdu(ASduType.M_SP_NA_1, true, CauseOfTransmission.INTERROGATED_BY_STATION, false, false, 0, 1,
+                new InformationObject(100, elements)));
+        byte[] states = new byte[5];
+        assertEquals(5, view.byteValues(states, 0));
+        assertEquals(5, view.qualities(qualities, 0));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i % 2 == 0 ? 1 : 0, states[i]);
+            assertEquals(i == 3 ? 0x80 : 0, qualities[i] & 0xff);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBulkAccessArrayTooShort() throws Exception {
+        wrap(new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new IeScaledValue(1), quality()),
+                new InformationObject(2, new IeScaledValue(2), quality())));
+        view.shortValues(new short[2], 1);
+    }
+
+    @Test
+    public void testMaterialize() throws Exception {
+        ASdu aSdu = new ASdu(ASduType.M_ME_TF_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(3, new IeShortFloat(1f), quality(), new IeTime56(1_600_000_000_000L)));
+        wrap(aSdu);
+
+        assertEquals(aSdu.toString(), view.materialize().toString());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testValueOfTypeWithoutLayout() throws Exception {
+        wrap(new ASdu(ASduType.C_IC_NA_1, false, CauseOfTransmission.ACTIVATION, false, false, 0, 1,
+                new InformationObject(0, new IeQualifierOfInterrogation(20))));
+        assertEquals(0, view.ioa(0));
+        view.intValue(0);
+    }
+
+    @Test
+    public void testVisitor() throws Exception {
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        long timestamp = 1_700_000_123_456L;
+        wrap(new ASdu(ASduType.M_SP_TB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 5,
+                new InformationObject(10, new IeSinglePointWithQuality(true, false, false, false, true),
+                        new IeTime56(timestamp))));
+        view.accept(visitor);
+
+        wrap(new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 5,
+                new InformationObject(11, new IeShortFloat(2.5f), quality())));
+        view.accept(visitor);
+
+        wrap(new ASdu(ASduType.M_ST_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 5,
+                new InformationObject(12, new IeValueWithTransientState(-3, true), quality())));
+        view.accept(visitor);
+
+        wrap(new ASdu(ASduType.M_IT_NA_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 5,
+                new InformationObject(13, new IeBinaryCounterReading(42, 7, Flag.CARRY))));
+        view.accept(visitor);
+
+        wrap(new ASdu(ASduType.C_IC_NA_1, false, CauseOfTransmission.ACTIVATION, false, false, 0, 5,
+                new InformationObject(0, new IeQualifierOfInterrogation(20))));
+        view.accept(visitor);
+
+        assertEquals("single 5 10 true 128 " + timestamp + "\n" + "float 5 11 2.5 0 none\n"
+                + "step 5 12 -3 true 0 none\n" + "counter 5 13 42 7 32 none\n" + "other C_IC_NA_1\n",
+                visitor.calls.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedASdu() throws Exception {
+        byte[] buffer = new byte[APdu.MAX_APDU_LENGTH];
+        int length = new ASdu(ASduType.M_ME_NC_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new IeShortFloat(1f), quality()),
+                new InformationObject(2, new IeShortFloat(2f), quality())).encode(buffer, 0, settings);
+        view.wrap(buffer, 0, length - 1);
+    }
+
+    private void wrap(ASdu aSdu) throws IOException {
+        byte[] buffer = new byte[APdu.MAX_APDU_LENGTH + 10];
+        int length = aSdu.encode(buffer, 10, settings);
+        view.wrap(buffer, 10, length);
+    }
+
+    private static class RecordingVisitor implements ASduVisitor {
+
+        private final StringBuilder calls = new StringBuilder();
+
+        private void record(String callback, int commonAddress, int ioa, Object value, long timestamp,
+                Object... rest) {
+            calls.append(callback).append(' ').append(commonAddress).append(' ').append(ioa).append(' ').append(value);
+            for (Object o : rest) {
+                calls.append(' ').append(o);
+            }
+            calls.append(' ').append(timestamp == NO_TIMESTAMP ? "none" : String.valueOf(timestamp)).append('\n');
+        }
+
+        @Override
+        public void onSinglePoint(int commonAddress, int ioa, boolean value, int quality, long timestamp) {
+            record("single", commonAddress, ioa, value, timestamp, quality);
+        }
+
+        @Override
+        public void onDoublePoint(int commonAddress, int ioa, int state, int quality, long timestamp) {
+            record("double", commonAddress, ioa, state, timestamp, quality);
+        }
+
+        @Override
+        public void onStepPosition(int commonAddress, int ioa, int value, boolean transientState, int quality,
+                long timestamp) {
+            record("step", commonAddress, ioa, value, timestamp, transientState, quality);
+        }
+
+        @Override
+        public void onBitstring(int commonAddress, int ioa, int value, int quality, long timestamp) {
+            record("bitstring", commonAddress, ioa, value, timestamp, quality);
+        }
+
+        @Override
+        public void onNormalized(int commonAddress, int ioa, float value, int quality, long timestamp) {
+            record("normalized", commonAddress, ioa, value, timestamp, quality);
+        }
+
+        @Override
+        public void onScaled(int commonAddress, int ioa, int value, int quality, long timestamp) {
+            record("scaled", commonAddress, ioa, value, timestamp, quality);
+        }
+
+        @Override
+        public void onMeasuredFloat(int commonAddress, int ioa, float value, int quality, long timestamp) {
+            record("float", commonAddress, ioa, value, timestamp, quality);
+        }
+
+        @Override
+        public void onCounter(int commonAddress, int ioa, int value, int sequenceNumber, int flags, long timestamp) {
+            record("counter", commonAddress, ioa, value, timestamp, sequenceNumber, flags);
+        }
+
+        @Override
+        public void onOther(ASduView aSdu) {
+            calls.append("other ").append(aSdu.getTypeIdentification()).append('\n');
+        }
+
+    }
+
+    private static IeQuality quality() {
+        return new IeQuality(false, false, false, false, false);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+import org.openmuc.j60870.internal.HexUtils;
+
+public class BulkSendITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private volatile Connection serverConnection;
+
+    private Server server;
+    private TestUtils.RawPeer peer;
+
+    @Before
+    public void connect() throws Exception {
+        server = Server.builder().setPort(port).setMaxNumOfOutstandingIPdus(2).build();
+        server.start(new ServerListener());
+
+        peer = new TestUtils.RawPeer(port);
+        peer.startDataTransfer();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void close() throws IOException {
+        peer.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSendFillsWindowAndWaitsForAcknowledgement() throws Exception {
+        final List<ASdu> aSdus = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            aSdus.add(measuredValue(i));
+        }
+
+        final CountDownLatch sent = new CountDownLatch(1);
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    serverConnection.send(aSdus);
+                    sent.countDown();
+                } catch (IOException e) {
+                    // the test fails waiting for the latch
+                }
+            }
+        }).start();
+
+        assertEquals(0, receiveIFrame()[0]);
+        assertEquals(1, receiveIFrame()[0]);
+
+        // the remaining ASDUs wait for the k-window
+        peer.assertNothingReceived(200);
+        assertFalse(sent.await(0, TimeUnit.SECONDS));
+
+        peer.acknowledge(2);
+        assertEquals(2, receiveIFrame()[0]);
+        assertEquals(3, receiveIFrame()[0]);
+
+        peer.acknowledge(4);
+        int[] last = receiveIFrame();
+        assertEquals(4, last[0]);
+        assertEquals(4, last[1]);
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSendWhenStopped() throws Exception {
+        peer.write(HexUtils.hexToBytes("680413000000"));
+        peer.readAPdu();
+
+        serverConnection.send(measuredValue(0), measuredValue(1));
+    }
+
+    private static ASdu measuredValue(int value) {
+        return new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(1, new InformationElement[][] {
+                        { new IeScaledValue(value), new IeQuality(false, false, false, false, false) } }));
+    }
+
+    /**
+     * Returns the send sequence number and the scaled value of a received I frame.
+     */
+    private int[] receiveIFrame() throws IOException {
+        byte[] iFrame = peer.readAPdu();
+        int sendSequenceNumber = TestUtils.RawPeer.sendSequenceNumber(iFrame);
+        int value = (iFrame[15] & 0xff) | (iFrame[16] << 8);
+        return new int[] { sendSequenceNumber, value };
+    }
+
+    private class ServerListener implements ServerEventListener {
+
+        @Override
+        public ConnectionEventListener connectionIndication(Connection connection) {
+            serverConnection = connection;
+            return new ConnectionEventListener() {
+
+                @Override
+                public void newASdu(Connection connection, ASdu aSdu) {
+                }
+
+                @Override
+                public void connectionClosed(Connection connection, IOException cause) {
+                }
+
+                @Override
+                public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                    if (!stopped) {
+                        connected.countDown();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void serverStoppedListeningIndication(IOException e) {
+        }
+
+        @Override
+        public void connectionAttemptFailed(IOException e) {
+        }
+    }
+
+}
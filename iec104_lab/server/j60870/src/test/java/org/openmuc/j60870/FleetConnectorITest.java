@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FleetConnectorITest {
+
+    private final List<Server> servers = new ArrayList<>();
+
+    @After
+    public void stopServers() {
+        for (Server server : servers) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testConnectAndStartDataTransfer() throws Exception {
+        Map<String, ClientConnectionBuilder> endpoints = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            endpoints.put("rtu" + i, endpoint(startServer()));
+        }
+        // nobody listens on this port
+        endpoints.put("down", endpoint(TestUtils.getAvailablePort()));
+
+        final List<String> progress = Collections.synchronizedList(new ArrayList<String>());
+        Map<String, Connection> connections = new FleetConnector<String>().setMaxConcurrentConnects(2)
+                .setDeadline(5_000)
+                .setProgressListener(new FleetConnector.ProgressListener<String>() {
+
+                    @Override
+                    public void connected(String endpoint, Connection connection, int completed, int total) {
+                        progress.add(completed + "/" + total);
+                    }
+
+                    @Override
+                    public void failed(String endpoint, IOException cause, int completed, int total) {
+                        progress.add(completed + "/" + total + " " + endpoint);
+                    }
+                })
+                .connect(endpoints);
+
+        assertEquals(Arrays.asList("rtu0", "rtu1", "rtu2"), new ArrayList<>(connections.keySet()));
+        for (Connection connection : connections.values()) {
+            assertFalse(connection.isStopped());
+            connection.close();
+        }
+        assertEquals(4, progress.size());
+        assertTrue(progress.get(3).startsWith("4/4"));
+        assertTrue(progress.toString().contains("/4 down"));
+    }
+
+    @Test
+    public void testDeadlineAndConcurrencyLimit() throws Exception {
+        // accepts TCP connections in its backlog but never answers STARTDT act
+        try (ServerSocket silentServer = new ServerSocket(TestUtils.getAvailablePort(), 10,
+                InetAddress.getLoopbackAddress())) {
+            Map<Integer, ClientConnectionBuilder> endpoints = new LinkedHashMap<>();
+            for (int i = 0; i < 4; i++) {
+                endpoints.put(i, endpoint(silentServer.getLocalPort()));
+            }
+
+            final List<IOException> failures = Collections.synchronizedList(new ArrayList<IOException>());
+            long start = System.currentTimeMillis();
+            Map<Integer, Connection> connections = new FleetConnector<Integer>().setMaxConcurrentConnects(2)
+                    .setDeadline(500)
+                    .setProgressListener(new FleetConnector.ProgressListener<Integer>() {
+
+                        @Override
+                        public void connected(Integer endpoint, Connection connection, int completed, int total) {
+                        }
+
+                        @Override
+                        public void failed(Integer endpoint, IOException cause, int completed, int total) {
+                            failures.add(cause);
+                        }
+                    })
+                    .connect(endpoints);
+            long duration = System.currentTimeMillis() - start;
+
+            assertTrue(connections.isEmpty());
+            assertEquals(4, failures.size());
+            for (IOException failure : failures) {
+                assertTrue(failure instanceof InterruptedIOException);
+            }
+            // two rounds of two concurrent attempts
+            assertTrue("took " + duration + "ms", duration >= 950 && duration < 5_000);
+        }
+    }
+
+    @Test
+    public void testRuntimeExceptionIsReportedAsFailure() throws Exception {
+        Map<String, ClientConnectionBuilder> endpoints = new LinkedHashMap<>();
+        endpoints.put("rtu", endpoint(startServer()));
+        endpoints.put("broken", new ClientConnectionBuilder(InetAddress.getLoopbackAddress()) {
+            @Override
+            Connection build(int connectionTimeout, ConnectionEventListener listener) {
+                throw new IllegalStateException("broken builder");
+            }
+        });
+
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        Map<String, Connection> connections = new FleetConnector<String>().setDeadline(5_000)
+                .setProgressListener(new FleetConnector.ProgressListener<String>() {
+
+                    @Override
+                    public void connected(String endpoint, Connection connection, int completed, int total) {
+                    }
+
+                    @Override
+                    public void failed(String endpoint, IOException cause, int completed, int total) {
+                        failures.add(endpoint + " " + cause.getCause().getMessage());
+                    }
+                })
+                .connect(endpoints);
+
+        assertEquals(Arrays.asList("rtu"), new ArrayList<>(connections.keySet()));
+        connections.get("rtu").close();
+        assertEquals(Arrays.asList("broken broken builder"), failures);
+    }
+
+    private int startServer() throws IOException {
+        int port = TestUtils.getAvailablePort();
+        Server server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new NoOpListener();
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+        servers.add(server);
+        return port;
+    }
+
+    private static ClientConnectionBuilder endpoint(int port) {
+        return new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .setConnectionEventListener(new NoOpListener());
+    }
+
+    private static class NoOpListener implements ConnectionEventListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+        }
+    }
+
+}
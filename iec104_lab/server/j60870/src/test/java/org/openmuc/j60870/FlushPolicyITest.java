@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class FlushPolicyITest {
+
+    private static final int NUM_ASDUS = 200;
+
+    @Test
+    @Parameters({ "IMMEDIATE", "END_OF_BURST", "MAX_DELAY" })
+    public void testBurstIsDelivered(FlushPolicy flushPolicy) throws Exception {
+        int port = TestUtils.getAvailablePort();
+        Server server = Server.builder().setPort(port).setFlushPolicy(flushPolicy).setMaxFlushDelay(500).build();
+        server.start(new ServerListener());
+
+        final CountDownLatch received = new CountDownLatch(NUM_ASDUS);
+        Connection connection = new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .setFlushPolicy(flushPolicy)
+                .setConnectionEventListener(new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                        if (aSdu.getTypeIdentification() == ASduType.M_ME_NB_1) {
+                            received.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                    }
+                })
+                .build();
+
+        try {
+            connection.startDataTransfer();
+            connection.interrogation(1, CauseOfTransmission.ACTIVATION, new IeQualifierOfInterrogation(20));
+
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+        } finally {
+            connection.close();
+            server.stop();
+        }
+    }
+
+    private static class ServerListener implements ServerEventListener {
+
+        @Override
+        public ConnectionEventListener connectionIndication(Connection connection) {
+            return new ConnectionEventListener() {
+
+                @Override
+                public void newASdu(Connection connection, ASdu aSdu) {
+                    try {
+                        connection.sendConfirmation(aSdu);
+                        for (int i = 0; i < NUM_ASDUS; i++) {
+                            connection.send(new ASdu(ASduType.M_ME_NB_1, false,
+                                    CauseOfTransmission.INTERROGATED_BY_STATION, false, false, 0, 1,
+                                    new InformationObject(i + 1, new InformationElement[][] {
+                                            { new IeScaledValue(i), new IeQuality(false, false, false, false, false) } })));
+                        }
+                        connection.sendActivationTermination(aSdu);
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+
+                @Override
+                public void connectionClosed(Connection connection, IOException cause) {
+                }
+
+                @Override
+                public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                }
+            };
+        }
+
+        @Override
+        public void serverStoppedListeningIndication(IOException e) {
+        }
+
+        @Override
+        public void connectionAttemptFailed(IOException e) {
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class LazyDecodingITest {
+
+    private final int port = TestUtils.getAvailablePort();
+    private final BlockingQueue<Connection> serverConnections = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ASdu> aSdus = new LinkedBlockingQueue<>();
+    private final BlockingQueue<IOException> closeCauses = new LinkedBlockingQueue<>();
+
+    private Server server;
+    private Connection connection;
+
+    @After
+    public void stop() {
+        if (connection != null) {
+            connection.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testOrderedDelivery() throws Exception {
+        Connection serverConnection = connect(new ClientConnectionBuilder(InetAddress.getLoopbackAddress()));
+        testOrderedDelivery(serverConnection);
+    }
+
+    @Test
+    public void testOrderedDeliveryWithNioEngine() throws Exception {
+        Connection serverConnection = connect(
+                new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).useNioEngine());
+        testOrderedDelivery(serverConnection);
+    }
+
+    private void testOrderedDelivery(Connection serverConnection) throws Exception {
+        int n = 500;
+        for (int i = 0; i < n; i++) {
+            serverConnection.send(scaledValue(i));
+        }
+        for (int i = 0; i < n; i++) {
+            ASdu aSdu = aSdus.poll(5, TimeUnit.SECONDS);
+            assertNotNull(aSdu);
+            assertEquals(i, aSdu.getInformationObjects()[0].getInformationObjectAddress());
+        }
+    }
+
+    @Test
+    public void testDecodingErrorClosesConnection() throws Exception {
+        Connection serverConnection = connect(new ClientConnectionBuilder(InetAddress.getLoopbackAddress()));
+
+        serverConnection.send(scaledValue(1));
+        byte[] truncated = new byte[] { (byte) ASduType.M_ME_NB_1.getId(), 2, 3, 0, 1, 0, 2, 0, 0 };
+        serverConnection.sendBuffer(truncated);
+        serverConnection.send(scaledValue(3));
+
+        assertNotNull(aSdus.poll(5, TimeUnit.SECONDS));
+        IOException cause = closeCauses.poll(5, TimeUnit.SECONDS);
+        assertNotNull(cause);
+        assertTrue(cause.getMessage(), cause.getMessage().contains("too short"));
+        assertTrue(connection.isClosed());
+        assertNull(aSdus.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private Connection connect(ClientConnectionBuilder builder) throws Exception {
+        server = Server.builder().setPort(port).setBindAddr(InetAddress.getLoopbackAddress()).build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                return new ConnectionEventListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                    }
+
+                    @Override
+                    public void connectionClosed(Connection connection, IOException cause) {
+                    }
+
+                    @Override
+                    public void dataTransferStateChanged(Connection connection, boolean stopped) {
+                        if (!stopped) {
+                            serverConnections.add(connection);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+
+        connection = builder.setPort(port).useLazyDecoding().setConnectionEventListener(new ConnectionEventListener() {
+
+            @Override
+            public void newASdu(Connection connection, ASdu aSdu) {
+                aSdus.add(aSdu);
+            }
+
+            @Override
+            public void connectionClosed(Connection connection, IOException cause) {
+                closeCauses.add(cause);
+            }
+
+            @Override
+            public void dataTransferStateChanged(Connection connection, boolean stopped) {
+            }
+        }).build();
+        connection.startDataTransfer();
+
+        Connection serverConnection = serverConnections.poll(5, TimeUnit.SECONDS);
+        assertNotNull(serverConnection);
+        return serverConnection;
+    }
+
+    private static ASdu scaledValue(int ioa) {
+        return new ASdu(ASduType.M_ME_NB_1, false, CauseOfTransmission.SPONTANEOUS, false, false, 0, 1,
+                new InformationObject(ioa, new IeScaledValue(ioa), new IeQuality(false, false, false, false, false)));
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeBinaryCounterReading;
+import org.openmuc.j60870.ie.IeDoublePointWithQuality.DoublePointInformation;
+import org.openmuc.j60870.ie.IeQuality;
+import org.openmuc.j60870.ie.IeScaledValue;
+import org.openmuc.j60870.ie.IeShortFloat;
+import org.openmuc.j60870.ie.IeSinglePointWithQuality;
+import org.openmuc.j60870.ie.IeTime56;
+import org.openmuc.j60870.ie.InformationElement;
+import org.openmuc.j60870.ie.InformationObject;
+
+public class ProcessImageTest {
+
+    private static final long TIME = 1700000000000L;
+
+    private final ProcessImage image = ProcessImage.builder()
+            .addPoints(ASduType.M_SP_NA_1, 1, 100, 10)
+            .addPoint(ASduType.M_DP_NA_1, 1, 200)
+            .addPoint(ASduType.M_ME_NA_1, 1, 300)
+            .addPoint(ASduType.M_ME_NB_1, 1, 301)
+            .addPoint(ASduType.M_ME_NC_1, 1, 302)
+            .addPoint(ASduType.M_IT_NA_1, 1, 400)
+            .addPoint(ASduType.M_SP_NA_1, 2, 100)
+            .build();
+
+    @Test
+    public void testUpdates() {
+        assertEquals(16, image.size());
+        assertEquals(ProcessImage.INVALID, image.getQuality(1, 100));
+
+        assertTrue(image.setSinglePoint(1, 105, true, 0, TIME));
+        assertFalse(image.setSinglePoint(1, 105, true, 0, TIME + 1));
+        assertTrue(image.setSinglePoint(1, 105, true, ProcessImage.BLOCKED, TIME + 2));
+        assertTrue(image.getSinglePoint(1, 105));
+        assertFalse(image.getSinglePoint(1, 104));
+        assertFalse(image.getSinglePoint(2, 100));
+        assertEquals(ProcessImage.BLOCKED, image.getQuality(1, 105));
+        assertEquals(TIME + 2, image.getTimestamp(1, 105));
+
+        image.setDoublePoint(1, 200, DoublePointInformation.ON, ProcessImage.SUBSTITUTED, TIME);
+        image.setNormalizedValue(1, 300, -32768, ProcessImage.OVERFLOW, TIME);
+        image.setScaledValue(1, 301, 1234, 0, TIME);
+        image.setShortFloat(1, 302, 3.25f, ProcessImage.NOT_TOPICAL, TIME);
+        image.setIntegratedTotal(1, 400, -5, 17, ProcessImage.CARRY, TIME);
+
+        assertEquals(DoublePointInformation.ON, image.getDoublePoint(1, 200));
+        assertEquals(ProcessImage.SUBSTITUTED, image.getQuality(1, 200));
+        assertEquals(-32768, image.getNormalizedValue(1, 300));
+        assertEquals(ProcessImage.OVERFLOW, image.getQuality(1, 300));
+        assertEquals(1234, image.getScaledValue(1, 301));
+        assertEquals(3.25f, image.getShortFloat(1, 302), 0);
+        assertEquals(-5, image.getIntegratedTotal(1, 400));
+        assertEquals(ProcessImage.CARRY | 17, image.getQuality(1, 400));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        image.setShortFloat(1, 302, 42.5f, 0, TIME);
+        image.setIntegratedTotal(1, 400, 99, 3, ProcessImage.INVALID, TIME);
+
+        ASdu aSdu = image.read(1, 302, CauseOfTransmission.REQUEST, false);
+        assertEquals(ASduType.M_ME_NC_1, aSdu.getTypeIdentification());
+        assertEquals(CauseOfTransmission.REQUEST, aSdu.getCauseOfTransmission());
+        assertEquals(1, aSdu.getCommonAddress());
+        InformationObject informationObject = aSdu.getInformationObjects()[0];
+        assertEquals(302, informationObject.getInformationObjectAddress());
+        InformationElement[] elements = informationObject.getInformationElements()[0];
+        assertEquals(2, elements.length);
+        assertEquals(42.5f, ((IeShortFloat) elements[0]).getValue(), 0);
+        assertFalse(((IeQuality) elements[1]).isInvalid());
+
+        aSdu = image.read(1, 400, CauseOfTransmission.SPONTANEOUS, true);
+        assertEquals(ASduType.M_IT_TB_1, aSdu.getTypeIdentification());
+        elements = aSdu.getInformationObjects()[0].getInformationElements()[0];
+        IeBinaryCounterReading reading = (IeBinaryCounterReading) elements[0];
+        assertEquals(99, reading.getCounterReading());
+        assertEquals(3, reading.getSequenceNumber());
+        assertTrue(reading.getFlags().contains(IeBinaryCounterReading.Flag.INVALID));
+        assertEquals(TIME, ((IeTime56) elements[1]).getTimestamp());
+
+        image.setScaledValue(1, 301, -7, 0, TIME);
+        elements = image.read(1, 301, CauseOfTransmission.REQUEST, true).getInformationObjects()[0]
+                .getInformationElements()[0];
+        assertEquals(-7, ((IeScaledValue) elements[0]).getUnnormalizedValue());
+        assertEquals(3, elements.length);
+
+        assertNull(image.read(1, 999, CauseOfTransmission.REQUEST, false));
+        assertNull(image.read(3, 100, CauseOfTransmission.REQUEST, false));
+    }
+
+    @Test
+    public void testInvalidAccess() {
+        assertNull(image.getType(1, 999));
+        assertEquals(ASduType.M_ME_NB_1, image.getType(1, 301));
+
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                image.setSinglePoint(1, 999, true, 0, TIME);
+            }
+        });
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                image.setShortFloat(1, 301, 1, 0, TIME);
+            }
+        });
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                image.setSinglePoint(1, 100, true, ProcessImage.OVERFLOW, TIME);
+            }
+        });
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                image.setScaledValue(1, 301, 40000, 0, TIME);
+            }
+        });
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                ProcessImage.builder().addPoint(ASduType.M_SP_NA_1, 1, 1).addPoint(ASduType.M_ME_NC_1, 1, 1).build();
+            }
+        });
+        assertIllegal(new Runnable() {
+            @Override
+            public void run() {
+                ProcessImage.builder().addPoint(ASduType.C_SC_NA_1, 1, 1);
+            }
+        });
+    }
+
+    @Test
+    public void testInterrogationOfMillionPoints() throws Exception {
+        int count = 1000000;
+        ProcessImage image = ProcessImage.builder()
+                .addPoints(ASduType.M_SP_NA_1, 1, 1, count)
+                .addPoint(ASduType.M_SP_NA_1, 2, 1)
+                .addPoints(ASduType.M_ME_NC_1, 1, 2000000, 10)
+                .addPoints(ASduType.M_IT_NA_1, 1, 3000000, 10)
+                .build();
+        for (int ioa = 1; ioa <= count; ioa += 3) {
+            image.setSinglePoint(1, ioa, true, 0, TIME);
+        }
+
+        Iterator<ASdu> aSdus = image.interrogate(1, CauseOfTransmission.INTERROGATED_BY_STATION,
+                new ASduPacker(2, 2, 3));
+        int points = 0;
+        int floats = 0;
+        int nextIoa = 1;
+        while (aSdus.hasNext()) {
+            ASdu aSdu = aSdus.next();
+            assertEquals(CauseOfTransmission.INTERROGATED_BY_STATION, aSdu.getCauseOfTransmission());
+            if (aSdu.getTypeIdentification() == ASduType.M_ME_NC_1) {
+                floats += aSdu.getSequenceLength();
+                continue;
+            }
+            assertEquals(ASduType.M_SP_NA_1, aSdu.getTypeIdentification());
+            assertTrue(aSdu.isSequenceOfElements());
+            InformationObject informationObject = aSdu.getInformationObjects()[0];
+            assertEquals(nextIoa, informationObject.getInformationObjectAddress());
+            for (InformationElement[] elements : informationObject.getInformationElements()) {
+                IeSinglePointWithQuality point = (IeSinglePointWithQuality) elements[0];
+                assertEquals((nextIoa - 1) % 3 == 0, point.isOn());
+                assertEquals((nextIoa - 1) % 3 != 0, point.isInvalid());
+                nextIoa++;
+                points++;
+            }
+        }
+        assertEquals(count, points);
+        assertEquals(10, floats);
+        assertFalse(image.interrogate(3, CauseOfTransmission.INTERROGATED_BY_STATION, new ASduPacker(2, 2, 3))
+                .hasNext());
+    }
+
+    @Test
+    public void testConsistentReadsDuringUpdates() throws Exception {
+        final ProcessImage image = ProcessImage.builder().addPoints(ASduType.M_ME_NC_1, 1, 1, 128).build();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                int i = 0;
+                while (running.get()) {
+                    // the value is the offset of the timestamp, so that readers can check that both belong together
+                    image.setShortFloat(1, 1 + i % 128, i % 100000, 0, TIME + i % 100000);
+                    i++;
+                }
+            }
+        };
+        writer.start();
+        try {
+            for (int i = 0; i < 200000; i++) {
+                InformationElement[] elements = image.read(1, 1 + i % 128, CauseOfTransmission.REQUEST, true)
+                        .getInformationObjects()[0].getInformationElements()[0];
+                float value = ((IeShortFloat) elements[0]).getValue();
+                long timestamp = ((IeTime56) elements[2]).getTimestamp();
+                if (((IeQuality) elements[1]).isInvalid()) {
+                    continue;
+                }
+                assertEquals(TIME + (long) value, timestamp);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    private static void assertIllegal(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("IllegalArgumentException expected");
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.awaitility.Awaitility;
+import org.junit.After;
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeQualifierOfInterrogation;
+
+public class TlsITest {
+
+    private static final String CIPHER_SUITE = "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256";
+
+    private final int port = TestUtils.getAvailablePort();
+    private Server server;
+    private volatile Connection serverConnection;
+
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testMutualAuthenticationAndSessionResumption() throws Exception {
+        startServer(Server.builder().setTlsProtocols("TLSv1.2").setTlsCipherSuites(CIPHER_SUITE));
+
+        ClientConnectionBuilder clientBuilder = new ClientConnectionBuilder(InetAddress.getLoopbackAddress())
+                .setPort(port)
+                .useTls(TestUtils.createSslContext("client"))
+                .setTlsProtocols("TLSv1.2")
+                .setMessageFragmentTimeout(500);
+
+        SSLSession firstSession = interrogate(clientBuilder, 0);
+        assertEquals(CIPHER_SUITE, firstSession.getCipherSuite());
+        assertEquals("CN=j60870-test-client", firstSession.getLocalPrincipal().getName());
+
+        SSLSession secondSession = interrogate(clientBuilder, 0);
+        assertArrayEquals(firstSession.getId(), secondSession.getId());
+    }
+
+    @Test
+    public void testTls13() throws Exception {
+        startServer(Server.builder().setTlsProtocols("TLSv1.3").setTlsRenegotiationPeriod(200));
+
+        ClientConnectionBuilder clientBuilder = new ClientConnectionBuilder(InetAddress.getLoopbackAddress())
+                .setPort(port)
+                .useTls(TestUtils.createSslContext("client"))
+                .setTlsRenegotiationPeriod(300);
+
+        // the traffic keys are updated a few times before the interrogation
+        assertEquals("TLSv1.3", interrogate(clientBuilder, 2).getProtocol());
+    }
+
+    @Test(expected = IOException.class)
+    public void testClientWithoutCertificateIsRejected() throws Exception {
+        startServer(Server.builder().setTlsProtocols("TLSv1.2"));
+
+        new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                .useTls(TestUtils.createSslContext(null))
+                .build();
+    }
+
+    @Test
+    public void testPeriodicRenegotiation() throws Exception {
+        SSLContext serverContext = TestUtils.createSslContext("server");
+        final CountDownLatch renegotiated = new CountDownLatch(3);
+
+        try (final SSLServerSocket serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory()
+                .createServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            serverSocket.setEnabledProtocols(new String[] { "TLSv1.2" });
+            serverSocket.setNeedClientAuth(true);
+
+            // a plain TLS peer that counts the handshakes and discards everything it receives
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                        socket.addHandshakeCompletedListener(new HandshakeCompletedListener() {
+
+                            @Override
+                            public void handshakeCompleted(HandshakeCompletedEvent event) {
+                                renegotiated.countDown();
+                            }
+                        });
+                        InputStream is = socket.getInputStream();
+                        while (is.read() != -1) {
+                            // discard
+                        }
+                    } catch (IOException e) {
+                        // the test fails waiting for the latch
+                    }
+                }
+            }).start();
+
+            Connection connection = new ClientConnectionBuilder(InetAddress.getLoopbackAddress()).setPort(port)
+                    .useTls(TestUtils.createSslContext("client"))
+                    .setTlsRenegotiationPeriod(200)
+                    .setMessageFragmentTimeout(100)
+                    .build();
+            connection.start(new NoOpListener());
+
+            assertTrue(renegotiated.await(5, TimeUnit.SECONDS));
+            connection.close();
+        }
+    }
+
+    private void startServer(Server.Builder builder) throws Exception {
+        server = builder.setPort(port)
+                .setBindAddr(InetAddress.getLoopbackAddress())
+                .useTls(TestUtils.createSslContext("server"))
+                .requireTlsClientAuth()
+                .setMessageFragmentTimeout(500)
+                .build();
+        server.start(new ServerEventListener() {
+
+            @Override
+            public ConnectionEventListener connectionIndication(Connection connection) {
+                serverConnection = connection;
+                return new NoOpListener() {
+
+                    @Override
+                    public void newASdu(Connection connection, ASdu aSdu) {
+                        try {
+                            connection.sendConfirmation(aSdu);
+                        } catch (IOException e) {
+                            // the client times out
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void serverStoppedListeningIndication(IOException e) {
+            }
+
+            @Override
+            public void connectionAttemptFailed(IOException e) {
+            }
+        });
+    }
+
+    /**
+     * Connects, waits until the server has started the given number of renegotiations and sends an interrogation
+     * command. Returns the TLS session after the confirmation has been received.
+     */
+    private SSLSession interrogate(ClientConnectionBuilder clientBuilder, final int serverRenegotiations)
+            throws Exception {
+        final CountDownLatch confirmed = new CountDownLatch(1);
+        Connection connection = clientBuilder.setConnectionEventListener(new NoOpListener() {
+
+            @Override
+            public void newASdu(Connection connection, ASdu aSdu) {
+                if (aSdu.getCauseOfTransmission() == CauseOfTransmission.ACTIVATION_CON) {
+                    confirmed.countDown();
+                }
+            }
+        }).build();
+        try {
+            connection.startDataTransfer();
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() {
+                    return serverConnection.getTlsRenegotiations() >= serverRenegotiations;
+                }
+            });
+            connection.interrogation(1, CauseOfTransmission.ACTIVATION, new IeQualifierOfInterrogation(20));
+            assertTrue(confirmed.await(5, TimeUnit.SECONDS));
+
+            SSLSession session = connection.getTlsSession();
+            assertNotNull(session);
+            return session;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static class NoOpListener implements ConnectionEventListener {
+
+        @Override
+        public void newASdu(Connection connection, ASdu aSdu) {
+        }
+
+        @Override
+        public void connectionClosed(Connection connection, IOException cause) {
+        }
+
+        @Override
+        public void dataTransferStateChanged(Connection connection, boolean stopped) {
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+import org.openmuc.j60870.ASduType;
+import org.openmuc.j60870.CauseOfTransmission;
+import org.openmuc.j60870.internal.ExtendedDataInputStream;
+
+public class InformationObjectLayoutTest {
+
+    @Test
+    public void testElementSetSizes() {
+        assertEquals(1, InformationObjectLayout.forType(ASduType.M_SP_NA_1.getId()).getElementSetSize());
+        assertEquals(12, InformationObjectLayout.forType(ASduType.M_ME_TF_1.getId()).getElementSetSize());
+        assertEquals(12, InformationObjectLayout.forType(ASduType.M_IT_TB_1.getId()).getElementSetSize());
+        assertEquals(0, InformationObjectLayout.forType(ASduType.C_RD_NA_1.getId()).getElementSetSize());
+        assertFalse(InformationObjectLayout.forType(ASduType.F_SG_NA_1.getId()).isFixedLength());
+
+        assertTrue(InformationObjectLayout.forType(ASduType.M_ME_NC_1.getId()).isSequenceAllowed());
+        assertFalse(InformationObjectLayout.forType(ASduType.M_ME_TC_1.getId()).isSequenceAllowed());
+
+        assertNull(InformationObjectLayout.forType(ASduType.PRIVATE_128.getId()));
+        assertNull(InformationObjectLayout.forType(ASduType.RESERVED_22.getId()));
+    }
+
+    @Test
+    public void testInformationObjectsLength() {
+        InformationObjectLayout layout = InformationObjectLayout.forType(ASduType.M_ME_NC_1.getId());
+        assertEquals(3 + 4 * 5, layout.informationObjectsLength(3, true, 4));
+        assertEquals(4 * (3 + 5), layout.informationObjectsLength(3, false, 4));
+
+        layout = InformationObjectLayout.forType(ASduType.M_ME_TF_1.getId());
+        assertEquals(2 + 12, layout.informationObjectsLength(2, true, 4));
+    }
+
+    @Test
+    public void testDecodeSequence() throws Exception {
+        InformationObject informationObject = new InformationObject(0x123456,
+                new InformationElement[][] { { new IeShortFloat(1.5f), new IeQuality(true, false, false, false, false) },
+                        { new IeShortFloat(-2f), new IeQuality(false, false, false, false, true) } });
+        byte[] buffer = new byte[64];
+        int length = informationObject.encode(buffer, 0, 3);
+
+        InformationObjectLayout layout = InformationObjectLayout.forType(ASduType.M_ME_NC_1.getId());
+        assertEquals(length, layout.informationObjectsLength(3, true, 2));
+
+        InformationObject decoded = layout.decode(
+                new ExtendedDataInputStream(new ByteArrayInputStream(buffer, 0, length)), 2, 3);
+        assertEquals(informationObject.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testLookupOfIds() {
+        assertEquals(ASduType.C_TS_TA_1, ASduType.typeFor(107));
+        assertNull(ASduType.typeFor(256));
+        assertNull(ASduType.typeFor(-1));
+        assertEquals(CauseOfTransmission.UNKNOWN_INFORMATION_OBJECT_ADDRESS, CauseOfTransmission.causeFor(47));
+        assertNull(CauseOfTransmission.causeFor(64));
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014-2024 Fraunhofer ISE
+ *
+ * This file is part of j60870.
+ * For more information visit http://www.openmuc.org
+ *
+ * j60870 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * j60870 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with j60870.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.openmuc.j60870.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.openmuc.j60870.ie.IeDoubleCommand.DoubleCommandState;
+import org.openmuc.j60870.ie.IeDoublePointWithQuality.DoublePointInformation;
+import org.openmuc.j60870.ie.IeRegulatingStepCommand.StepCommandState;
+import org.openmuc.j60870.ie.IeSingleProtectionEvent.EventState;
+
+public class SingleByteInformationElementTest {
+
+    @Test
+    public void testDecodeReturnsSharedInstances() throws IOException {
+        for (int b = 0; b < 256; b++) {
+            assertSame(IeQuality.decode(is(b)), IeQuality.decode(is(b)));
+            assertSame(IeSinglePointWithQuality.decode(is(b)), IeSinglePointWithQuality.decode(is(b)));
+            assertSame(IeDoublePointWithQuality.decode(is(b)), IeDoublePointWithQuality.decode(is(b)));
+            assertSame(IeProtectionQuality.decode(is(b)), IeProtectionQuality.decode(is(b)));
+            assertSame(IeSingleProtectionEvent.decode(is(b)), IeSingleProtectionEvent.decode(is(b)));
+            assertSame(IeProtectionStartEvent.decode(is(b)), IeProtectionStartEvent.decode(is(b)));
+            assertSame(IeProtectionOutputCircuitInformation.decode(is(b)),
+                    IeProtectionOutputCircuitInformation.decode(is(b)));
+            assertSame(IeSingleCommand.decode(is(b)), IeSingleCommand.decode(is(b)));
+            assertSame(IeDoubleCommand.decode(is(b)), IeDoubleCommand.decode(is(b)));
+            assertSame(IeRegulatingStepCommand.decode(is(b)), IeRegulatingStepCommand.decode(is(b)));
+            assertSame(IeQualifierOfSetPointCommand.decode(is(b)), IeQualifierOfSetPointCommand.decode(is(b)));
+
+            // every byte is encoded unchanged
+            assertEquals(b, encode(IeQuality.decode(is(b))));
+            assertEquals(b, encode(IeDoubleCommand.decode(is(b))));
+            assertEquals(b, encode(IeQualifierOfSetPointCommand.decode(is(b))));
+            assertEquals(b, encode(IeProtectionStartEvent.decode(is(b))));
+        }
+    }
+
+    @Test
+    public void testValueOfMatchesConstructor() throws IOException {
+        IeQuality quality = IeQuality.valueOf(true, false, true, false, true);
+        assertSame(quality, IeQuality.decode(is(encode(new IeQuality(true, false, true, false, true)))));
+        assertTrue(quality.isOverflow());
+        assertTrue(quality.isSubstituted());
+        assertTrue(quality.isInvalid());
+        assertFalse(quality.isBlocked());
+
+        IeSinglePointWithQuality siq = IeSinglePointWithQuality.valueOf(true, false, false, true, false);
+        assertSame(siq, IeSinglePointWithQuality.decode(is(0x41)));
+        assertTrue(siq.isOn());
+
+        IeDoublePointWithQuality diq = IeDoublePointWithQuality.valueOf(DoublePointInformation.ON, true, false,
+                false, false);
+        assertSame(diq, IeDoublePointWithQuality.decode(is(0x12)));
+        assertEquals(DoublePointInformation.ON, diq.getDoublePointInformation());
+
+        assertSame(IeProtectionQuality.valueOf(true, false, false, false, false), IeProtectionQuality.decode(is(0x08)));
+        assertSame(IeSingleProtectionEvent.valueOf(EventState.OFF, false, false, false, false, true),
+                IeSingleProtectionEvent.decode(is(0x81)));
+        assertSame(IeProtectionStartEvent.valueOf(true, false, false, true, false, false),
+                IeProtectionStartEvent.decode(is(0x09)));
+        assertSame(IeProtectionOutputCircuitInformation.valueOf(false, true, false, false),
+                IeProtectionOutputCircuitInformation.decode(is(0x02)));
+
+        IeSingleCommand sco = IeSingleCommand.valueOf(true, 3, true);
+        assertSame(sco, IeSingleCommand.decode(is(encode(new IeSingleCommand(true, 3, true)))));
+        assertEquals(3, sco.getQualifier());
+        assertTrue(sco.isSelect());
+
+        IeDoubleCommand dco = IeDoubleCommand.valueOf(DoubleCommandState.OFF, 1, false);
+        assertSame(dco, IeDoubleCommand.decode(is(encode(new IeDoubleCommand(DoubleCommandState.OFF, 1, false)))));
+        assertEquals(DoubleCommandState.OFF, dco.getCommandState());
+
+        assertSame(IeRegulatingStepCommand.valueOf(StepCommandState.NEXT_STEP_HIGHER, 0, true),
+                IeRegulatingStepCommand.decode(is(0x82)));
+
+        IeQualifierOfSetPointCommand qos = IeQualifierOfSetPointCommand.valueOf(127, true);
+        assertSame(qos, IeQualifierOfSetPointCommand.decode(is(0xff)));
+        assertEquals(127, qos.getQl());
+        assertTrue(qos.isSelect());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQualifier() {
+        IeSingleCommand.valueOf(true, 32, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSetPointQualifier() {
+        IeQualifierOfSetPointCommand.valueOf(128, false);
+    }
+
+    private static DataInputStream is(int b) {
+        return new DataInputStream(new ByteArrayInputStream(new byte[] { (byte) b }));
+    }
+
+    private static int encode(InformationElement element) {
+        byte[] buffer = new byte[1];
+        assertEquals(1, element.encode(buffer, 0));
+        return buffer[0] & 0xff;
+    }
+
+}